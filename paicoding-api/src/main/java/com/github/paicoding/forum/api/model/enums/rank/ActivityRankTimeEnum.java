@@ -14,16 +14,28 @@ import lombok.Getter;
 public enum ActivityRankTimeEnum {
     DAY(1, "day"),
     MONTH(2, "month"),
+    /**
+     * 最近7天
+     */
+    WEEK(3, "week"),
+    /**
+     * 最近30天
+     */
+    THIRTY_DAYS(4, "30days"),
+    /**
+     * 总榜
+     */
+    ALL(5, "all"),
     ;
 
     private int type;
     private String desc;
 
     public static ActivityRankTimeEnum nameOf(String name) {
-        if (DAY.desc.equalsIgnoreCase(name)) {
-            return DAY;
-        } else if (MONTH.desc.equalsIgnoreCase(name)) {
-            return MONTH;
+        for (ActivityRankTimeEnum time : values()) {
+            if (time.desc.equalsIgnoreCase(name)) {
+                return time;
+            }
         }
         return null;
     }
@@ -0,0 +1,25 @@
+package com.github.paicoding.forum.api.model.event;
+
+import com.github.paicoding.forum.api.model.enums.ConfigTypeEnum;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * 运营配置(首页banner、公告、教程等)变更事件
+ *
+ * @author YiHui
+ * @date 2026/10/17
+ */
+@Getter
+@ToString
+@EqualsAndHashCode(callSuper = true)
+public class BannerChangeEvent extends ApplicationEvent {
+    private final ConfigTypeEnum type;
+
+    public BannerChangeEvent(Object source, ConfigTypeEnum type) {
+        super(source);
+        this.type = type;
+    }
+}
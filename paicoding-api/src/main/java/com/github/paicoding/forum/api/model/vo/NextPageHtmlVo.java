@@ -16,4 +16,12 @@ import java.io.Serializable;
 public class NextPageHtmlVo implements Serializable {
     private String html;
     private Boolean hasMore;
+    /**
+     * 游标分页时下一页的游标，前端加载下一页时原样回传
+     */
+    private String nextCursor;
+
+    public NextPageHtmlVo(String html, Boolean hasMore) {
+        this(html, hasMore, null);
+    }
 }
@@ -0,0 +1,87 @@
+package com.github.paicoding.forum.api.model.vo;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.stream.Collectors;
+
+/**
+ * 游标分页(keyset)的位置：上一页最后一条记录的排序字段 + 主键id
+ * <p>
+ * 下一页直接以 where (排序字段, id) < (?, ?) 定位，不再需要 limit offset 扫描并丢弃前面的数据；
+ * 对外以 base64 编码后的不透明字符串传递，前端原样回传即可
+ *
+ * @author YiHui
+ * @date 2026/10/17
+ */
+public class PageCursor implements Serializable {
+    private static final long serialVersionUID = -2386507158637021743L;
+
+    private static final String SPLIT = "_";
+
+    /**
+     * 排序字段，最后一个固定为主键id；时间类型的字段保存毫秒时间戳
+     */
+    private final long[] keys;
+
+    private PageCursor(long[] keys) {
+        this.keys = keys;
+    }
+
+    public static PageCursor of(long... keys) {
+        return new PageCursor(keys);
+    }
+
+    /**
+     * 解析前端回传的游标
+     *
+     * @param cursor
+     * @return 游标为空或者格式不对时返回null
+     */
+    public static PageCursor decode(String cursor) {
+        if (cursor == null || cursor.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            String text = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            long[] keys = Arrays.stream(text.split(SPLIT)).mapToLong(Long::parseLong).toArray();
+            return keys.length == 0 ? null : new PageCursor(keys);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public String encode() {
+        String text = Arrays.stream(keys).mapToObj(String::valueOf).collect(Collectors.joining(SPLIT));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    public long getKey(int index) {
+        return keys[index];
+    }
+
+    /**
+     * 主键id
+     */
+    public long getId() {
+        return keys[keys.length - 1];
+    }
+
+    /**
+     * (时间, id) 形式的游标中的时间字段，供 mapper xml 中使用
+     */
+    public Date getTime() {
+        return new Date(keys[keys.length - 2]);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(keys);
+    }
+}
@@ -23,6 +23,11 @@ public class PageListVo<T> {
      */
     private Boolean hasMore;
 
+    /**
+     * 游标分页时，下一页的游标；没有更多数据时为null
+     */
+    private String nextCursor;
+
     public static <T> PageListVo<T> emptyVo() {
         PageListVo<T> vo = new PageListVo<>();
         vo.setList(Collections.emptyList());
@@ -26,6 +26,9 @@ public class PageParam {
     private long offset;
     private long limit;
 
+    @ApiModelProperty("游标分页时，上一页最后一条记录的位置；为空时按页数分页")
+    private PageCursor cursor;
+
     public static PageParam newPageInstance() {
         return newPageInstance(DEFAULT_PAGE_NUM, DEFAULT_PAGE_SIZE);
     }
@@ -49,6 +52,21 @@ public class PageParam {
         return pageParam;
     }
 
+    /**
+     * 游标分页：从游标的位置开始向后取 pageSize 条数据，不再需要 offset
+     *
+     * @param cursor   上一页返回的 nextCursor，解析失败时从第一页开始
+     * @param pageSize
+     * @return
+     */
+    public static PageParam newCursorInstance(String cursor, Long pageSize) {
+        final PageParam pageParam = newPageInstance(DEFAULT_PAGE_NUM, pageSize);
+        if (pageParam != null) {
+            pageParam.cursor = PageCursor.decode(cursor);
+        }
+        return pageParam;
+    }
+
     public static String getLimitSql(PageParam pageParam) {
         return String.format("limit %s,%s", pageParam.offset, pageParam.limit);
     }
@@ -69,6 +69,11 @@ public class ArticleDTO implements Serializable {
      */
     private String content;
 
+    /**
+     * 正文版本号，对应 article_detail.version；审核中等不展示原文的场景为null
+     */
+    private Long contentVersion;
+
     /**
      * 文章来源
      *
@@ -169,4 +174,14 @@ public class ArticleDTO implements Serializable {
      * @see ThirdPayWayEnum#wxPay()
      */
     private String payWay;
+
+    /**
+     * 搜索结果中高亮之后的标题，已做html转义
+     */
+    private String highlightTitle;
+
+    /**
+     * 搜索结果中高亮之后的摘要，已做html转义
+     */
+    private String highlightSummary;
 }
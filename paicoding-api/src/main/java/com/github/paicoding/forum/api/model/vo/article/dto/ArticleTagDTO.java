@@ -0,0 +1,18 @@
+package com.github.paicoding.forum.api.model.vo.article.dto;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 携带文章id的标签信息，用于批量查询多篇文章的标签
+ *
+ * @author YiHui
+ * @date 2026/10/16
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class ArticleTagDTO extends TagDTO {
+    private static final long serialVersionUID = 5137402231870421176L;
+
+    private Long articleId;
+}
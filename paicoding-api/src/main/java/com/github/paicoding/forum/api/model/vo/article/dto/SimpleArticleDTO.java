@@ -48,4 +48,7 @@ public class SimpleArticleDTO implements Serializable {
 
     @ApiModelProperty("分组层级")
     private Integer groupLevel;
+
+    @ApiModelProperty("搜索结果中高亮之后的标题，已做html转义")
+    private String highlightTitle;
 }
@@ -11,7 +11,9 @@ import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 
 import javax.annotation.PostConstruct;
 import java.util.concurrent.TimeUnit;
@@ -50,6 +52,19 @@ public class ForumCoreAutoConfig {
         return cacheManager;
     }
 
+    /**
+     * redis 消息订阅容器，用于集群内多个节点之间的广播，如本地缓存失效通知
+     *
+     * @param connectionFactory
+     * @return
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+
     @PostConstruct
     public void init() {
         // 这里借助手动解析配置信息，并实例化为Java POJO对象，来实现代理池的初始化
@@ -1,13 +1,19 @@
 package com.github.paicoding.forum.core.cache;
 
 import com.github.paicoding.forum.core.util.JsonUtil;
+import com.github.paicoding.forum.core.util.RoundTripCounter;
 import com.google.common.collect.Maps;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.springframework.dao.DataAccessException;
 import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.Cursor;
 import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
 import org.springframework.util.CollectionUtils;
 
 import java.nio.charset.Charset;
@@ -18,6 +24,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -79,6 +86,18 @@ public class RedisClient {
         return bytes;
     }
 
+    /**
+     * 统一的redis调用入口，顺带记录当前请求的redis往返次数
+     *
+     * @param callback
+     * @param <T>
+     * @return
+     */
+    private static <T> T execute(RedisCallback<T> callback) {
+        RoundTripCounter.incrRedis();
+        return template.execute(callback);
+    }
+
     /**
      * 返回key的有效期
      *
@@ -86,7 +105,7 @@ public class RedisClient {
      * @return
      */
     public static Long ttl(String key) {
-        return template.execute((RedisCallback<Long>) con -> con.ttl(keyBytes(key)));
+        return execute((RedisCallback<Long>) con -> con.ttl(keyBytes(key)));
     }
 
     /**
@@ -96,7 +115,7 @@ public class RedisClient {
      * @return
      */
     public static String getStr(String key) {
-        return template.execute((RedisCallback<String>) con -> {
+        return execute((RedisCallback<String>) con -> {
             byte[] val = con.get(keyBytes(key));
             return val == null ? null : new String(val);
         });
@@ -109,19 +128,41 @@ public class RedisClient {
      * @param value
      */
     public static void setStr(String key, String value) {
-        template.execute((RedisCallback<Void>) con -> {
+        execute((RedisCallback<Void>) con -> {
             con.set(keyBytes(key), valBytes(value));
             return null;
         });
     }
 
+    /**
+     * 批量查询缓存
+     *
+     * @param keys
+     * @param clz
+     * @param <T>
+     * @return 与keys顺序一致的结果，不存在的key对应null
+     */
+    public static <T> List<T> mGet(List<String> keys, Class<T> clz) {
+        if (CollectionUtils.isEmpty(keys)) {
+            return Collections.emptyList();
+        }
+        return execute((RedisCallback<List<T>>) con -> {
+            List<byte[]> list = con.mGet(keyBytes(keys));
+            List<T> result = new ArrayList<>(keys.size());
+            for (int i = 0; i < keys.size(); i++) {
+                result.add(list == null || list.size() <= i ? null : toObj(list.get(i), clz));
+            }
+            return result;
+        });
+    }
+
     /**
      * 删除缓存
      *
      * @param key
      */
     public static void del(String key) {
-        template.execute((RedisCallback<Long>) con -> con.del(keyBytes(key)));
+        execute((RedisCallback<Long>) con -> con.del(keyBytes(key)));
     }
 
     /**
@@ -131,7 +172,7 @@ public class RedisClient {
      * @param expire 有效期，s为单位
      */
     public static void expire(String key, Long expire) {
-        template.execute((RedisCallback<Void>) connection -> {
+        execute((RedisCallback<Void>) connection -> {
             connection.expire(keyBytes(key), expire);
             return null;
         });
@@ -146,7 +187,7 @@ public class RedisClient {
      * @return
      */
     public static Boolean setStrWithExpire(String key, String value, Long expire) {
-        return template.execute(new RedisCallback<Boolean>() {
+        return execute(new RedisCallback<Boolean>() {
             @Override
             public Boolean doInRedis(RedisConnection redisConnection) throws DataAccessException {
                 return redisConnection.setEx(keyBytes(key), expire, valBytes(value));
@@ -154,8 +195,19 @@ public class RedisClient {
         });
     }
 
+    /**
+     * key不存在时才写入
+     *
+     * @param key
+     * @param value
+     * @return true 表示写入成功
+     */
+    public static Boolean setStrIfAbsent(String key, String value) {
+        return execute((RedisCallback<Boolean>) con -> con.setNX(keyBytes(key), valBytes(value)));
+    }
+
     public static <T> Map<String, T> hGetAll(String key, Class<T> clz) {
-        Map<byte[], byte[]> records = template.execute((RedisCallback<Map<byte[], byte[]>>) con -> con.hGetAll(keyBytes(key)));
+        Map<byte[], byte[]> records = execute((RedisCallback<Map<byte[], byte[]>>) con -> con.hGetAll(keyBytes(key)));
         if (records == null) {
             return Collections.emptyMap();
         }
@@ -171,8 +223,64 @@ public class RedisClient {
         return result;
     }
 
+    /**
+     * 基于管道批量获取多个hash的全部内容，一次网络往返
+     *
+     * @param keys
+     * @param clz
+     * @param <T>
+     * @return 与keys顺序一致的结果，不存在的key返回空map
+     */
+    public static <T> List<Map<String, T>> pipelineHGetAll(List<String> keys, Class<T> clz) {
+        if (CollectionUtils.isEmpty(keys)) {
+            return Collections.emptyList();
+        }
+
+        RoundTripCounter.incrRedis();
+        List<Object> records = template.executePipelined((RedisCallback<Object>) connection -> {
+            for (String key : keys) {
+                connection.hGetAll(keyBytes(key));
+            }
+            return null;
+        });
+
+        List<Map<String, T>> result = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            Object record = records == null || records.size() <= i ? null : records.get(i);
+            if (!(record instanceof Map)) {
+                result.add(Collections.emptyMap());
+                continue;
+            }
+
+            Map<?, ?> map = (Map<?, ?>) record;
+            Map<String, T> item = Maps.newHashMapWithExpectedSize(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                if (entry.getKey() == null) {
+                    continue;
+                }
+                item.put(toStr(entry.getKey()), toObj(toBytes(entry.getValue()), clz));
+            }
+            result.add(item);
+        }
+        return result;
+    }
+
+    /**
+     * 管道返回的结果会经过 RedisTemplate 的序列化器处理，这里兼容 byte[] 与 String 两种形式
+     */
+    private static String toStr(Object obj) {
+        return obj instanceof byte[] ? new String((byte[]) obj, CODE) : String.valueOf(obj);
+    }
+
+    private static byte[] toBytes(Object obj) {
+        if (obj == null) {
+            return null;
+        }
+        return obj instanceof byte[] ? (byte[]) obj : String.valueOf(obj).getBytes(CODE);
+    }
+
     public static <T> T hGet(String key, String field, Class<T> clz) {
-        return template.execute((RedisCallback<T>) con -> {
+        return execute((RedisCallback<T>) con -> {
             byte[] records = con.hGet(keyBytes(key), valBytes(field));
             if (records == null) {
                 return null;
@@ -191,11 +299,69 @@ public class RedisClient {
      * @return
      */
     public static Long hIncr(String key, String filed, Integer cnt) {
-        return template.execute((RedisCallback<Long>) con -> con.hIncrBy(keyBytes(key), valBytes(filed), cnt));
+        return execute((RedisCallback<Long>) con -> con.hIncrBy(keyBytes(key), valBytes(filed), cnt));
+    }
+
+    private static final byte[] HINCR_IF_PRESENT_SCRIPT = ("if redis.call('hexists', KEYS[1], ARGV[1]) == 1 then "
+            + "return redis.call('hincrby', KEYS[1], ARGV[1], ARGV[2]) end return nil").getBytes(CODE);
+
+    /**
+     * 仅当field已存在时才自增，用于懒加载的计数：不存在时说明还未从db初始化，直接自增会得到一个错误的值
+     *
+     * @param key
+     * @param field
+     * @param cnt
+     * @return 自增后的值；field不存在时返回null
+     */
+    public static Long hIncrIfPresent(String key, String field, Integer cnt) {
+        return execute((RedisCallback<Long>) con -> con.eval(HINCR_IF_PRESENT_SCRIPT, ReturnType.INTEGER, 1,
+                keyBytes(key), valBytes(field), valBytes(String.valueOf(cnt))));
+    }
+
+    /**
+     * 以 evalsha 的方式执行lua脚本，只传输脚本的sha1；redis中还没有缓存该脚本时(首次执行、redis重启)，退化为 eval，同时完成脚本的加载
+     *
+     * @param script 脚本，返回值类型决定了 ReturnType
+     * @param keys   脚本中用到的key，会自动加上统一前缀
+     * @param args   脚本参数
+     * @param <T>
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T evalSha(RedisScript<T> script, List<String> keys, Object... args) {
+        byte[][] keysAndArgs = new byte[keys.size() + args.length][];
+        int index = 0;
+        for (String key : keys) {
+            keysAndArgs[index++] = keyBytes(key);
+        }
+        for (Object arg : args) {
+            keysAndArgs[index++] = valBytes(String.valueOf(arg));
+        }
+        ReturnType type = ReturnType.fromJavaType(script.getResultType());
+        return execute((RedisCallback<T>) con -> {
+            try {
+                return (T) con.evalSha(script.getSha1(), type, keys.size(), keysAndArgs);
+            } catch (RuntimeException e) {
+                if (!isNoScriptError(e)) {
+                    throw e;
+                }
+                return (T) con.eval(script.getScriptAsString().getBytes(CODE), type, keys.size(), keysAndArgs);
+            }
+        });
+    }
+
+    private static boolean isNoScriptError(Throwable e) {
+        while (e != null) {
+            if (e.getMessage() != null && e.getMessage().contains("NOSCRIPT")) {
+                return true;
+            }
+            e = e.getCause();
+        }
+        return false;
     }
 
     public static <T> Boolean hDel(String key, String field) {
-        return template.execute(new RedisCallback<Boolean>() {
+        return execute(new RedisCallback<Boolean>() {
             @Override
             public Boolean doInRedis(RedisConnection connection) throws DataAccessException {
                 return connection.hDel(keyBytes(key), valBytes(field)) > 0;
@@ -204,7 +370,7 @@ public class RedisClient {
     }
 
     public static <T> Boolean hSet(String key, String field, T ans) {
-        return template.execute(new RedisCallback<Boolean>() {
+        return execute(new RedisCallback<Boolean>() {
             @Override
             public Boolean doInRedis(RedisConnection redisConnection) throws DataAccessException {
                 return redisConnection.hSet(keyBytes(key), valBytes(field), valBytes(ans));
@@ -217,14 +383,14 @@ public class RedisClient {
         for (Map.Entry<String, T> entry : fields.entrySet()) {
             val.put(valBytes(entry.getKey()), valBytes(entry.getValue()));
         }
-        template.execute((RedisCallback<Object>) connection -> {
+        execute((RedisCallback<Object>) connection -> {
             connection.hMSet(keyBytes(key), val);
             return null;
         });
     }
 
     public static <T> Map<String, T> hMGet(String key, final List<String> fields, Class<T> clz) {
-        return template.execute(new RedisCallback<Map<String, T>>() {
+        return execute(new RedisCallback<Map<String, T>>() {
             @Override
             public Map<String, T> doInRedis(RedisConnection connection) throws DataAccessException {
                 byte[][] f = new byte[fields.size()][];
@@ -247,7 +413,7 @@ public class RedisClient {
      * @return
      */
     public static <T> Boolean sIsMember(String key, T value) {
-        return template.execute(new RedisCallback<Boolean>() {
+        return execute(new RedisCallback<Boolean>() {
             @Override
             public Boolean doInRedis(RedisConnection connection) throws DataAccessException {
                 return connection.sIsMember(keyBytes(key), valBytes(value));
@@ -264,7 +430,7 @@ public class RedisClient {
      * @return
      */
     public static <T> Set<T> sGetAll(String key, Class<T> clz) {
-        return template.execute(new RedisCallback<Set<T>>() {
+        return execute(new RedisCallback<Set<T>>() {
             @Override
             public Set<T> doInRedis(RedisConnection connection) throws DataAccessException {
                 Set<byte[]> set = connection.sMembers(keyBytes(key));
@@ -285,7 +451,7 @@ public class RedisClient {
      * @return
      */
     public static <T> boolean sPut(String key, T val) {
-        return template.execute(new RedisCallback<Long>() {
+        return execute(new RedisCallback<Long>() {
             @Override
             public Long doInRedis(RedisConnection connection) throws DataAccessException {
                 return connection.sAdd(keyBytes(key), valBytes(val));
@@ -301,7 +467,7 @@ public class RedisClient {
      * @param <T>
      */
     public static <T> void sDel(String key, T val) {
-        template.execute(new RedisCallback<Void>() {
+        execute(new RedisCallback<Void>() {
             @Override
             public Void doInRedis(RedisConnection connection) throws DataAccessException {
                 connection.sRem(keyBytes(key), valBytes(val));
@@ -320,7 +486,7 @@ public class RedisClient {
      * @return
      */
     public static Double zIncrBy(String key, String value, Integer score) {
-        return template.execute(new RedisCallback<Double>() {
+        return execute(new RedisCallback<Double>() {
             @Override
             public Double doInRedis(RedisConnection connection) throws DataAccessException {
                 return connection.zIncrBy(keyBytes(key), score, valBytes(value));
@@ -334,6 +500,24 @@ public class RedisClient {
         return ImmutablePair.of(rank, score);
     }
 
+    /**
+     * 一次往返查询成员的倒序排名与分数
+     *
+     * @param key
+     * @param value
+     * @return left: 排名，从1开始；right: 分数；不在榜单中时均为null
+     */
+    public static ImmutablePair<Integer, Double> zRevRankInfo(String key, String value) {
+        RoundTripCounter.incrRedis();
+        List<Object> result = template.executePipelined((RedisCallback<Object>) connection -> {
+            connection.zRevRank(keyBytes(key), valBytes(value));
+            connection.zScore(keyBytes(key), valBytes(value));
+            return null;
+        });
+        Long rank = (Long) result.get(0);
+        return ImmutablePair.of(rank == null ? null : rank.intValue() + 1, (Double) result.get(1));
+    }
+
     /**
      * 获取分数
      *
@@ -342,7 +526,7 @@ public class RedisClient {
      * @return
      */
     public static Double zScore(String key, String value) {
-        return template.execute(new RedisCallback<Double>() {
+        return execute(new RedisCallback<Double>() {
             @Override
             public Double doInRedis(RedisConnection connection) throws DataAccessException {
                 return connection.zScore(keyBytes(key), valBytes(value));
@@ -351,7 +535,7 @@ public class RedisClient {
     }
 
     public static Integer zRank(String key, String value) {
-        return template.execute(new RedisCallback<Integer>() {
+        return execute(new RedisCallback<Integer>() {
             @Override
             public Integer doInRedis(RedisConnection connection) throws DataAccessException {
                 return connection.zRank(keyBytes(key), valBytes(value)).intValue();
@@ -367,7 +551,7 @@ public class RedisClient {
      * @return
      */
     public static List<ImmutablePair<String, Double>> zTopNScore(String key, int n) {
-        return template.execute(new RedisCallback<List<ImmutablePair<String, Double>>>() {
+        return execute(new RedisCallback<List<ImmutablePair<String, Double>>>() {
             @Override
             public List<ImmutablePair<String, Double>> doInRedis(RedisConnection connection) throws DataAccessException {
                 Set<RedisZSetCommands.Tuple> set = connection.zRangeWithScores(keyBytes(key), -n, -1);
@@ -381,9 +565,25 @@ public class RedisClient {
         });
     }
 
+    /**
+     * 按分数倒序分页查询成员
+     *
+     * @param key
+     * @param start 起始下标，从0开始
+     * @param end   结束下标(包含)
+     * @return
+     */
+    public static List<String> zRevRange(String key, long start, long end) {
+        Set<byte[]> set = execute((RedisCallback<Set<byte[]>>) con -> con.zRevRange(keyBytes(key), start, end));
+        if (set == null) {
+            return Collections.emptyList();
+        }
+        return set.stream().map(s -> new String(s, CODE)).collect(Collectors.toList());
+    }
+
 
     public static <T> Long lPush(String key, T val) {
-        return template.execute(new RedisCallback<Long>() {
+        return execute(new RedisCallback<Long>() {
             @Override
             public Long doInRedis(RedisConnection connection) throws DataAccessException {
                 return connection.lPush(keyBytes(key), valBytes(val));
@@ -392,7 +592,7 @@ public class RedisClient {
     }
 
     public static <T> Long rPush(String key, T val) {
-        return template.execute(new RedisCallback<Long>() {
+        return execute(new RedisCallback<Long>() {
             @Override
             public Long doInRedis(RedisConnection connection) throws DataAccessException {
                 return connection.rPush(keyBytes(key), valBytes(val));
@@ -401,7 +601,7 @@ public class RedisClient {
     }
 
     public static <T> List<T> lRange(String key, int start, int size, Class<T> clz) {
-        return template.execute(new RedisCallback<List<T>>() {
+        return execute(new RedisCallback<List<T>>() {
 
             @Override
             public List<T> doInRedis(RedisConnection connection) throws DataAccessException {
@@ -415,7 +615,7 @@ public class RedisClient {
     }
 
     public static void lTrim(String key, int start, int size) {
-        template.execute(new RedisCallback<Void>() {
+        execute(new RedisCallback<Void>() {
             @Override
             public Void doInRedis(RedisConnection connection) throws DataAccessException {
                 connection.lTrim(keyBytes(key), start, size);
@@ -437,6 +637,62 @@ public class RedisClient {
     }
 
 
+    /**
+     * HyperLogLog 基数估算
+     *
+     * @param key
+     * @return
+     */
+    public static Long pfCount(String key) {
+        return execute((RedisCallback<Long>) con -> con.pfCount(keyBytes(key)));
+    }
+
+    /**
+     * 按模式遍历key，每批回调一次；用于数据迁移等一次性任务，不要在请求链路中使用
+     *
+     * @param pattern  匹配模式，不包含统一前缀，如 visit_info_*
+     * @param count    每批的数量
+     * @param consumer 回调的key已去掉统一前缀
+     */
+    public static void scan(String pattern, int count, Consumer<List<String>> consumer) {
+        execute((RedisCallback<Void>) con -> {
+            try (Cursor<byte[]> cursor = con.scan(ScanOptions.scanOptions().match(KEY_PREFIX + pattern).count(count).build())) {
+                List<String> keys = new ArrayList<>(count);
+                while (cursor.hasNext()) {
+                    keys.add(new String(cursor.next(), CODE).substring(KEY_PREFIX.length()));
+                    if (keys.size() >= count) {
+                        consumer.accept(keys);
+                        keys = new ArrayList<>(count);
+                    }
+                }
+                if (!keys.isEmpty()) {
+                    consumer.accept(keys);
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 发布消息，channel与key一样会加上统一前缀
+     *
+     * @param channel
+     * @param msg
+     */
+    public static void publish(String channel, String msg) {
+        execute((RedisCallback<Long>) con -> con.publish(keyBytes(channel), valBytes(msg)));
+    }
+
+    /**
+     * 订阅时使用的channel，与 publish 保持一致的前缀
+     *
+     * @param channel
+     * @return
+     */
+    public static ChannelTopic topic(String channel) {
+        return new ChannelTopic(KEY_PREFIX + channel);
+    }
+
     public static PipelineAction pipelineAction() {
         return new PipelineAction();
     }
@@ -460,6 +716,7 @@ public class RedisClient {
         }
 
         public void execute() {
+            RoundTripCounter.incrRedis();
             template.executePipelined((RedisCallback<Object>) connection -> {
                 PipelineAction.this.connection = connection;
                 run.forEach(Runnable::run);
@@ -3,6 +3,7 @@ package com.github.paicoding.forum.core.dal;
 import com.alibaba.druid.pool.DruidPooledPreparedStatement;
 import com.baomidou.mybatisplus.core.MybatisParameterHandler;
 import com.github.paicoding.forum.core.util.DateUtil;
+import com.github.paicoding.forum.core.util.RoundTripCounter;
 import com.mysql.cj.MysqlConnection;
 import com.zaxxer.hikari.pool.HikariProxyConnection;
 import com.zaxxer.hikari.pool.HikariProxyPreparedStatement;
@@ -39,6 +40,8 @@ public class SqlStateInterceptor implements Interceptor {
     @Override
     public Object intercept(Invocation invocation) throws Throwable {
         long time = System.currentTimeMillis();
+        // 记录当前请求的db往返次数
+        RoundTripCounter.incrDb();
         StatementHandler statementHandler = (StatementHandler) invocation.getTarget();
         String sql = buildSql(statementHandler);
         Object[] args = invocation.getArgs();
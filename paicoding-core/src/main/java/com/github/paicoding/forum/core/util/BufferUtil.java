@@ -0,0 +1,90 @@
+package com.github.paicoding.forum.core.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 写回缓冲(write-behind)的公共操作：请求线程只写内存，定时任务取出之后批量写回，失败时放回
+ * <p>
+ * 传入的 map / set 需要是线程安全的，如 ConcurrentHashMap
+ *
+ * @author YiHui
+ * @date 2026/10/17
+ */
+public class BufferUtil {
+    private BufferUtil() {
+    }
+
+    /**
+     * 取出各个key当前的增量；只扣减读到的值，并发写入的增量会留到下一轮
+     *
+     * @param deltas
+     * @param <K>
+     * @return 增量不为0的key
+     */
+    public static <K> Map<K, Long> drain(Map<K, LongAdder> deltas) {
+        Map<K, Long> result = new HashMap<>(deltas.size());
+        deltas.forEach((key, adder) -> {
+            long cnt = adder.sum();
+            if (cnt != 0) {
+                adder.add(-cnt);
+                result.put(key, cnt);
+            } else {
+                // 上一轮已经清零且期间没有新的写入，移除掉，避免map无限增长；与并发累加撞车时最多丢失一次计数，可以接受
+                deltas.remove(key, adder);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 写回失败时，将取出的增量放回缓冲，等待下一轮
+     *
+     * @param deltas
+     * @param counts drain 返回的增量
+     * @param <K>
+     */
+    public static <K> void restore(Map<K, LongAdder> deltas, Map<K, Long> counts) {
+        counts.forEach((key, cnt) -> deltas.computeIfAbsent(key, k -> new LongAdder()).add(cnt));
+    }
+
+    /**
+     * 取出集合中当前的全部元素，并发加入的元素留到下一轮
+     *
+     * @param set
+     * @param <T>
+     * @return
+     */
+    public static <T> List<T> drain(Set<T> set) {
+        List<T> result = new ArrayList<>(set.size());
+        Iterator<T> iterator = set.iterator();
+        while (iterator.hasNext()) {
+            result.add(iterator.next());
+            iterator.remove();
+        }
+        return result;
+    }
+
+    /**
+     * 取出 map 中当前的全部值；只移除读到的值，期间被覆盖的新值留到下一轮
+     *
+     * @param pending
+     * @param <K>
+     * @param <V>
+     * @return
+     */
+    public static <K, V> List<V> drainValues(Map<K, V> pending) {
+        List<V> result = new ArrayList<>(pending.size());
+        pending.forEach((key, value) -> {
+            if (pending.remove(key, value)) {
+                result.add(value);
+            }
+        });
+        return result;
+    }
+}
@@ -0,0 +1,44 @@
+package com.github.paicoding.forum.core.util;
+
+/**
+ * 单次请求内的 db / redis 往返次数统计，在请求线程上累加，请求结束时输出到请求日志中
+ * 说明：只统计当前线程上发起的调用，异步线程池中的调用不计入
+ *
+ * @author YiHui
+ * @date 2026/10/16
+ */
+public class RoundTripCounter {
+    private static final ThreadLocal<int[]> COUNTER = ThreadLocal.withInitial(() -> new int[2]);
+
+    private static final int DB = 0;
+    private static final int REDIS = 1;
+
+    /**
+     * 请求开始时重置计数
+     */
+    public static void reset() {
+        int[] cnt = COUNTER.get();
+        cnt[DB] = 0;
+        cnt[REDIS] = 0;
+    }
+
+    public static void incrDb() {
+        COUNTER.get()[DB]++;
+    }
+
+    public static void incrRedis() {
+        COUNTER.get()[REDIS]++;
+    }
+
+    public static int db() {
+        return COUNTER.get()[DB];
+    }
+
+    public static int redis() {
+        return COUNTER.get()[REDIS];
+    }
+
+    public static void clear() {
+        COUNTER.remove();
+    }
+}
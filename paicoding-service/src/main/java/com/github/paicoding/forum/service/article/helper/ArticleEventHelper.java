@@ -0,0 +1,30 @@
+package com.github.paicoding.forum.service.article.helper;
+
+import com.github.paicoding.forum.api.model.event.ArticleMsgEvent;
+import com.github.paicoding.forum.api.model.vo.article.dto.ArticleDTO;
+import com.github.paicoding.forum.service.article.repository.entity.ArticleDO;
+
+/**
+ * 文章变更事件的公共解析，事件内容可能是 ArticleDO，也可能是 ArticleDTO
+ *
+ * @author YiHui
+ * @date 2026/10/17
+ */
+public class ArticleEventHelper {
+    private ArticleEventHelper() {
+    }
+
+    /**
+     * @param event
+     * @return 事件对应的文章id，无法识别时返回null
+     */
+    public static Long articleId(ArticleMsgEvent<?> event) {
+        Object content = event.getContent();
+        if (content instanceof ArticleDO) {
+            return ((ArticleDO) content).getId();
+        } else if (content instanceof ArticleDTO) {
+            return ((ArticleDTO) content).getArticleId();
+        }
+        return null;
+    }
+}
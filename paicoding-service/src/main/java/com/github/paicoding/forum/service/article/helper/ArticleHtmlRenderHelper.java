@@ -0,0 +1,117 @@
+package com.github.paicoding.forum.service.article.helper;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.paicoding.forum.api.model.enums.ArticleReadTypeEnum;
+import com.github.paicoding.forum.api.model.event.ArticleMsgEvent;
+import com.github.paicoding.forum.api.model.vo.article.dto.ArticleDTO;
+import com.github.paicoding.forum.core.cache.RedisClient;
+import com.github.paicoding.forum.core.util.MarkdownConverter;
+import com.github.paicoding.forum.core.util.TransactionUtil;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文章正文的 markdown -> html 渲染缓存
+ * <p>
+ * - key: 文章id + 正文版本号(article_detail.version) + 阅读模式，正文重新发布后版本号变化，自然命中新的缓存
+ * - 容量按html的字节数限制，超出后按 LRU 淘汰
+ * - 文章相关事件(发布、审核中修改、删除、下线)通过 redis 发布订阅通知所有节点失效该文章的缓存，用于兼容原地更新正文的场景
+ *
+ * @author YiHui
+ * @date 2026/10/16
+ */
+@Slf4j
+@Component
+public class ArticleHtmlRenderHelper {
+    private static final String EVICT_CHANNEL = "article_html_evict";
+
+    private final Cache<String, String> cache;
+
+    private final RedisMessageListenerContainer listenerContainer;
+
+    private final Timer renderTimer;
+
+    public ArticleHtmlRenderHelper(@Value("${paicoding.article.html-cache.max-bytes:67108864}") long maxBytes,
+                                   RedisMessageListenerContainer listenerContainer,
+                                   MeterRegistry meterRegistry) {
+        this.listenerContainer = listenerContainer;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                // java字符串按 utf-16 估算占用的字节数
+                .<String, String>weigher((key, html) -> (key.length() + html.length()) * 2)
+                .expireAfterAccess(1, TimeUnit.DAYS)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "article.html");
+        this.renderTimer = Timer.builder("paicoding.article.render").description("文章markdown渲染为html耗时").register(meterRegistry);
+        Gauge.builder("paicoding.article.html.cache.bytes", cache, s -> s.policy().eviction().map(e -> e.weightedSize().orElse(0L)).orElse(0L))
+                .description("文章html缓存占用的字节数")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        listenerContainer.addMessageListener((message, pattern) -> {
+            String body = new String(message.getBody(), StandardCharsets.UTF_8);
+            String prefix = body + "_";
+            cache.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+        }, RedisClient.topic(EVICT_CHANNEL));
+    }
+
+    /**
+     * 将文章正文渲染为html
+     *
+     * @param article  文章，用于生成缓存key
+     * @param markdown 待渲染的正文，对于受限阅读且当前用户无权限的场景，为截断之后的内容
+     * @return
+     */
+    public String render(ArticleDTO article, String markdown) {
+        if (article.getArticleId() == null || article.getContentVersion() == null) {
+            // 审核中等非原文的内容，不做缓存
+            return doRender(markdown);
+        }
+        return cache.get(cacheKey(article), k -> doRender(markdown));
+    }
+
+    private String doRender(String markdown) {
+        return renderTimer.record(() -> MarkdownConverter.markdownToHtml(markdown));
+    }
+
+    /**
+     * 能完整阅读时，与文章的阅读类型无关，统一使用 NORMAL；否则按阅读类型区分截断之后的内容
+     */
+    private String cacheKey(ArticleDTO article) {
+        Integer readType = Boolean.FALSE.equals(article.getCanRead()) ? article.getReadType() : ArticleReadTypeEnum.NORMAL.getType();
+        return article.getArticleId() + "_" + article.getContentVersion() + "_" + readType;
+    }
+
+    /**
+     * 文章发生变更时，失效所有节点上该文章的缓存
+     *
+     * @param event
+     */
+    @EventListener(ArticleMsgEvent.class)
+    public void articleChangeListener(ArticleMsgEvent<?> event) {
+        Long articleId = ArticleEventHelper.articleId(event);
+        if (articleId == null) {
+            return;
+        }
+
+        // 事务提交之后再通知，避免并发读取将旧的正文重新写入缓存
+        String msg = String.valueOf(articleId);
+        TransactionUtil.registryAfterCompletionOrImmediatelyRun(() -> RedisClient.publish(EVICT_CHANNEL, msg));
+    }
+}
@@ -0,0 +1,218 @@
+package com.github.paicoding.forum.service.article.helper;
+
+import com.github.paicoding.forum.api.model.enums.PushStatusEnum;
+import com.github.paicoding.forum.api.model.enums.YesOrNoEnum;
+import com.github.paicoding.forum.api.model.event.ArticleMsgEvent;
+import com.github.paicoding.forum.core.async.AsyncUtil;
+import com.github.paicoding.forum.core.cache.RedisClient;
+import com.github.paicoding.forum.core.util.BufferUtil;
+import com.github.paicoding.forum.core.util.TransactionUtil;
+import com.github.paicoding.forum.service.article.repository.dao.ArticleDao;
+import com.github.paicoding.forum.service.article.repository.entity.ArticleDO;
+import com.google.common.collect.Iterables;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 各分类下已发布的文章数，替代每次渲染首页、分类页时的 count / group by 查询
+ * <p>
+ * 1. 内存中维护 已发布文章 -> 分类 的映射，分类文章数由该映射累加得到；文章换分类时，能准确的从原分类中扣减
+ * 2. 文章发布、下线、删除、编辑之后，通过 redis 发布订阅通知所有节点；各节点重新读取该文章的状态，合并之后批量更新
+ * 3. 定时全量扫描一次已发布的文章进行对账，修正漏掉的变更
+ * 4. 首次加载完成之前，由调用方回退到数据库查询
+ *
+ * @author YiHui
+ * @date 2026/10/17
+ */
+@Slf4j
+@Component
+public class CategoryArticleCounter {
+    private static final String CHANGE_CHANNEL = "article_category_change";
+
+    private static final int BATCH_SIZE = 500;
+
+    private final ArticleDao articleDao;
+
+    private final RedisMessageListenerContainer listenerContainer;
+
+    /**
+     * 已发布的文章id -> 分类id，只在持有锁时修改
+     */
+    private Map<Long, Long> articleCategory = new HashMap<>();
+
+    /**
+     * 分类id -> 已发布的文章数
+     */
+    private volatile Map<Long, Long> counts = new ConcurrentHashMap<>();
+
+    /**
+     * 有变更、待重新读取的文章id
+     */
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean ready = false;
+
+    public CategoryArticleCounter(ArticleDao articleDao, RedisMessageListenerContainer listenerContainer) {
+        this.articleDao = articleDao;
+        this.listenerContainer = listenerContainer;
+    }
+
+    @PostConstruct
+    public void init() {
+        listenerContainer.addMessageListener((message, pattern) -> {
+            String body = new String(message.getBody(), StandardCharsets.UTF_8);
+            try {
+                dirty.add(Long.parseLong(body));
+            } catch (NumberFormatException e) {
+                log.warn("illegal article category change message: {}", body);
+            }
+        }, RedisClient.topic(CHANGE_CHANNEL));
+
+        AsyncUtil.execute(() -> {
+            try {
+                reconcile();
+            } catch (Exception e) {
+                log.error("failed to init category article counts!", e);
+            }
+        });
+    }
+
+    public boolean ready() {
+        return ready;
+    }
+
+    /**
+     * @param categoryId
+     * @return 分类下已发布的文章数
+     */
+    public long count(Long categoryId) {
+        return counts.getOrDefault(categoryId, 0L);
+    }
+
+    /**
+     * @return key: categoryId, value: 已发布的文章数，不包含没有文章的分类
+     */
+    public Map<Long, Long> counts() {
+        Map<Long, Long> result = new HashMap<>(counts.size() * 2);
+        counts.forEach((categoryId, cnt) -> {
+            if (cnt > 0) {
+                result.put(categoryId, cnt);
+            }
+        });
+        return result;
+    }
+
+    @EventListener(ArticleMsgEvent.class)
+    public void articleChangeListener(ArticleMsgEvent<?> event) {
+        Long articleId = ArticleEventHelper.articleId(event);
+        if (articleId == null) {
+            return;
+        }
+
+        // 事务提交之后再读取文章的状态；本节点直接标记，避免 redis 不可用时丢失变更
+        final Long id = articleId;
+        TransactionUtil.registryAfterCompletionOrImmediatelyRun(() -> {
+            dirty.add(id);
+            try {
+                RedisClient.publish(CHANGE_CHANNEL, String.valueOf(id));
+            } catch (Exception e) {
+                // 其他节点由定时对账修正，不影响文章的发布、更新
+                log.warn("failed to broadcast article category change! articleId={}", id, e);
+            }
+        });
+    }
+
+    /**
+     * 重新读取有变更的文章，更新其所在分类的计数
+     */
+    @Scheduled(fixedDelayString = "${paicoding.category-count.refresh-interval:1000}")
+    public synchronized void refresh() {
+        if (!ready || dirty.isEmpty()) {
+            return;
+        }
+        List<Long> ids = BufferUtil.drain(dirty);
+
+        for (List<Long> batch : Iterables.partition(ids, BATCH_SIZE)) {
+            try {
+                Map<Long, ArticleDO> articles = articleDao.listByIds(batch).stream()
+                        .collect(Collectors.toMap(ArticleDO::getId, Function.identity()));
+                for (Long id : batch) {
+                    ArticleDO article = articles.get(id);
+                    boolean online = article != null && article.getCategoryId() != null
+                            && Objects.equals(article.getStatus(), PushStatusEnum.ONLINE.getCode())
+                            && Objects.equals(article.getDeleted(), YesOrNoEnum.NO.getCode());
+                    move(id, online ? article.getCategoryId() : null);
+                }
+            } catch (Exception e) {
+                log.error("failed to refresh category article counts! ids={}", batch, e);
+                dirty.addAll(batch);
+            }
+        }
+    }
+
+    /**
+     * 文章切换到新的分类
+     *
+     * @param articleId
+     * @param categoryId 新的分类；为null表示文章已不是发布状态
+     */
+    private void move(Long articleId, Long categoryId) {
+        Long old = categoryId == null ? articleCategory.remove(articleId) : articleCategory.put(articleId, categoryId);
+        if (Objects.equals(old, categoryId)) {
+            return;
+        }
+        if (old != null) {
+            counts.merge(old, -1L, Long::sum);
+        }
+        if (categoryId != null) {
+            counts.merge(categoryId, 1L, Long::sum);
+        }
+    }
+
+    /**
+     * 全量对账：扫描所有已发布的文章，重新计算之后整体替换；扫描期间的变更留在 dirty 中，替换之后再处理
+     */
+    @Scheduled(cron = "${paicoding.category-count.reconcile-cron:0 */30 * * * ?}")
+    public synchronized void reconcile() {
+        long start = System.currentTimeMillis();
+        Map<Long, Long> newArticleCategory = new HashMap<>();
+        Map<Long, Long> newCounts = new ConcurrentHashMap<>();
+        long lastId = 0;
+        while (true) {
+            List<ArticleDO> articles = articleDao.scanOnlineArticleCategories(lastId, BATCH_SIZE);
+            if (articles.isEmpty()) {
+                break;
+            }
+            for (ArticleDO article : articles) {
+                if (article.getCategoryId() == null) {
+                    continue;
+                }
+                newArticleCategory.put(article.getId(), article.getCategoryId());
+                newCounts.merge(article.getCategoryId(), 1L, Long::sum);
+            }
+            lastId = articles.get(articles.size() - 1).getId();
+        }
+
+        if (ready && !newCounts.equals(counts)) {
+            log.info("category article counts reconciled, before={}, after={}", counts, newCounts);
+        }
+        articleCategory = newArticleCategory;
+        counts = newCounts;
+        ready = true;
+        log.info("category article counts loaded, articles={}, cost={}ms", newArticleCategory.size(), System.currentTimeMillis() - start);
+    }
+}
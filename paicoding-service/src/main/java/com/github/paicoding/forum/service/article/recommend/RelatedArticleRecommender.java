@@ -0,0 +1,398 @@
+package com.github.paicoding.forum.service.article.recommend;
+
+import com.github.paicoding.forum.api.model.enums.PushStatusEnum;
+import com.github.paicoding.forum.api.model.enums.YesOrNoEnum;
+import com.github.paicoding.forum.api.model.event.ArticleMsgEvent;
+import com.github.paicoding.forum.api.model.vo.article.dto.TagDTO;
+import com.github.paicoding.forum.core.async.AsyncUtil;
+import com.github.paicoding.forum.core.util.BufferUtil;
+import com.github.paicoding.forum.core.util.TransactionUtil;
+import com.github.paicoding.forum.service.article.helper.ArticleEventHelper;
+import com.github.paicoding.forum.service.article.repository.dao.ArticleDao;
+import com.github.paicoding.forum.service.article.repository.dao.ArticleTagDao;
+import com.github.paicoding.forum.service.article.repository.entity.ArticleDO;
+import com.google.common.collect.Iterables;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 文章的关联推荐，离线计算每篇文章的 top-K 相关文章
+ * <p>
+ * 1. 相关度 = (相同标签数 * 2 + 同类目 1) * ln(2 + 候选文章的阅读数)，至少有一个相同标签才参与推荐
+ * 2. 内存中维护 标签 -> 文章 的倒排，计算时只需要遍历相同标签下的文章；结果以 long[] 保存，请求时直接分页取id
+ * 3. 文章发布、编辑、下线、删除之后，重算该文章的推荐列表；与其有相同标签(变更前后)的文章中，推荐列表里已有该文章的重算，
+ * 其他的只需要把变更的文章与现有的 top-K 合并
+ * 4. 阅读数变化较慢，每小时全量重算一次
+ *
+ * @author YiHui
+ * @date 2026/10/17
+ */
+@Slf4j
+@Component
+public class RelatedArticleRecommender {
+    private static final int BATCH_SIZE = 200;
+
+    private static final long[] EMPTY = new long[0];
+
+    private final ArticleDao articleDao;
+
+    private final ArticleTagDao articleTagDao;
+
+    /**
+     * 已发布文章的推荐特征
+     */
+    private volatile Map<Long, Feature> features = new ConcurrentHashMap<>();
+
+    /**
+     * 标签 -> 文章id
+     */
+    private volatile Map<Long, Set<Long>> tagArticles = new ConcurrentHashMap<>();
+
+    /**
+     * 文章id -> 按相关度倒序的推荐文章id
+     */
+    private volatile Map<Long, long[]> related = new ConcurrentHashMap<>();
+
+    /**
+     * 有变更、待重算的文章id
+     */
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean ready = false;
+
+    /**
+     * 每篇文章保存的推荐数
+     */
+    @Value("${paicoding.recommend.related-size:30}")
+    private int relatedSize;
+
+    public RelatedArticleRecommender(ArticleDao articleDao, ArticleTagDao articleTagDao, MeterRegistry meterRegistry) {
+        this.articleDao = articleDao;
+        this.articleTagDao = articleTagDao;
+        Gauge.builder("paicoding.recommend.related.articles", this, s -> s.related.size())
+                .description("已计算关联推荐的文章数").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        AsyncUtil.execute(() -> {
+            try {
+                rebuild();
+            } catch (Exception e) {
+                log.error("failed to init related article recommend!", e);
+            }
+        });
+    }
+
+    /**
+     * @param articleId 文章id
+     * @return 按相关度倒序的推荐文章id；尚未完成初始化时返回null
+     */
+    public long[] related(Long articleId) {
+        if (!ready) {
+            return null;
+        }
+        return related.getOrDefault(articleId, EMPTY);
+    }
+
+    @EventListener(ArticleMsgEvent.class)
+    public void articleChangeListener(ArticleMsgEvent<?> event) {
+        Long articleId = ArticleEventHelper.articleId(event);
+        if (articleId != null) {
+            // 编辑文章时标签也在同一个事务中更新，事务结束之后再读取
+            final Long id = articleId;
+            TransactionUtil.registryAfterCompletionOrImmediatelyRun(() -> dirty.add(id));
+        }
+    }
+
+    /**
+     * 增量重算有变更的文章
+     */
+    @Scheduled(fixedDelayString = "${paicoding.recommend.refresh-interval:5000}")
+    public synchronized void refresh() {
+        if (!ready || dirty.isEmpty()) {
+            return;
+        }
+        List<Long> ids = BufferUtil.drain(dirty);
+
+        Set<Long> changed = new HashSet<>();
+        Set<Long> affected = new HashSet<>();
+        try {
+            for (List<Long> batch : Iterables.partition(ids, BATCH_SIZE)) {
+                Map<Long, Feature> latest = loadFeatures(articleDao.listByIds(batch));
+                for (Long id : batch) {
+                    // 变更前后的标签下的文章，推荐列表都可能受影响
+                    Feature old = features.remove(id);
+                    if (old != null) {
+                        unlink(tagArticles, id, old);
+                        affected.addAll(neighbors(old));
+                    }
+                    Feature now = latest.get(id);
+                    if (now != null) {
+                        features.put(id, now);
+                        link(tagArticles, id, now);
+                        affected.addAll(neighbors(now));
+                    }
+                    changed.add(id);
+                }
+            }
+        } catch (Exception e) {
+            log.error("failed to refresh related article recommend! ids={}", ids, e);
+            dirty.addAll(ids);
+        }
+
+        affected.removeAll(changed);
+        for (Long id : changed) {
+            recompute(this.related, this.features, this.tagArticles, id);
+        }
+        int recomputed = 0;
+        for (Long id : affected) {
+            long[] current = related.getOrDefault(id, EMPTY);
+            if (containsAny(current, changed)) {
+                // 已推荐的文章得分可能降低或下线，需要从全部候选中补位
+                recompute(this.related, this.features, this.tagArticles, id);
+                recomputed++;
+            } else {
+                merge(id, current, changed);
+            }
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("related article recommend refreshed, changed={}, neighbors={}, recomputed={}", changed.size(), affected.size(), recomputed);
+        }
+    }
+
+    /**
+     * 全量重算：扫描全部已发布的文章，在新的容器中计算完成之后再整体替换
+     */
+    @Scheduled(cron = "${paicoding.recommend.rebuild-cron:0 20 * * * ?}")
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        Map<Long, Feature> newFeatures = new ConcurrentHashMap<>();
+        Map<Long, Set<Long>> newTagArticles = new ConcurrentHashMap<>();
+        long lastId = 0;
+        while (true) {
+            List<ArticleDO> articles = articleDao.scanArticles(lastId, BATCH_SIZE);
+            if (articles.isEmpty()) {
+                break;
+            }
+            loadFeatures(articles).forEach((id, feature) -> {
+                newFeatures.put(id, feature);
+                link(newTagArticles, id, feature);
+            });
+            lastId = articles.get(articles.size() - 1).getId();
+        }
+
+        Map<Long, long[]> newRelated = new ConcurrentHashMap<>(newFeatures.size());
+        for (Long id : newFeatures.keySet()) {
+            recompute(newRelated, newFeatures, newTagArticles, id);
+        }
+        features = newFeatures;
+        tagArticles = newTagArticles;
+        related = newRelated;
+        ready = true;
+        log.info("related article recommend rebuilt, articles={}, cost={}ms", newFeatures.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 只保留已发布的文章，批量补齐标签与阅读数
+     */
+    private Map<Long, Feature> loadFeatures(List<ArticleDO> articles) {
+        List<ArticleDO> online = articles.stream()
+                .filter(a -> Objects.equals(a.getStatus(), PushStatusEnum.ONLINE.getCode())
+                        && Objects.equals(a.getDeleted(), YesOrNoEnum.NO.getCode()))
+                .collect(Collectors.toList());
+        if (online.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        List<Long> ids = online.stream().map(ArticleDO::getId).collect(Collectors.toList());
+        Map<Long, List<TagDTO>> tags = articleTagDao.queryArticleTagDetails(ids);
+        Map<Long, Integer> reads = articleDao.listReadCounts(ids);
+
+        Map<Long, Feature> result = new HashMap<>(online.size() * 2);
+        for (ArticleDO article : online) {
+            long[] tagIds = tags.getOrDefault(article.getId(), Collections.emptyList()).stream()
+                    .map(TagDTO::getTagId).filter(Objects::nonNull).mapToLong(Long::longValue).distinct().sorted().toArray();
+            result.put(article.getId(), new Feature(article.getCategoryId(), tagIds, reads.getOrDefault(article.getId(), 0)));
+        }
+        return result;
+    }
+
+    private static void link(Map<Long, Set<Long>> tagArticles, Long articleId, Feature feature) {
+        for (long tagId : feature.tagIds) {
+            tagArticles.computeIfAbsent(tagId, k -> ConcurrentHashMap.newKeySet()).add(articleId);
+        }
+    }
+
+    private static void unlink(Map<Long, Set<Long>> tagArticles, Long articleId, Feature feature) {
+        for (long tagId : feature.tagIds) {
+            Set<Long> set = tagArticles.get(tagId);
+            if (set != null) {
+                set.remove(articleId);
+            }
+        }
+    }
+
+    private Set<Long> neighbors(Feature feature) {
+        Set<Long> result = new HashSet<>();
+        for (long tagId : feature.tagIds) {
+            result.addAll(tagArticles.getOrDefault(tagId, Collections.emptySet()));
+        }
+        return result;
+    }
+
+    /**
+     * 重算一篇文章的推荐列表，文章未发布时移除
+     */
+    private void recompute(Map<Long, long[]> related, Map<Long, Feature> features, Map<Long, Set<Long>> tagArticles, Long articleId) {
+        Feature self = features.get(articleId);
+        if (self == null) {
+            related.remove(articleId);
+            return;
+        }
+
+        Set<Long> candidates = new HashSet<>();
+        for (long tagId : self.tagIds) {
+            candidates.addAll(tagArticles.getOrDefault(tagId, Collections.emptySet()));
+        }
+        candidates.remove(articleId);
+
+        // 小顶堆保留得分最高的 K 篇；得分相同时新文章优先
+        PriorityQueue<Candidate> heap = new PriorityQueue<>(relatedSize + 1);
+        for (Long id : candidates) {
+            Feature other = features.get(id);
+            if (other == null) {
+                continue;
+            }
+            heap.offer(new Candidate(id, score(self, other)));
+            if (heap.size() > relatedSize) {
+                heap.poll();
+            }
+        }
+
+        long[] ids = new long[heap.size()];
+        for (int i = ids.length - 1; i >= 0; i--) {
+            ids[i] = heap.poll().id;
+        }
+        related.put(articleId, ids);
+    }
+
+    /**
+     * 推荐列表中没有变更的文章时，其他候选的得分不变，新的 top-K 只会来自 现有列表 + 变更的文章
+     */
+    private void merge(Long articleId, long[] current, Set<Long> changed) {
+        Feature self = features.get(articleId);
+        if (self == null) {
+            return;
+        }
+        PriorityQueue<Candidate> heap = new PriorityQueue<>(relatedSize + 1);
+        for (long id : current) {
+            offer(heap, self, id);
+        }
+        boolean updated = false;
+        for (Long id : changed) {
+            if (offer(heap, self, id)) {
+                updated = true;
+            }
+        }
+        if (!updated) {
+            return;
+        }
+
+        long[] ids = new long[heap.size()];
+        for (int i = ids.length - 1; i >= 0; i--) {
+            ids[i] = heap.poll().id;
+        }
+        related.put(articleId, ids);
+    }
+
+    /**
+     * @return true 表示候选文章进入了 top-K
+     */
+    private boolean offer(PriorityQueue<Candidate> heap, Feature self, long id) {
+        Feature other = features.get(id);
+        if (other == null || sharedTags(self, other) == 0) {
+            return false;
+        }
+        Candidate candidate = new Candidate(id, score(self, other));
+        if (heap.size() >= relatedSize) {
+            if (candidate.compareTo(heap.peek()) <= 0) {
+                return false;
+            }
+            heap.poll();
+        }
+        heap.offer(candidate);
+        return true;
+    }
+
+    private static boolean containsAny(long[] ids, Set<Long> targets) {
+        for (long id : ids) {
+            if (targets.contains(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static double score(Feature self, Feature other) {
+        int overlap = sharedTags(self, other) * 2 + (Objects.equals(self.categoryId, other.categoryId) ? 1 : 0);
+        return overlap * Math.log(2 + other.readCount);
+    }
+
+    private static int sharedTags(Feature self, Feature other) {
+        int shared = 0;
+        int i = 0;
+        int j = 0;
+        while (i < self.tagIds.length && j < other.tagIds.length) {
+            if (self.tagIds[i] == other.tagIds[j]) {
+                shared++;
+                i++;
+                j++;
+            } else if (self.tagIds[i] < other.tagIds[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return shared;
+    }
+
+    @AllArgsConstructor
+    private static class Feature {
+        private final Long categoryId;
+        /**
+         * 升序的标签id
+         */
+        private final long[] tagIds;
+        private final int readCount;
+    }
+
+    @AllArgsConstructor
+    private static class Candidate implements Comparable<Candidate> {
+        private final long id;
+        private final double score;
+
+        @Override
+        public int compareTo(Candidate o) {
+            int cmp = Double.compare(score, o.score);
+            return cmp != 0 ? cmp : Long.compare(id, o.id);
+        }
+    }
+}
@@ -12,6 +12,7 @@ import com.github.paicoding.forum.api.model.enums.DocumentTypeEnum;
 import com.github.paicoding.forum.api.model.enums.OfficalStatEnum;
 import com.github.paicoding.forum.api.model.enums.PushStatusEnum;
 import com.github.paicoding.forum.api.model.enums.YesOrNoEnum;
+import com.github.paicoding.forum.api.model.vo.PageCursor;
 import com.github.paicoding.forum.api.model.vo.PageParam;
 import com.github.paicoding.forum.api.model.vo.article.dto.ArticleAdminDTO;
 import com.github.paicoding.forum.api.model.vo.article.dto.ArticleDTO;
@@ -32,6 +33,10 @@ import org.springframework.stereotype.Repository;
 
 import javax.annotation.Resource;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -74,6 +79,7 @@ public class ArticleDao extends ServiceImpl<ArticleMapper, ArticleDO> {
         if (showReviewContent(article)) {
             ArticleDetailDO detail = findLatestDetail(articleId);
             dto.setContent(detail.getContent());
+            dto.setContentVersion(detail.getVersion());
         } else {
             // 对于审核中的文章，只有作者本人才能看到原文
             dto.setContent("### 文章审核中，请稍后再看");
@@ -163,6 +169,37 @@ public class ArticleDao extends ServiceImpl<ArticleMapper, ArticleDO> {
         return baseMapper.selectList(query);
     }
 
+    /**
+     * 游标分页查询用户的文章列表，按id倒序
+     *
+     * @param userId
+     * @param cursor 上一页最后一篇文章的 (id)，为空时表示第一页
+     * @param size
+     * @return
+     */
+    public List<ArticleDO> listArticlesByUserIdAfter(Long userId, PageCursor cursor, long size) {
+        LambdaQueryWrapper<ArticleDO> query = Wrappers.lambdaQuery();
+        query.eq(ArticleDO::getDeleted, YesOrNoEnum.NO.getCode())
+                .eq(ArticleDO::getUserId, userId)
+                .lt(cursor != null, ArticleDO::getId, cursor == null ? null : cursor.getId())
+                .orderByDesc(ArticleDO::getId)
+                .last("limit " + size);
+        if (!Objects.equals(ReqInfoContext.getReqInfo().getUserId(), userId)) {
+            query.eq(ArticleDO::getStatus, PushStatusEnum.ONLINE.getCode());
+        }
+        return baseMapper.selectList(query);
+    }
+
+    /**
+     * 分类文章列表中，文章对应的游标位置
+     *
+     * @param article
+     * @return
+     */
+    public static PageCursor categoryCursor(ArticleDO article) {
+        return PageCursor.of(article.getToppingStat(), article.getCreateTime().getTime(), article.getId());
+    }
+
 
     public List<ArticleDO> listArticlesByCategoryId(Long categoryId, PageParam pageParam) {
         if (categoryId != null && categoryId <= 0) {
@@ -181,7 +218,33 @@ public class ArticleDao extends ServiceImpl<ArticleMapper, ArticleDO> {
 
         Optional.ofNullable(categoryId).ifPresent(cid -> query.eq(ArticleDO::getCategoryId, cid));
         query.last(PageParam.getLimitSql(pageParam))
-                .orderByDesc(ArticleDO::getToppingStat, ArticleDO::getCreateTime);
+                .orderByDesc(ArticleDO::getToppingStat, ArticleDO::getCreateTime, ArticleDO::getId);
+        return baseMapper.selectList(query);
+    }
+
+    /**
+     * 游标分页查询分类下的文章，排序与 {@link #listArticlesByCategoryId(Long, PageParam)} 一致：置顶、创建时间、id 倒序
+     * <p>
+     * 直接以 (topping_stat, create_time, id) &lt; 游标 定位到上一页的末尾，翻到再深的页也只扫描 size 行
+     *
+     * @param categoryId
+     * @param cursor     上一页最后一篇文章的 {@link #categoryCursor(ArticleDO)}，为空时表示第一页
+     * @param size
+     * @return
+     */
+    public List<ArticleDO> listArticlesByCategoryIdAfter(Long categoryId, PageCursor cursor, long size) {
+        if (categoryId != null && categoryId <= 0) {
+            categoryId = null;
+        }
+        LambdaQueryWrapper<ArticleDO> query = Wrappers.lambdaQuery();
+        query.eq(ArticleDO::getDeleted, YesOrNoEnum.NO.getCode())
+                .eq(ArticleDO::getStatus, PushStatusEnum.ONLINE.getCode());
+        Optional.ofNullable(categoryId).ifPresent(cid -> query.eq(ArticleDO::getCategoryId, cid));
+        if (cursor != null && cursor.size() == 3) {
+            query.apply("(topping_stat, create_time, id) < ({0}, {1}, {2})", cursor.getKey(0), cursor.getTime(), cursor.getId());
+        }
+        query.orderByDesc(ArticleDO::getToppingStat, ArticleDO::getCreateTime, ArticleDO::getId)
+                .last("limit " + size);
         return baseMapper.selectList(query);
     }
 
@@ -272,6 +335,18 @@ public class ArticleDao extends ServiceImpl<ArticleMapper, ArticleDO> {
         return record.getCnt();
     }
 
+    /**
+     * 批量累加文章阅读计数，一条 insert ... on duplicate key update 语句完成
+     *
+     * @param counts key: 文章id, value: 阅读增量
+     */
+    public void batchIncrReadCount(Map<Long, Long> counts) {
+        if (counts.isEmpty()) {
+            return;
+        }
+        readCountMapper.batchIncrCount(DocumentTypeEnum.ARTICLE.getCode(), counts);
+    }
+
     /**
      * 统计用户的文章计数
      *
@@ -321,15 +396,48 @@ public class ArticleDao extends ServiceImpl<ArticleMapper, ArticleDO> {
         }
 
         List<Long> ids = list.stream().map(ReadCountDO::getDocumentId).collect(Collectors.toList());
-        List<ArticleDO> result = baseMapper.selectBatchIds(ids);
-        result.sort((o1, o2) -> {
-            int i1 = ids.indexOf(o1.getId());
-            int i2 = ids.indexOf(o2.getId());
-            return Integer.compare(i1, i2);
-        });
+        return listByIdsInOrder(ids);
+    }
+
+    /**
+     * 批量查询文章，按传入的id顺序返回，不存在的文章直接跳过
+     *
+     * @param ids
+     * @return
+     */
+    public List<ArticleDO> listByIdsInOrder(List<Long> ids) {
+        if (CollectionUtils.isEmpty(ids)) {
+            return new ArrayList<>();
+        }
+        Map<Long, ArticleDO> map = baseMapper.selectBatchIds(ids).stream().collect(Collectors.toMap(ArticleDO::getId, s -> s));
+        List<ArticleDO> result = new ArrayList<>(map.size());
+        for (Long id : ids) {
+            ArticleDO article = map.get(id);
+            if (article != null) {
+                result.add(article);
+            }
+        }
         return result;
     }
 
+    /**
+     * 批量查询文章的阅读计数(db中的持久化值)
+     *
+     * @param articleIds
+     * @return key: 文章id, value: 阅读数，没有记录的文章不返回
+     */
+    public Map<Long, Integer> listReadCounts(Collection<Long> articleIds) {
+        if (CollectionUtils.isEmpty(articleIds)) {
+            return Collections.emptyMap();
+        }
+        LambdaQueryWrapper<ReadCountDO> query = Wrappers.lambdaQuery();
+        query.select(ReadCountDO::getDocumentId, ReadCountDO::getCnt)
+                .eq(ReadCountDO::getDocumentType, DocumentTypeEnum.ARTICLE.getCode())
+                .in(ReadCountDO::getDocumentId, articleIds);
+        return readCountMapper.selectList(query).stream()
+                .collect(Collectors.toMap(ReadCountDO::getDocumentId, ReadCountDO::getCnt, (a, b) -> a));
+    }
+
 
     /**
      * 根据用户ID获取创作历程
@@ -383,6 +491,75 @@ public class ArticleDao extends ServiceImpl<ArticleMapper, ArticleDO> {
                 .count();
     }
 
+    /**
+     * 按主键游标遍历文章，包含已删除、未发布的记录
+     *
+     * @param lastId 上一批的最大id
+     * @param size
+     * @return
+     */
+    public List<ArticleDO> scanArticles(Long lastId, int size) {
+        return lambdaQuery().gt(ArticleDO::getId, lastId)
+                .orderByAsc(ArticleDO::getId)
+                .last("limit " + size)
+                .list();
+    }
+
+    /**
+     * 按id顺序扫描已发布的文章，只返回 id + 分类
+     *
+     * @param lastId 上一批最后一篇文章的id
+     * @param size
+     * @return
+     */
+    public List<ArticleDO> scanOnlineArticleCategories(Long lastId, int size) {
+        return lambdaQuery().select(ArticleDO::getId, ArticleDO::getCategoryId)
+                .eq(ArticleDO::getStatus, PushStatusEnum.ONLINE.getCode())
+                .eq(ArticleDO::getDeleted, YesOrNoEnum.NO.getCode())
+                .gt(ArticleDO::getId, lastId)
+                .orderByAsc(ArticleDO::getId)
+                .last("limit " + size)
+                .list();
+    }
+
+    /**
+     * 查询在某个时间之后有变更的文章，包含已删除、未发布的记录
+     *
+     * @param since
+     * @return
+     */
+    public List<ArticleDO> listArticlesUpdatedAfter(Date since) {
+        return lambdaQuery().ge(ArticleDO::getUpdateTime, since).list();
+    }
+
+    /**
+     * 批量查询文章的最新正文
+     *
+     * @param articleIds
+     * @return 文章id -> 正文
+     */
+    public Map<Long, String> listLatestContents(Collection<Long> articleIds) {
+        if (CollectionUtils.isEmpty(articleIds)) {
+            return Collections.emptyMap();
+        }
+        // 先只查询版本号，确定每篇文章最新版本对应的记录，再查询正文，避免把历史版本的正文全部读出来
+        LambdaQueryWrapper<ArticleDetailDO> query = Wrappers.lambdaQuery();
+        query.select(ArticleDetailDO::getId, ArticleDetailDO::getArticleId, ArticleDetailDO::getVersion)
+                .eq(ArticleDetailDO::getDeleted, YesOrNoEnum.NO.getCode())
+                .in(ArticleDetailDO::getArticleId, articleIds);
+        Map<Long, ArticleDetailDO> latest = new HashMap<>(articleIds.size());
+        for (ArticleDetailDO detail : articleDetailMapper.selectList(query)) {
+            latest.merge(detail.getArticleId(), detail, (a, b) -> a.getVersion() >= b.getVersion() ? a : b);
+        }
+        if (latest.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        List<Long> detailIds = latest.values().stream().map(ArticleDetailDO::getId).collect(Collectors.toList());
+        return articleDetailMapper.selectBatchIds(detailIds).stream()
+                .collect(Collectors.toMap(ArticleDetailDO::getArticleId, d -> d.getContent() == null ? "" : d.getContent()));
+    }
+
     public List<ArticleDO> selectByIds(List<Integer> ids) {
 
         List<ArticleDO> articleDOS = baseMapper.selectBatchIds(ids);
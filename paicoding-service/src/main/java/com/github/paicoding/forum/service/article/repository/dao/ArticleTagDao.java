@@ -2,15 +2,20 @@ package com.github.paicoding.forum.service.article.repository.dao;
 
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.github.paicoding.forum.api.model.enums.YesOrNoEnum;
+import com.github.paicoding.forum.api.model.vo.article.dto.ArticleTagDTO;
 import com.github.paicoding.forum.api.model.vo.article.dto.TagDTO;
 import com.github.paicoding.forum.service.article.repository.entity.ArticleTagDO;
 import com.github.paicoding.forum.service.article.repository.mapper.ArticleTagMapper;
+import com.google.common.collect.Maps;
 import org.apache.ibatis.annotations.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.util.CollectionUtils;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -83,6 +88,27 @@ public class ArticleTagDao extends ServiceImpl<ArticleTagMapper, ArticleTagDO> {
         return baseMapper.listArticleTagDetails(articleId);
     }
 
+    /**
+     * 批量查询文章标签，一次 in 查询替换逐篇查询
+     *
+     * @param articleIds
+     * @return key: 文章id, value: 标签列表
+     */
+    public Map<Long, List<TagDTO>> queryArticleTagDetails(Collection<Long> articleIds) {
+        if (CollectionUtils.isEmpty(articleIds)) {
+            return Collections.emptyMap();
+        }
+
+        List<ArticleTagDTO> list = baseMapper.listArticleTagDetailsByArticleIds(articleIds);
+        Map<Long, List<TagDTO>> result = Maps.newHashMapWithExpectedSize(articleIds.size());
+        for (ArticleTagDTO item : list) {
+            TagDTO tag = new TagDTO();
+            tag.setTagId(item.getTagId());
+            tag.setTag(item.getTag());
+            result.computeIfAbsent(item.getArticleId(), k -> new ArrayList<>()).add(tag);
+        }
+        return result;
+    }
 
     public List<ArticleTagDO> listArticleTags(@Param("articleId") Long articleId) {
         return lambdaQuery().eq(ArticleTagDO::getArticleId, articleId).eq(ArticleTagDO::getDeleted, YesOrNoEnum.NO.getCode()).list();
@@ -1,10 +1,12 @@
 package com.github.paicoding.forum.service.article.repository.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.github.paicoding.forum.api.model.vo.article.dto.ArticleTagDTO;
 import com.github.paicoding.forum.api.model.vo.article.dto.TagDTO;
 import com.github.paicoding.forum.service.article.repository.entity.ArticleTagDO;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -23,6 +25,13 @@ public interface ArticleTagMapper extends BaseMapper<ArticleTagDO> {
      */
     List<TagDTO> listArticleTagDetails(@Param("articleId") Long articleId);
 
+    /**
+     * 批量查询多篇文章的标签
+     *
+     * @param articleIds
+     * @return
+     */
+    List<ArticleTagDTO> listArticleTagDetailsByArticleIds(@Param("articleIds") Collection<Long> articleIds);
 
 
 }
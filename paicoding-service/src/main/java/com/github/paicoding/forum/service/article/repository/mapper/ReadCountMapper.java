@@ -2,6 +2,9 @@ package com.github.paicoding.forum.service.article.repository.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.github.paicoding.forum.service.article.repository.entity.ReadCountDO;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Map;
 
 /**
  * 标签mapper接口
@@ -10,4 +13,13 @@ import com.github.paicoding.forum.service.article.repository.entity.ReadCountDO;
  * @date 2022-07-18
  */
 public interface ReadCountMapper extends BaseMapper<ReadCountDO> {
+
+    /**
+     * 批量累加计数
+     *
+     * @param documentType 文档类型
+     * @param counts       key: 文档id, value: 增量
+     * @return
+     */
+    int batchIncrCount(@Param("documentType") Integer documentType, @Param("counts") Map<Long, Long> counts);
 }
@@ -0,0 +1,135 @@
+package com.github.paicoding.forum.service.article.search;
+
+import com.github.paicoding.forum.api.model.vo.PageParam;
+import com.github.paicoding.forum.service.constant.EsFieldConstant;
+import com.github.paicoding.forum.service.constant.EsIndexConstant;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.support.PlainActionFuture;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.fetch.subphase.highlight.HighlightBuilder;
+import org.elasticsearch.search.fetch.subphase.highlight.HighlightField;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 文章的es查询，带熔断：es不可用时返回null，由调用方降级到db查询
+ *
+ * @author YiHui
+ * @date 2026/10/17
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "elasticsearch", name = "open")
+public class ArticleSearchClient {
+    private static final String PRE_TAG = "<em>";
+    private static final String POST_TAG = "</em>";
+
+    private final RestHighLevelClient client;
+
+    private final SearchCircuitBreaker breaker;
+
+    private final long timeoutMillis;
+
+    /**
+     * 请求线程等待es返回的最长时间，包含建连；source 中的 timeout 只约束es服务端，节点无响应时不会生效
+     */
+    private final long requestTimeoutMillis;
+
+    public ArticleSearchClient(RestHighLevelClient restHighLevelClient,
+                               @Value("${paicoding.search.breaker.failure-threshold:5}") int failureThreshold,
+                               @Value("${paicoding.search.breaker.open-millis:30000}") long openMillis,
+                               @Value("${paicoding.search.timeout:500}") long timeoutMillis,
+                               @Value("${paicoding.search.request-timeout:1000}") long requestTimeoutMillis) {
+        this.client = restHighLevelClient;
+        this.breaker = new SearchCircuitBreaker(failureThreshold, openMillis);
+        this.timeoutMillis = timeoutMillis;
+        this.requestTimeoutMillis = requestTimeoutMillis;
+    }
+
+    /**
+     * 分页搜索文章
+     *
+     * @param key  关键词
+     * @param page 分页
+     * @return 命中的文章，按相关度排序；es不可用时返回null
+     */
+    public List<ArticleSearchHit> search(String key, PageParam page) {
+        if (!breaker.allow()) {
+            return null;
+        }
+
+        SearchSourceBuilder source = new SearchSourceBuilder()
+                .query(QueryBuilders.multiMatchQuery(key)
+                        .field(EsFieldConstant.ES_FIELD_TITLE, 3)
+                        .field(EsFieldConstant.ES_FIELD_SHORT_TITLE, 2)
+                        .field(EsFieldConstant.ES_FIELD_TAGS, 2)
+                        .field(EsFieldConstant.ES_FIELD_CATEGORY)
+                        .field(EsFieldConstant.ES_FIELD_SUMMARY)
+                        .field(EsFieldConstant.ES_FIELD_CONTENT))
+                .from((int) page.getOffset())
+                .size((int) page.getLimit())
+                .fetchSource(false)
+                .timeout(TimeValue.timeValueMillis(timeoutMillis))
+                .highlighter(new HighlightBuilder()
+                        .field(EsFieldConstant.ES_FIELD_TITLE, 0, 0)
+                        .field(EsFieldConstant.ES_FIELD_SUMMARY, 0, 0)
+                        .field(EsFieldConstant.ES_FIELD_CONTENT, 120, 1)
+                        // 对原文做html转义，结果可以直接输出到页面
+                        .encoder("html")
+                        .preTags(PRE_TAG)
+                        .postTags(POST_TAG));
+        SearchRequest request = new SearchRequest(new String[]{EsIndexConstant.ES_INDEX_ARTICLE}, source);
+
+        SearchResponse response;
+        try {
+            // 异步发送并限时等待，es节点挂起时不会阻塞请求线程直到 socket 超时
+            PlainActionFuture<SearchResponse> future = PlainActionFuture.newFuture();
+            client.searchAsync(request, RequestOptions.DEFAULT, future);
+            response = future.actionGet(requestTimeoutMillis);
+        } catch (Exception e) {
+            breaker.failure();
+            log.warn("failed to search article from es! key={}, breakerOpen={}", key, breaker.isOpen(), e);
+            return null;
+        }
+        breaker.success();
+
+        List<ArticleSearchHit> result = new ArrayList<>();
+        for (SearchHit hit : response.getHits().getHits()) {
+            Map<String, HighlightField> highlights = hit.getHighlightFields();
+            String summary = fragment(highlights, EsFieldConstant.ES_FIELD_SUMMARY);
+            if (summary == null) {
+                summary = fragment(highlights, EsFieldConstant.ES_FIELD_CONTENT);
+            }
+            result.add(new ArticleSearchHit()
+                    .setArticleId(Long.valueOf(hit.getId()))
+                    .setTitle(fragment(highlights, EsFieldConstant.ES_FIELD_TITLE))
+                    .setSummary(summary));
+        }
+        return result;
+    }
+
+    private String fragment(Map<String, HighlightField> highlights, String field) {
+        HighlightField highlight = highlights.get(field);
+        if (highlight == null || highlight.getFragments() == null || highlight.getFragments().length == 0) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder();
+        for (Text text : highlight.getFragments()) {
+            builder.append(text.string());
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,26 @@
+package com.github.paicoding.forum.service.article.search;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * es搜索命中的文章
+ *
+ * @author YiHui
+ * @date 2026/10/17
+ */
+@Data
+@Accessors(chain = true)
+public class ArticleSearchHit {
+    private Long articleId;
+
+    /**
+     * 高亮之后的标题，已做html转义，关键词使用 em 标签包裹；标题未命中时为null
+     */
+    private String title;
+
+    /**
+     * 高亮之后的摘要；摘要未命中时取正文中命中的片段，均未命中时为null
+     */
+    private String summary;
+}
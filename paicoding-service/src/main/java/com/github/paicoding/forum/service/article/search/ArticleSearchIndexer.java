@@ -0,0 +1,263 @@
+package com.github.paicoding.forum.service.article.search;
+
+import com.github.paicoding.forum.api.model.enums.PushStatusEnum;
+import com.github.paicoding.forum.api.model.enums.YesOrNoEnum;
+import com.github.paicoding.forum.api.model.event.ArticleMsgEvent;
+import com.github.paicoding.forum.api.model.vo.article.dto.TagDTO;
+import com.github.paicoding.forum.core.async.AsyncUtil;
+import com.github.paicoding.forum.core.util.BufferUtil;
+import com.github.paicoding.forum.core.util.TransactionUtil;
+import com.github.paicoding.forum.service.article.helper.ArticleEventHelper;
+import com.github.paicoding.forum.service.article.repository.dao.ArticleDao;
+import com.github.paicoding.forum.service.article.repository.dao.ArticleTagDao;
+import com.github.paicoding.forum.service.article.repository.entity.ArticleDO;
+import com.github.paicoding.forum.service.article.service.CategoryService;
+import com.github.paicoding.forum.service.constant.EsFieldConstant;
+import com.github.paicoding.forum.service.constant.EsIndexConstant;
+import com.google.common.collect.Iterables;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.elasticsearch.action.admin.indices.create.CreateIndexRequest;
+import org.elasticsearch.action.admin.indices.get.GetIndexRequest;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.support.PlainActionFuture;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * 文章的es增量索引
+ * <p>
+ * 1. 监听文章的发布、下线、删除、更新事件，事务结束之后只记录变更的文章id
+ * 2. 定时批量读取文章的最新状态：已发布的写入 标题、摘要、标签、分类、正文，其他的从索引中删除；同一篇文章多次变更只会写一次
+ * 3. 每天按主键游标全量重建一次，修正增量过程中丢失的变更
+ *
+ * @author YiHui
+ * @date 2026/10/17
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "elasticsearch", name = "open")
+public class ArticleSearchIndexer {
+    private static final String DOC_TYPE = "_doc";
+
+    /**
+     * 单次bulk写入的文章数
+     */
+    private static final int BATCH_SIZE = 200;
+
+    /**
+     * 索引不存在时使用的mapping；已存在的索引不做修改
+     */
+    private static final String INDEX_MAPPING = "{\"properties\":{"
+            + "\"" + EsFieldConstant.ES_FIELD_TITLE + "\":{\"type\":\"text\"},"
+            + "\"" + EsFieldConstant.ES_FIELD_SHORT_TITLE + "\":{\"type\":\"text\"},"
+            + "\"" + EsFieldConstant.ES_FIELD_SUMMARY + "\":{\"type\":\"text\"},"
+            + "\"" + EsFieldConstant.ES_FIELD_CONTENT + "\":{\"type\":\"text\"},"
+            + "\"" + EsFieldConstant.ES_FIELD_TAGS + "\":{\"type\":\"text\"},"
+            + "\"" + EsFieldConstant.ES_FIELD_CATEGORY + "\":{\"type\":\"text\"},"
+            + "\"" + EsFieldConstant.ES_FIELD_CREATE_TIME + "\":{\"type\":\"date\"}"
+            + "}}";
+
+    private final RestHighLevelClient client;
+
+    private final ArticleDao articleDao;
+
+    private final ArticleTagDao articleTagDao;
+
+    private final CategoryService categoryService;
+
+    /**
+     * 待同步的文章id
+     */
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    private final AtomicBoolean flushing = new AtomicBoolean(false);
+
+    private final Timer flushTimer;
+
+    private volatile boolean indexReady = false;
+
+    /**
+     * 正文最多写入的字符数
+     */
+    @Value("${paicoding.search.max-content:20000}")
+    private int maxContent;
+
+    /**
+     * 单次批量写入等待es返回的最长时间，es节点无响应时尽快失败，留到下一轮重试
+     */
+    @Value("${paicoding.search.bulk-timeout:10000}")
+    private long bulkTimeout;
+
+    public ArticleSearchIndexer(RestHighLevelClient restHighLevelClient, ArticleDao articleDao, ArticleTagDao articleTagDao,
+                                CategoryService categoryService, MeterRegistry meterRegistry) {
+        this.client = restHighLevelClient;
+        this.articleDao = articleDao;
+        this.articleTagDao = articleTagDao;
+        this.categoryService = categoryService;
+        this.flushTimer = Timer.builder("paicoding.search.index.flush").description("文章增量索引耗时").register(meterRegistry);
+        Gauge.builder("paicoding.search.index.pending", dirty, Set::size).description("待同步到es的文章数").register(meterRegistry);
+    }
+
+    @EventListener(ArticleMsgEvent.class)
+    public void articleChangeListener(ArticleMsgEvent<?> event) {
+        Long articleId = ArticleEventHelper.articleId(event);
+        if (articleId == null) {
+            return;
+        }
+
+        // 不区分事件类型，同步时以db中的最新状态为准
+        final Long id = articleId;
+        TransactionUtil.registryAfterCompletionOrImmediatelyRun(() -> {
+            dirty.add(id);
+            if (dirty.size() >= BATCH_SIZE && !flushing.get()) {
+                AsyncUtil.execute(this::flush);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${paicoding.search.flush-interval:1000}")
+    public void autoFlush() {
+        flush();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    public void flush() {
+        if (dirty.isEmpty() || !flushing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            flushTimer.record(this::doFlush);
+        } finally {
+            flushing.set(false);
+        }
+    }
+
+    private void doFlush() {
+        List<Long> ids = BufferUtil.drain(dirty);
+
+        for (List<Long> batch : Iterables.partition(ids, BATCH_SIZE)) {
+            try {
+                sync(batch, articleDao.listByIds(batch));
+            } catch (Exception e) {
+                // 同步失败，放回去等待下一轮
+                log.error("failed to sync article to es! ids={}", batch, e);
+                dirty.addAll(batch);
+            }
+        }
+    }
+
+    /**
+     * 按主键游标全量重建索引
+     */
+    @Scheduled(cron = "${paicoding.search.reindex-cron:0 30 4 * * ?}")
+    public void reindex() {
+        long lastId = 0;
+        int total = 0;
+        while (true) {
+            List<ArticleDO> articles = articleDao.scanArticles(lastId, BATCH_SIZE);
+            if (articles.isEmpty()) {
+                break;
+            }
+            List<Long> ids = articles.stream().map(ArticleDO::getId).collect(Collectors.toList());
+            try {
+                sync(ids, articles);
+            } catch (Exception e) {
+                log.error("failed to reindex article! lastId={}", lastId, e);
+                dirty.addAll(ids);
+            }
+            total += articles.size();
+            lastId = ids.get(ids.size() - 1);
+        }
+        log.info("article reindex finished, total={}", total);
+    }
+
+    /**
+     * 同步一批文章：已发布的写入索引，下线、删除、不存在的从索引中移除
+     *
+     * @param ids      文章id
+     * @param articles 文章的最新记录
+     */
+    private void sync(Collection<Long> ids, List<ArticleDO> articles) throws IOException {
+        ensureIndex();
+        Map<Long, ArticleDO> online = articles.stream()
+                .filter(a -> Objects.equals(a.getStatus(), PushStatusEnum.ONLINE.getCode())
+                        && Objects.equals(a.getDeleted(), YesOrNoEnum.NO.getCode()))
+                .collect(Collectors.toMap(ArticleDO::getId, a -> a));
+        Map<Long, String> contents = online.isEmpty() ? Collections.emptyMap() : articleDao.listLatestContents(online.keySet());
+        Map<Long, List<TagDTO>> tags = online.isEmpty() ? Collections.emptyMap() : articleTagDao.queryArticleTagDetails(online.keySet());
+
+        BulkRequest bulk = new BulkRequest();
+        for (Long id : ids) {
+            ArticleDO article = online.get(id);
+            if (article == null) {
+                bulk.add(new DeleteRequest(EsIndexConstant.ES_INDEX_ARTICLE, DOC_TYPE, String.valueOf(id)));
+            } else {
+                bulk.add(new IndexRequest(EsIndexConstant.ES_INDEX_ARTICLE, DOC_TYPE, String.valueOf(id))
+                        .source(toDoc(article, contents.get(id), tags.get(id))));
+            }
+        }
+        PlainActionFuture<BulkResponse> future = PlainActionFuture.newFuture();
+        client.bulkAsync(bulk, RequestOptions.DEFAULT, future);
+        BulkResponse response = future.actionGet(bulkTimeout);
+        if (response.hasFailures()) {
+            throw new IOException(response.buildFailureMessage());
+        }
+    }
+
+    private Map<String, Object> toDoc(ArticleDO article, String content, List<TagDTO> tags) {
+        Map<String, Object> doc = new HashMap<>(8);
+        doc.put(EsFieldConstant.ES_FIELD_TITLE, article.getTitle());
+        doc.put(EsFieldConstant.ES_FIELD_SHORT_TITLE, article.getShortTitle());
+        doc.put(EsFieldConstant.ES_FIELD_SUMMARY, article.getSummary());
+        doc.put(EsFieldConstant.ES_FIELD_CONTENT, StringUtils.left(content, maxContent));
+        doc.put(EsFieldConstant.ES_FIELD_TAGS, tags == null ? Collections.emptyList()
+                : tags.stream().map(TagDTO::getTag).collect(Collectors.toList()));
+        doc.put(EsFieldConstant.ES_FIELD_CATEGORY, categoryService.queryCategoryName(article.getCategoryId()));
+        doc.put(EsFieldConstant.ES_FIELD_CREATE_TIME, article.getCreateTime() == null ? null : article.getCreateTime().getTime());
+        return doc;
+    }
+
+    private void ensureIndex() throws IOException {
+        if (indexReady) {
+            return;
+        }
+        GetIndexRequest exists = new GetIndexRequest().indices(EsIndexConstant.ES_INDEX_ARTICLE);
+        if (!client.indices().exists(exists, RequestOptions.DEFAULT)) {
+            CreateIndexRequest create = new CreateIndexRequest(EsIndexConstant.ES_INDEX_ARTICLE)
+                    .mapping(DOC_TYPE, INDEX_MAPPING, XContentType.JSON);
+            client.indices().create(create, RequestOptions.DEFAULT);
+            log.info("es index created: {}", EsIndexConstant.ES_INDEX_ARTICLE);
+        }
+        indexReady = true;
+    }
+}
@@ -0,0 +1,84 @@
+package com.github.paicoding.forum.service.article.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 本地索引使用的分词
+ * <p>
+ * - 英文、数字：按连续的字母数字切分为一个词，统一转小写
+ * - 中日韩文字：按二元组(bigram)切分，如 "并发编程" -> 并发、发编、编程；只有一个字时保留单字
+ * - 建索引时中日韩文字额外保留单字，使 "锁"、"Redis入" 这类只有一个汉字的查询也能命中
+ * - 其他字符视为分隔符
+ *
+ * @author YiHui
+ * @date 2026/10/17
+ */
+public class ArticleTokenizer {
+    private ArticleTokenizer() {
+    }
+
+    /**
+     * 查询时的分词
+     */
+    public static List<String> tokenize(String text) {
+        return tokenize(text, false);
+    }
+
+    /**
+     * 建索引时的分词，在二元组之外再保留中日韩文字的单字
+     */
+    public static List<String> tokenizeForIndex(String text) {
+        return tokenize(text, true);
+    }
+
+    private static List<String> tokenize(String text, boolean unigram) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+
+        String str = text.toLowerCase(Locale.ROOT);
+        int len = str.length();
+        int i = 0;
+        while (i < len) {
+            char c = str.charAt(i);
+            if (isCjk(c)) {
+                int start = i;
+                while (i < len && isCjk(str.charAt(i))) {
+                    i++;
+                }
+                if (i - start == 1) {
+                    tokens.add(str.substring(start, i));
+                } else {
+                    for (int j = start; j < i - 1; j++) {
+                        tokens.add(str.substring(j, j + 2));
+                    }
+                    if (unigram) {
+                        for (int j = start; j < i; j++) {
+                            tokens.add(str.substring(j, j + 1));
+                        }
+                    }
+                }
+            } else if (Character.isLetterOrDigit(c)) {
+                int start = i;
+                while (i < len && Character.isLetterOrDigit(str.charAt(i)) && !isCjk(str.charAt(i))) {
+                    i++;
+                }
+                tokens.add(str.substring(start, i));
+            } else {
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    public static boolean isCjk(char c) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(c);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
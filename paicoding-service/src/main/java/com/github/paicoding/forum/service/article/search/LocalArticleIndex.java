@@ -0,0 +1,345 @@
+package com.github.paicoding.forum.service.article.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 不可变的内存倒排索引，构建之后只读，可以被多个线程无锁访问
+ * <p>
+ * - 文章按加入索引的顺序编号，每个词对应一个按编号升序的 int 数组，元素为 编号 << 8 | 权重
+ * - 权重：标题 5、短标题 4、标签 3、摘要 1，同一个词在多个字段中出现时累加
+ * - 检索时要求所有的词都命中，按 权重 * idf 之和排序，得分相同时新文章在前
+ * - 增量更新时生成新的实例，只重写变更文章涉及的词，其他词的倒排数组与旧实例共享；
+ *   删除的文章只从倒排中移除，编号不回收，空洞过多时由调用方全量重建
+ *
+ * @author YiHui
+ * @date 2026/10/17
+ */
+public class LocalArticleIndex {
+    public static final LocalArticleIndex EMPTY = build(Collections.emptyList());
+
+    private static final int TITLE_WEIGHT = 5;
+    private static final int SHORT_TITLE_WEIGHT = 4;
+    private static final int TAG_WEIGHT = 3;
+    private static final int SUMMARY_WEIGHT = 1;
+
+    private static final int[] NO_POSTINGS = new int[0];
+
+    /**
+     * 编号 -> 文章id
+     */
+    private final long[] ids;
+
+    /**
+     * 文章id -> 编号，只包含仍在索引中的文章，仅在增量更新时使用
+     */
+    private final Map<Long, Integer> ords;
+
+    /**
+     * 有序的词表，用于前缀匹配
+     */
+    private final String[] terms;
+
+    private final int[][] postings;
+
+    private LocalArticleIndex(long[] ids, Map<Long, Integer> ords, String[] terms, int[][] postings) {
+        this.ids = ids;
+        this.ords = ords;
+        this.terms = terms;
+        this.postings = postings;
+    }
+
+    /**
+     * @return 索引中的文章数
+     */
+    public int size() {
+        return ords.size();
+    }
+
+    /**
+     * @return 已分配的编号数，包含已删除文章留下的空洞
+     */
+    public int capacity() {
+        return ids.length;
+    }
+
+    public static LocalArticleIndex build(Collection<Doc> docs) {
+        List<Doc> sorted = new ArrayList<>(docs);
+        sorted.sort(Comparator.comparingLong(Doc::getId).reversed());
+
+        long[] ids = new long[sorted.size()];
+        Map<Long, Integer> ords = new HashMap<>(sorted.size() * 2);
+        Map<String, IntList> termPostings = new TreeMap<>();
+        for (int ord = 0; ord < sorted.size(); ord++) {
+            Doc doc = sorted.get(ord);
+            ids[ord] = doc.getId();
+            ords.put(doc.getId(), ord);
+            for (Map.Entry<String, Integer> entry : weights(doc).entrySet()) {
+                termPostings.computeIfAbsent(entry.getKey(), k -> new IntList()).add(ord << 8 | entry.getValue());
+            }
+        }
+
+        String[] terms = new String[termPostings.size()];
+        int[][] postings = new int[termPostings.size()][];
+        int i = 0;
+        for (Map.Entry<String, IntList> entry : termPostings.entrySet()) {
+            terms[i] = entry.getKey();
+            postings[i] = entry.getValue().toArray();
+            i++;
+        }
+        return new LocalArticleIndex(ids, ords, terms, postings);
+    }
+
+    /**
+     * 增量更新，返回新的索引，当前实例不变
+     *
+     * @param before 变更前的文章，不在索引中的不传
+     * @param after  变更后的文章，已从索引中移除的不传
+     * @return 新的索引
+     */
+    public LocalArticleIndex update(Map<Long, Doc> before, Map<Long, Doc> after) {
+        Map<Long, Integer> newOrds = new HashMap<>(ords);
+        List<Long> appended = new ArrayList<>();
+        // 词 -> (编号 -> 新的权重，0表示移除)
+        TreeMap<String, Map<Integer, Integer>> changes = new TreeMap<>();
+
+        Set<Long> changedIds = new LinkedHashSet<>(before.keySet());
+        changedIds.addAll(after.keySet());
+        for (Long id : changedIds) {
+            Doc old = before.get(id);
+            Doc doc = after.get(id);
+            if (old == doc) {
+                continue;
+            }
+            Integer ord = newOrds.get(id);
+            if (ord == null) {
+                if (doc == null) {
+                    continue;
+                }
+                // 不在索引中的文章按新增处理
+                old = null;
+                ord = ids.length + appended.size();
+                appended.add(id);
+                newOrds.put(id, ord);
+            } else if (doc == null) {
+                newOrds.remove(id);
+            }
+
+            Map<String, Integer> oldWeights = old == null ? Collections.emptyMap() : weights(old);
+            Map<String, Integer> newWeights = doc == null ? Collections.emptyMap() : weights(doc);
+            for (String term : oldWeights.keySet()) {
+                if (!newWeights.containsKey(term)) {
+                    changes.computeIfAbsent(term, k -> new HashMap<>()).put(ord, 0);
+                }
+            }
+            for (Map.Entry<String, Integer> entry : newWeights.entrySet()) {
+                if (!entry.getValue().equals(oldWeights.get(entry.getKey()))) {
+                    changes.computeIfAbsent(entry.getKey(), k -> new HashMap<>()).put(ord, entry.getValue());
+                }
+            }
+        }
+        if (changes.isEmpty() && newOrds.size() == ords.size() && appended.isEmpty()) {
+            return this;
+        }
+
+        long[] newIds = ids;
+        if (!appended.isEmpty()) {
+            newIds = Arrays.copyOf(ids, ids.length + appended.size());
+            for (int i = 0; i < appended.size(); i++) {
+                newIds[ids.length + i] = appended.get(i);
+            }
+        }
+
+        // 有序合并旧词表与变更的词，未变更的词直接复用旧的倒排数组
+        String[] newTerms = new String[terms.length + changes.size()];
+        int[][] newPostings = new int[newTerms.length][];
+        int size = 0;
+        int i = 0;
+        for (Map.Entry<String, Map<Integer, Integer>> change : changes.entrySet()) {
+            while (i < terms.length && terms[i].compareTo(change.getKey()) < 0) {
+                newTerms[size] = terms[i];
+                newPostings[size++] = postings[i++];
+            }
+            int[] origin = NO_POSTINGS;
+            if (i < terms.length && terms[i].equals(change.getKey())) {
+                origin = postings[i++];
+            }
+            newTerms[size] = change.getKey();
+            newPostings[size++] = patch(origin, change.getValue());
+        }
+        while (i < terms.length) {
+            newTerms[size] = terms[i];
+            newPostings[size++] = postings[i++];
+        }
+        return new LocalArticleIndex(newIds, newOrds, Arrays.copyOf(newTerms, size), Arrays.copyOf(newPostings, size));
+    }
+
+    private static int[] patch(int[] origin, Map<Integer, Integer> change) {
+        IntList list = new IntList();
+        for (int posting : origin) {
+            if (!change.containsKey(posting >>> 8)) {
+                list.add(posting);
+            }
+        }
+        for (Map.Entry<Integer, Integer> entry : change.entrySet()) {
+            if (entry.getValue() > 0) {
+                list.add(entry.getKey() << 8 | entry.getValue());
+            }
+        }
+        int[] result = list.toArray();
+        // 编号在高位，按值排序即按编号排序
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * @return 文章中每个词的权重
+     */
+    private static Map<String, Integer> weights(Doc doc) {
+        Map<String, Integer> weights = new HashMap<>();
+        addField(weights, doc.getTitle(), TITLE_WEIGHT);
+        addField(weights, doc.getShortTitle(), SHORT_TITLE_WEIGHT);
+        addField(weights, doc.getSummary(), SUMMARY_WEIGHT);
+        for (String tag : doc.getTags()) {
+            addField(weights, tag, TAG_WEIGHT);
+        }
+        weights.replaceAll((k, v) -> Math.min(v, 0xff));
+        return weights;
+    }
+
+    private static void addField(Map<String, Integer> weights, String text, int weight) {
+        for (String token : ArticleTokenizer.tokenizeForIndex(text)) {
+            weights.merge(token, weight, Integer::sum);
+        }
+    }
+
+    /**
+     * 检索
+     *
+     * @param key    关键词
+     * @param prefix true 表示最后一个词按前缀匹配，用于输入过程中的联想
+     * @param offset
+     * @param limit
+     * @return 按相关度排序的文章id
+     */
+    public List<Long> search(String key, boolean prefix, int offset, int limit) {
+        Set<String> tokens = new LinkedHashSet<>(ArticleTokenizer.tokenize(key));
+        if (tokens.isEmpty() || ords.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        int n = ids.length;
+        float[] scores = new float[n];
+        int[] matched = new int[n];
+        int round = 0;
+        for (String token : tokens) {
+            round++;
+            int from;
+            int to;
+            if (prefix && round == tokens.size()) {
+                from = lowerBound(token);
+                to = lowerBound(token + Character.MAX_VALUE);
+            } else {
+                from = Arrays.binarySearch(terms, token);
+                if (from < 0) {
+                    return Collections.emptyList();
+                }
+                to = from + 1;
+            }
+
+            int df = 0;
+            for (int t = from; t < to; t++) {
+                df += postings[t].length;
+            }
+            if (df == 0) {
+                return Collections.emptyList();
+            }
+            float idf = (float) Math.log(1 + (double) ords.size() / df);
+            for (int t = from; t < to; t++) {
+                for (int posting : postings[t]) {
+                    int ord = posting >>> 8;
+                    if (matched[ord] == round - 1) {
+                        // 前缀命中多个词时，同一篇文章只计数一次
+                        matched[ord] = round;
+                    }
+                    if (matched[ord] == round) {
+                        scores[ord] += (posting & 0xff) * idf;
+                    }
+                }
+            }
+        }
+
+        List<Integer> hits = new ArrayList<>();
+        for (int ord = 0; ord < n; ord++) {
+            if (matched[ord] == round) {
+                hits.add(ord);
+            }
+        }
+        hits.sort((a, b) -> {
+            int cmp = Float.compare(scores[b], scores[a]);
+            return cmp != 0 ? cmp : Long.compare(ids[b], ids[a]);
+        });
+
+        List<Long> result = new ArrayList<>(Math.min(limit, hits.size()));
+        for (int i = offset; i < hits.size() && result.size() < limit; i++) {
+            result.add(ids[hits.get(i)]);
+        }
+        return result;
+    }
+
+    private int lowerBound(String key) {
+        int lo = 0;
+        int hi = terms.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (terms[mid].compareTo(key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * 参与索引的文章字段
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Doc {
+        private final long id;
+        private final String title;
+        private final String shortTitle;
+        private final String summary;
+        private final List<String> tags;
+        private final long updateTime;
+    }
+
+    private static class IntList {
+        private int[] data = new int[4];
+        private int size;
+
+        private void add(int v) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = v;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+}
@@ -0,0 +1,409 @@
+package com.github.paicoding.forum.service.article.search;
+
+import com.github.paicoding.forum.api.model.enums.PushStatusEnum;
+import com.github.paicoding.forum.api.model.enums.YesOrNoEnum;
+import com.github.paicoding.forum.api.model.event.ArticleMsgEvent;
+import com.github.paicoding.forum.api.model.vo.PageParam;
+import com.github.paicoding.forum.api.model.vo.article.dto.TagDTO;
+import com.github.paicoding.forum.core.async.AsyncUtil;
+import com.github.paicoding.forum.core.cache.RedisClient;
+import com.github.paicoding.forum.core.util.BufferUtil;
+import com.github.paicoding.forum.core.util.TransactionUtil;
+import com.github.paicoding.forum.service.article.helper.ArticleEventHelper;
+import com.github.paicoding.forum.service.article.repository.dao.ArticleDao;
+import com.github.paicoding.forum.service.article.repository.dao.ArticleTagDao;
+import com.github.paicoding.forum.service.article.repository.entity.ArticleDO;
+import com.google.common.collect.Iterables;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 未开启es时使用的进程内文章检索
+ * <p>
+ * 1. 对已发布文章的 标题、短标题、摘要、标签 建立内存倒排索引，中文按二元组分词
+ * 2. 文章变更事件只记录文章id，并通过 redis 发布订阅通知其他节点；定时从db读取最新状态，只重写变更文章涉及的词，读请求使用不可变的索引快照
+ * 3. 文章数据定期落盘，重启时从磁盘恢复，再补齐快照之后有变更的文章，不需要全量扫表；初始化失败时按退避间隔重试
+ * 4. 每天全量重建一次，修正增量过程中丢失的变更
+ *
+ * @author YiHui
+ * @date 2026/10/17
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "elasticsearch", name = "open", havingValue = "false", matchIfMissing = true)
+public class LocalArticleSearchEngine {
+    private static final String CHANGE_CHANNEL = "article_search_change";
+
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private static final int BATCH_SIZE = 200;
+
+    /**
+     * 从快照恢复之后补齐变更时，向前多查询一段时间，避免快照写入与db更新之间的时间差
+     */
+    private static final long CATCH_UP_OVERLAP = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * 初始化失败之后的重试间隔，每次失败翻倍
+     */
+    private static final long INIT_RETRY_MIN = TimeUnit.SECONDS.toMillis(5);
+    private static final long INIT_RETRY_MAX = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * 增量更新留下的空洞超过这个数量，并且多于有效文章数时，全量重建一次索引
+     */
+    private static final int COMPACT_THRESHOLD = 1024;
+
+    private final ArticleDao articleDao;
+
+    private final ArticleTagDao articleTagDao;
+
+    private final RedisMessageListenerContainer listenerContainer;
+
+    /**
+     * 参与索引的文章，key: 文章id
+     */
+    private final Map<Long, LocalArticleIndex.Doc> docs = new ConcurrentHashMap<>();
+
+    /**
+     * 有变更、待同步的文章id
+     */
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    private volatile LocalArticleIndex index = LocalArticleIndex.EMPTY;
+
+    /**
+     * 索引完成初始化之前，由调用方降级为db查询
+     */
+    private volatile boolean ready = false;
+
+    /**
+     * 上次落盘之后是否有变更
+     */
+    private volatile boolean changed = false;
+
+    private final AtomicBoolean initializing = new AtomicBoolean(false);
+
+    private volatile long initRetryAt = 0;
+
+    private volatile long initRetryDelay = INIT_RETRY_MIN;
+
+    @Value("${paicoding.search.local.snapshot-path:data/article-index.snapshot}")
+    private String snapshotPath;
+
+    public LocalArticleSearchEngine(ArticleDao articleDao, ArticleTagDao articleTagDao, RedisMessageListenerContainer listenerContainer) {
+        this.articleDao = articleDao;
+        this.articleTagDao = articleTagDao;
+        this.listenerContainer = listenerContainer;
+    }
+
+    @PostConstruct
+    public void init() {
+        // 其他节点上的文章变更
+        listenerContainer.addMessageListener((message, pattern) -> {
+            String body = new String(message.getBody(), StandardCharsets.UTF_8);
+            try {
+                dirty.add(Long.parseLong(body));
+            } catch (NumberFormatException e) {
+                log.warn("illegal article search change message: {}", body);
+            }
+        }, RedisClient.topic(CHANGE_CHANNEL));
+
+        // 不阻塞应用启动
+        tryInit();
+    }
+
+    /**
+     * 异步初始化索引，失败时由 refresh 按退避间隔重试
+     */
+    private void tryInit() {
+        if (System.currentTimeMillis() < initRetryAt || !initializing.compareAndSet(false, true)) {
+            return;
+        }
+        AsyncUtil.execute(() -> {
+            try {
+                initIndex();
+                initRetryDelay = INIT_RETRY_MIN;
+            } catch (Exception e) {
+                initRetryAt = System.currentTimeMillis() + initRetryDelay;
+                log.error("failed to init local article index, retry after {}ms!", initRetryDelay, e);
+                initRetryDelay = Math.min(initRetryDelay * 2, INIT_RETRY_MAX);
+            } finally {
+                initializing.set(false);
+            }
+        });
+    }
+
+    private synchronized void initIndex() {
+        if (ready) {
+            return;
+        }
+        // 上一次失败时可能已经加载了部分数据
+        docs.clear();
+        long savedAt = loadSnapshot();
+        if (savedAt > 0) {
+            catchUp(new Date(savedAt - CATCH_UP_OVERLAP));
+        } else {
+            rebuild();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 检索文章
+     *
+     * @param key    关键词
+     * @param page   分页
+     * @param prefix true 表示最后一个词按前缀匹配
+     * @return 按相关度排序的命中文章；索引未就绪时返回null
+     */
+    public List<ArticleSearchHit> search(String key, PageParam page, boolean prefix) {
+        if (!ready) {
+            return null;
+        }
+        return index.search(key, prefix, (int) page.getOffset(), (int) page.getLimit()).stream()
+                .map(id -> new ArticleSearchHit().setArticleId(id))
+                .collect(Collectors.toList());
+    }
+
+    @EventListener(ArticleMsgEvent.class)
+    public void articleChangeListener(ArticleMsgEvent<?> event) {
+        Long articleId = ArticleEventHelper.articleId(event);
+        if (articleId == null) {
+            return;
+        }
+
+        // 本节点直接标记，广播失败时其他节点等每日重建修正
+        final Long id = articleId;
+        TransactionUtil.registryAfterCompletionOrImmediatelyRun(() -> {
+            dirty.add(id);
+            try {
+                RedisClient.publish(CHANGE_CHANNEL, String.valueOf(id));
+            } catch (Exception e) {
+                log.warn("failed to broadcast article search change! articleId={}", id, e);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${paicoding.search.local.refresh-interval:2000}")
+    public synchronized void refresh() {
+        if (!ready) {
+            tryInit();
+            return;
+        }
+        if (dirty.isEmpty()) {
+            return;
+        }
+        List<Long> ids = BufferUtil.drain(dirty);
+        Map<Long, LocalArticleIndex.Doc> before = indexedDocs(ids);
+        try {
+            for (List<Long> batch : Iterables.partition(ids, BATCH_SIZE)) {
+                apply(batch, articleDao.listByIds(batch));
+            }
+        } catch (Exception e) {
+            log.error("failed to refresh local article index! ids={}", ids, e);
+            dirty.addAll(ids);
+        }
+        // 失败之前已经同步的批次同样生效，未同步的文章前后不变，不会产生更新
+        index = index.update(before, indexedDocs(ids));
+        if (index.capacity() - index.size() > Math.max(COMPACT_THRESHOLD, index.size())) {
+            rebuildIndex();
+        }
+    }
+
+    private Map<Long, LocalArticleIndex.Doc> indexedDocs(Collection<Long> ids) {
+        Map<Long, LocalArticleIndex.Doc> result = new HashMap<>(ids.size() * 2);
+        for (Long id : ids) {
+            LocalArticleIndex.Doc doc = docs.get(id);
+            if (doc != null) {
+                result.put(id, doc);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 按主键游标扫描全部文章，重建索引
+     */
+    @Scheduled(cron = "${paicoding.search.local.rebuild-cron:0 40 4 * * ?}")
+    public synchronized void rebuild() {
+        Set<Long> alive = ConcurrentHashMap.newKeySet();
+        long lastId = 0;
+        while (true) {
+            List<ArticleDO> articles = articleDao.scanArticles(lastId, BATCH_SIZE);
+            if (articles.isEmpty()) {
+                break;
+            }
+            List<Long> ids = articles.stream().map(ArticleDO::getId).collect(Collectors.toList());
+            apply(ids, articles);
+            alive.addAll(ids);
+            lastId = ids.get(ids.size() - 1);
+        }
+        // db中已经物理删除的文章
+        docs.keySet().retainAll(alive);
+        rebuildIndex();
+        ready = true;
+        log.info("local article index rebuilt, docs={}", docs.size());
+    }
+
+    private synchronized void catchUp(Date since) {
+        List<ArticleDO> articles = articleDao.listArticlesUpdatedAfter(since);
+        for (List<ArticleDO> batch : Iterables.partition(articles, BATCH_SIZE)) {
+            apply(batch.stream().map(ArticleDO::getId).collect(Collectors.toList()), batch);
+        }
+        rebuildIndex();
+        ready = true;
+        log.info("local article index restored from snapshot, docs={}, updated={}", docs.size(), articles.size());
+    }
+
+    /**
+     * 同步一批文章：已发布的更新到索引中，其他的移除
+     */
+    private void apply(Collection<Long> ids, List<ArticleDO> articles) {
+        Map<Long, ArticleDO> online = articles.stream()
+                .filter(a -> Objects.equals(a.getStatus(), PushStatusEnum.ONLINE.getCode())
+                        && Objects.equals(a.getDeleted(), YesOrNoEnum.NO.getCode()))
+                .collect(Collectors.toMap(ArticleDO::getId, a -> a));
+        Map<Long, List<TagDTO>> tags = online.isEmpty() ? Collections.emptyMap() : articleTagDao.queryArticleTagDetails(online.keySet());
+        for (Long id : ids) {
+            ArticleDO article = online.get(id);
+            if (article == null) {
+                docs.remove(id);
+                continue;
+            }
+            List<String> tagNames = tags.getOrDefault(id, Collections.emptyList()).stream().map(TagDTO::getTag).collect(Collectors.toList());
+            docs.put(id, new LocalArticleIndex.Doc(id, article.getTitle(), article.getShortTitle(), article.getSummary(), tagNames,
+                    article.getUpdateTime() == null ? 0 : article.getUpdateTime().getTime()));
+        }
+        changed = true;
+    }
+
+    private void rebuildIndex() {
+        long start = System.currentTimeMillis();
+        index = LocalArticleIndex.build(docs.values());
+        if (log.isDebugEnabled()) {
+            log.debug("local article index built, docs={}, cost={}ms", index.size(), System.currentTimeMillis() - start);
+        }
+    }
+
+    // ------------ 快照 ----------------
+
+    @Scheduled(fixedDelayString = "${paicoding.search.local.snapshot-interval:300000}")
+    public void autoSaveSnapshot() {
+        if (ready && changed) {
+            saveSnapshot();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        autoSaveSnapshot();
+    }
+
+    private synchronized void saveSnapshot() {
+        Path path = Paths.get(snapshotPath);
+        Path tmp = Paths.get(snapshotPath + ".tmp");
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            List<LocalArticleIndex.Doc> list = new ArrayList<>(docs.values());
+            long savedAt = System.currentTimeMillis();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(tmp))))) {
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeLong(savedAt);
+                out.writeInt(list.size());
+                for (LocalArticleIndex.Doc doc : list) {
+                    out.writeLong(doc.getId());
+                    out.writeUTF(nullToEmpty(doc.getTitle()));
+                    out.writeUTF(nullToEmpty(doc.getShortTitle()));
+                    out.writeUTF(nullToEmpty(doc.getSummary()));
+                    out.writeInt(doc.getTags().size());
+                    for (String tag : doc.getTags()) {
+                        out.writeUTF(nullToEmpty(tag));
+                    }
+                    out.writeLong(doc.getUpdateTime());
+                }
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            changed = false;
+            log.info("local article index snapshot saved, docs={}", list.size());
+        } catch (Exception e) {
+            log.warn("failed to save local article index snapshot! path={}", snapshotPath, e);
+        }
+    }
+
+    /**
+     * @return 快照的保存时间；快照不存在或读取失败时返回0
+     */
+    private long loadSnapshot() {
+        Path path = Paths.get(snapshotPath);
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(path))))) {
+            if (in.readInt() != SNAPSHOT_VERSION) {
+                return 0;
+            }
+            long savedAt = in.readLong();
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                long id = in.readLong();
+                String title = in.readUTF();
+                String shortTitle = in.readUTF();
+                String summary = in.readUTF();
+                int tagSize = in.readInt();
+                List<String> tags = new ArrayList<>(tagSize);
+                for (int j = 0; j < tagSize; j++) {
+                    tags.add(in.readUTF());
+                }
+                docs.put(id, new LocalArticleIndex.Doc(id, title, shortTitle, summary, tags, in.readLong()));
+            }
+            return savedAt;
+        } catch (IOException e) {
+            log.warn("failed to load local article index snapshot, fallback to full rebuild! path={}", snapshotPath, e);
+            docs.clear();
+            return 0;
+        }
+    }
+
+    private static String nullToEmpty(String str) {
+        return str == null ? "" : str;
+    }
+}
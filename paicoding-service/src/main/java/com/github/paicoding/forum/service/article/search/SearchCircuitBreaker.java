@@ -0,0 +1,61 @@
+package com.github.paicoding.forum.service.article.search;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * es查询的熔断器
+ * <p>
+ * - 连续失败 failureThreshold 次之后打开，openMillis 内的请求直接走降级逻辑
+ * - 打开时间结束后只放行一个探测请求，成功则关闭，失败则重新打开
+ *
+ * @author YiHui
+ * @date 2026/10/17
+ */
+public class SearchCircuitBreaker {
+    private final int failureThreshold;
+
+    private final long openMillis;
+
+    private final AtomicInteger failures = new AtomicInteger();
+
+    private final AtomicBoolean probing = new AtomicBoolean(false);
+
+    private volatile long openUntil = 0;
+
+    public SearchCircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * @return true 表示允许访问es
+     */
+    public boolean allow() {
+        if (openUntil == 0) {
+            return true;
+        }
+        if (System.currentTimeMillis() < openUntil) {
+            return false;
+        }
+        // 半开状态，只允许一个请求去探测
+        return probing.compareAndSet(false, true);
+    }
+
+    public void success() {
+        failures.set(0);
+        openUntil = 0;
+        probing.set(false);
+    }
+
+    public void failure() {
+        if (probing.get() || failures.incrementAndGet() >= failureThreshold) {
+            openUntil = System.currentTimeMillis() + openMillis;
+            probing.set(false);
+        }
+    }
+
+    public boolean isOpen() {
+        return openUntil != 0;
+    }
+}
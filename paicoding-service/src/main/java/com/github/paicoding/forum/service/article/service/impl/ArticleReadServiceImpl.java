@@ -2,11 +2,12 @@ package com.github.paicoding.forum.service.article.service.impl;
 
 import com.github.paicoding.forum.api.model.enums.CollectionStatEnum;
 import com.github.paicoding.forum.api.model.enums.CommentStatEnum;
-import com.github.paicoding.forum.api.model.enums.DocumentTypeEnum;
 import com.github.paicoding.forum.api.model.enums.HomeSelectEnum;
-import com.github.paicoding.forum.api.model.enums.OperateTypeEnum;
 import com.github.paicoding.forum.api.model.enums.PraiseStatEnum;
+import com.github.paicoding.forum.api.model.enums.PushStatusEnum;
+import com.github.paicoding.forum.api.model.enums.YesOrNoEnum;
 import com.github.paicoding.forum.api.model.exception.ExceptionUtil;
+import com.github.paicoding.forum.api.model.vo.PageCursor;
 import com.github.paicoding.forum.api.model.vo.PageListVo;
 import com.github.paicoding.forum.api.model.vo.PageParam;
 import com.github.paicoding.forum.api.model.vo.PageVo;
@@ -15,45 +16,38 @@ import com.github.paicoding.forum.api.model.vo.article.dto.CategoryDTO;
 import com.github.paicoding.forum.api.model.vo.article.dto.SimpleArticleDTO;
 import com.github.paicoding.forum.api.model.vo.article.dto.TagDTO;
 import com.github.paicoding.forum.api.model.vo.constants.StatusEnum;
+import com.github.paicoding.forum.api.model.vo.user.dto.ArticleFootCountDTO;
 import com.github.paicoding.forum.api.model.vo.user.dto.BaseUserInfoDTO;
 import com.github.paicoding.forum.core.util.ArticleUtil;
-import com.github.paicoding.forum.core.util.SpringUtil;
 import com.github.paicoding.forum.service.article.conveter.ArticleConverter;
+import com.github.paicoding.forum.service.article.helper.CategoryArticleCounter;
 import com.github.paicoding.forum.service.article.repository.dao.ArticleDao;
 import com.github.paicoding.forum.service.article.repository.dao.ArticleTagDao;
 import com.github.paicoding.forum.service.article.repository.entity.ArticleDO;
+import com.github.paicoding.forum.service.article.search.ArticleSearchClient;
+import com.github.paicoding.forum.service.article.search.ArticleSearchHit;
+import com.github.paicoding.forum.service.article.search.LocalArticleSearchEngine;
 import com.github.paicoding.forum.service.article.service.ArticleReadService;
 import com.github.paicoding.forum.service.article.service.CategoryService;
-import com.github.paicoding.forum.service.constant.EsFieldConstant;
-import com.github.paicoding.forum.service.constant.EsIndexConstant;
+import com.github.paicoding.forum.service.rank.service.HotArticleRankService;
 import com.github.paicoding.forum.service.statistics.service.CountService;
+import com.github.paicoding.forum.service.user.repository.dao.UserFootDao;
 import com.github.paicoding.forum.service.user.repository.entity.UserFootDO;
 import com.github.paicoding.forum.service.user.service.UserFootService;
 import com.github.paicoding.forum.service.user.service.UserService;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.elasticsearch.action.search.SearchRequest;
-import org.elasticsearch.action.search.SearchResponse;
-import org.elasticsearch.client.RequestOptions;
-import org.elasticsearch.client.RestHighLevelClient;
-import org.elasticsearch.index.query.MultiMatchQueryBuilder;
-import org.elasticsearch.index.query.QueryBuilders;
-import org.elasticsearch.search.SearchHit;
-import org.elasticsearch.search.SearchHits;
-import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -87,9 +81,23 @@ public class ArticleReadServiceImpl implements ArticleReadService {
     @Autowired
     private UserService userService;
 
-    // 是否开启ES
-    @Value("${elasticsearch.open:false}")
-    private Boolean openES;
+    @Autowired
+    private HotArticleRankService hotArticleRankService;
+
+    @Autowired
+    private CategoryArticleCounter categoryArticleCounter;
+
+    /**
+     * 开启es时才会注入
+     */
+    @Autowired(required = false)
+    private ArticleSearchClient articleSearchClient;
+
+    /**
+     * 未开启es时才会注入
+     */
+    @Autowired(required = false)
+    private LocalArticleSearchEngine localArticleSearchEngine;
 
     @Override
     public ArticleDO queryBasicArticle(Long articleId) {
@@ -138,9 +146,8 @@ public class ArticleReadServiceImpl implements ArticleReadService {
 
         // 文章的操作标记
         if (readUser != null) {
-            // 更新用于足迹，并判断是否点赞、评论、收藏
-            UserFootDO foot = userFootService.saveOrUpdateUserFoot(DocumentTypeEnum.ARTICLE, articleId,
-                    article.getAuthor(), readUser, OperateTypeEnum.READ);
+            // 记录阅读足迹（异步批量写入），并判断是否点赞、评论、收藏
+            UserFootDO foot = userFootService.readArticle(articleId, article.getAuthor(), readUser);
             article.setPraised(Objects.equals(foot.getPraiseStat(), PraiseStatEnum.PRAISE.getCode()));
             article.setCommented(Objects.equals(foot.getCommentStat(), CommentStatEnum.COMMENT.getCode()));
             article.setCollected(Objects.equals(foot.getCollectionStat(), CollectionStatEnum.COLLECTION.getCode()));
@@ -169,8 +176,15 @@ public class ArticleReadServiceImpl implements ArticleReadService {
      */
     @Override
     public PageListVo<ArticleDTO> queryArticlesByCategory(Long categoryId, PageParam page) {
-        List<ArticleDO> records = articleDao.listArticlesByCategoryId(categoryId, page);
-        return buildArticleListVo(records, page.getPageSize());
+        List<ArticleDO> records = page.getCursor() != null
+                ? articleDao.listArticlesByCategoryIdAfter(categoryId, page.getCursor(), page.getPageSize())
+                : articleDao.listArticlesByCategoryId(categoryId, page);
+        PageListVo<ArticleDTO> vo = buildArticleListVo(records, page.getPageSize());
+        // 页码分页与游标分页的排序一致，按页码加载的列表也可以从返回的游标继续往后翻
+        if (vo.getHasMore()) {
+            vo.setNextCursor(ArticleDao.categoryCursor(records.get(records.size() - 1)).encode());
+        }
+        return vo;
     }
 
     /**
@@ -183,16 +197,22 @@ public class ArticleReadServiceImpl implements ArticleReadService {
     public List<ArticleDTO> queryTopArticlesByCategory(Long categoryId) {
         PageParam page = PageParam.newPageInstance(PageParam.DEFAULT_PAGE_NUM, PageParam.TOP_PAGE_SIZE);
         List<ArticleDO> articleDTOS = articleDao.listArticlesByCategoryId(categoryId, page);
-        return articleDTOS.stream().map(this::fillArticleRelatedInfo).collect(Collectors.toList());
+        return fillArticleRelatedInfo(articleDTOS);
     }
 
     @Override
     public Long queryArticleCountByCategory(Long categoryId) {
+        if (categoryArticleCounter.ready()) {
+            return categoryArticleCounter.count(categoryId);
+        }
         return articleDao.countArticleByCategoryId(categoryId);
     }
 
     @Override
     public Map<Long, Long> queryArticleCountsByCategory() {
+        if (categoryArticleCounter.ready()) {
+            return categoryArticleCounter.counts();
+        }
         return articleDao.countArticleByCategoryId();
     }
 
@@ -209,58 +229,91 @@ public class ArticleReadServiceImpl implements ArticleReadService {
             return Collections.emptyList();
         }
         key = key.trim();
-        if (!openES) {
+        List<ArticleSearchHit> hits = searchFromIndex(key, PageParam.newPageInstance(1, 10), true);
+        if (hits == null) {
+            // es不可用、本地索引还未就绪时，走db的模糊查询
             List<ArticleDO> records = articleDao.listSimpleArticlesByBySearchKey(key);
             return records.stream().map(s -> new SimpleArticleDTO().setId(s.getId()).setTitle(s.getTitle()))
                     .collect(Collectors.toList());
         }
-        // TODO ES整合
-        SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder();
-        MultiMatchQueryBuilder multiMatchQueryBuilder = QueryBuilders.multiMatchQuery(key,
-                EsFieldConstant.ES_FIELD_TITLE,
-                EsFieldConstant.ES_FIELD_SHORT_TITLE);
-        searchSourceBuilder.query(multiMatchQueryBuilder);
-
-        SearchRequest searchRequest = new SearchRequest(new String[]{EsIndexConstant.ES_INDEX_ARTICLE},
-                searchSourceBuilder);
-        SearchResponse searchResponse = null;
-        try {
-            searchResponse = SpringUtil.getBean(RestHighLevelClient.class).search(searchRequest, RequestOptions.DEFAULT);
-        } catch (IOException e) {
-            log.error("failed to query from es: key", e);
-        }
-        SearchHits hits = searchResponse.getHits();
-        SearchHit[] hitsList = hits.getHits();
-        List<Integer> ids = new ArrayList<>();
-        for (SearchHit documentFields : hitsList) {
-            ids.add(Integer.parseInt(documentFields.getId()));
-        }
-        if (ObjectUtils.isEmpty(ids)) {
-            return null;
-        }
-        List<ArticleDO> records = articleDao.selectByIds(ids);
-        return records.stream().map(s -> new SimpleArticleDTO().setId(s.getId()).setTitle(s.getTitle()))
+
+        Map<Long, ArticleSearchHit> hitMap = hits.stream().collect(Collectors.toMap(ArticleSearchHit::getArticleId, h -> h));
+        return loadSearchArticles(hits).stream()
+                .map(s -> new SimpleArticleDTO().setId(s.getId()).setTitle(s.getTitle())
+                        .setHighlightTitle(hitMap.get(s.getId()).getTitle()))
                 .collect(Collectors.toList());
     }
 
     @Override
     public PageListVo<ArticleDTO> queryArticlesBySearchKey(String key, PageParam page) {
-        List<ArticleDO> records = articleDao.listArticlesByBySearchKey(key, page);
-        return buildArticleListVo(records, page.getPageSize());
+        List<ArticleSearchHit> hits = StringUtils.isBlank(key) ? null : searchFromIndex(key.trim(), page, false);
+        if (hits == null) {
+            List<ArticleDO> records = articleDao.listArticlesByBySearchKey(key, page);
+            return buildArticleListVo(records, page.getPageSize());
+        }
+
+        // es中只保存了已发布的文章，这里依然按db中的状态再过滤一次，避免索引延迟导致展示已下线的文章
+        List<ArticleDO> records = loadSearchArticles(hits);
+        PageListVo<ArticleDTO> vo = buildArticleListVo(records, page.getPageSize());
+        // 以es的命中数判断是否还有下一页
+        vo.setHasMore(hits.size() == page.getPageSize());
+        Map<Long, ArticleSearchHit> hitMap = hits.stream().collect(Collectors.toMap(ArticleSearchHit::getArticleId, h -> h));
+        vo.getList().forEach(article -> {
+            ArticleSearchHit hit = hitMap.get(article.getArticleId());
+            article.setHighlightTitle(hit.getTitle());
+            article.setHighlightSummary(hit.getSummary());
+        });
+        return vo;
+    }
+
+    /**
+     * 开启es时查询es，否则查询本地索引
+     *
+     * @param prefix 最后一个词是否按前缀匹配，只对本地索引生效
+     * @return 搜索结果，es不可用、本地索引未就绪时返回null
+     */
+    private List<ArticleSearchHit> searchFromIndex(String key, PageParam page, boolean prefix) {
+        if (articleSearchClient != null) {
+            return articleSearchClient.search(key, page);
+        }
+        return localArticleSearchEngine == null ? null : localArticleSearchEngine.search(key, page, prefix);
+    }
+
+    private List<ArticleDO> loadSearchArticles(List<ArticleSearchHit> hits) {
+        if (hits.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Long> ids = hits.stream().map(ArticleSearchHit::getArticleId).collect(Collectors.toList());
+        List<ArticleDO> records = articleDao.listByIds(ids).stream()
+                .filter(a -> Objects.equals(a.getStatus(), PushStatusEnum.ONLINE.getCode())
+                        && Objects.equals(a.getDeleted(), YesOrNoEnum.NO.getCode()))
+                .collect(Collectors.toList());
+        return sortByIds(ids, records);
     }
 
 
     @Override
     public PageListVo<ArticleDTO> queryArticlesByUserAndType(Long userId, PageParam pageParam, HomeSelectEnum select) {
         List<ArticleDO> records = null;
+        PageCursor nextCursor = null;
         if (select == HomeSelectEnum.ARTICLE) {
             // 用户的文章列表
-            records = articleDao.listArticlesByUserId(userId, pageParam);
+            records = pageParam.getCursor() != null
+                    ? articleDao.listArticlesByUserIdAfter(userId, pageParam.getCursor(), pageParam.getPageSize())
+                    : articleDao.listArticlesByUserId(userId, pageParam);
+            if (records.size() == pageParam.getPageSize()) {
+                nextCursor = PageCursor.of(records.get(records.size() - 1).getId());
+            }
         } else if (select == HomeSelectEnum.READ) {
             // 用户的阅读记录
-            List<Long> articleIds = userFootService.queryUserReadArticleList(userId, pageParam);
+            List<UserFootDO> foots = userFootService.queryUserReadFoots(userId, pageParam);
+            List<Long> articleIds = foots.stream().map(UserFootDO::getDocumentId).collect(Collectors.toList());
             records = CollectionUtils.isEmpty(articleIds) ? Collections.emptyList() : articleDao.listByIds(articleIds);
             records = sortByIds(articleIds, records);
+            if (foots.size() == pageParam.getPageSize()) {
+                // 游标取自足迹而不是文章，已删除的文章被过滤掉也不影响翻页
+                nextCursor = UserFootDao.readCursor(foots.get(foots.size() - 1));
+            }
         } else if (select == HomeSelectEnum.COLLECTION) {
             // 用户的收藏列表
             List<Long> articleIds = userFootService.queryUserCollectionArticleList(userId, pageParam);
@@ -268,10 +321,15 @@ public class ArticleReadServiceImpl implements ArticleReadService {
             records = sortByIds(articleIds, records);
         }
 
-        if (CollectionUtils.isEmpty(records)) {
+        if (CollectionUtils.isEmpty(records) && nextCursor == null) {
             return PageListVo.emptyVo();
         }
-        return buildArticleListVo(records, pageParam.getPageSize());
+        PageListVo<ArticleDTO> vo = buildArticleListVo(records, pageParam.getPageSize());
+        if (nextCursor != null) {
+            vo.setHasMore(true);
+            vo.setNextCursor(nextCursor.encode());
+        }
+        return vo;
     }
 
     /**
@@ -294,34 +352,52 @@ public class ArticleReadServiceImpl implements ArticleReadService {
 
     @Override
     public PageListVo<ArticleDTO> buildArticleListVo(List<ArticleDO> records, long pageSize) {
-        List<ArticleDTO> result = records.stream().map(this::fillArticleRelatedInfo).collect(Collectors.toList());
+        List<ArticleDTO> result = fillArticleRelatedInfo(records);
         return PageListVo.newVo(result, pageSize);
     }
 
     /**
-     * 补全文章的阅读计数、作者、分类、标签等信息
+     * 批量补全文章的阅读计数、作者、分类、标签等信息
+     * 每个维度只查询一次：标签走一次 in 查询，计数走一次 redis 管道，作者走一次批量用户查询，分类走本地缓存
      *
-     * @param record
+     * @param records
      * @return
      */
-    private ArticleDTO fillArticleRelatedInfo(ArticleDO record) {
-        ArticleDTO dto = ArticleConverter.toDto(record);
-        // 分类信息
-        dto.getCategory().setCategory(categoryService.queryCategoryName(record.getCategoryId()));
+    private List<ArticleDTO> fillArticleRelatedInfo(List<ArticleDO> records) {
+        if (CollectionUtils.isEmpty(records)) {
+            return new ArrayList<>();
+        }
+
+        List<Long> articleIds = records.stream().map(ArticleDO::getId).collect(Collectors.toList());
+        Set<Long> authorIds = records.stream().map(ArticleDO::getUserId).collect(Collectors.toSet());
+
         // 标签列表
-        dto.setTags(articleTagDao.queryArticleTagDetails(record.getId()));
+        Map<Long, List<TagDTO>> tags = articleTagDao.queryArticleTagDetails(articleIds);
         // 阅读计数统计
-        dto.setCount(countService.queryArticleStatisticInfo(record.getId()));
+        Map<Long, ArticleFootCountDTO> counts = countService.batchQueryArticleStatisticInfo(articleIds);
         // 作者信息
-        BaseUserInfoDTO author = userService.queryBasicUserInfo(dto.getAuthor());
-        dto.setAuthorName(author.getUserName());
-        dto.setAuthorAvatar(author.getPhoto());
-        return dto;
+        Map<Long, BaseUserInfoDTO> authors = userService.batchQueryBasicUserInfoMap(authorIds);
+
+        List<ArticleDTO> result = new ArrayList<>(records.size());
+        for (ArticleDO record : records) {
+            ArticleDTO dto = ArticleConverter.toDto(record);
+            // 分类信息
+            dto.getCategory().setCategory(categoryService.queryCategoryName(record.getCategoryId()));
+            dto.setTags(tags.getOrDefault(record.getId(), new ArrayList<>()));
+            dto.setCount(counts.getOrDefault(record.getId(), new ArticleFootCountDTO()));
+            BaseUserInfoDTO author = authors.get(dto.getAuthor());
+            if (author != null) {
+                dto.setAuthorName(author.getUserName());
+                dto.setAuthorAvatar(author.getPhoto());
+            }
+            result.add(dto);
+        }
+        return result;
     }
 
     @Override
     public PageListVo<SimpleArticleDTO> queryHotArticlesForRecommend(PageParam pageParam) {
-        List<SimpleArticleDTO> list = articleDao.listHotArticles(pageParam);
+        List<SimpleArticleDTO> list = hotArticleRankService.queryHotArticles(pageParam);
         return PageListVo.newVo(list, pageParam.getPageSize());
     }
 
@@ -1,8 +1,11 @@
 package com.github.paicoding.forum.service.article.service.impl;
 
+import com.github.paicoding.forum.api.model.enums.PushStatusEnum;
+import com.github.paicoding.forum.api.model.enums.YesOrNoEnum;
 import com.github.paicoding.forum.api.model.vo.PageListVo;
 import com.github.paicoding.forum.api.model.vo.PageParam;
 import com.github.paicoding.forum.api.model.vo.article.dto.ArticleDTO;
+import com.github.paicoding.forum.service.article.recommend.RelatedArticleRecommender;
 import com.github.paicoding.forum.service.article.repository.dao.ArticleDao;
 import com.github.paicoding.forum.service.article.repository.dao.ArticleTagDao;
 import com.github.paicoding.forum.service.article.repository.entity.ArticleDO;
@@ -14,7 +17,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 /**
@@ -31,6 +36,8 @@ public class ArticleRecommendServiceImpl implements ArticleRecommendService {
     private ArticleReadService articleReadService;
     @Autowired
     private SidebarService sidebarService;
+    @Autowired
+    private RelatedArticleRecommender relatedArticleRecommender;
 
     /**
      * 查询文章关联推荐列表
@@ -41,6 +48,12 @@ public class ArticleRecommendServiceImpl implements ArticleRecommendService {
      */
     @Override
     public PageListVo<ArticleDTO> relatedRecommend(Long articleId, PageParam page) {
+        long[] related = relatedArticleRecommender.related(articleId);
+        if (related != null) {
+            return buildRelatedArticles(related, page);
+        }
+
+        // 推荐列表还未完成初始化时，实时查询
         ArticleDO article = articleDao.getById(articleId);
         if (article == null) {
             return PageListVo.emptyVo();
@@ -58,4 +71,29 @@ public class ArticleRecommendServiceImpl implements ArticleRecommendService {
         }
         return articleReadService.buildArticleListVo(recommendArticles, page.getPageSize());
     }
+
+    /**
+     * 从预计算的推荐列表中取出当前页，再批量补全文章信息
+     *
+     * @param related 按相关度倒序的文章id
+     * @param page
+     * @return
+     */
+    private PageListVo<ArticleDTO> buildRelatedArticles(long[] related, PageParam page) {
+        int from = (int) Math.min(page.getOffset(), related.length);
+        int to = (int) Math.min(page.getOffset() + page.getLimit(), related.length);
+        if (from >= to) {
+            return PageListVo.emptyVo();
+        }
+
+        List<Long> ids = Arrays.stream(related, from, to).boxed().collect(Collectors.toList());
+        // 推荐列表存在更新延迟，这里按db中的状态再过滤一次
+        List<ArticleDO> records = articleDao.listByIdsInOrder(ids).stream()
+                .filter(a -> Objects.equals(a.getStatus(), PushStatusEnum.ONLINE.getCode())
+                        && Objects.equals(a.getDeleted(), YesOrNoEnum.NO.getCode()))
+                .collect(Collectors.toList());
+        PageListVo<ArticleDTO> vo = articleReadService.buildArticleListVo(records, page.getPageSize());
+        vo.setHasMore(to < related.length);
+        return vo;
+    }
 }
@@ -3,6 +3,7 @@ package com.github.paicoding.forum.service.comment.repository.dao;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.github.paicoding.forum.api.model.enums.YesOrNoEnum;
+import com.github.paicoding.forum.api.model.vo.PageCursor;
 import com.github.paicoding.forum.api.model.vo.PageParam;
 import com.github.paicoding.forum.service.comment.repository.entity.CommentDO;
 import com.github.paicoding.forum.service.comment.repository.mapper.CommentMapper;
@@ -35,6 +36,24 @@ public class CommentDao extends ServiceImpl<CommentMapper, CommentDO> {
                 .orderByDesc(CommentDO::getId).list();
     }
 
+    /**
+     * 游标分页获取文章的顶级评论，按id倒序
+     *
+     * @param articleId
+     * @param cursor    上一页最后一条评论的 (id)，为空时表示第一页
+     * @param size
+     * @return
+     */
+    public List<CommentDO> listTopCommentListAfter(Long articleId, PageCursor cursor, long size) {
+        return lambdaQuery()
+                .eq(CommentDO::getTopCommentId, 0)
+                .eq(CommentDO::getArticleId, articleId)
+                .eq(CommentDO::getDeleted, YesOrNoEnum.NO.getCode())
+                .lt(cursor != null, CommentDO::getId, cursor == null ? null : cursor.getId())
+                .orderByDesc(CommentDO::getId)
+                .last("limit " + size).list();
+    }
+
     /**
      * 查询所有的子评论
      *
@@ -63,6 +82,22 @@ public class CommentDao extends ServiceImpl<CommentMapper, CommentDO> {
         return baseMapper.selectCount(queryWrapper).intValue();
     }
 
+    /**
+     * 按id递增扫描评论
+     *
+     * @param lastId 上一批的最大id
+     * @param size
+     * @return
+     */
+    public List<CommentDO> scanComment(Long lastId, int size) {
+        return lambdaQuery()
+                .select(CommentDO::getId, CommentDO::getDeleted)
+                .gt(CommentDO::getId, lastId)
+                .orderByAsc(CommentDO::getId)
+                .last("limit " + size)
+                .list();
+    }
+
     public CommentDO getHotComment(Long articleId) {
         Map<String, Object> map = baseMapper.getHotTopCommentId(articleId);
         if (CollectionUtils.isEmpty(map)) {
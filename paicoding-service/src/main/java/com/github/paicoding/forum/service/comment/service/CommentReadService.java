@@ -1,5 +1,6 @@
 package com.github.paicoding.forum.service.comment.service;
 
+import com.github.paicoding.forum.api.model.vo.PageListVo;
 import com.github.paicoding.forum.api.model.vo.PageParam;
 import com.github.paicoding.forum.api.model.vo.comment.dto.TopCommentDTO;
 import com.github.paicoding.forum.service.comment.repository.entity.CommentDO;
@@ -31,6 +32,15 @@ public interface CommentReadService {
      */
     List<TopCommentDTO> getArticleComments(Long articleId, PageParam page);
 
+    /**
+     * 分页查询文章评论列表，返回下一页的游标
+     *
+     * @param articleId
+     * @param page      有游标时按游标分页，否则按页码分页
+     * @return
+     */
+    PageListVo<TopCommentDTO> queryArticleComments(Long articleId, PageParam page);
+
     /**
      * 查询热门评论
      *
@@ -4,6 +4,8 @@ import com.baomidou.mybatisplus.core.toolkit.CollectionUtils;
 import com.github.paicoding.forum.api.model.context.ReqInfoContext;
 import com.github.paicoding.forum.api.model.enums.DocumentTypeEnum;
 import com.github.paicoding.forum.api.model.enums.PraiseStatEnum;
+import com.github.paicoding.forum.api.model.vo.PageCursor;
+import com.github.paicoding.forum.api.model.vo.PageListVo;
 import com.github.paicoding.forum.api.model.vo.PageParam;
 import com.github.paicoding.forum.api.model.vo.comment.dto.BaseCommentDTO;
 import com.github.paicoding.forum.api.model.vo.comment.dto.SubCommentDTO;
@@ -51,8 +53,31 @@ public class CommentReadServiceImpl implements CommentReadService {
 
     @Override
     public List<TopCommentDTO> getArticleComments(Long articleId, PageParam page) {
-        // 1.查询一级评论
-        List<CommentDO> comments = commentDao.listTopCommentList(articleId, page);
+        return buildTopComments(articleId, listTopComments(articleId, page));
+    }
+
+    @Override
+    public PageListVo<TopCommentDTO> queryArticleComments(Long articleId, PageParam page) {
+        List<CommentDO> comments = listTopComments(articleId, page);
+        PageListVo<TopCommentDTO> vo = PageListVo.newVo(buildTopComments(articleId, comments), page.getPageSize());
+        if (vo.getHasMore()) {
+            vo.setNextCursor(PageCursor.of(comments.get(comments.size() - 1).getId()).encode());
+        }
+        return vo;
+    }
+
+    /**
+     * 查询一级评论，按id倒序；有游标时按游标分页
+     */
+    private List<CommentDO> listTopComments(Long articleId, PageParam page) {
+        if (page.getCursor() != null) {
+            return commentDao.listTopCommentListAfter(articleId, page.getCursor(), page.getPageSize());
+        }
+        return commentDao.listTopCommentList(articleId, page);
+    }
+
+    private List<TopCommentDTO> buildTopComments(Long articleId, List<CommentDO> comments) {
+        // 1.一级评论
         if (CollectionUtils.isEmpty(comments)) {
             return Collections.emptyList();
         }
@@ -65,13 +90,9 @@ public class CommentReadServiceImpl implements CommentReadService {
         // 3.构建一级评论的子评论
         buildCommentRelation(subComments, topComments);
 
-        // 4.挑出需要返回的数据，排序，并补齐对应的用户信息，最后排序返回
-        List<TopCommentDTO> result = new ArrayList<>();
-        comments.forEach(comment -> {
-            TopCommentDTO dto = topComments.get(comment.getId());
-            fillTopCommentInfo(dto);
-            result.add(dto);
-        });
+        // 4.挑出需要返回的数据，批量补齐对应的用户信息、点赞信息，最后排序返回
+        List<TopCommentDTO> result = comments.stream().map(s -> topComments.get(s.getId())).collect(Collectors.toList());
+        fillTopCommentInfo(result);
 
         // 返回结果根据时间进行排序
         Collections.sort(result);
@@ -101,13 +122,34 @@ public class CommentReadServiceImpl implements CommentReadService {
 
     /**
      * 填充评论对应的信息
+     * 先收集整棵评论树的评论id、用户id，然后按维度批量查询：作者信息、点赞数、当前登录用户的点赞状态各一次
      *
-     * @param comment
+     * @param topComments
      */
-    private void fillTopCommentInfo(TopCommentDTO comment) {
-        fillCommentInfo(comment);
-        comment.getChildComments().forEach(this::fillCommentInfo);
-        Collections.sort(comment.getChildComments());
+    private void fillTopCommentInfo(List<TopCommentDTO> topComments) {
+        List<BaseCommentDTO> all = new ArrayList<>();
+        for (TopCommentDTO top : topComments) {
+            all.add(top);
+            all.addAll(top.getChildComments());
+        }
+        if (all.isEmpty()) {
+            return;
+        }
+
+        Set<Long> commentIds = all.stream().map(BaseCommentDTO::getCommentId).collect(Collectors.toSet());
+        Set<Long> userIds = all.stream().map(BaseCommentDTO::getUserId).collect(Collectors.toSet());
+
+        // 评论的作者
+        Map<Long, BaseUserInfoDTO> users = userService.batchQueryBasicUserInfoMap(userIds);
+        // 点赞数
+        Map<Long, Long> praiseCounts = countService.batchQueryCommentPraiseCount(commentIds);
+        // 当前登录用户的点赞状态
+        Long loginUserId = ReqInfoContext.getReqInfo().getUserId();
+        Map<Long, UserFootDO> foots = loginUserId == null ? Collections.emptyMap()
+                : userFootService.batchQueryUserFoot(commentIds, DocumentTypeEnum.COMMENT.getCode(), loginUserId);
+
+        all.forEach(comment -> fillCommentInfo(comment, users, praiseCounts, foots));
+        topComments.forEach(top -> Collections.sort(top.getChildComments()));
     }
 
     /**
@@ -115,8 +157,9 @@ public class CommentReadServiceImpl implements CommentReadService {
      *
      * @param comment
      */
-    private void fillCommentInfo(BaseCommentDTO comment) {
-        BaseUserInfoDTO userInfoDO = userService.queryBasicUserInfo(comment.getUserId());
+    private void fillCommentInfo(BaseCommentDTO comment, Map<Long, BaseUserInfoDTO> users,
+                                 Map<Long, Long> praiseCounts, Map<Long, UserFootDO> foots) {
+        BaseUserInfoDTO userInfoDO = users.get(comment.getUserId());
         if (userInfoDO == null) {
             // 如果用户注销，给一个默认的用户
             comment.setUserName("默认用户");
@@ -132,19 +175,12 @@ public class CommentReadServiceImpl implements CommentReadService {
             }
         }
 
-        // 查询点赞数
-        Long praiseCount = countService.queryCommentPraiseCount(comment.getCommentId());
-        comment.setPraiseCount(praiseCount.intValue());
+        // 点赞数
+        comment.setPraiseCount(praiseCounts.getOrDefault(comment.getCommentId(), 0L).intValue());
 
-        // 查询当前登录用于是否点赞过
-        Long loginUserId = ReqInfoContext.getReqInfo().getUserId();
-        if (loginUserId != null) {
-            // 判断当前用户是否点过赞
-            UserFootDO foot = userFootService.queryUserFoot(comment.getCommentId(), DocumentTypeEnum.COMMENT.getCode(), loginUserId);
-            comment.setPraised(foot != null && Objects.equals(foot.getPraiseStat(), PraiseStatEnum.PRAISE.getCode()));
-        } else {
-            comment.setPraised(false);
-        }
+        // 判断当前用户是否点过赞
+        UserFootDO foot = foots.get(comment.getCommentId());
+        comment.setPraised(foot != null && Objects.equals(foot.getPraiseStat(), PraiseStatEnum.PRAISE.getCode()));
     }
 
     /**
@@ -167,7 +203,7 @@ public class CommentReadServiceImpl implements CommentReadService {
         result.setChildComments(subs);
 
         // 填充评论信息
-        fillTopCommentInfo(result);
+        fillTopCommentInfo(Collections.singletonList(result));
         return result;
     }
 
@@ -1,12 +1,15 @@
 package com.github.paicoding.forum.service.config.service.impl;
 
+import com.github.paicoding.forum.api.model.enums.ConfigTypeEnum;
 import com.github.paicoding.forum.api.model.enums.YesOrNoEnum;
+import com.github.paicoding.forum.api.model.event.BannerChangeEvent;
 import com.github.paicoding.forum.api.model.vo.PageParam;
 import com.github.paicoding.forum.api.model.vo.PageVo;
 import com.github.paicoding.forum.api.model.vo.banner.ConfigReq;
 import com.github.paicoding.forum.api.model.vo.banner.SearchConfigReq;
 import com.github.paicoding.forum.api.model.vo.banner.dto.ConfigDTO;
 import com.github.paicoding.forum.core.util.NumUtil;
+import com.github.paicoding.forum.core.util.SpringUtil;
 import com.github.paicoding.forum.service.config.converter.ConfigStructMapper;
 import com.github.paicoding.forum.service.config.repository.dao.ConfigDao;
 import com.github.paicoding.forum.service.config.repository.entity.ConfigDO;
@@ -38,6 +41,7 @@ public class ConfigSettingServiceImpl implements ConfigSettingService {
             configDO.setId(configReq.getConfigId());
             configDao.updateById(configDO);
         }
+        SpringUtil.publishEvent(new BannerChangeEvent(this, ConfigTypeEnum.formCode(configDO.getType())));
     }
 
     @Override
@@ -46,6 +50,7 @@ public class ConfigSettingServiceImpl implements ConfigSettingService {
         if (configDO != null){
             configDO.setDeleted(YesOrNoEnum.YES.getCode());
             configDao.updateById(configDO);
+            SpringUtil.publishEvent(new BannerChangeEvent(this, ConfigTypeEnum.formCode(configDO.getType())));
         }
     }
 
@@ -55,6 +60,7 @@ public class ConfigSettingServiceImpl implements ConfigSettingService {
         if (configDO != null){
             configDO.setStatus(pushStatus);
             configDao.updateById(configDO);
+            SpringUtil.publishEvent(new BannerChangeEvent(this, ConfigTypeEnum.formCode(configDO.getType())));
         }
     }
 
@@ -20,5 +20,30 @@ public class EsFieldConstant {
      */
     public static final String ES_FIELD_SHORT_TITLE = "short_title";
 
+    /**
+     * summary字段
+     */
+    public static final String ES_FIELD_SUMMARY = "summary";
+
+    /**
+     * 正文
+     */
+    public static final String ES_FIELD_CONTENT = "content";
+
+    /**
+     * 标签名
+     */
+    public static final String ES_FIELD_TAGS = "tags";
+
+    /**
+     * 分类名
+     */
+    public static final String ES_FIELD_CATEGORY = "category";
+
+    /**
+     * 创建时间
+     */
+    public static final String ES_FIELD_CREATE_TIME = "create_time";
+
 
 }
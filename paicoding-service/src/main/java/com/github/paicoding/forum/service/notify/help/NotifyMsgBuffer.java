@@ -0,0 +1,290 @@
+package com.github.paicoding.forum.service.notify.help;
+
+import com.github.paicoding.forum.api.model.enums.NotifyTypeEnum;
+import com.github.paicoding.forum.core.async.AsyncUtil;
+import com.github.paicoding.forum.service.notify.repository.dao.NotifyMsgDao;
+import com.github.paicoding.forum.service.notify.repository.entity.NotifyMsgDO;
+import com.github.paicoding.forum.service.notify.service.NotifyService;
+import com.google.common.collect.Iterables;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * 消息通知的批量写入
+ * <p>
+ * 1. 消息先放入有界队列；队列写满时由写入线程同步执行一次写回，形成背压
+ * 2. 每隔 flush-interval 毫秒，或队列中的消息数达到 batch-size 之后，统一写回：
+ * - 点赞、收藏、关注等只通知一次的消息，按 (通知用户, 操作用户, 类型, 关联id) 在内存中去重，取消操作抵消窗口内尚未写入的消息
+ * - 一次查询过滤掉db中已存在的消息，再一条多行 insert 写入
+ * 3. 同一窗口内发给同一用户的 websocket 通知合并为一条，如 "您收到了 5 个点赞"
+ * 4. 按批次写入，某一批失败时只把这一批放回，下一轮排在新消息之前重试，超过重试次数后丢弃；已写入的批次照常推送
+ *
+ * @author YiHui
+ * @date 2026/10/17
+ */
+@Slf4j
+@Component
+public class NotifyMsgBuffer {
+    /**
+     * 合并通知时各类消息的描述，key: 消息类型
+     */
+    private static final Map<Integer, String> TYPE_DESC = new HashMap<>();
+
+    static {
+        TYPE_DESC.put(NotifyTypeEnum.COMMENT.getType(), " 条评论");
+        TYPE_DESC.put(NotifyTypeEnum.REPLY.getType(), " 条回复");
+        TYPE_DESC.put(NotifyTypeEnum.PRAISE.getType(), " 个点赞");
+        TYPE_DESC.put(NotifyTypeEnum.COLLECT.getType(), " 个收藏");
+        TYPE_DESC.put(NotifyTypeEnum.FOLLOW.getType(), " 位新粉丝");
+    }
+
+    /**
+     * 写回失败之后的最大重试次数
+     */
+    private static final int MAX_RETRY = 3;
+
+    private final BlockingQueue<Pending> queue;
+
+    /**
+     * 写回失败、待重试的消息，保持原有的先后顺序；只在持有 flushing 时访问
+     */
+    private final List<Pending> retries = new ArrayList<>();
+
+    private final AtomicBoolean flushing = new AtomicBoolean(false);
+
+    private final NotifyMsgDao notifyMsgDao;
+
+    private final NotifyUnreadCounter notifyUnreadCounter;
+
+    private final Timer flushTimer;
+
+    @Autowired
+    private NotifyService notifyService;
+
+    @Value("${paicoding.notify-buffer.batch-size:200}")
+    private int batchSize;
+
+    public NotifyMsgBuffer(NotifyMsgDao notifyMsgDao,
+                           NotifyUnreadCounter notifyUnreadCounter,
+                           @Value("${paicoding.notify-buffer.capacity:10000}") int capacity,
+                           MeterRegistry meterRegistry) {
+        this.notifyMsgDao = notifyMsgDao;
+        this.notifyUnreadCounter = notifyUnreadCounter;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.flushTimer = Timer.builder("paicoding.notify.msg.flush").description("消息通知写回耗时").register(meterRegistry);
+        Gauge.builder("paicoding.notify.msg.pending", queue, BlockingQueue::size).description("待写回的消息数").register(meterRegistry);
+    }
+
+    /**
+     * 新增消息
+     *
+     * @param msg   消息
+     * @param once  是否只通知一次，为true时已存在相同的消息则不再写入
+     * @param push  写入之后推送给用户的websocket通知，为null时不推送
+     */
+    public void save(NotifyMsgDO msg, boolean once, String push) {
+        offer(new Pending(msg, once, false, push));
+    }
+
+    /**
+     * 删除消息，如取消点赞、取消关注
+     *
+     * @param msg
+     */
+    public void remove(NotifyMsgDO msg) {
+        offer(new Pending(msg, true, true, null));
+    }
+
+    private void offer(Pending pending) {
+        if (!queue.offer(pending)) {
+            // 队列已满，当前线程先写回一批再放入
+            flush();
+            try {
+                queue.put(pending);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("interrupted when saving notify msg: {}", pending.msg);
+            }
+        }
+        if (queue.size() >= batchSize && !flushing.get()) {
+            AsyncUtil.execute(this::flush);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${paicoding.notify-buffer.flush-interval:1000}")
+    public void autoFlush() {
+        flush();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        log.info("notify msg buffer flushed on shutdown");
+    }
+
+    /**
+     * 写回队列中的消息，同一时刻只有一个线程执行
+     */
+    public void flush() {
+        if (!flushing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            flushTimer.record(this::doFlush);
+        } finally {
+            flushing.set(false);
+        }
+    }
+
+    private void doFlush() {
+        List<Pending> list = new ArrayList<>(retries.size() + queue.size());
+        list.addAll(retries);
+        retries.clear();
+        queue.drainTo(list);
+        if (list.isEmpty()) {
+            return;
+        }
+
+        // 按先后顺序合并：取消会抵消之前尚未写入的同一条消息，并删除db中已有的记录
+        List<Pending> saves = new ArrayList<>();
+        Map<String, Pending> onceSaves = new LinkedHashMap<>();
+        Map<String, Pending> removes = new LinkedHashMap<>();
+        for (Pending pending : list) {
+            if (!pending.once) {
+                saves.add(pending);
+                continue;
+            }
+            String key = NotifyMsgDao.msgKey(pending.msg);
+            if (pending.remove) {
+                onceSaves.remove(key);
+                removes.put(key, pending);
+            } else {
+                onceSaves.putIfAbsent(key, pending);
+            }
+        }
+
+        List<Pending> failed = new ArrayList<>();
+        for (List<Pending> batch : Iterables.partition(new ArrayList<>(removes.values()), batchSize)) {
+            try {
+                notifyMsgDao.batchRemove(msgs(batch));
+                notifyUnreadCounter.evict(batch.stream().map(s -> s.msg.getNotifyUserId()).collect(Collectors.toSet()));
+            } catch (Exception e) {
+                log.error("failed to remove notify msgs! size={}", batch.size(), e);
+                failed.addAll(batch);
+            }
+        }
+        for (List<Pending> batch : Iterables.partition(new ArrayList<>(onceSaves.values()), batchSize)) {
+            try {
+                Set<String> exists = notifyMsgDao.listExistMsgKeys(msgs(batch));
+                batch.stream().filter(s -> !exists.contains(NotifyMsgDao.msgKey(s.msg))).forEach(saves::add);
+            } catch (Exception e) {
+                log.error("failed to filter exist notify msgs! size={}", batch.size(), e);
+                failed.addAll(batch);
+            }
+        }
+        List<Pending> saved = new ArrayList<>(saves.size());
+        for (List<Pending> batch : Iterables.partition(saves, batchSize)) {
+            List<NotifyMsgDO> msgs = msgs(batch);
+            try {
+                notifyMsgDao.batchSave(msgs);
+            } catch (Exception e) {
+                log.error("failed to save notify msgs! size={}", batch.size(), e);
+                failed.addAll(batch);
+                continue;
+            }
+            notifyUnreadCounter.incr(msgs);
+            saved.addAll(batch);
+        }
+
+        if (!failed.isEmpty()) {
+            retry(failed);
+        }
+        push(saved);
+    }
+
+    /**
+     * 失败的消息放回重试列表，超过重试次数的丢弃；消息通知允许少量丢失，避免同一批消息反复失败阻塞后续写入
+     */
+    private void retry(List<Pending> failed) {
+        int dropped = 0;
+        for (Pending pending : failed) {
+            if (++pending.retry > MAX_RETRY) {
+                dropped++;
+            } else {
+                retries.add(pending);
+            }
+        }
+        if (dropped > 0) {
+            log.error("drop notify msgs after {} retries! size={}", MAX_RETRY, dropped);
+        }
+    }
+
+    private static List<NotifyMsgDO> msgs(List<Pending> list) {
+        return list.stream().map(s -> s.msg).collect(Collectors.toList());
+    }
+
+    /**
+     * 合并同一用户的websocket通知，整批一次推送
+     */
+    private void push(List<Pending> saves) {
+        Map<Long, List<Pending>> users = saves.stream().filter(s -> s.push != null)
+                .collect(Collectors.groupingBy(s -> s.msg.getNotifyUserId(), LinkedHashMap::new, Collectors.toList()));
+        if (users.isEmpty()) {
+            return;
+        }
+        Map<Long, String> contents = new LinkedHashMap<>();
+        users.forEach((userId, list) -> {
+            if (list.size() == 1) {
+                contents.put(userId, list.get(0).push);
+            } else {
+                Map<Integer, Long> types = list.stream()
+                        .collect(Collectors.groupingBy(s -> s.msg.getType(), LinkedHashMap::new, Collectors.counting()));
+                contents.put(userId, types.entrySet().stream()
+                        .map(s -> s.getValue() + TYPE_DESC.getOrDefault(s.getKey(), " 条通知"))
+                        .collect(Collectors.joining("、", "您收到了 ", "，快去看看吧")));
+            }
+        });
+        try {
+            notifyService.notifyToUsers(contents);
+        } catch (Exception e) {
+            log.warn("failed to push notify to users: {}", contents.keySet(), e);
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class Pending {
+        private final NotifyMsgDO msg;
+        /**
+         * 是否只通知一次
+         */
+        private final boolean once;
+        /**
+         * 是否为删除
+         */
+        private final boolean remove;
+        private final String push;
+        /**
+         * 已重试的次数
+         */
+        private int retry;
+    }
+}
@@ -0,0 +1,236 @@
+package com.github.paicoding.forum.service.notify.help;
+
+import com.github.paicoding.forum.api.model.enums.NotifyStatEnum;
+import com.github.paicoding.forum.core.cache.RedisClient;
+import com.github.paicoding.forum.service.notify.repository.dao.NotifyMsgDao;
+import com.github.paicoding.forum.service.notify.repository.entity.NotifyMsgDO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * 用户各类型的未读消息数，替代每次请求时对 notify_msg 的 count / group by 查询
+ * <p>
+ * 1. 每个用户一个 redis hash，field 为消息类型，value 为未读数；另有一个占位 field，表示已经从db加载过
+ * 2. 首次查询时从db加载；之后写入消息时累加、标记已读时扣减，hash 不存在时只递增版本号，等下一次查询时重新加载
+ * 3. 取消点赞、取消关注等删除消息的场景，无法确定被删除的消息是否已读，直接删除 hash 重新加载，同时递增版本号
+ * 加载时一次 lua 脚本写入：hash 已存在、或者版本号与读db之前不一致(读db期间有变更)时不写入，避免把旧的计数写回
+ * 4. hash 只在加载时设置有效期，到期后基于db重新计算，修正累加过程中可能出现的偏差
+ *
+ * @author YiHui
+ * @date 2026/10/17
+ */
+@Slf4j
+@Component
+public class NotifyUnreadCounter {
+    private static final String UNREAD_KEY = "notify_unread_";
+    /**
+     * hash 不存在期间的变更版本号
+     */
+    private static final String VERSION_KEY = "notify_unread_ver_";
+    private static final String LOADED = "-";
+    /**
+     * 有效期，单位s
+     */
+    private static final long EXPIRE = 60 * 60L;
+    /**
+     * 版本号的有效期，需要长于一次加载的耗时，单位s
+     */
+    private static final long VERSION_EXPIRE = 10 * 60L;
+    private static final byte[] VERSION_EXPIRE_BYTES = RedisClient.valBytes(String.valueOf(VERSION_EXPIRE));
+
+    /**
+     * 累加未读数，hash 不存在时只递增版本号；结果小于0时修正为0
+     * KEYS: 用户的未读数hash, 版本号
+     * ARGV: 版本号的有效期(s), [消息类型, 增量]...
+     */
+    private static final byte[] INCR_SCRIPT = ("if redis.call('exists', KEYS[1]) == 0 then "
+            + "  redis.call('incr', KEYS[2]) "
+            + "  redis.call('expire', KEYS[2], ARGV[1]) "
+            + "  return 0 "
+            + "end "
+            + "for i = 2, #ARGV, 2 do "
+            + "  if redis.call('hincrby', KEYS[1], ARGV[i], ARGV[i + 1]) < 0 then "
+            + "    redis.call('hset', KEYS[1], ARGV[i], 0) "
+            + "  end "
+            + "end "
+            + "return 1").getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * 写入从db加载的未读数
+     * KEYS: 用户的未读数hash, 版本号
+     * ARGV: 读db之前的版本号, 有效期(s), [field, value]...
+     * 返回: 1-写入, 0-已存在, -1-读db期间有变更
+     */
+    private static final RedisScript<Long> LOAD_SCRIPT = RedisScript.of(
+            "if redis.call('exists', KEYS[1]) == 1 then return 0 end "
+                    + "if (redis.call('get', KEYS[2]) or '0') ~= ARGV[1] then return -1 end "
+                    + "for i = 3, #ARGV, 2 do "
+                    + "  redis.call('hset', KEYS[1], ARGV[i], ARGV[i + 1]) "
+                    + "end "
+                    + "redis.call('expire', KEYS[1], ARGV[2]) "
+                    + "return 1", Long.class);
+
+    private final NotifyMsgDao notifyMsgDao;
+
+    public NotifyUnreadCounter(NotifyMsgDao notifyMsgDao) {
+        this.notifyMsgDao = notifyMsgDao;
+    }
+
+    /**
+     * 查询用户各类型的未读消息数
+     *
+     * @param userId
+     * @return key: 消息类型, value: 未读数，不包含没有未读消息的类型
+     */
+    public Map<Integer, Integer> counts(Long userId) {
+        try {
+            Map<String, Integer> cache = RedisClient.hGetAll(UNREAD_KEY + userId, Integer.class);
+            if (!cache.isEmpty()) {
+                Map<Integer, Integer> result = new HashMap<>();
+                cache.forEach((type, cnt) -> {
+                    if (!LOADED.equals(type) && cnt != null && cnt > 0) {
+                        result.put(Integer.valueOf(type), cnt);
+                    }
+                });
+                return result;
+            }
+        } catch (Exception e) {
+            log.warn("failed to query unread notify count from redis, fallback to db! userId={}", userId, e);
+            return notifyMsgDao.groupCountByUserIdAndStat(userId, NotifyStatEnum.UNREAD.getStat());
+        }
+        return load(userId);
+    }
+
+    /**
+     * @param userId
+     * @return 用户的未读消息总数
+     */
+    public int total(Long userId) {
+        return counts(userId).values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * 新的未读消息写入之后调用，同一批消息一次管道执行
+     *
+     * @param msgs
+     */
+    public void incr(Collection<NotifyMsgDO> msgs) {
+        Map<Long, Map<Integer, Long>> deltas = msgs.stream()
+                .filter(s -> Objects.equals(s.getState(), NotifyStatEnum.UNREAD.getStat()))
+                .collect(Collectors.groupingBy(NotifyMsgDO::getNotifyUserId,
+                        Collectors.groupingBy(NotifyMsgDO::getType, Collectors.counting())));
+        if (deltas.isEmpty()) {
+            return;
+        }
+        try {
+            RedisClient.PipelineAction action = RedisClient.pipelineAction();
+            deltas.forEach((userId, types) -> {
+                List<byte[]> args = new ArrayList<>();
+                args.add(VERSION_EXPIRE_BYTES);
+                types.forEach((type, cnt) -> {
+                    args.add(RedisClient.valBytes(String.valueOf(type)));
+                    args.add(RedisClient.valBytes(String.valueOf(cnt)));
+                });
+                byte[] version = RedisClient.keyBytes(VERSION_KEY + userId);
+                action.add(UNREAD_KEY + userId, (connection, key) -> connection.eval(INCR_SCRIPT, ReturnType.INTEGER, 2, keysAndArgs(key, version, args)));
+            });
+            action.execute();
+        } catch (Exception e) {
+            log.warn("failed to incr unread notify count! users={}", deltas.keySet(), e);
+            evict(deltas.keySet());
+        }
+    }
+
+    /**
+     * 消息标记为已读之后调用
+     *
+     * @param userId
+     * @param type
+     * @param cnt    由未读变为已读的消息数
+     */
+    public void decr(Long userId, Integer type, int cnt) {
+        if (cnt <= 0) {
+            return;
+        }
+        try {
+            byte[] version = RedisClient.keyBytes(VERSION_KEY + userId);
+            RedisClient.pipelineAction()
+                    .add(UNREAD_KEY + userId, (connection, key) -> connection.eval(INCR_SCRIPT, ReturnType.INTEGER, 2,
+                            key, version, VERSION_EXPIRE_BYTES, RedisClient.valBytes(String.valueOf(type)), RedisClient.valBytes(String.valueOf(-cnt))))
+                    .execute();
+        } catch (Exception e) {
+            log.warn("failed to decr unread notify count! userId={}", userId, e);
+            evict(Collections.singletonList(userId));
+        }
+    }
+
+    /**
+     * 删除用户的未读数，下一次查询时从db重新加载；同时递增版本号，正在进行的加载不再写入
+     *
+     * @param userIds
+     */
+    public void evict(Collection<Long> userIds) {
+        if (CollectionUtils.isEmpty(userIds)) {
+            return;
+        }
+        try {
+            RedisClient.PipelineAction action = RedisClient.pipelineAction();
+            userIds.forEach(userId -> action.add(UNREAD_KEY + userId, (connection, key) -> connection.del(key))
+                    .add(VERSION_KEY + userId, (connection, key) -> connection.incr(key))
+                    .add(VERSION_KEY + userId, (connection, key) -> connection.expire(key, VERSION_EXPIRE)));
+            action.execute();
+        } catch (Exception e) {
+            log.error("failed to evict unread notify count! users={}", userIds, e);
+        }
+    }
+
+    private Map<Integer, Integer> load(Long userId) {
+        String version;
+        try {
+            version = RedisClient.getStr(VERSION_KEY + userId);
+        } catch (Exception e) {
+            log.warn("failed to query unread notify count version, fallback to db! userId={}", userId, e);
+            return notifyMsgDao.groupCountByUserIdAndStat(userId, NotifyStatEnum.UNREAD.getStat());
+        }
+        Map<Integer, Integer> counts = notifyMsgDao.groupCountByUserIdAndStat(userId, NotifyStatEnum.UNREAD.getStat());
+        List<Object> args = new ArrayList<>(counts.size() * 2 + 4);
+        args.add(version == null ? "0" : version);
+        args.add(EXPIRE);
+        args.add(LOADED);
+        args.add(0);
+        counts.forEach((type, cnt) -> {
+            args.add(type);
+            args.add(cnt);
+        });
+        try {
+            RedisClient.evalSha(LOAD_SCRIPT, Arrays.asList(UNREAD_KEY + userId, VERSION_KEY + userId), args.toArray());
+        } catch (Exception e) {
+            log.warn("failed to cache unread notify count! userId={}", userId, e);
+        }
+        return counts;
+    }
+
+    private static byte[][] keysAndArgs(byte[] key, byte[] version, List<byte[]> args) {
+        byte[][] ans = new byte[args.size() + 2][];
+        ans[0] = key;
+        ans[1] = version;
+        for (int i = 0; i < args.size(); i++) {
+            ans[i + 2] = args.get(i);
+        }
+        return ans;
+    }
+}
@@ -0,0 +1,300 @@
+package com.github.paicoding.forum.service.notify.help;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import com.github.paicoding.forum.core.cache.RedisClient;
+import com.github.paicoding.forum.core.util.JsonUtil;
+import com.github.paicoding.forum.core.ws.WebSocketResponseUtil;
+import com.github.paicoding.forum.service.notify.service.NotifyService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 集群环境下的 websocket 会话注册表，用于给指定用户推送消息通知
+ * <p>
+ * 1. 本节点：用户 -> 连接 的映射，不限制容量，连接断开时移除
+ * 2. redis：每个用户一个 hash，记录该用户连接在哪些节点上，field 为节点id，value 为最近一次心跳时间；节点定时刷新本节点上的用户
+ * 3. 推送：本节点上的会话直接发送；其他节点按节点分组，一个节点一条 redis 发布订阅消息，由目标节点发送给本地会话
+ * 4. 节点宕机之后，其心跳停止刷新，推送时跳过并清理心跳过期的节点
+ * 5. 心跳在独立的线程中执行，不受其他定时任务阻塞的影响，避免本节点被其他节点误判为下线
+ * <p>
+ * 本地验证：启动一个 redis，以不同的 server.port 与 paicoding.ws.node-id 启动两个实例，两个浏览器分别连接不同实例即可
+ *
+ * @author YiHui
+ * @date 2026/10/17
+ */
+@Slf4j
+@Component
+public class WsSessionRegistry {
+    private static final String USER_NODES_KEY = "ws_user_nodes_";
+    private static final String NODE_CHANNEL = "ws_push_";
+
+    private final String nodeId;
+
+    private final RedisMessageListenerContainer listenerContainer;
+
+    /**
+     * 本节点上的 用户 -> (websocket 连接id -> 登录会话)
+     */
+    private final Map<Long, Map<String, String>> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * 心跳间隔，单位ms；超过3个心跳间隔未刷新的节点视为已下线
+     */
+    private final long heartbeatInterval;
+
+    private ScheduledExecutorService heartbeatExecutor;
+
+    private final Counter localSent;
+    private final Counter remotePublished;
+    private final Counter remoteReceived;
+    private final Counter failed;
+
+    public WsSessionRegistry(RedisMessageListenerContainer listenerContainer,
+                             @Value("${paicoding.ws.node-id:}") String nodeId,
+                             @Value("${paicoding.ws.heartbeat-interval:30000}") long heartbeatInterval,
+                             MeterRegistry meterRegistry) {
+        this.listenerContainer = listenerContainer;
+        this.nodeId = StringUtils.isBlank(nodeId) ? genNodeId() : nodeId;
+        this.heartbeatInterval = heartbeatInterval;
+        this.localSent = Counter.builder("paicoding.ws.push").tag("node", this.nodeId).tag("type", "local").register(meterRegistry);
+        this.remotePublished = Counter.builder("paicoding.ws.push").tag("node", this.nodeId).tag("type", "published").register(meterRegistry);
+        this.remoteReceived = Counter.builder("paicoding.ws.push").tag("node", this.nodeId).tag("type", "received").register(meterRegistry);
+        this.failed = Counter.builder("paicoding.ws.push").tag("node", this.nodeId).tag("type", "failed").register(meterRegistry);
+        Gauge.builder("paicoding.ws.users", sessions, Map::size).tag("node", this.nodeId).description("本节点上建立了通知长连接的用户数").register(meterRegistry);
+        Gauge.builder("paicoding.ws.sessions", sessions, s -> s.values().stream().mapToInt(Map::size).sum()).tag("node", this.nodeId).description("本节点上的通知长连接数").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        // 只订阅发给本节点的消息
+        listenerContainer.addMessageListener((message, pattern) -> {
+            String body = new String(message.getBody(), StandardCharsets.UTF_8);
+            try {
+                Push[] pushes = JsonUtil.toObj(body, Push[].class);
+                remoteReceived.increment(pushes.length);
+                for (Push push : pushes) {
+                    sendLocal(push.getUserId(), push.getMsg());
+                }
+            } catch (Exception e) {
+                log.warn("illegal ws push message: {}", body, e);
+            }
+        }, RedisClient.topic(NODE_CHANNEL + nodeId));
+
+        heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(
+                ThreadFactoryBuilder.create().setNamePrefix("ws-heartbeat-").setDaemon(true).build());
+        heartbeatExecutor.scheduleWithFixedDelay(this::heartbeat, heartbeatInterval, heartbeatInterval, TimeUnit.MILLISECONDS);
+        log.info("ws session registry started, node={}", nodeId);
+    }
+
+    /**
+     * 用户建立通知长连接
+     *
+     * @param userId
+     * @param token     用户的登录会话，推送时以它作为目标用户
+     * @param sessionId websocket 连接id，同一用户多个页面时各不相同
+     */
+    public void register(Long userId, String token, String sessionId) {
+        // 与 release 在同一个用户上互斥执行，保证 redis 中的注册与本地会话的增删顺序一致
+        sessions.compute(userId, (k, v) -> {
+            Map<String, String> map = v == null ? new ConcurrentHashMap<>() : v;
+            map.put(sessionId, token);
+            try {
+                refresh(Collections.singletonList(userId));
+            } catch (Exception e) {
+                log.warn("failed to register ws user to redis! userId={}", userId, e);
+            }
+            return map;
+        });
+    }
+
+    /**
+     * 用户断开通知长连接
+     *
+     * @param userId
+     * @param sessionId websocket 连接id
+     */
+    public void release(Long userId, String sessionId) {
+        sessions.computeIfPresent(userId, (k, v) -> {
+            v.remove(sessionId);
+            if (!v.isEmpty()) {
+                return v;
+            }
+            // 本节点上已经没有该用户的连接；在映射移除之前删除注册，同一用户新的 register 会等待这里完成
+            try {
+                RedisClient.hDel(USER_NODES_KEY + userId, nodeId);
+            } catch (Exception e) {
+                log.warn("failed to release ws user from redis! userId={}", userId, e);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 给用户推送消息
+     *
+     * @param userId
+     * @param msg
+     */
+    public void send(Long userId, String msg) {
+        send(Collections.singletonMap(userId, msg));
+    }
+
+    /**
+     * 批量推送：一次管道查询所有用户所在的节点，每个节点只发布一条消息
+     *
+     * @param msgs key: userId, value: 消息内容
+     */
+    public void send(Map<Long, String> msgs) {
+        if (msgs.isEmpty()) {
+            return;
+        }
+        List<Long> userIds = new ArrayList<>(msgs.keySet());
+        List<Map<String, Long>> nodes;
+        try {
+            nodes = RedisClient.pipelineHGetAll(userIds.stream().map(s -> USER_NODES_KEY + s).collect(Collectors.toList()), Long.class);
+        } catch (Exception e) {
+            // redis 不可用时，只推送本节点上的会话
+            log.warn("failed to query ws user nodes, only push to local sessions!", e);
+            msgs.forEach(this::sendLocal);
+            return;
+        }
+
+        long expireBefore = System.currentTimeMillis() - 3 * heartbeatInterval;
+        Map<String, List<Push>> remote = new HashMap<>();
+        RedisClient.PipelineAction expired = null;
+        for (int i = 0; i < userIds.size(); i++) {
+            Long userId = userIds.get(i);
+            String msg = msgs.get(userId);
+            sendLocal(userId, msg);
+            for (Map.Entry<String, Long> entry : nodes.get(i).entrySet()) {
+                String node = entry.getKey();
+                if (nodeId.equals(node)) {
+                    continue;
+                }
+                if (entry.getValue() == null || entry.getValue() < expireBefore) {
+                    // 节点已下线，顺带清理
+                    expired = expired == null ? RedisClient.pipelineAction() : expired;
+                    expired.add(USER_NODES_KEY + userId, node, (connection, key, field) -> connection.hDel(key, field));
+                    continue;
+                }
+                remote.computeIfAbsent(node, k -> new ArrayList<>()).add(new Push(userId, msg));
+            }
+        }
+        if (expired != null) {
+            try {
+                expired.execute();
+            } catch (Exception e) {
+                log.warn("failed to clear expired ws user nodes!", e);
+            }
+        }
+
+        remote.forEach((node, pushes) -> {
+            try {
+                RedisClient.publish(NODE_CHANNEL + node, JsonUtil.toStr(pushes));
+                remotePublished.increment(pushes.size());
+            } catch (Exception e) {
+                failed.increment(pushes.size());
+                log.warn("failed to publish ws push to node: {}", node, e);
+            }
+        });
+    }
+
+    private void sendLocal(Long userId, String msg) {
+        Map<String, String> map = sessions.get(userId);
+        if (map == null) {
+            return;
+        }
+        // 同一个登录会话的多个连接，按会话推送一次即可
+        for (String session : new HashSet<>(map.values())) {
+            try {
+                WebSocketResponseUtil.sendMsgToUser(session, NotifyService.NOTIFY_TOPIC, msg);
+                localSent.increment();
+            } catch (Exception e) {
+                failed.increment();
+                log.warn("failed to send ws msg to user: {}", userId, e);
+            }
+        }
+    }
+
+    /**
+     * 定时刷新本节点上所有用户的心跳
+     */
+    public void heartbeat() {
+        if (sessions.isEmpty()) {
+            return;
+        }
+        try {
+            refresh(new ArrayList<>(sessions.keySet()));
+        } catch (Exception e) {
+            log.warn("failed to refresh ws user nodes!", e);
+        }
+    }
+
+    private void refresh(List<Long> userIds) {
+        String now = String.valueOf(System.currentTimeMillis());
+        long expire = 3 * heartbeatInterval / 1000;
+        RedisClient.PipelineAction action = RedisClient.pipelineAction();
+        for (Long userId : userIds) {
+            action.add(USER_NODES_KEY + userId, nodeId, (connection, key, field) -> connection.hSet(key, field, RedisClient.valBytes(now)));
+            action.add(USER_NODES_KEY + userId, (connection, key) -> connection.expire(key, expire));
+        }
+        action.execute();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeatExecutor.shutdownNow();
+        // 节点下线时，移除本节点上的用户，避免其他节点继续往这里推送
+        try {
+            RedisClient.PipelineAction action = RedisClient.pipelineAction();
+            sessions.keySet().forEach(userId -> action.add(USER_NODES_KEY + userId, nodeId, (connection, key, field) -> connection.hDel(key, field)));
+            action.execute();
+        } catch (Exception e) {
+            log.warn("failed to clear ws user nodes on shutdown!", e);
+        }
+    }
+
+    private static String genNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Push {
+        private Long userId;
+        private String msg;
+    }
+}
@@ -5,6 +5,7 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.github.paicoding.forum.api.model.enums.NotifyStatEnum;
 import com.github.paicoding.forum.api.model.enums.NotifyTypeEnum;
+import com.github.paicoding.forum.api.model.vo.PageCursor;
 import com.github.paicoding.forum.api.model.vo.PageParam;
 import com.github.paicoding.forum.api.model.vo.notify.dto.NotifyMsgDTO;
 import com.github.paicoding.forum.service.notify.repository.entity.NotifyMsgDO;
@@ -12,9 +13,12 @@ import com.github.paicoding.forum.service.notify.repository.mapper.NotifyMsgMapp
 import org.springframework.stereotype.Repository;
 import org.springframework.util.CollectionUtils;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -45,6 +49,53 @@ public class NotifyMsgDao extends ServiceImpl<NotifyMsgMapper, NotifyMsgDO> {
     }
 
 
+    /**
+     * 批量插入消息，一条多行 insert 完成
+     *
+     * @param msgs
+     */
+    public void batchSave(List<NotifyMsgDO> msgs) {
+        if (CollectionUtils.isEmpty(msgs)) {
+            return;
+        }
+        baseMapper.batchSave(msgs);
+    }
+
+    /**
+     * 批量查询已存在的消息，用于幂等过滤
+     *
+     * @param msgs
+     * @return 已存在消息的 {@link #msgKey(NotifyMsgDO)}
+     */
+    public Set<String> listExistMsgKeys(Collection<NotifyMsgDO> msgs) {
+        if (CollectionUtils.isEmpty(msgs)) {
+            return Collections.emptySet();
+        }
+        return baseMapper.listByMsgKeys(msgs).stream().map(NotifyMsgDao::msgKey).collect(Collectors.toSet());
+    }
+
+    /**
+     * 批量删除消息，如取消点赞、取消关注时
+     *
+     * @param msgs
+     */
+    public void batchRemove(Collection<NotifyMsgDO> msgs) {
+        if (CollectionUtils.isEmpty(msgs)) {
+            return;
+        }
+        baseMapper.deleteByMsgKeys(msgs);
+    }
+
+    /**
+     * 消息的幂等key: 通知用户 + 操作用户 + 类型 + 关联id
+     *
+     * @param msg
+     * @return
+     */
+    public static String msgKey(NotifyMsgDO msg) {
+        return msg.getNotifyUserId() + "_" + msg.getOperateUserId() + "_" + msg.getType() + "_" + msg.getRelatedId();
+    }
+
     /**
      * 查询用户的消息通知数量
      *
@@ -99,15 +150,44 @@ public class NotifyMsgDao extends ServiceImpl<NotifyMsgMapper, NotifyMsgDO> {
         }
     }
 
+    /**
+     * 游标分页查询用户消息列表，按 (create_time, id) 倒序
+     *
+     * @param userId
+     * @param type
+     * @param cursor 上一页最后一条消息的 {@link #noticeCursor(NotifyMsgDTO)}，为空时表示第一页
+     * @param size
+     * @return
+     */
+    public List<NotifyMsgDTO> listNotifyMsgByUserIdAndTypeAfter(long userId, NotifyTypeEnum type, PageCursor cursor, long size) {
+        PageParam page = PageParam.newPageInstance(PageParam.DEFAULT_PAGE_NUM, size);
+        if (cursor != null && cursor.size() == 2) {
+            page.setCursor(cursor);
+        }
+        return listNotifyMsgByUserIdAndType(userId, type, page);
+    }
+
+    /**
+     * 消息对应的游标位置
+     *
+     * @param msg
+     * @return
+     */
+    public static PageCursor noticeCursor(NotifyMsgDTO msg) {
+        return PageCursor.of(msg.getCreateTime().getTime(), msg.getMsgId());
+    }
+
     /**
      * 设置消息为已读
      *
      * @param list
+     * @return 实际由未读变为已读的消息数
      */
-    public void updateNotifyMsgToRead(List<NotifyMsgDTO> list) {
+    public int updateNotifyMsgToRead(List<NotifyMsgDTO> list) {
         List<Long> ids = list.stream().filter(s -> s.getState() == NotifyStatEnum.UNREAD.getStat()).map(NotifyMsgDTO::getMsgId).collect(Collectors.toList());
-        if (!ids.isEmpty()) {
-            baseMapper.updateNoticeRead(ids);
+        if (ids.isEmpty()) {
+            return 0;
         }
+        return baseMapper.updateNoticeRead(ids);
     }
 }
@@ -6,6 +6,7 @@ import com.github.paicoding.forum.api.model.vo.notify.dto.NotifyMsgDTO;
 import com.github.paicoding.forum.service.notify.repository.entity.NotifyMsgDO;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -38,6 +39,31 @@ public interface NotifyMsgMapper extends BaseMapper<NotifyMsgDO> {
      * 标记消息为已阅读
      *
      * @param ids
+     * @return 实际由未读变为已读的消息数
      */
-    void updateNoticeRead(@Param("ids") List<Long> ids);
+    int updateNoticeRead(@Param("ids") List<Long> ids);
+
+    /**
+     * 多行插入消息
+     *
+     * @param msgs
+     * @return
+     */
+    int batchSave(@Param("msgs") List<NotifyMsgDO> msgs);
+
+    /**
+     * 按 (notifyUserId, operateUserId, type, relatedId) 查询已存在的消息
+     *
+     * @param msgs
+     * @return 只包含上面四个字段
+     */
+    List<NotifyMsgDO> listByMsgKeys(@Param("msgs") Collection<NotifyMsgDO> msgs);
+
+    /**
+     * 按 (notifyUserId, operateUserId, type, relatedId) 删除消息
+     *
+     * @param msgs
+     * @return
+     */
+    int deleteByMsgKeys(@Param("msgs") Collection<NotifyMsgDO> msgs);
 }
@@ -64,6 +64,13 @@ public interface NotifyService {
      */
     void notifyToUser(Long userId, String msg);
 
+    /**
+     * ws: 批量给用户发送消息通知，集群环境下每个节点只转发一次
+     *
+     * @param msgs key: 用户id, value: 通知内容
+     */
+    void notifyToUsers(Map<Long, String> msgs);
+
 
     /**
      * ws: 维护与用户的长连接通道
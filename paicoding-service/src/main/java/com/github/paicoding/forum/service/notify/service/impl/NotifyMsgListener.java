@@ -13,6 +13,8 @@ import com.github.paicoding.forum.service.article.repository.entity.ArticlePayRe
 import com.github.paicoding.forum.service.article.service.ArticleReadService;
 import com.github.paicoding.forum.service.comment.repository.entity.CommentDO;
 import com.github.paicoding.forum.service.comment.service.CommentReadService;
+import com.github.paicoding.forum.service.notify.help.NotifyMsgBuffer;
+import com.github.paicoding.forum.service.notify.help.NotifyUnreadCounter;
 import com.github.paicoding.forum.service.notify.repository.dao.NotifyMsgDao;
 import com.github.paicoding.forum.service.notify.repository.entity.NotifyMsgDO;
 import com.github.paicoding.forum.service.notify.service.NotifyService;
@@ -25,6 +27,7 @@ import org.springframework.context.ApplicationListener;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import java.util.Collections;
 import java.util.Objects;
 
 /**
@@ -46,16 +49,24 @@ public class NotifyMsgListener<T> implements ApplicationListener<NotifyMsgEvent<
 
     private final UserService userService;
 
+    private final NotifyMsgBuffer notifyMsgBuffer;
+
+    private final NotifyUnreadCounter notifyUnreadCounter;
+
     public NotifyMsgListener(ArticleReadService articleReadService,
                              CommentReadService commentReadService,
                              NotifyService notifyService,
                              NotifyMsgDao notifyMsgDao,
-                             UserService userService) {
+                             UserService userService,
+                             NotifyMsgBuffer notifyMsgBuffer,
+                             NotifyUnreadCounter notifyUnreadCounter) {
         this.articleReadService = articleReadService;
         this.commentReadService = commentReadService;
         this.notifyService = notifyService;
         this.notifyMsgDao = notifyMsgDao;
         this.userService = userService;
+        this.notifyMsgBuffer = notifyMsgBuffer;
+        this.notifyUnreadCounter = notifyUnreadCounter;
     }
 
     @SuppressWarnings("unchecked")
@@ -113,10 +124,7 @@ public class NotifyMsgListener<T> implements ApplicationListener<NotifyMsgEvent<
                 .setType(event.getNotifyType().getType())
                 .setState(NotifyStatEnum.UNREAD.getStat()).setMsg(comment.getContent());
         // 对于评论而言，支持多次评论；因此若之前有也不删除
-        notifyMsgDao.save(msg);
-
-        // 消息通知
-        notifyService.notifyToUser(msg.getNotifyUserId(), String.format("您的文章《%s》收到一个新的评论，快去看看吧", article.getTitle()));
+        notifyMsgBuffer.save(msg, false, String.format("您的文章《%s》收到一个新的评论，快去看看吧", article.getTitle()));
     }
 
     /**
@@ -134,10 +142,7 @@ public class NotifyMsgListener<T> implements ApplicationListener<NotifyMsgEvent<
                 .setType(event.getNotifyType().getType())
                 .setState(NotifyStatEnum.UNREAD.getStat()).setMsg(comment.getContent());
         // 回复同样支持多次回复，不做幂等校验
-        notifyMsgDao.save(msg);
-
-        // 消息通知
-        notifyService.notifyToUser(msg.getNotifyUserId(), String.format("您的评价《%s》收到一个新的回复，快去看看吧", parent.getContent()));
+        notifyMsgBuffer.save(msg, false, String.format("您的评价《%s》收到一个新的回复，快去看看吧", parent.getContent()));
     }
 
     /**
@@ -160,15 +165,10 @@ public class NotifyMsgListener<T> implements ApplicationListener<NotifyMsgEvent<
             msg.setMsg(String.format("赞了您在文章 <a href=\"/article/detail/%d\">%s</a> 下的评论 <span style=\"color:darkslategray;font-style: italic;font-size: 0.9em\">%s</span>", article.getId(), article.getTitle(), comment.getContent()));
         }
 
-        NotifyMsgDO record = notifyMsgDao.getByUserIdRelatedIdAndType(msg);
-        if (record == null) {
-            // 若之前已经有对应的通知，则不重复记录；因为一个用户对一篇文章，可以重复的点赞、取消点赞，但是最终我们只通知一次
-            notifyMsgDao.save(msg);
-            // 消息通知
-            notifyService.notifyToUser(msg.getNotifyUserId(), String.format("太棒了，您的%s %s数+1!!!",
-                    Objects.equals(foot.getDocumentType(), DocumentTypeEnum.ARTICLE.getCode()) ? "文章" : "评论",
-                    event.getNotifyType().getMsg()));
-        }
+        // 若之前已经有对应的通知，则不重复记录；因为一个用户对一篇文章，可以重复的点赞、取消点赞，但是最终我们只通知一次
+        notifyMsgBuffer.save(msg, true, String.format("太棒了，您的%s %s数+1!!!",
+                Objects.equals(foot.getDocumentType(), DocumentTypeEnum.ARTICLE.getCode()) ? "文章" : "评论",
+                event.getNotifyType().getMsg()));
     }
 
     public void saveArticleNotify(UserFootDO foot, NotifyTypeEnum notifyTypeEnum) {
@@ -178,11 +178,8 @@ public class NotifyMsgListener<T> implements ApplicationListener<NotifyMsgEvent<
                 .setType(notifyTypeEnum.getType())
                 .setState(NotifyStatEnum.UNREAD.getStat())
                 .setMsg("");
-        NotifyMsgDO record = notifyMsgDao.getByUserIdRelatedIdAndType(msg);
-        if (record == null) {
-            // 若之前已经有对应的通知，则不重复记录；因为一个用户对一篇文章，可以重复的点赞、取消点赞，但是最终我们只通知一次
-            notifyMsgDao.save(msg);
-        }
+        // 若之前已经有对应的通知，则不重复记录；因为一个用户对一篇文章，可以重复的点赞、取消点赞，但是最终我们只通知一次
+        notifyMsgBuffer.save(msg, true, null);
     }
 
     /**
@@ -198,10 +195,7 @@ public class NotifyMsgListener<T> implements ApplicationListener<NotifyMsgEvent<
                 .setOperateUserId(foot.getUserId())
                 .setType(event.getNotifyType().getType())
                 .setMsg("");
-        NotifyMsgDO record = notifyMsgDao.getByUserIdRelatedIdAndType(msg);
-        if (record != null) {
-            notifyMsgDao.removeById(record.getId());
-        }
+        notifyMsgBuffer.remove(msg);
     }
 
     /**
@@ -217,13 +211,8 @@ public class NotifyMsgListener<T> implements ApplicationListener<NotifyMsgEvent<
                 .setType(event.getNotifyType().getType())
                 .setState(NotifyStatEnum.UNREAD.getStat())
                 .setMsg("");
-        NotifyMsgDO record = notifyMsgDao.getByUserIdRelatedIdAndType(msg);
-        if (record == null) {
-            // 若之前已经有对应的通知，则不重复记录；因为用户的关注是一对一的，可以重复的关注、取消，但是最终我们只通知一次
-            notifyMsgDao.save(msg);
-
-            notifyService.notifyToUser(msg.getNotifyUserId(), "恭喜您获得一枚新粉丝~");
-        }
+        // 若之前已经有对应的通知，则不重复记录；因为用户的关注是一对一的，可以重复的关注、取消，但是最终我们只通知一次
+        notifyMsgBuffer.save(msg, true, "恭喜您获得一枚新粉丝~");
     }
 
     /**
@@ -239,10 +228,7 @@ public class NotifyMsgListener<T> implements ApplicationListener<NotifyMsgEvent<
                 .setOperateUserId(relation.getFollowUserId())
                 .setType(event.getNotifyType().getType())
                 .setMsg("");
-        NotifyMsgDO record = notifyMsgDao.getByUserIdRelatedIdAndType(msg);
-        if (record != null) {
-            notifyMsgDao.removeById(record.getId());
-        }
+        notifyMsgBuffer.remove(msg);
     }
 
     private void saveRegisterSystemNotify(Long userId) {
@@ -255,7 +241,7 @@ public class NotifyMsgListener<T> implements ApplicationListener<NotifyMsgEvent<
         NotifyMsgDO record = notifyMsgDao.getByUserIdRelatedIdAndType(msg);
         if (record == null) {
             // 若之前已经有对应的通知，则不重复记录；因为用户的关注是一对一的，可以重复的关注、取消，但是最终我们只通知一次
-            notifyMsgDao.save(msg);
+            saveMsg(msg);
 
             notifyService.notifyToUser(msg.getNotifyUserId(), "您有一个新的系统通知消息，请注意查收");
         }
@@ -298,13 +284,13 @@ public class NotifyMsgListener<T> implements ApplicationListener<NotifyMsgEvent<
         NotifyMsgDO dbMsg = notifyMsgDao.getByUserIdRelatedIdAndType(msg);
         if (dbMsg == null) {
             // 未通知过，则新增一条通知记录
-            notifyMsgDao.save(msg);
+            saveMsg(msg);
         } else if (!Objects.equals(dbMsg.getMsg(), msg.getMsg())) {
             // 由于可能出现第一次支付失败，然后第二次支付成功的场景，因此我们需要再新增一个消息通知
-            notifyMsgDao.save(msg);
+            saveMsg(msg);
         } else if (payStatus == PayStatusEnum.PAYING && Objects.equals(dbMsg.getState(), NotifyStatEnum.UNREAD.getStat())) {
             // 根据作者是否看过通知，来决定是否需要重新给作者发送一个消息通知
-            notifyMsgDao.save(msg);
+            saveMsg(msg);
         }
 
         if (payStatus == PayStatusEnum.PAYING) {
@@ -318,4 +304,14 @@ public class NotifyMsgListener<T> implements ApplicationListener<NotifyMsgEvent<
             notifyService.notifyToUser(msg.getNotifyUserId(), String.format("您对文章《%s》的支付未成功，请重试一下吧~", article.getTitle()));
         }
     }
+
+    /**
+     * 直接写入单条消息，并累加未读数
+     *
+     * @param msg
+     */
+    private void saveMsg(NotifyMsgDO msg) {
+        notifyMsgDao.save(msg);
+        notifyUnreadCounter.incr(Collections.singletonList(msg));
+    }
 }
@@ -1,6 +1,5 @@
 package com.github.paicoding.forum.service.notify.service.impl;
 
-import com.beust.jcommander.internal.Sets;
 import com.github.paicoding.forum.api.model.context.ReqInfoContext;
 import com.github.paicoding.forum.api.model.enums.NotifyStatEnum;
 import com.github.paicoding.forum.api.model.enums.NotifyTypeEnum;
@@ -8,25 +7,22 @@ import com.github.paicoding.forum.api.model.vo.PageListVo;
 import com.github.paicoding.forum.api.model.vo.PageParam;
 import com.github.paicoding.forum.api.model.vo.notify.dto.NotifyMsgDTO;
 import com.github.paicoding.forum.core.util.NumUtil;
-import com.github.paicoding.forum.core.ws.WebSocketResponseUtil;
+import com.github.paicoding.forum.service.notify.help.NotifyMsgBuffer;
+import com.github.paicoding.forum.service.notify.help.NotifyUnreadCounter;
+import com.github.paicoding.forum.service.notify.help.WsSessionRegistry;
 import com.github.paicoding.forum.service.notify.repository.dao.NotifyMsgDao;
 import com.github.paicoding.forum.service.notify.repository.entity.NotifyMsgDO;
 import com.github.paicoding.forum.service.notify.service.NotifyService;
 import com.github.paicoding.forum.service.user.repository.entity.UserFootDO;
 import com.github.paicoding.forum.service.user.service.UserRelationService;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
-import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -42,27 +38,21 @@ public class NotifyServiceImpl implements NotifyService {
     @Resource
     private UserRelationService userRelationService;
 
+    @Resource
+    private NotifyMsgBuffer notifyMsgBuffer;
+
+    @Resource
+    private NotifyUnreadCounter notifyUnreadCounter;
+
     /**
-     * 记录用户与对应的jwt token之间的缓存关系；用于websocket的广播通知
+     * 记录用户与对应的jwt token之间的关系，以及用户连接在集群的哪些节点上；用于websocket的广播通知
      */
-    private LoadingCache<Long, Set<String>> wsUserSessionCache;
-
-    @PostConstruct
-    public void init() {
-        wsUserSessionCache = CacheBuilder.newBuilder()
-                .maximumSize(500)
-                .expireAfterAccess(1, TimeUnit.HOURS)
-                .build(new CacheLoader<Long, Set<String>>() {
-                    @Override
-                    public Set<String> load(Long aLong) throws Exception {
-                        return new HashSet<>();
-                    }
-                });
-    }
+    @Resource
+    private WsSessionRegistry wsSessionRegistry;
 
     @Override
     public int queryUserNotifyMsgCount(Long userId) {
-        return notifyMsgDao.countByUserIdAndStat(userId, NotifyStatEnum.UNREAD.getStat());
+        return notifyUnreadCounter.total(userId);
     }
 
     /**
@@ -72,18 +62,24 @@ public class NotifyServiceImpl implements NotifyService {
      */
     @Override
     public PageListVo<NotifyMsgDTO> queryUserNotices(Long userId, NotifyTypeEnum type, PageParam page) {
-        List<NotifyMsgDTO> list = notifyMsgDao.listNotifyMsgByUserIdAndType(userId, type, page);
+        List<NotifyMsgDTO> list = page.getCursor() != null
+                ? notifyMsgDao.listNotifyMsgByUserIdAndTypeAfter(userId, type, page.getCursor(), page.getPageSize())
+                : notifyMsgDao.listNotifyMsgByUserIdAndType(userId, type, page);
         if (CollectionUtils.isEmpty(list)) {
             return PageListVo.emptyVo();
         }
 
-        // 设置消息为已读状态
-        notifyMsgDao.updateNotifyMsgToRead(list);
+        // 设置消息为已读状态，并扣减未读数
+        notifyUnreadCounter.decr(userId, type.getType(), notifyMsgDao.updateNotifyMsgToRead(list));
         // 更新全局总的消息数
         ReqInfoContext.getReqInfo().setMsgNum(queryUserNotifyMsgCount(userId));
         // 更新当前登录用户对粉丝的关注状态
         updateFollowStatus(userId, list);
-        return PageListVo.newVo(list, page.getPageSize());
+        PageListVo<NotifyMsgDTO> vo = PageListVo.newVo(list, page.getPageSize());
+        if (vo.getHasMore()) {
+            vo.setNextCursor(NotifyMsgDao.noticeCursor(list.get(list.size() - 1)).encode());
+        }
+        return vo;
     }
 
     private void updateFollowStatus(Long userId, List<NotifyMsgDTO> list) {
@@ -107,7 +103,7 @@ public class NotifyServiceImpl implements NotifyService {
     public Map<String, Integer> queryUnreadCounts(long userId) {
         Map<Integer, Integer> map = Collections.emptyMap();
         if (ReqInfoContext.getReqInfo() != null && NumUtil.upZero(ReqInfoContext.getReqInfo().getMsgNum())) {
-            map = notifyMsgDao.groupCountByUserIdAndStat(userId, NotifyStatEnum.UNREAD.getStat());
+            map = notifyUnreadCounter.counts(userId);
         }
         // 指定先后顺序
         Map<String, Integer> ans = new LinkedHashMap<>();
@@ -132,11 +128,8 @@ public class NotifyServiceImpl implements NotifyService {
                 .setType(notifyTypeEnum.getType() )
                 .setState(NotifyStatEnum.UNREAD.getStat())
                 .setMsg("");
-        NotifyMsgDO record = notifyMsgDao.getByUserIdRelatedIdAndType(msg);
-        if (record == null) {
-            // 若之前已经有对应的通知，则不重复记录；因为一个用户对一篇文章，可以重复的点赞、取消点赞，但是最终我们只通知一次
-            notifyMsgDao.save(msg);
-        }
+        // 若之前已经有对应的通知，则不重复记录；因为一个用户对一篇文章，可以重复的点赞、取消点赞，但是最终我们只通知一次
+        notifyMsgBuffer.save(msg, true, null);
     }
 
     // -------------------------------------------- 下面是与用户的websocket长连接维护相关实现 -------------------------
@@ -148,29 +141,12 @@ public class NotifyServiceImpl implements NotifyService {
      */
     @Override
     public void notifyToUser(Long userId, String msg) {
-        wsUserSessionCache.getUnchecked(userId).forEach(s -> {
-            WebSocketResponseUtil.sendMsgToUser(s, NOTIFY_TOPIC, msg);
-        });
+        wsSessionRegistry.send(userId, msg);
     }
 
-    /**
-     * 用户建立连接时，添加用户信息
-     *
-     * @param userId  用户id
-     * @param session jwt token
-     */
-    private void addUserToken(Long userId, String session) {
-        wsUserSessionCache.getUnchecked(userId).add(session);
-    }
-
-    /**
-     * 断开连接时，移除用户信息
-     *
-     * @param userId  用户id
-     * @param session jwt token
-     */
-    private void releaseUserToken(Long userId, String session) {
-        wsUserSessionCache.getUnchecked(userId).remove(session);
+    @Override
+    public void notifyToUsers(Map<Long, String> msgs) {
+        wsSessionRegistry.send(msgs);
     }
 
     /**
@@ -180,12 +156,10 @@ public class NotifyServiceImpl implements NotifyService {
      */
     @Override
     public void notifyChannelMaintain(StompHeaderAccessor accessor) {
-        String destination = accessor.getDestination();
-        if (StringUtils.isBlank(destination) || accessor.getCommand() == null) {
+        if (accessor.getCommand() == null) {
             return;
         }
 
-
         // 全局私信、通知长连接入口
         ReqInfoContext.ReqInfo user = (ReqInfoContext.ReqInfo) accessor.getUser();
         if (user == null) {
@@ -195,11 +169,13 @@ public class NotifyServiceImpl implements NotifyService {
         switch (accessor.getCommand()) {
             case SUBSCRIBE:
                 // 建立用户通信通道
-                addUserToken(user.getUserId(), user.getSession());
+                if (StringUtils.isNotBlank(accessor.getDestination())) {
+                    wsSessionRegistry.register(user.getUserId(), user.getSession(), accessor.getSessionId());
+                }
                 break;
             case DISCONNECT:
-                // 中断链接，去掉用户的长连接会话
-                releaseUserToken(user.getUserId(), user.getSession());
+                // 中断链接，去掉用户的长连接会话；DISCONNECT 帧不带 destination
+                wsSessionRegistry.release(user.getUserId(), accessor.getSessionId());
                 break;
         }
     }
@@ -0,0 +1,64 @@
+package com.github.paicoding.forum.service.rank.service;
+
+import com.github.paicoding.forum.api.model.vo.PageParam;
+import com.github.paicoding.forum.api.model.vo.article.dto.SimpleArticleDTO;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 热门文章排行：按随时间衰减的互动热度排序
+ *
+ * @author YiHui
+ * @date 2026/10/17
+ */
+public interface HotArticleRankService {
+    double READ_SCORE = 1;
+    double PRAISE_SCORE = 3;
+    double COMMENT_SCORE = 5;
+    double COLLECT_SCORE = 5;
+
+    /**
+     * 增加文章热度，先在内存中累加，定时批量写入
+     *
+     * @param articleId 文章id
+     * @param score     热度
+     */
+    void addScore(Long articleId, double score);
+
+    /**
+     * 取消点赞、删除评论等操作，扣除之前增加的热度
+     * <p>
+     * 热度随时间衰减，按互动发生时的热度扣除；互动时间未知时按当前时间扣除，但不会把文章移出排行
+     *
+     * @param articleId  文章id
+     * @param score      互动发生时增加的热度，正数
+     * @param actionTime 互动发生的时间，未知时传null
+     */
+    void cancelScore(Long articleId, double score, Date actionTime);
+
+    /**
+     * 文章下线、删除时从排行中移除
+     *
+     * @param articleId
+     * @param authorId
+     */
+    void remove(Long articleId, Long authorId);
+
+    /**
+     * 全站热门文章
+     *
+     * @param pageParam
+     * @return
+     */
+    List<SimpleArticleDTO> queryHotArticles(PageParam pageParam);
+
+    /**
+     * 作者的热门文章
+     *
+     * @param authorId
+     * @param pageParam
+     * @return
+     */
+    List<SimpleArticleDTO> queryAuthorHotArticles(Long authorId, PageParam pageParam);
+}
@@ -0,0 +1,394 @@
+package com.github.paicoding.forum.service.rank.service.impl;
+
+import com.github.paicoding.forum.api.model.enums.PushStatusEnum;
+import com.github.paicoding.forum.api.model.enums.YesOrNoEnum;
+import com.github.paicoding.forum.api.model.vo.PageParam;
+import com.github.paicoding.forum.api.model.vo.article.dto.SimpleArticleDTO;
+import com.github.paicoding.forum.core.async.AsyncUtil;
+import com.github.paicoding.forum.core.cache.RedisClient;
+import com.github.paicoding.forum.service.article.repository.dao.ArticleDao;
+import com.github.paicoding.forum.service.article.repository.entity.ArticleDO;
+import com.github.paicoding.forum.service.rank.service.HotArticleRankService;
+import com.google.common.collect.Iterables;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 热门文章排行
+ * <p>
+ * 1. 全站、每个作者各维护一个 zset，分数为 阅读、点赞、评论、收藏 的加权热度
+ * 2. 时间衰减采用前向衰减：每个 zset 记录一个基准时间 epoch，t 时刻的热度按 score * 2^((t - epoch) / 半衰期) 写入，
+ * 同一个 zset 内越新的互动权重越大，排序结果等价于所有热度都按半衰期衰减
+ * 3. 定时任务把每个 zset 的分数乘以 2^((epoch - now) / 半衰期) 并把 epoch 移到当前时间，避免分数无限增长，同时裁剪榜单长度
+ * 4. 请求只执行 zrevrange + 一次批量查询文章，不再对 read_count 全表排序
+ * 5. 取消点赞等操作按互动发生时的热度扣除；时间未知时按当前时间扣除会扣多，此时最多扣到一次阅读的热度，不会把文章移出排行
+ *
+ * @author YiHui
+ * @date 2026/10/17
+ */
+@Slf4j
+@Service
+public class HotArticleRankServiceImpl implements HotArticleRankService {
+    private static final String HOT_ARTICLE_KEY = "hot_article";
+    private static final String AUTHOR_HOT_ARTICLE_KEY = "hot_article_author_";
+    /**
+     * hash: field 为 zset 的完整key，value 为该 zset 的基准时间
+     */
+    private static final String EPOCH_KEY = "hot_article_epoch";
+    private static final String SEEDED_KEY = "hot_article_seeded";
+    private static final String SEEDING_KEY = "hot_article_seeding";
+
+    /**
+     * 初始化排行的锁的过期时间，单位s；持有锁的节点异常退出时，其他节点在过期之后重新初始化
+     */
+    private static final long SEEDING_EXPIRE = 600;
+
+    private static final int BATCH_SIZE = 200;
+
+    /**
+     * 批量加热度；扣除的热度只作用于已在排行中的文章，并且最多扣到一次阅读的热度
+     * KEYS: epoch, 全站榜, 作者榜key前缀
+     * ARGV: 当前时间, 半衰期(ms), 一次阅读的热度, [文章id, 作者id, 增加的热度, 扣除的热度]...
+     */
+    private static final RedisScript<Long> HOT_SCORE_SCRIPT = RedisScript.of(
+            "local now = tonumber(ARGV[1]) "
+                    + "local half = tonumber(ARGV[2]) "
+                    + "local floor = tonumber(ARGV[3]) "
+                    + "local function incr(key, member, add, cancel) "
+                    + "  local epoch = tonumber(redis.call('hget', KEYS[1], key)) "
+                    + "  if not epoch then "
+                    + "    epoch = now "
+                    + "    redis.call('hset', KEYS[1], key, now) "
+                    + "  end "
+                    + "  local scale = math.pow(2, (now - epoch) / half) "
+                    + "  if add > 0 then "
+                    + "    redis.call('zincrby', key, add * scale, member) "
+                    + "  end "
+                    + "  if cancel > 0 then "
+                    + "    local cur = tonumber(redis.call('zscore', key, member)) "
+                    + "    if cur then "
+                    + "      redis.call('zadd', key, math.max(cur - cancel * scale, math.min(cur, floor * scale)), member) "
+                    + "    end "
+                    + "  end "
+                    + "end "
+                    + "for i = 4, #ARGV, 4 do "
+                    + "  local add = tonumber(ARGV[i + 2]) "
+                    + "  local cancel = tonumber(ARGV[i + 3]) "
+                    + "  incr(KEYS[2], ARGV[i], add, cancel) "
+                    + "  incr(KEYS[3] .. ARGV[i + 1], ARGV[i], add, cancel) "
+                    + "end "
+                    + "return (#ARGV - 3) / 4", Long.class);
+
+    /**
+     * 排行未初始化、并且没有其他节点在初始化时加锁
+     * KEYS: 已初始化标记, 锁
+     * ARGV: 锁的过期时间(s)
+     */
+    private static final RedisScript<Long> SEED_LOCK_SCRIPT = RedisScript.of(
+            "if redis.call('exists', KEYS[1]) == 1 then "
+                    + "  return 0 "
+                    + "end "
+                    + "if redis.call('set', KEYS[2], '1', 'NX', 'EX', ARGV[1]) then "
+                    + "  return 1 "
+                    + "end "
+                    + "return 0", Long.class);
+
+    /**
+     * 衰减：按各自的 epoch 缩放分数，移除分数不为正的文章，只保留前N篇，再把 epoch 移到当前时间
+     * KEYS: epoch, 全站榜
+     * ARGV: 当前时间, 半衰期(ms), 全站榜长度, 作者榜长度, [zset的完整key]...
+     */
+    private static final RedisScript<Long> RESCALE_SCRIPT = RedisScript.of(
+            "local now = tonumber(ARGV[1]) "
+                    + "local half = tonumber(ARGV[2]) "
+                    + "for i = 5, #ARGV do "
+                    + "  local key = ARGV[i] "
+                    + "  local epoch = tonumber(redis.call('hget', KEYS[1], key)) "
+                    + "  if epoch and redis.call('exists', key) == 1 then "
+                    + "    local size = key == KEYS[2] and tonumber(ARGV[3]) or tonumber(ARGV[4]) "
+                    + "    redis.call('zunionstore', key, 1, key, 'weights', math.pow(2, (epoch - now) / half)) "
+                    + "    redis.call('zremrangebyscore', key, '-inf', 0) "
+                    + "    redis.call('zremrangebyrank', key, 0, -size - 1) "
+                    + "  end "
+                    + "  if redis.call('exists', key) == 1 then "
+                    + "    redis.call('hset', KEYS[1], key, now) "
+                    + "  else "
+                    + "    redis.call('hdel', KEYS[1], key) "
+                    + "  end "
+                    + "end "
+                    + "return #ARGV - 4", Long.class);
+
+    private final ArticleDao articleDao;
+
+    /**
+     * 待写入的热度增量
+     */
+    private final Map<Long, DoubleAdder> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 待扣除的热度，已按互动发生的时间折算为当前时间的热度
+     */
+    private final Map<Long, DoubleAdder> cancels = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean flushing = new AtomicBoolean(false);
+
+    /**
+     * 热度半衰期，单位小时
+     */
+    @Value("${paicoding.hot-article.half-life-hours:72}")
+    private long halfLifeHours;
+
+    @Value("${paicoding.hot-article.max-size:1000}")
+    private int maxSize;
+
+    @Value("${paicoding.hot-article.author-max-size:200}")
+    private int authorMaxSize;
+
+    public HotArticleRankServiceImpl(ArticleDao articleDao, MeterRegistry meterRegistry) {
+        this.articleDao = articleDao;
+        Gauge.builder("paicoding.hot.article.pending", this, s -> s.pending.size() + s.cancels.size()).description("待写入热度的文章数").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        AsyncUtil.execute(this::seed);
+    }
+
+    @Override
+    public void addScore(Long articleId, double score) {
+        if (articleId != null) {
+            pending.computeIfAbsent(articleId, k -> new DoubleAdder()).add(score);
+        }
+    }
+
+    @Override
+    public void cancelScore(Long articleId, double score, Date actionTime) {
+        if (articleId == null) {
+            return;
+        }
+        if (actionTime != null) {
+            double age = Math.max(0, System.currentTimeMillis() - actionTime.getTime());
+            score *= Math.pow(2, -age / TimeUnit.HOURS.toMillis(halfLifeHours));
+        }
+        cancels.computeIfAbsent(articleId, k -> new DoubleAdder()).add(score);
+    }
+
+    @Override
+    public void remove(Long articleId, Long authorId) {
+        pending.remove(articleId);
+        cancels.remove(articleId);
+        RedisClient.PipelineAction action = RedisClient.pipelineAction()
+                .add(HOT_ARTICLE_KEY, (connection, key) -> connection.zRem(key, RedisClient.valBytes(String.valueOf(articleId))));
+        if (authorId != null) {
+            action.add(AUTHOR_HOT_ARTICLE_KEY + authorId, (connection, key) -> connection.zRem(key, RedisClient.valBytes(String.valueOf(articleId))));
+        }
+        action.execute();
+    }
+
+    @Override
+    public List<SimpleArticleDTO> queryHotArticles(PageParam pageParam) {
+        List<SimpleArticleDTO> list = queryFromRank(HOT_ARTICLE_KEY, pageParam);
+        // 榜单还未初始化、或者redis异常时，走db查询
+        return list != null ? list : articleDao.listHotArticles(pageParam);
+    }
+
+    @Override
+    public List<SimpleArticleDTO> queryAuthorHotArticles(Long authorId, PageParam pageParam) {
+        List<SimpleArticleDTO> list = queryFromRank(AUTHOR_HOT_ARTICLE_KEY + authorId, pageParam);
+        return list != null ? list : articleDao.listAuthorHotArticles(authorId, pageParam);
+    }
+
+    /**
+     * @return 榜单为空时返回null
+     */
+    private List<SimpleArticleDTO> queryFromRank(String key, PageParam pageParam) {
+        List<String> members;
+        try {
+            members = RedisClient.zRevRange(key, pageParam.getOffset(), pageParam.getOffset() + pageParam.getLimit() - 1);
+        } catch (Exception e) {
+            log.warn("failed to query hot article rank! key={}", key, e);
+            return null;
+        }
+        if (members.isEmpty()) {
+            return pageParam.getOffset() == 0 ? null : Collections.emptyList();
+        }
+
+        List<Long> ids = members.stream().map(Long::valueOf).collect(Collectors.toList());
+        return articleDao.listByIdsInOrder(ids).stream()
+                .filter(this::online)
+                .map(a -> new SimpleArticleDTO().setId(a.getId()).setTitle(a.getTitle())
+                        .setCreateTime(new Timestamp(a.getCreateTime().getTime())))
+                .collect(Collectors.toList());
+    }
+
+    @Scheduled(fixedDelayString = "${paicoding.hot-article.flush-interval:5000}")
+    public void autoFlush() {
+        flush();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    public void flush() {
+        if ((pending.isEmpty() && cancels.isEmpty()) || !flushing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Map<Long, Double> scores = drain(pending);
+            Map<Long, Double> canceled = drain(cancels);
+            Set<Long> ids = new HashSet<>(scores.keySet());
+            ids.addAll(canceled.keySet());
+            for (List<Long> batch : Iterables.partition(new ArrayList<>(ids), BATCH_SIZE)) {
+                try {
+                    apply(articleDao.listByIds(batch), scores, canceled);
+                } catch (Exception e) {
+                    log.error("failed to flush hot article score, will retry next round! articles={}", batch.size(), e);
+                    for (Long id : batch) {
+                        restore(pending, id, scores.get(id));
+                        restore(cancels, id, canceled.get(id));
+                    }
+                }
+            }
+        } finally {
+            flushing.set(false);
+        }
+    }
+
+    private static Map<Long, Double> drain(Map<Long, DoubleAdder> adders) {
+        Map<Long, Double> result = new HashMap<>(adders.size());
+        adders.forEach((articleId, adder) -> {
+            double score = adder.sum();
+            if (score != 0) {
+                adder.add(-score);
+                result.put(articleId, score);
+            } else {
+                adders.remove(articleId, adder);
+            }
+        });
+        return result;
+    }
+
+    private static void restore(Map<Long, DoubleAdder> adders, Long articleId, Double score) {
+        if (score != null) {
+            adders.computeIfAbsent(articleId, k -> new DoubleAdder()).add(score);
+        }
+    }
+
+    /**
+     * 写入一批文章的热度，只有已发布的文章才进入排行
+     */
+    private void apply(List<ArticleDO> articles, Map<Long, Double> scores, Map<Long, Double> canceled) {
+        List<Object> args = new ArrayList<>(3 + articles.size() * 4);
+        args.add(System.currentTimeMillis());
+        args.add(TimeUnit.HOURS.toMillis(halfLifeHours));
+        args.add(READ_SCORE);
+        for (ArticleDO article : articles) {
+            double score = scores.getOrDefault(article.getId(), 0D);
+            double cancel = canceled.getOrDefault(article.getId(), 0D);
+            if ((score > 0 || cancel > 0) && online(article)) {
+                args.add(article.getId());
+                args.add(article.getUserId());
+                args.add(score);
+                args.add(cancel);
+            }
+        }
+        if (args.size() > 3) {
+            RedisClient.evalSha(HOT_SCORE_SCRIPT, Arrays.asList(EPOCH_KEY, HOT_ARTICLE_KEY, AUTHOR_HOT_ARTICLE_KEY), args.toArray());
+        }
+    }
+
+    /**
+     * 定时衰减，各个节点重复执行也只是把 epoch 移到当前时间，不会重复衰减
+     */
+    @Scheduled(cron = "${paicoding.hot-article.rescale-cron:0 0 * * * ?}")
+    public void rescale() {
+        List<String> keys = new ArrayList<>(RedisClient.hGetAll(EPOCH_KEY, String.class).keySet());
+        for (List<String> batch : Iterables.partition(keys, BATCH_SIZE)) {
+            List<Object> args = new ArrayList<>(4 + batch.size());
+            args.add(System.currentTimeMillis());
+            args.add(TimeUnit.HOURS.toMillis(halfLifeHours));
+            args.add(maxSize);
+            args.add(authorMaxSize);
+            args.addAll(batch);
+            RedisClient.evalSha(RESCALE_SCRIPT, Arrays.asList(EPOCH_KEY, HOT_ARTICLE_KEY), args.toArray());
+        }
+        log.info("hot article rank rescaled, ranks={}", keys.size());
+    }
+
+    /**
+     * 首次上线时用db中的阅读数初始化排行，按发布时间衰减，只执行一次
+     * <p>
+     * 初始化完成之后才写入标记；失败时释放锁，下次启动时重新初始化
+     */
+    private void seed() {
+        try {
+            Long locked = RedisClient.evalSha(SEED_LOCK_SCRIPT, Arrays.asList(SEEDED_KEY, SEEDING_KEY), SEEDING_EXPIRE);
+            if (locked == null || locked == 0) {
+                return;
+            }
+        } catch (Exception e) {
+            log.error("failed to check hot article rank seed!", e);
+            return;
+        }
+
+        try {
+            long now = System.currentTimeMillis();
+            double halfLife = TimeUnit.HOURS.toMillis(halfLifeHours);
+            long lastId = 0;
+            int total = 0;
+            while (true) {
+                List<ArticleDO> articles = articleDao.scanArticles(lastId, BATCH_SIZE);
+                if (articles.isEmpty()) {
+                    break;
+                }
+                List<ArticleDO> online = articles.stream().filter(this::online).collect(Collectors.toList());
+                Map<Long, Integer> reads = articleDao.listReadCounts(online.stream().map(ArticleDO::getId).collect(Collectors.toList()));
+                Map<Long, Double> scores = new HashMap<>(online.size() * 2);
+                for (ArticleDO article : online) {
+                    double age = now - article.getCreateTime().getTime();
+                    scores.put(article.getId(), reads.getOrDefault(article.getId(), 0) * READ_SCORE * Math.pow(2, -age / halfLife));
+                }
+                apply(online, scores, Collections.emptyMap());
+                total += online.size();
+                lastId = articles.get(articles.size() - 1).getId();
+            }
+            RedisClient.setStr(SEEDED_KEY, "1");
+            log.info("hot article rank seeded, articles={}", total);
+        } catch (Exception e) {
+            log.error("failed to seed hot article rank!", e);
+        } finally {
+            RedisClient.del(SEEDING_KEY);
+        }
+    }
+
+    private boolean online(ArticleDO article) {
+        return Objects.equals(article.getStatus(), PushStatusEnum.ONLINE.getCode())
+                && Objects.equals(article.getDeleted(), YesOrNoEnum.NO.getCode());
+    }
+}
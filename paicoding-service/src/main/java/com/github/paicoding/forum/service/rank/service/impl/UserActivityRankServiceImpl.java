@@ -1,25 +1,51 @@
 package com.github.paicoding.forum.service.rank.service.impl;
 
+import cn.hutool.core.thread.ExecutorBuilder;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
 import com.github.paicoding.forum.api.model.enums.rank.ActivityRankTimeEnum;
 import com.github.paicoding.forum.api.model.vo.rank.dto.RankItemDTO;
 import com.github.paicoding.forum.api.model.vo.user.dto.SimpleUserInfoDTO;
 import com.github.paicoding.forum.core.cache.RedisClient;
 import com.github.paicoding.forum.core.util.DateUtil;
-import com.github.paicoding.forum.core.util.NumUtil;
 import com.github.paicoding.forum.service.rank.service.UserActivityRankService;
 import com.github.paicoding.forum.service.rank.service.model.ActivityScoreBo;
 import com.github.paicoding.forum.service.user.service.UserService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -31,10 +57,141 @@ import java.util.stream.IntStream;
 @Service
 public class UserActivityRankServiceImpl implements UserActivityRankService {
     private static final String ACTIVITY_SCORE_KEY = "activity_rank_";
+    /**
+     * 总榜、最近7天、最近30天的物化榜单：加分时增量更新，定时由日榜 zunionstore 重建来完成窗口的滑动
+     */
+    private static final String ALL_RANK_KEY = ACTIVITY_SCORE_KEY + "all";
+    private static final String WEEK_RANK_KEY = ACTIVITY_SCORE_KEY + "7d";
+    private static final String THIRTY_DAYS_RANK_KEY = ACTIVITY_SCORE_KEY + "30d";
+    /**
+     * 总榜是否已经由历史月榜初始化
+     */
+    private static final String ALL_RANK_SEED_KEY = ALL_RANK_KEY + "_seeded";
+
+    /**
+     * 活跃度更新脚本
+     * KEYS: 用户当天的操作记录(幂等), 日排行榜, 月排行榜, 总榜, 最近7天榜, 最近30天榜
+     * ARGV: field, score, userId, 操作记录有效期, 日榜有效期, 月榜有效期
+     * <p>
+     * - 加分：之前没有记录时才加，同时记录下本次操作
+     * - 减分：之前加过分时才减，同时移除操作记录
+     * - 排行榜只在没有设置有效期时才设置，避免每天首次加分都刷新月榜的有效期
+     */
+    private static final RedisScript<Long> ACTIVITY_SCORE_SCRIPT = RedisScript.of(
+            "local score = tonumber(ARGV[2]) "
+                    + "local old = redis.call('hget', KEYS[1], ARGV[1]) "
+                    + "if not old then "
+                    + "  if score <= 0 then return 0 end "
+                    + "  redis.call('hset', KEYS[1], ARGV[1], score) "
+                    + "  redis.call('expire', KEYS[1], ARGV[4]) "
+                    + "elseif tonumber(old) > 0 and score < 0 then "
+                    + "  redis.call('hdel', KEYS[1], ARGV[1]) "
+                    + "else return 0 end "
+                    + "redis.call('zincrby', KEYS[2], score, ARGV[3]) "
+                    + "redis.call('zincrby', KEYS[3], score, ARGV[3]) "
+                    + "redis.call('zincrby', KEYS[4], score, ARGV[3]) "
+                    + "redis.call('zincrby', KEYS[5], score, ARGV[3]) "
+                    + "redis.call('zincrby', KEYS[6], score, ARGV[3]) "
+                    + "if redis.call('ttl', KEYS[2]) < 0 then redis.call('expire', KEYS[2], ARGV[5]) end "
+                    + "if redis.call('ttl', KEYS[3]) < 0 then redis.call('expire', KEYS[3], ARGV[6]) end "
+                    + "return 1", Long.class);
+
+    /**
+     * 榜单重建脚本：先合并到临时key，再 rename 覆盖，读请求不会看到中间状态
+     * KEYS: 临时key, 目标榜单, 参与合并的榜单...
+     */
+    private static final RedisScript<Long> RANK_REBUILD_SCRIPT = RedisScript.of(
+            "local n = redis.call('zunionstore', KEYS[1], #KEYS - 2, unpack(KEYS, 3)) "
+                    + "if n > 0 then redis.call('rename', KEYS[1], KEYS[2]) else redis.call('del', KEYS[2]) end "
+                    + "return n", Long.class);
+
+    /**
+     * 总榜初始化脚本：只执行一次，用历史月榜覆盖总榜；月榜中已包含上线之后的增量，因此不会重复计分
+     * KEYS: 初始化标记, 总榜, 月榜...
+     */
+    private static final RedisScript<Long> ALL_RANK_SEED_SCRIPT = RedisScript.of(
+            "if redis.call('exists', KEYS[1]) == 1 then return 0 end "
+                    + "redis.call('zunionstore', KEYS[2], #KEYS - 2, unpack(KEYS, 3)) "
+                    + "redis.call('set', KEYS[1], '1') "
+                    + "return 1", Long.class);
 
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${paicoding.activity.lanes:2}")
+    private int laneCount;
+
+    @Value("${paicoding.activity.queue-size:10000}")
+    private int queueSize;
+
+    /**
+     * 每个榜单在本地快照中保存的前N名，覆盖排行榜页与侧边栏的展示数量
+     */
+    @Value("${paicoding.activity.snapshot-size:50}")
+    private int snapshotSize;
+
+    /**
+     * 榜单快照的刷新间隔，单位ms；实际间隔会在此基础上随机增加 0~20%，避免多个节点同时刷新
+     */
+    @Value("${paicoding.activity.snapshot-refresh-interval:10000}")
+    private long snapshotRefreshInterval;
+
+    /**
+     * 补齐用户信息之后的榜单快照，刷新时整体替换，读请求无锁
+     */
+    private volatile Map<ActivityRankTimeEnum, RankSnapshot> snapshots = Collections.emptyMap();
+
+    private ScheduledExecutorService snapshotRefresher;
+
+    /**
+     * 已提交异步刷新、还未完成的榜单，避免冷启动时每个请求都提交一次刷新
+     */
+    private final Set<ActivityRankTimeEnum> refreshing = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 执行加分的单线程队列，按用户id分配
+     */
+    private ExecutorService[] lanes;
+
+    private Counter droppedCounter;
+
+    @PostConstruct
+    public void init() {
+        lanes = new ExecutorService[Math.max(laneCount, 1)];
+        for (int i = 0; i < lanes.length; i++) {
+            BlockingQueue<Runnable> queue = new LinkedBlockingQueue<>(queueSize);
+            lanes[i] = new ExecutorBuilder()
+                    .setCorePoolSize(1)
+                    .setMaxPoolSize(1)
+                    .setWorkQueue(queue)
+                    .setHandler(new ThreadPoolExecutor.AbortPolicy())
+                    .setThreadFactory(ThreadFactoryBuilder.create().setNamePrefix("activity-score-" + i + "-").setDaemon(true).build())
+                    .build();
+            Gauge.builder("paicoding.activity.score.pending", queue, BlockingQueue::size)
+                    .tag("lane", String.valueOf(i)).description("待执行的活跃度更新数").register(meterRegistry);
+        }
+        droppedCounter = Counter.builder("paicoding.activity.score.dropped").description("队列已满被丢弃的浏览活跃分").register(meterRegistry);
+        snapshotRefresher = Executors.newSingleThreadScheduledExecutor(
+                ThreadFactoryBuilder.create().setNamePrefix("activity-rank-snapshot-").setDaemon(true).build());
+        // 启动后立即生成一次快照，缩短冷启动时榜单为空的时间
+        snapshotRefresher.execute(this::refreshSnapshots);
+        scheduleSnapshotRefresh();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        snapshotRefresher.shutdownNow();
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+        for (ExecutorService lane : lanes) {
+            lane.awaitTermination(3, TimeUnit.SECONDS);
+        }
+    }
+
     /**
      * 当天活跃度排行榜
      *
@@ -53,6 +210,73 @@ public class UserActivityRankServiceImpl implements UserActivityRankService {
         return ACTIVITY_SCORE_KEY + DateUtil.format(DateTimeFormatter.ofPattern("yyyyMM"), System.currentTimeMillis());
     }
 
+    private String rankKey(ActivityRankTimeEnum time) {
+        switch (time) {
+            case DAY:
+                return todayRankKey();
+            case WEEK:
+                return WEEK_RANK_KEY;
+            case THIRTY_DAYS:
+                return THIRTY_DAYS_RANK_KEY;
+            case ALL:
+                return ALL_RANK_KEY;
+            default:
+                return monthRankKey();
+        }
+    }
+
+    /**
+     * 最近 days 天的日榜key
+     */
+    private List<String> recentDayRankKeys(int days) {
+        LocalDate today = LocalDate.now();
+        List<String> keys = new ArrayList<>(days);
+        for (int i = 0; i < days; i++) {
+            keys.add(ACTIVITY_SCORE_KEY + today.minusDays(i).format(DateTimeFormatter.ofPattern("yyyyMMdd")));
+        }
+        return keys;
+    }
+
+    /**
+     * 滑动窗口榜单重建：窗口只在跨天时滑动，期间由加分脚本增量更新，这里每小时重建一次顺带修正误差
+     */
+    @Scheduled(cron = "5 0 * * * ?")
+    public void rebuildWindowRank() {
+        rebuildWindowRank(ActivityRankTimeEnum.WEEK);
+        rebuildWindowRank(ActivityRankTimeEnum.THIRTY_DAYS);
+        seedAllRank();
+    }
+
+    private void rebuildWindowRank(ActivityRankTimeEnum time) {
+        String target = rankKey(time);
+        List<String> keys = new ArrayList<>();
+        keys.add(target + "_tmp");
+        keys.add(target);
+        keys.addAll(recentDayRankKeys(time == ActivityRankTimeEnum.WEEK ? 7 : 30));
+        try {
+            Long size = RedisClient.evalSha(RANK_REBUILD_SCRIPT, keys);
+            log.info("活跃度榜单重建完成: {}, size = {}", time, size);
+        } catch (Exception e) {
+            log.error("活跃度榜单重建失败: {}", time, e);
+        }
+    }
+
+    private void seedAllRank() {
+        // 月榜保留一年
+        YearMonth month = YearMonth.now();
+        List<String> keys = new ArrayList<>();
+        keys.add(ALL_RANK_SEED_KEY);
+        keys.add(ALL_RANK_KEY);
+        for (int i = 0; i < 12; i++) {
+            keys.add(ACTIVITY_SCORE_KEY + month.minusMonths(i).format(DateTimeFormatter.ofPattern("yyyyMM")));
+        }
+        try {
+            RedisClient.evalSha(ALL_RANK_SEED_SCRIPT, keys);
+        } catch (Exception e) {
+            log.error("活跃度总榜初始化失败!", e);
+        }
+    }
+
     /**
      * 添加活跃分
      *
@@ -96,77 +320,164 @@ public class UserActivityRankServiceImpl implements UserActivityRankService {
             return;
         }
 
-        final String todayRankKey = todayRankKey();
-        final String monthRankKey = monthRankKey();
-        // 2. 幂等：判断之前是否有更新过相关的活跃度信息
-        final String userActionKey = ACTIVITY_SCORE_KEY + userId + DateUtil.format(DateTimeFormatter.ofPattern("yyyyMMdd"), System.currentTimeMillis());
-        Integer ans = RedisClient.hGet(userActionKey, field, Integer.class);
-        if (ans == null) {
-            // 2.1 之前没有加分记录，执行具体的加分
-            if (score > 0) {
-                // 记录加分记录
-                RedisClient.hSet(userActionKey, field, score);
-                // 个人用户的操作记录，保存一个月的有效期，方便用户查询自己最近31天的活跃情况
-                RedisClient.expire(userActionKey, 31 * DateUtil.ONE_DAY_SECONDS);
-
-                // 更新当天和当月的活跃度排行榜
-                Double newAns = RedisClient.zIncrBy(todayRankKey, String.valueOf(userId), score);
-                RedisClient.zIncrBy(monthRankKey, String.valueOf(userId), score);
-                if (log.isDebugEnabled()) {
-                    log.info("活跃度更新加分! key#field = {}#{}, add = {}, newScore = {}", todayRankKey, userId, score, newAns);
-                }
-                if (newAns <= score) {
-                    // 由于上面只实现了日/月活跃度的增加，但是没有设置对应的有效期；为了避免持久保存导致redis占用较高；因此这里设定了缓存的有效期
-                    // 日活跃榜单，保存31天；月活跃榜单，保存1年
-                    // 为什么是 newAns <= score 才设置有效期呢？
-                    // 因为 newAns 是用户当天的活跃度，如果发现和需要增加的活跃度 scopre 相等，则表明是今天的首次添加记录，此时设置有效期就比较符合预期了
-                    // 但是请注意，下面的实现有两个缺陷：
-                    //  1. 对于月的有效期，就变成了本月，每天的首次增加活跃度时，都会重新刷一下它的有效期，这样就和预期中的首次添加缓存时，设置有效期不符
-                    //  2. 若先增加活跃度1，再减少活跃度1，然后再加活跃度1，同样会导致重新算了有效期
-                    // 严谨一些的写法，应该是 先判断 key 的 ttl， 对于没有设置的才进行设置有效期，如下
-                    Long ttl = RedisClient.ttl(todayRankKey);
-                    if (!NumUtil.upZero(ttl)) {
-                        RedisClient.expire(todayRankKey, 31 * DateUtil.ONE_DAY_SECONDS);
-                    }
-                    ttl = RedisClient.ttl(monthRankKey);
-                    if (!NumUtil.upZero(ttl)) {
-                        RedisClient.expire(monthRankKey, 12 * DateUtil.ONE_MONTH_SECONDS);
-                    }
-                }
+        if (score == 0) {
+            return;
+        }
+
+        // 2. 加分逻辑全部在redis中由lua脚本原子执行，请求线程只负责投递；同一个用户的操作固定由同一个线程执行，保证先后顺序
+        final String scoreField = field;
+        final int scoreDelta = score;
+        ExecutorService lane = lanes[(int) Math.floorMod(userId, (long) lanes.length)];
+        try {
+            lane.execute(() -> scoreNow(userId, scoreField, scoreDelta));
+        } catch (RejectedExecutionException e) {
+            if (activityScore.getPath() != null) {
+                // 页面浏览的活跃分允许丢失，队列满时直接丢弃，避免拖慢请求
+                droppedCounter.increment();
+            } else {
+                // 点赞、评论、发文等操作的活跃分不丢，退化为当前线程执行
+                scoreNow(userId, scoreField, scoreDelta);
             }
-        } else if (ans > 0) {
-            // 2.2 之前已经加过分，因此这次减分可以执行
-            if (score < 0) {
-                // 移除用户的活跃执行记录 --> 即移除用来做防重复添加活跃度的幂等键
-                Boolean oldHave = RedisClient.hDel(userActionKey, field);
-                if (BooleanUtils.isTrue(oldHave)) {
-                    Double newAns = RedisClient.zIncrBy(todayRankKey, String.valueOf(userId), score);
-                    RedisClient.zIncrBy(monthRankKey, String.valueOf(userId), score);
-                    if (log.isDebugEnabled()) {
-                        log.info("活跃度更新减分! key#field = {}#{}, add = {}, newScore = {}", todayRankKey, userId, score, newAns);
-                    }
-                }
+        }
+    }
+
+    /**
+     * 同步执行一次加分/减分，一次 evalsha 完成幂等判断、日/月排行榜更新以及有效期设置
+     *
+     * @param userId 用户
+     * @param field  幂等字段
+     * @param score  正为加活跃，负为减活跃
+     * @return true 表示活跃度有变更
+     */
+    public boolean scoreNow(Long userId, String field, int score) {
+        String day = DateUtil.format(DateTimeFormatter.ofPattern("yyyyMMdd"), System.currentTimeMillis());
+        String userActionKey = ACTIVITY_SCORE_KEY + userId + day;
+        try {
+            Long changed = RedisClient.evalSha(ACTIVITY_SCORE_SCRIPT,
+                    Arrays.asList(userActionKey, todayRankKey(), monthRankKey(), ALL_RANK_KEY, WEEK_RANK_KEY, THIRTY_DAYS_RANK_KEY),
+                    field, score, userId,
+                    31 * DateUtil.ONE_DAY_SECONDS, 31 * DateUtil.ONE_DAY_SECONDS, 12 * DateUtil.ONE_MONTH_SECONDS);
+            if (log.isDebugEnabled()) {
+                log.debug("活跃度更新! user#field = {}#{}, add = {}, changed = {}", userId, field, score, changed);
+            }
+            return changed != null && changed > 0;
+        } catch (Exception e) {
+            log.error("活跃度更新失败! user#field = {}#{}, add = {}", userId, field, score, e);
+            return false;
+        }
+    }
+
+    private void scheduleSnapshotRefresh() {
+        long jitter = (long) (snapshotRefreshInterval * 0.2 * ThreadLocalRandom.current().nextDouble());
+        snapshotRefresher.schedule(() -> {
+            try {
+                refreshSnapshots();
+            } finally {
+                scheduleSnapshotRefresh();
+            }
+        }, snapshotRefreshInterval + jitter, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 刷新所有榜单的快照
+     */
+    public void refreshSnapshots() {
+        for (ActivityRankTimeEnum time : ActivityRankTimeEnum.values()) {
+            try {
+                refreshSnapshot(time);
+            } catch (Exception e) {
+                // 刷新失败时继续使用旧快照
+                log.warn("活跃度榜单快照刷新失败: {}", time, e);
             }
         }
     }
 
+    /**
+     * 只在后台线程中执行；加锁避免定时刷新与冷启动时的异步刷新交错替换导致覆盖
+     */
+    private synchronized RankSnapshot refreshSnapshot(ActivityRankTimeEnum time) {
+        RankSnapshot snapshot = new RankSnapshot(loadRankList(time, snapshotSize));
+        Map<ActivityRankTimeEnum, RankSnapshot> copy = new EnumMap<>(ActivityRankTimeEnum.class);
+        copy.putAll(snapshots);
+        copy.put(time, snapshot);
+        snapshots = copy;
+        return snapshot;
+    }
+
     @Override
     public RankItemDTO queryRankInfo(Long userId, ActivityRankTimeEnum time) {
+        RankSnapshot snapshot = snapshots.get(time);
+        RankItemDTO cached = snapshot == null ? null : snapshot.byUser.get(userId);
+        if (cached != null) {
+            // 在前N名之内，直接使用快照中的数据
+            return copy(cached);
+        }
+
         RankItemDTO item = new RankItemDTO();
         item.setUser(userService.querySimpleUserInfo(userId));
 
-        String rankKey = time == ActivityRankTimeEnum.DAY ? todayRankKey() : monthRankKey();
-        ImmutablePair<Integer, Double> rank = RedisClient.zRankInfo(rankKey, String.valueOf(userId));
+        // zrevrank + zscore 一次往返
+        ImmutablePair<Integer, Double> rank = RedisClient.zRevRankInfo(rankKey(time), String.valueOf(userId));
         item.setRank(rank.getLeft());
-        item.setScore(rank.getRight().intValue());
+        item.setScore(rank.getRight() == null ? 0 : rank.getRight().intValue());
         return item;
     }
 
     @Override
     public List<RankItemDTO> queryRankList(ActivityRankTimeEnum time, int size) {
-        String rankKey = time == ActivityRankTimeEnum.DAY ? todayRankKey() : monthRankKey();
+        if (size > snapshotSize) {
+            return loadRankList(time, size);
+        }
+        RankSnapshot snapshot = snapshots.get(time);
+        if (snapshot == null) {
+            // 快照还未生成(刚启动、刷新失败)，交给后台线程生成，请求线程不等待db与redis
+            refreshAsync(time);
+            return Collections.emptyList();
+        }
+        // 快照中的对象是共享的，返回副本，避免调用方修改
+        return snapshot.items.stream().limit(size).map(UserActivityRankServiceImpl::copy).collect(Collectors.toList());
+    }
+
+    private void refreshAsync(ActivityRankTimeEnum time) {
+        if (!refreshing.add(time)) {
+            return;
+        }
+        try {
+            snapshotRefresher.execute(() -> {
+                try {
+                    refreshSnapshot(time);
+                } catch (Exception e) {
+                    log.warn("活跃度榜单快照刷新失败: {}", time, e);
+                } finally {
+                    refreshing.remove(time);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 应用关闭中
+            refreshing.remove(time);
+        }
+    }
+
+    private static RankItemDTO copy(RankItemDTO item) {
+        SimpleUserInfoDTO user = item.getUser();
+        return new RankItemDTO().setRank(item.getRank()).setScore(item.getScore())
+                .setUser(user == null ? null : new SimpleUserInfoDTO().setUserId(user.getUserId()).setName(user.getName())
+                        .setAvatar(user.getAvatar()).setProfile(user.getProfile()));
+    }
+
+    private List<RankItemDTO> loadRankList(ActivityRankTimeEnum time, int size) {
+        String rankKey = rankKey(time);
         // 1. 获取topN的活跃用户
         List<ImmutablePair<String, Double>> rankList = RedisClient.zTopNScore(rankKey, size);
+        if (CollectionUtils.isEmpty(rankList) && time.getType() > ActivityRankTimeEnum.MONTH.getType()) {
+            // 物化榜单还未生成(首次上线、redis数据丢失)，现场重建一次
+            if (time == ActivityRankTimeEnum.ALL) {
+                seedAllRank();
+            } else {
+                rebuildWindowRank(time);
+            }
+            rankList = RedisClient.zTopNScore(rankKey, size);
+        }
         if (CollectionUtils.isEmpty(rankList)) {
             return Collections.emptyList();
         }
@@ -184,6 +495,21 @@ public class UserActivityRankServiceImpl implements UserActivityRankService {
 
         // 4. 补齐每个用户的排名
         IntStream.range(0, rank.size()).forEach(i -> rank.get(i).setRank(i + 1));
-        return rank;
+        return Collections.unmodifiableList(rank);
+    }
+
+    /**
+     * 不可变的榜单快照，其中的对象不对外暴露，返回时复制
+     */
+    private static class RankSnapshot {
+        private final List<RankItemDTO> items;
+        private final Map<Long, RankItemDTO> byUser;
+
+        private RankSnapshot(List<RankItemDTO> items) {
+            this.items = items;
+            Map<Long, RankItemDTO> map = new HashMap<>(items.size() * 2);
+            items.forEach(item -> map.put(item.getUser().getUserId(), item));
+            this.byUser = Collections.unmodifiableMap(map);
+        }
     }
 }
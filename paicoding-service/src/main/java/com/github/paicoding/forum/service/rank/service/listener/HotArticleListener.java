@@ -0,0 +1,93 @@
+package com.github.paicoding.forum.service.rank.service.listener;
+
+import com.github.paicoding.forum.api.model.enums.ArticleEventEnum;
+import com.github.paicoding.forum.api.model.enums.DocumentTypeEnum;
+import com.github.paicoding.forum.api.model.event.ArticleMsgEvent;
+import com.github.paicoding.forum.api.model.vo.article.dto.ArticleDTO;
+import com.github.paicoding.forum.api.model.vo.notify.NotifyMsgEvent;
+import com.github.paicoding.forum.service.article.repository.entity.ArticleDO;
+import com.github.paicoding.forum.service.comment.repository.entity.CommentDO;
+import com.github.paicoding.forum.service.rank.service.HotArticleRankService;
+import com.github.paicoding.forum.service.user.repository.entity.UserFootDO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+/**
+ * 文章互动行为，更新文章热度；阅读数在计数服务中累加
+ *
+ * @author YiHui
+ * @date 2026/10/17
+ */
+@Component
+public class HotArticleListener {
+    @Autowired
+    private HotArticleRankService hotArticleRankService;
+
+    @EventListener(classes = NotifyMsgEvent.class)
+    public void notifyMsgListener(NotifyMsgEvent msgEvent) {
+        switch (msgEvent.getNotifyType()) {
+            case COMMENT:
+            case REPLY:
+                hotArticleRankService.addScore(((CommentDO) msgEvent.getContent()).getArticleId(), HotArticleRankService.COMMENT_SCORE);
+                break;
+            case DELETE_COMMENT:
+            case DELETE_REPLY:
+                CommentDO comment = (CommentDO) msgEvent.getContent();
+                hotArticleRankService.cancelScore(comment.getArticleId(), HotArticleRankService.COMMENT_SCORE, comment.getCreateTime());
+                break;
+            case PRAISE:
+                articleFoot((UserFootDO) msgEvent.getContent(), HotArticleRankService.PRAISE_SCORE);
+                break;
+            case CANCEL_PRAISE:
+                cancelArticleFoot((UserFootDO) msgEvent.getContent(), HotArticleRankService.PRAISE_SCORE);
+                break;
+            case COLLECT:
+                articleFoot((UserFootDO) msgEvent.getContent(), HotArticleRankService.COLLECT_SCORE);
+                break;
+            case CANCEL_COLLECT:
+                cancelArticleFoot((UserFootDO) msgEvent.getContent(), HotArticleRankService.COLLECT_SCORE);
+                break;
+            default:
+        }
+    }
+
+    /**
+     * 评论的点赞不计入文章热度
+     */
+    private void articleFoot(UserFootDO foot, double score) {
+        if (DocumentTypeEnum.ARTICLE.getCode().equals(foot.getDocumentType())) {
+            hotArticleRankService.addScore(foot.getDocumentId(), score);
+        }
+    }
+
+    /**
+     * 足迹中没有记录点赞、收藏的时间，按未知时间扣除
+     */
+    private void cancelArticleFoot(UserFootDO foot, double score) {
+        if (DocumentTypeEnum.ARTICLE.getCode().equals(foot.getDocumentType())) {
+            hotArticleRankService.cancelScore(foot.getDocumentId(), score, null);
+        }
+    }
+
+    /**
+     * 文章下线、删除，从热门排行中移除
+     *
+     * @param event
+     */
+    @Async
+    @EventListener(ArticleMsgEvent.class)
+    public void articleOfflineListener(ArticleMsgEvent<?> event) {
+        ArticleEventEnum type = event.getType();
+        if (type != ArticleEventEnum.OFFLINE && type != ArticleEventEnum.DELETE) {
+            return;
+        }
+        Object content = event.getContent();
+        if (content instanceof ArticleDO) {
+            hotArticleRankService.remove(((ArticleDO) content).getId(), ((ArticleDO) content).getUserId());
+        } else if (content instanceof ArticleDTO) {
+            hotArticleRankService.remove(((ArticleDTO) content).getArticleId(), ((ArticleDTO) content).getAuthor());
+        }
+    }
+}
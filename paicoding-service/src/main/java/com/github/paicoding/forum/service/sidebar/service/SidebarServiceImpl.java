@@ -14,9 +14,9 @@ import com.github.paicoding.forum.api.model.vo.recommend.SideBarDTO;
 import com.github.paicoding.forum.api.model.vo.recommend.SideBarItemDTO;
 import com.github.paicoding.forum.core.util.JsonUtil;
 import com.github.paicoding.forum.core.util.SpringUtil;
-import com.github.paicoding.forum.service.article.repository.dao.ArticleDao;
 import com.github.paicoding.forum.service.article.service.ArticleReadService;
 import com.github.paicoding.forum.service.config.service.ConfigService;
+import com.github.paicoding.forum.service.rank.service.HotArticleRankService;
 import com.github.paicoding.forum.service.rank.service.UserActivityRankService;
 import com.google.common.base.Splitter;
 import org.apache.commons.lang3.StringUtils;
@@ -43,7 +43,7 @@ public class SidebarServiceImpl implements SidebarService {
     private ConfigService configService;
 
     @Autowired
-    private ArticleDao articleDao;
+    private HotArticleRankService hotArticleRankService;
 
     /**
      * 使用caffeine本地缓存，来处理侧边栏不怎么变动的消息
@@ -187,7 +187,7 @@ public class SidebarServiceImpl implements SidebarService {
      * @return
      */
     public SideBarDTO recommendByAuthor(Long authorId, Long articleId, long size) {
-        List<SimpleArticleDTO> list = articleDao.listAuthorHotArticles(authorId, PageParam.newPageInstance(PageParam.DEFAULT_PAGE_NUM, size));
+        List<SimpleArticleDTO> list = hotArticleRankService.queryAuthorHotArticles(authorId, PageParam.newPageInstance(PageParam.DEFAULT_PAGE_NUM, size));
         List<SideBarItemDTO> items = list.stream().filter(s -> !s.getId().equals(articleId))
                 .map(s -> new SideBarItemDTO()
                         .setTitle(s.getTitle()).setUrl("/article/detail/" + s.getId())
@@ -12,6 +12,34 @@ import java.time.format.DateTimeFormatter;
 public class SitemapConstants {
     public static final String SITE_VISIT_KEY = "visit_info";
 
+    /**
+     * 站点uv，HyperLogLog 结构
+     */
+    public static final String SITE_UV_KEY = "visit_uv";
+
+    /**
+     * 每日访问量最高的路径，zset结构
+     */
+    public static final String SITE_PATH_RANK_KEY = "visit_path_rank_";
+
+    /**
+     * uv对应的HyperLogLog key
+     *
+     * @param day  为空时表示全站
+     * @param path 为空时表示站点
+     * @return
+     */
+    public static String uvKey(String day, String path) {
+        StringBuilder key = new StringBuilder(SITE_UV_KEY);
+        if (day != null) {
+            key.append("_").append(day);
+        }
+        if (path != null) {
+            key.append("_path_").append(path);
+        }
+        return key.toString();
+    }
+
     public static String day(LocalDate day) {
         return DateTimeFormatter.ofPattern("yyyyMMdd").format(day);
     }
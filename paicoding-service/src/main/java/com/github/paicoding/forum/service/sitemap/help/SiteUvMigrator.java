@@ -0,0 +1,151 @@
+package com.github.paicoding.forum.service.sitemap.help;
+
+import com.github.paicoding.forum.core.async.AsyncUtil;
+import com.github.paicoding.forum.core.cache.RedisClient;
+import com.github.paicoding.forum.service.sitemap.constants.SitemapConstants;
+import com.google.common.net.InetAddresses;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 将之前按ip记录的访问明细导入 uv 的 HyperLogLog，只执行一次
+ * <p>
+ * - visit_info_ip hash: pv / pv_path 字段 -> 全站、资源路径的 uv
+ * - visit_info_天 hash: pv_ip / pv_path_ip 字段 -> 当天站点、资源路径的 uv；只处理已经有 HyperLogLog 的日期(即上线当天)，
+ * 更早的日期查询时直接使用 hash 中的 uv 字段
+ * <p>
+ * 资源路径、每日的 HyperLogLog 与 SiteVisitBuffer 中一样设置有效期
+ * <p>
+ * pfAdd 可以重复执行，迁移失败时清除标记，下次启动重新迁移
+ *
+ * @author YiHui
+ * @date 2026/10/17
+ */
+@Slf4j
+@Component
+public class SiteUvMigrator {
+    private static final String MIGRATED_KEY = "visit_uv_migrated";
+
+    private static final String LEGACY_PREFIX = SitemapConstants.SITE_VISIT_KEY + "_";
+
+    private static final int BATCH_SIZE = 200;
+
+    @PostConstruct
+    public void init() {
+        AsyncUtil.execute(this::migrate);
+    }
+
+    public void migrate() {
+        try {
+            if (!Boolean.TRUE.equals(RedisClient.setStrIfAbsent(MIGRATED_KEY, String.valueOf(System.currentTimeMillis())))) {
+                return;
+            }
+        } catch (Exception e) {
+            log.warn("failed to check site uv migration!", e);
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        AtomicInteger keys = new AtomicInteger();
+        try {
+            RedisClient.scan(LEGACY_PREFIX + "*", BATCH_SIZE, batch -> {
+                migrateBatch(batch);
+                keys.addAndGet(batch.size());
+            });
+            log.info("site uv migrated to HyperLogLog, keys={}, cost={}ms", keys.get(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("failed to migrate site uv, will retry on next start! keys={}", keys.get(), e);
+            RedisClient.del(MIGRATED_KEY);
+        }
+    }
+
+    private void migrateBatch(List<String> keys) {
+        List<String> ipKeys = new ArrayList<>();
+        List<String> dayKeys = new ArrayList<>();
+        for (String key : keys) {
+            String suffix = key.substring(LEGACY_PREFIX.length());
+            if (isDay(suffix)) {
+                dayKeys.add(key);
+            } else if (InetAddresses.isInetAddress(suffix)) {
+                ipKeys.add(key);
+            }
+        }
+
+        // key: uv 的 HyperLogLog, value: 访问过的ip
+        Map<String, Set<String>> uvs = new HashMap<>();
+        // 与 SiteVisitBuffer 中一样设置有效期，key: uv 的 HyperLogLog, value: 有效期
+        Map<String, Long> expires = new HashMap<>();
+        List<Map<String, String>> ipRecords = RedisClient.pipelineHGetAll(ipKeys, String.class);
+        for (int i = 0; i < ipKeys.size(); i++) {
+            String ip = ipKeys.get(i).substring(LEGACY_PREFIX.length());
+            for (String field : ipRecords.get(i).keySet()) {
+                if ("pv".equals(field)) {
+                    add(uvs, SitemapConstants.uvKey(null, null), ip);
+                } else if (field.startsWith("pv_")) {
+                    String key = SitemapConstants.uvKey(null, field.substring(3));
+                    add(uvs, key, ip);
+                    expires.put(key, SiteVisitBuffer.DAY_PATH_EXPIRE);
+                }
+            }
+        }
+
+        for (String dayKey : dayKeys) {
+            String day = dayKey.substring(LEGACY_PREFIX.length());
+            Long exists = RedisClient.pfCount(SitemapConstants.uvKey(day, null));
+            if (exists == null || exists == 0) {
+                continue;
+            }
+            for (String field : RedisClient.hGetAll(dayKey, String.class).keySet()) {
+                if (!field.startsWith("pv_")) {
+                    continue;
+                }
+                String value = field.substring(3);
+                if (InetAddresses.isInetAddress(value)) {
+                    String key = SitemapConstants.uvKey(day, null);
+                    add(uvs, key, value);
+                    expires.put(key, SiteVisitBuffer.DAY_EXPIRE);
+                    continue;
+                }
+                // pv_path_ip；pv_path 为资源的pv，跳过
+                int index = value.lastIndexOf('_');
+                if (index > 0 && InetAddresses.isInetAddress(value.substring(index + 1))) {
+                    String key = SitemapConstants.uvKey(day, value.substring(0, index));
+                    add(uvs, key, value.substring(index + 1));
+                    expires.put(key, SiteVisitBuffer.DAY_PATH_EXPIRE);
+                }
+            }
+        }
+
+        if (uvs.isEmpty()) {
+            return;
+        }
+        RedisClient.PipelineAction action = RedisClient.pipelineAction();
+        uvs.forEach((key, ips) -> {
+            byte[][] values = ips.stream().map(RedisClient::valBytes).toArray(byte[][]::new);
+            action.add(key, (connection, k) -> connection.pfAdd(k, values));
+            Long expire = expires.get(key);
+            if (expire != null) {
+                action.add(key, (connection, k) -> connection.expire(k, expire));
+            }
+        });
+        action.execute();
+    }
+
+    private static void add(Map<String, Set<String>> uvs, String key, String ip) {
+        uvs.computeIfAbsent(key, k -> new HashSet<>()).add(ip);
+    }
+
+    private static boolean isDay(String str) {
+        return str.length() == 8 && StringUtils.isNumeric(str);
+    }
+}
@@ -0,0 +1,265 @@
+package com.github.paicoding.forum.service.sitemap.help;
+
+import com.github.paicoding.forum.core.async.AsyncUtil;
+import com.github.paicoding.forum.core.cache.RedisClient;
+import com.github.paicoding.forum.core.util.BufferUtil;
+import com.github.paicoding.forum.service.sitemap.constants.SitemapConstants;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 站点访问信息的本地聚合缓冲
+ * <p>
+ * 1. 请求线程只在内存中累加 pv、记录访问ip，不访问 redis
+ * 2. 定时 or 累计一定访问量之后，批量写回：
+ * - pv: hIncrBy 到 visit_info / visit_info_天 两个hash中，field 与之前保持一致
+ * - 每日访问量 top-K 的路径: 以当天hash中路径的累计pv作为分数写入之后裁剪，只保留前K个；掉出排行的路径再次进入时分数不会丢失
+ * - uv: pfAdd 到全站、每日、资源路径对应的 HyperLogLog 中，不再按ip记录访问明细；
+ * 资源路径的uv只记录当天排行中的路径，并设置有效期，避免爬虫、404 等路径产生无限多的key
+ *
+ * @author YiHui
+ * @date 2026/10/17
+ */
+@Slf4j
+@Component
+public class SiteVisitBuffer {
+    /**
+     * 资源路径的uv、访问排行保留的时间；全站的资源路径uv每次写入时续期，持续不在排行中的路径自动过期
+     */
+    static final long DAY_PATH_EXPIRE = TimeUnit.DAYS.toSeconds(30);
+
+    /**
+     * 每日站点uv保留的时间
+     */
+    static final long DAY_EXPIRE = TimeUnit.DAYS.toSeconds(400);
+
+    /**
+     * 写入路径pv并更新当天的访问排行，返回仍在排行中的路径
+     * <p>
+     * KEYS: visit_info, visit_info_天, 当天排行; ARGV: topK, 有效期, 路径1, pv1, 路径2, pv2 ...
+     * 返回排行中的路径序号(从0开始)
+     */
+    private static final RedisScript<List> PATH_RANK_SCRIPT = RedisScript.of(
+            "local n = (#ARGV - 2) / 2 "
+                    + "for i = 1, n do "
+                    + "  local path, cnt = ARGV[2 * i + 1], ARGV[2 * i + 2] "
+                    + "  redis.call('hincrby', KEYS[1], 'pv_' .. path, cnt) "
+                    + "  redis.call('zadd', KEYS[3], redis.call('hincrby', KEYS[2], 'pv_' .. path, cnt), path) "
+                    + "end "
+                    + "redis.call('zremrangebyrank', KEYS[3], 0, -tonumber(ARGV[1]) - 1) "
+                    + "redis.call('expire', KEYS[3], ARGV[2]) "
+                    + "local ans = {} "
+                    + "for i = 1, n do "
+                    + "  if redis.call('zscore', KEYS[3], ARGV[2 * i + 1]) then ans[#ans + 1] = i - 1 end "
+                    + "end "
+                    + "return ans", List.class);
+
+    /**
+     * key: 日期
+     */
+    private final Map<String, DayVisit> days = new ConcurrentHashMap<>();
+
+    private final AtomicLong pending = new AtomicLong();
+
+    private final AtomicBoolean flushing = new AtomicBoolean(false);
+
+    private final Timer flushTimer;
+
+    @Value("${paicoding.site-visit.flush-threshold:1000}")
+    private long flushThreshold;
+
+    @Value("${paicoding.site-visit.top-k:100}")
+    private int topK;
+
+    public SiteVisitBuffer(MeterRegistry meterRegistry) {
+        this.flushTimer = Timer.builder("paicoding.site.visit.flush").description("站点访问计数写回耗时").register(meterRegistry);
+        Gauge.builder("paicoding.site.visit.pending", pending, AtomicLong::get).description("待写回的访问次数").register(meterRegistry);
+    }
+
+    /**
+     * 记录一次访问
+     *
+     * @param visitIp 访问者ip
+     * @param path    访问的资源路径
+     */
+    public void record(String visitIp, String path) {
+        DayVisit visit = days.computeIfAbsent(SitemapConstants.day(LocalDate.now()), DayVisit::new);
+        visit.pv.increment();
+        visit.pathPv.computeIfAbsent(path, k -> new LongAdder()).increment();
+        if (visitIp != null) {
+            visit.ips.add(visitIp);
+            visit.pathIps.computeIfAbsent(path, k -> ConcurrentHashMap.newKeySet()).add(visitIp);
+        }
+        if (pending.incrementAndGet() >= flushThreshold && !flushing.get()) {
+            AsyncUtil.execute(this::flush);
+        }
+    }
+
+    /**
+     * 尚未写回的pv，用于查询时补偿
+     *
+     * @param day  为空时表示全站
+     * @param path 为空时表示站点
+     * @return
+     */
+    public long pendingPv(String day, String path) {
+        long total = 0;
+        for (DayVisit visit : days.values()) {
+            if (day != null && !day.equals(visit.day)) {
+                continue;
+            }
+            if (path == null) {
+                total += visit.pv.sum();
+            } else {
+                LongAdder adder = visit.pathPv.get(path);
+                total += adder == null ? 0 : adder.sum();
+            }
+        }
+        return total;
+    }
+
+    @Scheduled(fixedDelayString = "${paicoding.site-visit.flush-interval:5000}")
+    public void autoFlush() {
+        flush();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        log.info("site visit buffer flushed on shutdown");
+    }
+
+    public void flush() {
+        if (!flushing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            flushTimer.record(this::doFlush);
+        } finally {
+            flushing.set(false);
+        }
+    }
+
+    private void doFlush() {
+        String today = SitemapConstants.day(LocalDate.now());
+        for (DayVisit visit : new ArrayList<>(days.values())) {
+            if (!visit.day.equals(today)) {
+                // 已经过去的一天不会再有新的访问，移除之后写回最后一次
+                days.remove(visit.day, visit);
+            }
+            flushDay(visit);
+        }
+    }
+
+    private void flushDay(DayVisit visit) {
+        long pv = visit.pv.sum();
+        visit.pv.add(-pv);
+        Map<String, Long> pathPv = BufferUtil.drain(visit.pathPv);
+        List<String> ips = BufferUtil.drain(visit.ips);
+        Map<String, List<String>> pathIps = new HashMap<>(visit.pathIps.size());
+        visit.pathIps.forEach((path, set) -> {
+            List<String> list = BufferUtil.drain(set);
+            if (list.isEmpty()) {
+                visit.pathIps.remove(path, set);
+            } else {
+                pathIps.put(path, list);
+            }
+        });
+        if (pv == 0 && ips.isEmpty()) {
+            return;
+        }
+
+        pending.addAndGet(-pv);
+        String globalKey = SitemapConstants.SITE_VISIT_KEY;
+        String dayKey = globalKey + "_" + visit.day;
+        String rankKey = SitemapConstants.SITE_PATH_RANK_KEY + visit.day;
+        try {
+            // 路径pv与排行；只有并发写入的uv、没有pv的路径以0写入，用于判断是否在排行中
+            List<String> paths = new ArrayList<>(pathPv.keySet());
+            pathIps.keySet().stream().filter(path -> !pathPv.containsKey(path)).forEach(paths::add);
+            Set<String> ranked = new HashSet<>();
+            if (!paths.isEmpty()) {
+                List<Object> args = new ArrayList<>(paths.size() * 2 + 2);
+                args.add(topK);
+                args.add(DAY_PATH_EXPIRE);
+                paths.forEach(path -> {
+                    args.add(path);
+                    args.add(pathPv.getOrDefault(path, 0L));
+                });
+                List<?> index = RedisClient.evalSha(PATH_RANK_SCRIPT, Arrays.asList(globalKey, dayKey, rankKey), args.toArray());
+                if (index != null) {
+                    index.forEach(i -> ranked.add(paths.get(((Number) i).intValue())));
+                }
+            }
+
+            RedisClient.PipelineAction action = RedisClient.pipelineAction();
+            // 站点pv
+            action.add(globalKey, "pv", (connection, key, field) -> connection.hIncrBy(key, field, pv));
+            action.add(dayKey, "pv", (connection, key, field) -> connection.hIncrBy(key, field, pv));
+
+            // uv
+            if (!ips.isEmpty()) {
+                byte[][] values = toBytes(ips);
+                action.add(SitemapConstants.uvKey(null, null), (connection, key) -> connection.pfAdd(key, values));
+                String dayUvKey = SitemapConstants.uvKey(visit.day, null);
+                action.add(dayUvKey, (connection, key) -> connection.pfAdd(key, values));
+                action.add(dayUvKey, (connection, key) -> connection.expire(key, DAY_EXPIRE));
+            }
+            pathIps.forEach((path, list) -> {
+                if (!ranked.contains(path)) {
+                    return;
+                }
+                byte[][] values = toBytes(list);
+                for (String pathKey : Arrays.asList(SitemapConstants.uvKey(null, path), SitemapConstants.uvKey(visit.day, path))) {
+                    action.add(pathKey, (connection, key) -> connection.pfAdd(key, values));
+                    action.add(pathKey, (connection, key) -> connection.expire(key, DAY_PATH_EXPIRE));
+                }
+            });
+            action.execute();
+        } catch (Exception e) {
+            // 站点访问计数允许少量误差，写回失败时只记录日志
+            log.error("failed to flush site visit info! day={}, pv={}", visit.day, pv, e);
+        }
+    }
+
+    private byte[][] toBytes(List<String> list) {
+        byte[][] values = new byte[list.size()][];
+        for (int i = 0; i < list.size(); i++) {
+            values[i] = RedisClient.valBytes(list.get(i));
+        }
+        return values;
+    }
+
+    private static class DayVisit {
+        private final String day;
+        private final LongAdder pv = new LongAdder();
+        private final Map<String, LongAdder> pathPv = new ConcurrentHashMap<>();
+        private final Set<String> ips = ConcurrentHashMap.newKeySet();
+        private final Map<String, Set<String>> pathIps = new ConcurrentHashMap<>();
+
+        private DayVisit(String day) {
+            this.day = day;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.github.paicoding.forum.service.sitemap.model.SiteCntVo;
 import com.github.paicoding.forum.service.sitemap.model.SiteMapVo;
 
 import java.time.LocalDate;
+import java.util.List;
 
 /**
  * 站点统计相关服务：
@@ -44,4 +45,13 @@ public interface SitemapService {
      * @return
      */
     SiteCntVo querySiteVisitInfo(LocalDate date, String path);
+
+    /**
+     * 查询某一天访问量最高的路径
+     *
+     * @param date 日期
+     * @param size 返回的数量
+     * @return 按pv倒序
+     */
+    List<SiteCntVo> queryHotPaths(LocalDate date, int size);
 }
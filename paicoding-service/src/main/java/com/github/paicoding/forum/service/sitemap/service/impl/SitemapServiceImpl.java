@@ -1,6 +1,8 @@
 package com.github.paicoding.forum.service.sitemap.service.impl;
 
 import com.baomidou.mybatisplus.core.toolkit.CollectionUtils;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.paicoding.forum.api.model.enums.ArticleEventEnum;
 import com.github.paicoding.forum.api.model.event.ArticleMsgEvent;
 import com.github.paicoding.forum.api.model.vo.article.dto.SimpleArticleDTO;
@@ -9,6 +11,7 @@ import com.github.paicoding.forum.core.util.DateUtil;
 import com.github.paicoding.forum.service.article.repository.dao.ArticleDao;
 import com.github.paicoding.forum.service.article.repository.entity.ArticleDO;
 import com.github.paicoding.forum.service.sitemap.constants.SitemapConstants;
+import com.github.paicoding.forum.service.sitemap.help.SiteVisitBuffer;
 import com.github.paicoding.forum.service.sitemap.model.SiteCntVo;
 import com.github.paicoding.forum.service.sitemap.model.SiteMapVo;
 import com.github.paicoding.forum.service.sitemap.model.SiteUrlVo;
@@ -25,6 +28,8 @@ import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -44,6 +49,16 @@ public class SitemapServiceImpl implements SitemapService {
     private ArticleDao articleDao;
     @Resource
     private CountService countService;
+    @Resource
+    private SiteVisitBuffer siteVisitBuffer;
+
+    /**
+     * 站点访问信息每个页面都会查询，本地缓存几秒，计数本身也是定时写回的，短暂的延迟可以接受
+     */
+    private final Cache<String, SiteCntVo> visitInfoCache = Caffeine.newBuilder()
+            .maximumSize(1000)
+            .expireAfterWrite(3, TimeUnit.SECONDS)
+            .build();
 
     /**
      * 查询站点地图
@@ -154,88 +169,26 @@ public class SitemapServiceImpl implements SitemapService {
 
 
     /**
-     * 保存站点数据模型
+     * 保存站点访问信息，先在本地聚合，由 SiteVisitBuffer 批量写回
      * <p>
-     * 站点统计hash：
-     * - visit_info:
+     * 站点统计：
+     * - visit_info hash:
      * ---- pv: 站点的总pv
-     * ---- uv: 站点的总uv
      * ---- pv_path: 站点某个资源的总访问pv
-     * ---- uv_path: 站点某个资源的总访问uv
-     * - visit_info_ip:
-     * ---- pv: 用户访问的站点总次数
-     * ---- path_pv: 用户访问的路径总次数
-     * - visit_info_20230822每日记录, 一天一条记录
-     * ---- pv: 12  # field = 月日_pv, pv的计数
-     * ---- uv: 5   # field = 月日_uv, uv的计数
-     * ---- pv_path: 2 # 资源的当前访问计数
-     * ---- uv_path: # 资源的当天访问uv
-     * ---- pv_ip: # 用户当天的访问次数
-     * ---- pv_path_ip: # 用户对资源的当天访问次数
+     * - visit_info_20230822 hash, 每日一条记录:
+     * ---- pv: 当天的pv
+     * ---- pv_path: 资源的当天访问pv
+     * - visit_uv / visit_uv_20230822 / visit_uv_path_xxx / visit_uv_20230822_path_xxx: 对应的uv，HyperLogLog
+     * - visit_path_rank_20230822: 当天访问量 top-K 的路径
+     * 说明：之前hash中的 uv / uv_path 字段不再更新，历史的按ip访问记录由 SiteUvMigrator 导入 HyperLogLog；
+     * 没有 HyperLogLog 的历史日期，查询时仍使用hash中的uv
      *
      * @param visitIp 访问者ip
      * @param path    访问的资源路径
      */
     @Override
     public void saveVisitInfo(String visitIp, String path) {
-        String globalKey = SitemapConstants.SITE_VISIT_KEY;
-        String day = SitemapConstants.day(LocalDate.now());
-
-        String todayKey = globalKey + "_" + day;
-
-        // 用户的全局访问计数+1
-        Long globalUserVisitCnt = RedisClient.hIncr(globalKey + "_" + visitIp, "pv", 1);
-        // 用户的当日访问计数+1
-        Long todayUserVisitCnt = RedisClient.hIncr(todayKey, "pv_" + visitIp, 1);
-
-        RedisClient.PipelineAction pipelineAction = RedisClient.pipelineAction();
-        if (globalUserVisitCnt == 1) {
-            // 站点新用户
-            // 今日的uv + 1
-            pipelineAction.add(todayKey, "uv"
-                    , (connection, key, field) -> {
-                        connection.hIncrBy(key, field, 1);
-                    });
-            pipelineAction.add(todayKey, "uv_" + path
-                    , (connection, key, field) -> connection.hIncrBy(key, field, 1));
-
-            // 全局站点的uv
-            pipelineAction.add(globalKey, "uv", (connection, key, field) -> connection.hIncrBy(key, field, 1));
-            pipelineAction.add(globalKey, "uv_" + path, (connection, key, field) -> connection.hIncrBy(key, field, 1));
-        } else if (todayUserVisitCnt == 1) {
-            // 判断是今天的首次访问，更新今天的uv+1
-            pipelineAction.add(todayKey, "uv", (connection, key, field) -> connection.hIncrBy(key, field, 1));
-            if (RedisClient.hIncr(todayKey, "pv_" + path + "_" + visitIp, 1) == 1) {
-                // 判断是否为今天首次访问这个资源，若是，则uv+1
-                pipelineAction.add(todayKey, "uv_" + path, (connection, key, field) -> connection.hIncrBy(key, field, 1));
-            }
-
-            // 判断是否是用户的首次访问这个path，若是，则全局的path uv计数需要+1
-            if (RedisClient.hIncr(globalKey + "_" + visitIp, "pv_" + path, 1) == 1) {
-                pipelineAction.add(globalKey, "uv_" + path, (connection, key, field) -> connection.hIncrBy(key, field, 1));
-            }
-        }
-
-
-        // 更新pv 以及 用户的path访问信息
-        // 今天的相关信息 pv
-        pipelineAction.add(todayKey, "pv", (connection, key, field) -> connection.hIncrBy(key, field, 1));
-        pipelineAction.add(todayKey, "pv_" + path, (connection, key, field) -> connection.hIncrBy(key, field, 1));
-        if (todayUserVisitCnt > 1) {
-            // 非当天首次访问，则pv+1; 因为首次访问时，在前面更新uv时，已经计数+1了
-            pipelineAction.add(todayKey, "pv_" + path + "_" + visitIp, (connection, key, field) -> connection.hIncrBy(key, field, 1));
-        }
-
-
-        // 全局的 PV
-        pipelineAction.add(globalKey, "pv", (connection, key, field) -> connection.hIncrBy(key, field, 1));
-        pipelineAction.add(globalKey, "pv" + "_" + path, (connection, key, field) -> connection.hIncrBy(key, field, 1));
-
-        // 保存访问信息
-        pipelineAction.execute();
-        if (log.isDebugEnabled()) {
-            log.info("用户访问信息更新完成! 当前用户总访问: {}，今日访问: {}", globalUserVisitCnt, todayUserVisitCnt);
-        }
+        siteVisitBuffer.record(visitIp, path);
     }
 
     /**
@@ -247,13 +200,19 @@ public class SitemapServiceImpl implements SitemapService {
      */
     @Override
     public SiteCntVo querySiteVisitInfo(LocalDate date, String path) {
-        String globalKey = SitemapConstants.SITE_VISIT_KEY;
-        String day = null, todayKey = globalKey;
-        if (date != null) {
-            day = SitemapConstants.day(date);
-            todayKey = globalKey + "_" + day;
-        }
+        String day = date == null ? null : SitemapConstants.day(date);
+        SiteCntVo cache = visitInfoCache.get(day + "|" + path, k -> loadSiteVisitInfo(day, path));
+        // 返回副本，避免缓存被修改
+        SiteCntVo siteInfo = new SiteCntVo();
+        siteInfo.setDay(cache.getDay());
+        siteInfo.setPath(cache.getPath());
+        siteInfo.setPv(cache.getPv());
+        siteInfo.setUv(cache.getUv());
+        return siteInfo;
+    }
 
+    private SiteCntVo loadSiteVisitInfo(String day, String path) {
+        String todayKey = day == null ? SitemapConstants.SITE_VISIT_KEY : SitemapConstants.SITE_VISIT_KEY + "_" + day;
         String pvField = "pv", uvField = "uv";
         if (path != null) {
             // 表示查询对应路径的访问信息
@@ -262,10 +221,33 @@ public class SitemapServiceImpl implements SitemapService {
         }
 
         Map<String, Integer> map = RedisClient.hMGet(todayKey, Arrays.asList(pvField, uvField), Integer.class);
+        Long uv = RedisClient.pfCount(SitemapConstants.uvKey(day, path));
         SiteCntVo siteInfo = new SiteCntVo();
         siteInfo.setDay(day);
-        siteInfo.setPv(map.getOrDefault(pvField, 0));
-        siteInfo.setUv(map.getOrDefault(uvField, 0));
+        siteInfo.setPath(path);
+        // 加上本地还未写回的pv
+        siteInfo.setPv((int) (Optional.ofNullable(map.get(pvField)).orElse(0) + siteVisitBuffer.pendingPv(day, path)));
+        // 两个基数不能相加，HyperLogLog 已包含迁移过来的历史访问；只有迁移之前的日期才使用hash中的uv
+        siteInfo.setUv(uv != null && uv > 0 ? uv.intValue() : Optional.ofNullable(map.get(uvField)).orElse(0));
         return siteInfo;
     }
+
+    /**
+     * 查询某一天访问量最高的路径
+     *
+     * @param date
+     * @param size
+     * @return
+     */
+    @Override
+    public List<SiteCntVo> queryHotPaths(LocalDate date, int size) {
+        String day = SitemapConstants.day(date);
+        return RedisClient.zTopNScore(SitemapConstants.SITE_PATH_RANK_KEY + day, size).stream().map(s -> {
+            SiteCntVo vo = new SiteCntVo();
+            vo.setDay(day);
+            vo.setPath(s.getLeft());
+            vo.setPv(s.getRight().intValue());
+            return vo;
+        }).collect(Collectors.toList());
+    }
 }
@@ -16,6 +16,18 @@ public interface CountConstants {
      * 文章相关统计信息
      */
     String ARTICLE_STATISTIC_INFO = "article_statistic_";
+    /**
+     * 评论点赞数，按评论id分段的hash结构：comment_praise_count_{评论id / 分段大小}，field为评论id
+     */
+    String COMMENT_PRAISE_COUNT = "comment_praise_count_";
+    /**
+     * 评论点赞数每个hash包含的评论id范围
+     */
+    int COMMENT_PRAISE_SEGMENT = 1000;
+    /**
+     * 评论点赞数hash的有效期，单位秒；按需加载时刷新，长时间没有访问的分段自动过期
+     */
+    long COMMENT_PRAISE_EXPIRE = 3 * 24 * 3600L;
     /**
      * 关注数
      */
@@ -50,4 +62,14 @@ public interface CountConstants {
      * 评论数
      */
     String COMMENT_COUNT = "commentCount";
+
+    /**
+     * 评论点赞数所在的hash
+     *
+     * @param commentId
+     * @return
+     */
+    static String commentPraiseKey(Long commentId) {
+        return COMMENT_PRAISE_COUNT + (commentId / COMMENT_PRAISE_SEGMENT);
+    }
 }
@@ -0,0 +1,138 @@
+package com.github.paicoding.forum.service.statistics.help;
+
+import com.github.paicoding.forum.core.async.AsyncUtil;
+import com.github.paicoding.forum.core.cache.RedisClient;
+import com.github.paicoding.forum.core.util.BufferUtil;
+import com.github.paicoding.forum.service.article.repository.dao.ArticleDao;
+import com.github.paicoding.forum.service.statistics.constants.CountConstants;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 文章阅读计数的写回缓冲（write-behind）
+ * <p>
+ * 1. 请求线程只对内存中的 LongAdder 累加，不访问 db / redis
+ * 2. 每隔 flush-interval 毫秒，或累计 flush-threshold 次阅读之后，统一写回：
+ * - db: 一条 insert ... on duplicate key update cnt = cnt + values(cnt) 批量累加
+ * - redis: 一次管道执行所有文章、作者的 hIncrBy
+ * 3. 应用关闭时再写回一次，避免内存中的增量丢失
+ *
+ * @author YiHui
+ * @date 2026/10/16
+ */
+@Slf4j
+@Component
+public class ReadCountBuffer {
+    /**
+     * 文章维度的待写回增量
+     */
+    private final Map<Long, LongAdder> articleDeltas = new ConcurrentHashMap<>();
+    /**
+     * 作者维度的待写回增量，对应用户统计信息中的总阅读数
+     */
+    private final Map<Long, LongAdder> authorDeltas = new ConcurrentHashMap<>();
+    /**
+     * 尚未写回的阅读次数
+     */
+    private final AtomicLong pending = new AtomicLong();
+
+    private final AtomicBoolean flushing = new AtomicBoolean(false);
+
+    private final ArticleDao articleDao;
+
+    private final Timer flushTimer;
+
+    @Value("${paicoding.read-count.flush-threshold:500}")
+    private long flushThreshold;
+
+    public ReadCountBuffer(ArticleDao articleDao, MeterRegistry meterRegistry) {
+        this.articleDao = articleDao;
+        this.flushTimer = Timer.builder("paicoding.read.count.flush").description("阅读计数写回耗时").register(meterRegistry);
+        Gauge.builder("paicoding.read.count.pending", pending, AtomicLong::get).description("待写回的阅读次数").register(meterRegistry);
+        Gauge.builder("paicoding.read.count.pending.articles", articleDeltas, Map::size).description("待写回的文章数").register(meterRegistry);
+    }
+
+    /**
+     * 阅读计数 +1
+     *
+     * @param authorUserId 作者
+     * @param articleId    文章
+     */
+    public void incr(Long authorUserId, Long articleId) {
+        articleDeltas.computeIfAbsent(articleId, k -> new LongAdder()).increment();
+        authorDeltas.computeIfAbsent(authorUserId, k -> new LongAdder()).increment();
+        if (pending.incrementAndGet() >= flushThreshold && !flushing.get()) {
+            AsyncUtil.execute(this::flush);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${paicoding.read-count.flush-interval:5000}")
+    public void autoFlush() {
+        flush();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        log.info("read count buffer flushed on shutdown");
+    }
+
+    /**
+     * 写回缓冲中的增量，同一时刻只有一个线程执行
+     */
+    public void flush() {
+        if (!flushing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            flushTimer.record(this::doFlush);
+        } finally {
+            flushing.set(false);
+        }
+    }
+
+    private void doFlush() {
+        Map<Long, Long> articles = BufferUtil.drain(articleDeltas);
+        Map<Long, Long> authors = BufferUtil.drain(authorDeltas);
+        if (articles.isEmpty()) {
+            return;
+        }
+
+        long total = articles.values().stream().mapToLong(Long::longValue).sum();
+        pending.addAndGet(-total);
+        try {
+            articleDao.batchIncrReadCount(articles);
+        } catch (Exception e) {
+            // db写回失败，将增量放回缓冲，等待下一次写回
+            log.error("failed to flush read count to db, will retry next round! articles={}", articles.size(), e);
+            BufferUtil.restore(articleDeltas, articles);
+            BufferUtil.restore(authorDeltas, authors);
+            pending.addAndGet(total);
+            return;
+        }
+
+        try {
+            RedisClient.PipelineAction action = RedisClient.pipelineAction();
+            articles.forEach((articleId, cnt) -> action.add(CountConstants.ARTICLE_STATISTIC_INFO + articleId, CountConstants.READ_COUNT,
+                    (connection, key, field) -> connection.hIncrBy(key, field, cnt)));
+            authors.forEach((userId, cnt) -> action.add(CountConstants.USER_STATISTIC_INFO + userId, CountConstants.READ_COUNT,
+                    (connection, key, field) -> connection.hIncrBy(key, field, cnt)));
+            action.execute();
+        } catch (Exception e) {
+            // redis中的计数会由每日的定时任务基于db重新刷新，这里只记录日志
+            log.error("failed to flush read count to redis! articles={}", articles.size(), e);
+        }
+    }
+}
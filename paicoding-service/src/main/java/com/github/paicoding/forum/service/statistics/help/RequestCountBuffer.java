@@ -0,0 +1,122 @@
+package com.github.paicoding.forum.service.statistics.help;
+
+import com.github.paicoding.forum.core.util.BufferUtil;
+import com.github.paicoding.forum.service.statistics.repository.dao.RequestCountDao;
+import com.google.common.collect.Iterables;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 请求计数的写回缓冲
+ * <p>
+ * 1. 请求线程只按 (日期, host) 在内存中累加，不访问 db
+ * 2. 每隔 flush-interval 毫秒，按天批量 insert ... on duplicate key update cnt = cnt + values(cnt) 写回；
+ * 依赖 (date, host) 唯一索引，也顺带解决了0点并发插入同一条记录的问题
+ * 3. 应用关闭时再写回一次
+ *
+ * @author YiHui
+ * @date 2026/10/17
+ */
+@Slf4j
+@Component
+public class RequestCountBuffer {
+    /**
+     * 单条sql写入的最大记录数
+     */
+    private static final int BATCH_SIZE = 500;
+
+    /**
+     * key: 日期, value: host -> 增量
+     */
+    private final Map<LocalDate, Map<String, LongAdder>> deltas = new ConcurrentHashMap<>();
+
+    private final AtomicLong pending = new AtomicLong();
+
+    private final AtomicBoolean flushing = new AtomicBoolean(false);
+
+    private final RequestCountDao requestCountDao;
+
+    private final Timer flushTimer;
+
+    public RequestCountBuffer(RequestCountDao requestCountDao, MeterRegistry meterRegistry) {
+        this.requestCountDao = requestCountDao;
+        this.flushTimer = Timer.builder("paicoding.request.count.flush").description("请求计数写回耗时").register(meterRegistry);
+        Gauge.builder("paicoding.request.count.pending", pending, AtomicLong::get).description("待写回的请求数").register(meterRegistry);
+    }
+
+    /**
+     * 请求计数 +1
+     *
+     * @param host 访问者ip
+     */
+    public void incr(String host) {
+        deltas.computeIfAbsent(LocalDate.now(), k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(host, k -> new LongAdder())
+                .increment();
+        pending.incrementAndGet();
+    }
+
+    @Scheduled(fixedDelayString = "${paicoding.request-count.flush-interval:5000}")
+    public void autoFlush() {
+        flush();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        log.info("request count buffer flushed on shutdown");
+    }
+
+    public void flush() {
+        if (!flushing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            flushTimer.record(this::doFlush);
+        } finally {
+            flushing.set(false);
+        }
+    }
+
+    private void doFlush() {
+        LocalDate today = LocalDate.now();
+        for (LocalDate day : new ArrayList<>(deltas.keySet())) {
+            Map<String, LongAdder> hosts = day.equals(today) ? deltas.get(day) : deltas.remove(day);
+            if (hosts == null) {
+                continue;
+            }
+
+            Map<String, Long> counts = BufferUtil.drain(hosts);
+            for (List<String> batch : Iterables.partition(counts.keySet(), BATCH_SIZE)) {
+                Map<String, Long> part = new HashMap<>(batch.size());
+                batch.forEach(host -> part.put(host, counts.get(host)));
+                long total = part.values().stream().mapToLong(Long::longValue).sum();
+                pending.addAndGet(-total);
+                try {
+                    requestCountDao.batchIncrCount(Date.valueOf(day), part);
+                } catch (Exception e) {
+                    // 写回失败，放回缓冲等待下一轮
+                    log.error("failed to flush request count! day={}, hosts={}", day, part.size(), e);
+                    BufferUtil.restore(deltas.computeIfAbsent(day, k -> new ConcurrentHashMap<>()), part);
+                    pending.addAndGet(total);
+                }
+            }
+        }
+    }
+}
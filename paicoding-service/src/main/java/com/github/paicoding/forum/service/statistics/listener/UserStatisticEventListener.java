@@ -1,6 +1,7 @@
 package com.github.paicoding.forum.service.statistics.listener;
 
 import com.github.paicoding.forum.api.model.enums.ArticleEventEnum;
+import com.github.paicoding.forum.api.model.enums.DocumentTypeEnum;
 import com.github.paicoding.forum.api.model.event.ArticleMsgEvent;
 import com.github.paicoding.forum.api.model.vo.notify.NotifyMsgEvent;
 import com.github.paicoding.forum.core.cache.RedisClient;
@@ -69,14 +70,10 @@ public class UserStatisticEventListener {
                 RedisClient.hIncr(CountConstants.ARTICLE_STATISTIC_INFO + foot.getDocumentId(), CountConstants.COLLECTION_COUNT, -1);
                 break;
             case PRAISE:
-                foot = (UserFootDO) msgEvent.getContent();
-                RedisClient.hIncr(CountConstants.USER_STATISTIC_INFO + foot.getDocumentUserId(), CountConstants.PRAISE_COUNT, 1);
-                RedisClient.hIncr(CountConstants.ARTICLE_STATISTIC_INFO + foot.getDocumentId(), CountConstants.PRAISE_COUNT, 1);
+                praiseCount((UserFootDO) msgEvent.getContent(), 1);
                 break;
             case CANCEL_PRAISE:
-                foot = (UserFootDO) msgEvent.getContent();
-                RedisClient.hIncr(CountConstants.USER_STATISTIC_INFO + foot.getDocumentUserId(), CountConstants.PRAISE_COUNT, -1);
-                RedisClient.hIncr(CountConstants.ARTICLE_STATISTIC_INFO + foot.getDocumentId(), CountConstants.PRAISE_COUNT, -1);
+                praiseCount((UserFootDO) msgEvent.getContent(), -1);
                 break;
             case FOLLOW:
                 UserRelationDO relation = (UserRelationDO) msgEvent.getContent();
@@ -96,6 +93,23 @@ public class UserStatisticEventListener {
         }
     }
 
+    /**
+     * 点赞/取消点赞，更新点赞计数
+     * - 文章：作者的总点赞数 + 文章的点赞数
+     * - 评论：只更新评论的点赞数；该计数是按需从db加载的，还未加载时不做处理，避免写入一个错误的初始值
+     *
+     * @param foot
+     * @param cnt
+     */
+    private void praiseCount(UserFootDO foot, int cnt) {
+        if (DocumentTypeEnum.COMMENT.getCode().equals(foot.getDocumentType())) {
+            RedisClient.hIncrIfPresent(CountConstants.commentPraiseKey(foot.getDocumentId()), String.valueOf(foot.getDocumentId()), cnt);
+            return;
+        }
+        RedisClient.hIncr(CountConstants.USER_STATISTIC_INFO + foot.getDocumentUserId(), CountConstants.PRAISE_COUNT, cnt);
+        RedisClient.hIncr(CountConstants.ARTICLE_STATISTIC_INFO + foot.getDocumentId(), CountConstants.PRAISE_COUNT, cnt);
+    }
+
     /**
      * 发布文章，更新对应的文章计数
      *
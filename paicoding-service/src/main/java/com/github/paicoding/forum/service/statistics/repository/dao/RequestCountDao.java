@@ -17,6 +17,7 @@ import org.springframework.stereotype.Repository;
 
 import java.sql.Date;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 请求计数
@@ -66,4 +67,17 @@ public class RequestCountDao extends ServiceImpl<RequestCountMapper, RequestCoun
     public void incrementCount(Long id) {
         baseMapper.incrementCount(id);
     }
+
+    /**
+     * 批量累加某一天的请求计数，一条 insert ... on duplicate key update 完成
+     *
+     * @param date
+     * @param counts key: host, value: 增量
+     */
+    public void batchIncrCount(Date date, Map<String, Long> counts) {
+        if (counts.isEmpty()) {
+            return;
+        }
+        baseMapper.batchIncrCount(date, counts);
+    }
 }
@@ -7,7 +7,9 @@ import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
 
+import java.sql.Date;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 请求计数mapper接口
@@ -39,4 +41,13 @@ public interface RequestCountMapper extends BaseMapper<RequestCountDO> {
      */
     @Update("update request_count set cnt = cnt + 1 where id = #{id}")
     void incrementCount(Long id);
+
+    /**
+     * 批量累加某一天的请求计数
+     *
+     * @param date   日期
+     * @param counts key: host, value: 增量
+     * @return
+     */
+    int batchIncrCount(@Param("date") Date date, @Param("counts") Map<String, Long> counts);
 }
@@ -3,6 +3,10 @@ package com.github.paicoding.forum.service.statistics.service;
 import com.github.paicoding.forum.api.model.vo.user.dto.ArticleFootCountDTO;
 import com.github.paicoding.forum.api.model.vo.user.dto.UserStatisticInfoDTO;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
 /**
  * 计数统计相关
  *
@@ -39,6 +43,14 @@ public interface CountService {
      */
     Long queryCommentPraiseCount(Long commentId);
 
+    /**
+     * 批量获取评论点赞数量
+     *
+     * @param commentIds
+     * @return key: 评论id, value: 点赞数
+     */
+    Map<Long, Long> batchQueryCommentPraiseCount(Collection<Long> commentIds);
+
 
     /**
      * 查询用户的相关统计信息
@@ -56,9 +68,17 @@ public interface CountService {
      */
     ArticleFootCountDTO queryArticleStatisticInfo(Long articleId);
 
+    /**
+     * 批量查询文章相关的统计信息，基于redis管道一次获取
+     *
+     * @param articleIds
+     * @return key: 文章id, value: 文章的 收藏、点赞、评论、阅读数
+     */
+    Map<Long, ArticleFootCountDTO> batchQueryArticleStatisticInfo(List<Long> articleIds);
+
 
     /**
-     * 文章计数+1
+     * 文章计数+1，异步批量写回，db与redis中的计数存在秒级延迟
      *
      * @param authorUserId 作者
      * @param articleId    文章
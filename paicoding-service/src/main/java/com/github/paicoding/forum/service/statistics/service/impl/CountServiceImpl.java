@@ -1,23 +1,37 @@
 package com.github.paicoding.forum.service.statistics.service.impl;
 
+import com.github.paicoding.forum.api.model.enums.YesOrNoEnum;
 import com.github.paicoding.forum.api.model.vo.user.dto.ArticleFootCountDTO;
 import com.github.paicoding.forum.api.model.vo.user.dto.UserStatisticInfoDTO;
 import com.github.paicoding.forum.core.cache.RedisClient;
 import com.github.paicoding.forum.core.util.MapUtils;
 import com.github.paicoding.forum.service.article.repository.dao.ArticleDao;
+import com.github.paicoding.forum.service.comment.repository.dao.CommentDao;
+import com.github.paicoding.forum.service.comment.repository.entity.CommentDO;
 import com.github.paicoding.forum.service.comment.service.CommentReadService;
+import com.github.paicoding.forum.service.rank.service.HotArticleRankService;
 import com.github.paicoding.forum.service.statistics.constants.CountConstants;
+import com.github.paicoding.forum.service.statistics.help.ReadCountBuffer;
 import com.github.paicoding.forum.service.statistics.service.CountService;
 import com.github.paicoding.forum.service.user.repository.dao.UserDao;
 import com.github.paicoding.forum.service.user.repository.dao.UserFootDao;
 import com.github.paicoding.forum.service.user.repository.dao.UserRelationDao;
+import com.google.common.collect.Maps;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.util.CollectionUtils;
 
 import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * 计数服务，后续计数相关的可以考虑基于redis来做
@@ -45,6 +59,15 @@ public class CountServiceImpl implements CountService {
     @Resource
     private UserDao userDao;
 
+    @Resource
+    private ReadCountBuffer readCountBuffer;
+
+    @Resource
+    private CommentDao commentDao;
+
+    @Resource
+    private HotArticleRankService hotArticleRankService;
+
     @Override
     public ArticleFootCountDTO queryArticleCountInfoByArticleId(Long articleId) {
         ArticleFootCountDTO res = userFootDao.countArticleByArticleId(articleId);
@@ -70,7 +93,55 @@ public class CountServiceImpl implements CountService {
      */
     @Override
     public Long queryCommentPraiseCount(Long commentId) {
-        return userFootDao.countCommentPraise(commentId);
+        return batchQueryCommentPraiseCount(Collections.singletonList(commentId)).getOrDefault(commentId, 0L);
+    }
+
+    /**
+     * 评论点赞数由点赞/取消点赞事件维护在redis中，按评论id分段一次 hmget 取出，同一页的评论通常只落在一个分段；
+     * 缓存中没有的评论，再一次 group by 从db统计后回写，回写使用 hsetnx，不覆盖期间由事件更新的值，同时刷新分段的有效期
+     *
+     * @param commentIds
+     * @return
+     */
+    @Override
+    public Map<Long, Long> batchQueryCommentPraiseCount(Collection<Long> commentIds) {
+        if (CollectionUtils.isEmpty(commentIds)) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, List<Long>> segments = commentIds.stream().distinct()
+                .collect(Collectors.groupingBy(CountConstants::commentPraiseKey));
+        Map<Long, Long> result = Maps.newHashMapWithExpectedSize(commentIds.size());
+        List<Long> missIds = new ArrayList<>();
+        segments.forEach((key, ids) -> {
+            Map<String, Long> cache = RedisClient.hMGet(key, ids.stream().map(String::valueOf).collect(Collectors.toList()), Long.class);
+            for (Long commentId : ids) {
+                Long cnt = cache.get(String.valueOf(commentId));
+                if (cnt == null) {
+                    missIds.add(commentId);
+                } else {
+                    result.put(commentId, cnt);
+                }
+            }
+        });
+
+        if (!missIds.isEmpty()) {
+            Map<Long, Long> counts = userFootDao.countCommentPraise(missIds);
+            RedisClient.PipelineAction action = RedisClient.pipelineAction();
+            Set<String> keys = new HashSet<>();
+            for (Long commentId : missIds) {
+                // 没有点赞的评论也写入0，避免每次都回源db
+                long cnt = counts.getOrDefault(commentId, 0L);
+                result.put(commentId, cnt);
+                String key = CountConstants.commentPraiseKey(commentId);
+                keys.add(key);
+                action.add(key, String.valueOf(commentId),
+                        (connection, k, field) -> connection.hSetNX(k, field, RedisClient.valBytes(String.valueOf(cnt))));
+            }
+            keys.forEach(key -> action.add(key, (connection, k) -> connection.expire(k, CountConstants.COMMENT_PRAISE_EXPIRE)));
+            action.execute();
+        }
+        return result;
     }
 
     @Override
@@ -89,6 +160,25 @@ public class CountServiceImpl implements CountService {
     @Override
     public ArticleFootCountDTO queryArticleStatisticInfo(Long articleId) {
         Map<String, Integer> ans = RedisClient.hGetAll(CountConstants.ARTICLE_STATISTIC_INFO + articleId, Integer.class);
+        return toArticleStatisticInfo(ans);
+    }
+
+    @Override
+    public Map<Long, ArticleFootCountDTO> batchQueryArticleStatisticInfo(List<Long> articleIds) {
+        if (CollectionUtils.isEmpty(articleIds)) {
+            return Collections.emptyMap();
+        }
+
+        List<String> keys = articleIds.stream().map(s -> CountConstants.ARTICLE_STATISTIC_INFO + s).collect(Collectors.toList());
+        List<Map<String, Integer>> list = RedisClient.pipelineHGetAll(keys, Integer.class);
+        Map<Long, ArticleFootCountDTO> result = Maps.newHashMapWithExpectedSize(articleIds.size());
+        for (int i = 0; i < articleIds.size(); i++) {
+            result.put(articleIds.get(i), toArticleStatisticInfo(list.get(i)));
+        }
+        return result;
+    }
+
+    private ArticleFootCountDTO toArticleStatisticInfo(Map<String, Integer> ans) {
         ArticleFootCountDTO info = new ArticleFootCountDTO();
         info.setPraiseCount(ans.getOrDefault(CountConstants.PRAISE_COUNT, 0));
         info.setCollectionCount(ans.getOrDefault(CountConstants.COLLECTION_COUNT, 0));
@@ -99,15 +189,9 @@ public class CountServiceImpl implements CountService {
 
     @Override
     public void incrArticleReadCount(Long authorUserId, Long articleId) {
-        // db层的计数+1
-        articleDao.incrReadCount(articleId);
-        // redis计数器 +1
-        RedisClient.pipelineAction()
-                .add(CountConstants.ARTICLE_STATISTIC_INFO + articleId, CountConstants.READ_COUNT,
-                        (connection, key, value) -> connection.hIncrBy(key, value, 1))
-                .add(CountConstants.USER_STATISTIC_INFO + authorUserId, CountConstants.READ_COUNT,
-                        (connection, key, value) -> connection.hIncrBy(key, value, 1))
-                .execute();
+        // 先在内存中累加，由 ReadCountBuffer 定时批量写回 db & redis
+        readCountBuffer.incr(authorUserId, articleId);
+        hotArticleRankService.addScore(articleId, HotArticleRankService.READ_SCORE);
     }
 
     /**
@@ -133,6 +217,78 @@ public class CountServiceImpl implements CountService {
     }
 
 
+    /**
+     * 每天4:45分执行定时任务，基于db校准redis中已经加载的评论点赞数，修正事件丢失等原因导致的偏差
+     */
+    @Scheduled(cron = "0 45 4 * * ?")
+    public void autoRefreshCommentPraiseCount() {
+        long now = System.currentTimeMillis();
+        log.info("开始校准评论点赞数");
+        long lastId = 0L;
+        int batchSize = 200;
+        int total = 0;
+        int refreshed = 0;
+        while (true) {
+            List<CommentDO> comments = commentDao.scanComment(lastId, batchSize);
+            if (comments.isEmpty()) {
+                break;
+            }
+            refreshed += refreshCommentPraiseCount(comments);
+            total += comments.size();
+            lastId = comments.get(comments.size() - 1).getId();
+            if (comments.size() < batchSize) {
+                break;
+            }
+        }
+        log.info("结束校准评论点赞数，共耗时: {}ms, 评论数: {}, 校准数: {}, maxCommentId: {}", System.currentTimeMillis() - now, total, refreshed, lastId);
+    }
+
+    /**
+     * 只处理redis中已经存在的字段，不存在(未加载或已过期)的评论由查询时按需加载；
+     * 校准在脚本中再次判断字段是否存在，避免分段恰好过期时重新创建一个没有有效期的hash
+     * <p>
+     * KEYS[1]: 分段hash; ARGV: 评论id, 点赞数 ...，点赞数为-1表示评论已删除
+     */
+    private static final RedisScript<Long> COMMENT_PRAISE_REFRESH_SCRIPT = RedisScript.of(
+            "local cnt = 0 "
+                    + "for i = 1, #ARGV, 2 do "
+                    + "  if redis.call('hexists', KEYS[1], ARGV[i]) == 1 then "
+                    + "    if tonumber(ARGV[i + 1]) < 0 then redis.call('hdel', KEYS[1], ARGV[i]) "
+                    + "    else redis.call('hset', KEYS[1], ARGV[i], ARGV[i + 1]) end "
+                    + "    cnt = cnt + 1 "
+                    + "  end "
+                    + "end "
+                    + "return cnt", Long.class);
+
+    private int refreshCommentPraiseCount(List<CommentDO> comments) {
+        int refreshed = 0;
+        Map<String, List<CommentDO>> segments = comments.stream()
+                .collect(Collectors.groupingBy(s -> CountConstants.commentPraiseKey(s.getId())));
+        for (Map.Entry<String, List<CommentDO>> entry : segments.entrySet()) {
+            List<String> fields = entry.getValue().stream().map(s -> String.valueOf(s.getId())).collect(Collectors.toList());
+            Map<String, Long> cache = RedisClient.hMGet(entry.getKey(), fields, Long.class);
+            List<CommentDO> loaded = entry.getValue().stream()
+                    .filter(s -> cache.get(String.valueOf(s.getId())) != null)
+                    .collect(Collectors.toList());
+            if (loaded.isEmpty()) {
+                continue;
+            }
+
+            List<Long> ids = loaded.stream().filter(s -> YesOrNoEnum.NO.getCode() == s.getDeleted())
+                    .map(CommentDO::getId).collect(Collectors.toList());
+            Map<Long, Long> counts = ids.isEmpty() ? Collections.emptyMap() : userFootDao.countCommentPraise(ids);
+            List<Object> args = new ArrayList<>(loaded.size() * 2);
+            for (CommentDO comment : loaded) {
+                args.add(comment.getId());
+                // 已删除的评论不再展示，移除对应的计数
+                args.add(YesOrNoEnum.NO.getCode() == comment.getDeleted() ? counts.getOrDefault(comment.getId(), 0L) : -1);
+            }
+            Long cnt = RedisClient.evalSha(COMMENT_PRAISE_REFRESH_SCRIPT, Collections.singletonList(entry.getKey()), args.toArray());
+            refreshed += cnt == null ? 0 : cnt.intValue();
+        }
+        return refreshed;
+    }
+
     /**
      * 更新用户的统计信息
      * 通过重新查询数据库获取最新数据，然后覆盖缓存中的旧数据，以此保证缓存数据与数据库一致（即缓存的正确性）。
@@ -7,7 +7,7 @@ import com.github.paicoding.forum.api.model.vo.user.dto.UserFootStatisticDTO;
 import com.github.paicoding.forum.service.article.service.ArticleReadService;
 import com.github.paicoding.forum.service.article.service.ColumnService;
 import com.github.paicoding.forum.service.statistics.converter.StatisticsConverter;
-import com.github.paicoding.forum.service.statistics.repository.entity.RequestCountDO;
+import com.github.paicoding.forum.service.statistics.help.RequestCountBuffer;
 import com.github.paicoding.forum.service.statistics.repository.entity.StatisticsDayExcelDO;
 import com.github.paicoding.forum.service.statistics.service.RequestCountService;
 import com.github.paicoding.forum.service.statistics.service.StatisticsSettingService;
@@ -52,15 +52,17 @@ public class StatisticsSettingServiceImpl implements StatisticsSettingService {
     @Resource
     private AiConfig aiConfig;
 
+    @Resource
+    private RequestCountBuffer requestCountBuffer;
+
+    /**
+     * 只在内存中累加，由 RequestCountBuffer 定时批量写回db
+     *
+     * @param host
+     */
     @Override
     public void saveRequestCount(String host) {
-        RequestCountDO requestCountDO = requestCountService.getRequestCount(host);
-        if (requestCountDO == null) {
-            requestCountService.insert(host);
-        } else {
-            // 改为数据库直接更新
-            requestCountService.incrementCount(requestCountDO.getId());
-        }
+        requestCountBuffer.incr(host);
     }
 
     @Override
@@ -87,6 +87,13 @@ public class UserConverter {
                 .setProfile(info.getProfile());
     }
 
+    public static SimpleUserInfoDTO toSimpleInfo(BaseUserInfoDTO info) {
+        return new SimpleUserInfoDTO().setUserId(info.getUserId())
+                .setName(info.getUserName())
+                .setAvatar(info.getPhoto())
+                .setProfile(info.getProfile());
+    }
+
     public static UserRelationDO toDO(UserRelationReq req) {
         if (req == null) {
             return null;
@@ -1,10 +1,14 @@
 package com.github.paicoding.forum.service.user.repository.dao;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.github.paicoding.forum.api.model.enums.CollectionStatEnum;
+import com.github.paicoding.forum.api.model.enums.CommentStatEnum;
 import com.github.paicoding.forum.api.model.enums.DocumentTypeEnum;
 import com.github.paicoding.forum.api.model.enums.PraiseStatEnum;
+import com.github.paicoding.forum.api.model.vo.PageCursor;
 import com.github.paicoding.forum.api.model.vo.PageParam;
 import com.github.paicoding.forum.api.model.vo.user.dto.ArticleFootCountDTO;
 import com.github.paicoding.forum.api.model.vo.user.dto.SimpleUserInfoDTO;
@@ -12,8 +16,13 @@ import com.github.paicoding.forum.api.model.vo.user.dto.UserFootStatisticDTO;
 import com.github.paicoding.forum.service.user.repository.entity.UserFootDO;
 import com.github.paicoding.forum.service.user.repository.mapper.UserFootMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.util.CollectionUtils;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -30,6 +39,43 @@ public class UserFootDao extends ServiceImpl<UserFootMapper, UserFootDO> {
         return baseMapper.selectOne(query);
     }
 
+    /**
+     * 批量查询用户在多个文档上的足迹
+     *
+     * @param documentIds
+     * @param type
+     * @param userId
+     * @return
+     */
+    public List<UserFootDO> listByDocumentsAndUserId(Collection<Long> documentIds, Integer type, Long userId) {
+        if (CollectionUtils.isEmpty(documentIds)) {
+            return Collections.emptyList();
+        }
+        return lambdaQuery().in(UserFootDO::getDocumentId, documentIds)
+                .eq(UserFootDO::getDocumentType, type)
+                .eq(UserFootDO::getUserId, userId)
+                .list();
+    }
+
+    /**
+     * 查询用户最近点赞、收藏、评论过的足迹
+     *
+     * @param userId
+     * @param limit  最多返回的条数，按更新时间倒序
+     * @return 只包含 documentId, documentType 以及点赞、收藏、评论状态
+     */
+    public List<UserFootDO> listStatedFootsByUserId(Long userId, int limit) {
+        return lambdaQuery().select(UserFootDO::getDocumentId, UserFootDO::getDocumentType,
+                        UserFootDO::getPraiseStat, UserFootDO::getCollectionStat, UserFootDO::getCommentStat)
+                .eq(UserFootDO::getUserId, userId)
+                .and(w -> w.eq(UserFootDO::getPraiseStat, PraiseStatEnum.PRAISE.getCode())
+                        .or().eq(UserFootDO::getCollectionStat, CollectionStatEnum.COLLECTION.getCode())
+                        .or().eq(UserFootDO::getCommentStat, CommentStatEnum.COMMENT.getCode()))
+                .orderByDesc(UserFootDO::getUpdateTime)
+                .last("limit " + limit)
+                .list();
+    }
+
     public List<SimpleUserInfoDTO> listDocumentPraisedUsers(Long documentId, Integer type, int size) {
         return baseMapper.listSimpleUserInfosByArticleId(documentId, type, size);
     }
@@ -57,6 +103,43 @@ public class UserFootDao extends ServiceImpl<UserFootMapper, UserFootDO> {
         return baseMapper.listReadArticleByUserId(userId, pageParam);
     }
 
+    /**
+     * 查询用户的阅读足迹，pageParam 中有游标时按游标分页；游标不是 (时间, id) 格式时从第一页开始
+     *
+     * @param userId
+     * @param pageParam
+     * @return
+     */
+    public List<UserFootDO> listReadFootsByUserId(Long userId, PageParam pageParam) {
+        if (pageParam != null && pageParam.getCursor() != null && pageParam.getCursor().size() != 2) {
+            // 如切换tab后回传的文章列表游标
+            pageParam = PageParam.newPageInstance(PageParam.DEFAULT_PAGE_NUM, pageParam.getPageSize());
+        }
+        return baseMapper.listReadFootsByUserId(userId, pageParam);
+    }
+
+    /**
+     * 阅读足迹对应的游标位置
+     *
+     * @param foot
+     * @return
+     */
+    public static PageCursor readCursor(UserFootDO foot) {
+        return PageCursor.of(foot.getUpdateTime().getTime(), foot.getId());
+    }
+
+    /**
+     * 批量写入阅读足迹，一条 insert ... on duplicate key update 语句完成
+     *
+     * @param foots
+     */
+    public void batchSaveReadFoots(List<UserFootDO> foots) {
+        if (CollectionUtils.isEmpty(foots)) {
+            return;
+        }
+        baseMapper.batchSaveReadFoots(foots);
+    }
+
     /**
      * 查询文章计数信息
      *
@@ -94,6 +177,28 @@ public class UserFootDao extends ServiceImpl<UserFootMapper, UserFootDO> {
                 .count();
     }
 
+    /**
+     * 批量查询评论的点赞数，一次 group by 查询
+     *
+     * @param commentIds
+     * @return key: 评论id, value: 点赞数；没有点赞的评论不在结果中
+     */
+    public Map<Long, Long> countCommentPraise(Collection<Long> commentIds) {
+        if (CollectionUtils.isEmpty(commentIds)) {
+            return Collections.emptyMap();
+        }
+        QueryWrapper<UserFootDO> query = Wrappers.query();
+        query.select("document_id as documentId", "count(*) as cnt")
+                .in("document_id", commentIds)
+                .eq("document_type", DocumentTypeEnum.COMMENT.getCode())
+                .eq("praise_stat", PraiseStatEnum.PRAISE.getCode())
+                .groupBy("document_id");
+        List<Map<String, Object>> list = baseMapper.selectMaps(query);
+        Map<Long, Long> result = new HashMap<>(list.size());
+        list.forEach(s -> result.put(((Number) s.get("documentId")).longValue(), ((Number) s.get("cnt")).longValue()));
+        return result;
+    }
+
     public UserFootStatisticDTO getFootCount() {
         return baseMapper.getFootCount();
 
@@ -61,6 +61,23 @@ public interface UserFootMapper extends BaseMapper<UserFootDO> {
      */
     List<Long> listReadArticleByUserId(@Param("userId") Long userId, @Param("pageParam") PageParam pageParam);
 
+    /**
+     * 查询用户的阅读足迹，按更新时间倒序，支持游标分页
+     *
+     * @param userId
+     * @param pageParam
+     * @return 只包含 id, documentId, updateTime
+     */
+    List<UserFootDO> listReadFootsByUserId(@Param("userId") Long userId, @Param("pageParam") PageParam pageParam);
+
+    /**
+     * 批量写入阅读足迹，记录存在时只更新阅读状态与更新时间
+     *
+     * @param foots
+     * @return
+     */
+    int batchSaveReadFoots(@Param("foots") List<UserFootDO> foots);
+
     /**
      * 查询文章的点赞列表
      *
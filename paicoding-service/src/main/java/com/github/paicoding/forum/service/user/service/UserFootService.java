@@ -8,7 +8,9 @@ import com.github.paicoding.forum.api.model.vo.user.dto.UserFootStatisticDTO;
 import com.github.paicoding.forum.service.comment.repository.entity.CommentDO;
 import com.github.paicoding.forum.service.user.repository.entity.UserFootDO;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 用户足迹Service接口
@@ -29,6 +31,16 @@ public interface UserFootService {
      */
     UserFootDO saveOrUpdateUserFoot(DocumentTypeEnum documentType, Long documentId, Long authorId, Long userId, OperateTypeEnum operateTypeEnum);
 
+    /**
+     * 阅读文章：阅读足迹异步批量写入，同时返回用户在文章上的足迹，用于判断是否点赞、评论、收藏
+     *
+     * @param articleId 文章
+     * @param authorId  作者
+     * @param userId    阅读用户
+     * @return 不会返回null
+     */
+    UserFootDO readArticle(Long articleId, Long authorId, Long userId);
+
     /**
      * 文章/评论点赞、取消点赞、收藏、取消收藏
      *
@@ -71,6 +83,15 @@ public interface UserFootService {
      */
     List<Long> queryUserReadArticleList(Long userId, PageParam pageParam);
 
+    /**
+     * 查询阅读足迹，pageParam 中有游标时按游标分页
+     *
+     * @param userId
+     * @param pageParam
+     * @return 只包含 id, documentId, updateTime
+     */
+    List<UserFootDO> queryUserReadFoots(Long userId, PageParam pageParam);
+
     /**
      * 查询收藏文章列表
      *
@@ -99,5 +120,15 @@ public interface UserFootService {
      */
     UserFootDO queryUserFoot(Long documentId, Integer type, Long userId);
 
+    /**
+     * 批量查询用户在多个文档上的点赞、收藏、评论状态，一页数据只访问一次 redis
+     *
+     * @param documentIds
+     * @param type
+     * @param userId
+     * @return key: 文档id，每个文档都有对应的足迹，只保证点赞、收藏、评论状态
+     */
+    Map<Long, UserFootDO> batchQueryUserFoot(Collection<Long> documentIds, Integer type, Long userId);
+
     UserFootStatisticDTO getFootCount();
 }
@@ -12,6 +12,7 @@ import com.github.paicoding.forum.service.user.repository.entity.UserInfoDO;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 用户Service接口
@@ -61,8 +62,7 @@ public interface UserService {
     SimpleUserInfoDTO querySimpleUserInfo(Long userId);
 
     /**
-     * 查询用户基本信息
-     * todo: 可以做缓存优化
+     * 查询用户基本信息，走本地 + redis 两级缓存
      *
      * @param userId
      * @return
@@ -86,6 +86,14 @@ public interface UserService {
      */
     List<BaseUserInfoDTO> batchQueryBasicUserInfo(Collection<Long> userIds);
 
+    /**
+     * 批量查询用户基本信息，不存在的用户不会出现在结果中
+     *
+     * @param userIds
+     * @return key: userId
+     */
+    Map<Long, BaseUserInfoDTO> batchQueryBasicUserInfoMap(Collection<Long> userIds);
+
     /**
      * 查询用户主页信息
      *
@@ -0,0 +1,121 @@
+package com.github.paicoding.forum.service.user.service.help;
+
+import com.github.paicoding.forum.api.model.enums.DocumentTypeEnum;
+import com.github.paicoding.forum.core.async.AsyncUtil;
+import com.github.paicoding.forum.core.util.BufferUtil;
+import com.github.paicoding.forum.service.user.repository.dao.UserFootDao;
+import com.github.paicoding.forum.service.user.repository.entity.UserFootDO;
+import com.google.common.collect.Iterables;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 文章阅读足迹的写回缓冲（write-behind）
+ * <p>
+ * 1. 请求线程只将 (用户, 文章) 的阅读记录放入内存，同一用户反复阅读同一篇文章只保留最后一次
+ * 2. 每隔 flush-interval 毫秒，或待写回的记录数达到 flush-threshold 之后，分批 insert ... on duplicate key update 写回
+ * 3. 应用关闭时再写回一次，避免内存中的阅读记录丢失
+ *
+ * @author YiHui
+ * @date 2026/10/17
+ */
+@Slf4j
+@Component
+public class ReadFootBuffer {
+    private static final int BATCH_SIZE = 500;
+
+    /**
+     * key: userId_articleId
+     */
+    private final Map<String, UserFootDO> pending = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean flushing = new AtomicBoolean(false);
+
+    private final UserFootDao userFootDao;
+
+    private final Timer flushTimer;
+
+    @Value("${paicoding.read-foot.flush-threshold:1000}")
+    private int flushThreshold;
+
+    public ReadFootBuffer(UserFootDao userFootDao, MeterRegistry meterRegistry) {
+        this.userFootDao = userFootDao;
+        this.flushTimer = Timer.builder("paicoding.read.foot.flush").description("阅读足迹写回耗时").register(meterRegistry);
+        Gauge.builder("paicoding.read.foot.pending", pending, Map::size).description("待写回的阅读足迹数").register(meterRegistry);
+    }
+
+    /**
+     * 记录用户阅读了文章
+     *
+     * @param articleId 文章
+     * @param authorId  作者
+     * @param userId    阅读用户
+     */
+    public void read(Long articleId, Long authorId, Long userId) {
+        UserFootDO foot = new UserFootDO();
+        foot.setUserId(userId);
+        foot.setDocumentId(articleId);
+        foot.setDocumentType(DocumentTypeEnum.ARTICLE.getCode());
+        foot.setDocumentUserId(authorId);
+        foot.setUpdateTime(new Date());
+        pending.put(userId + "_" + articleId, foot);
+        if (pending.size() >= flushThreshold && !flushing.get()) {
+            AsyncUtil.execute(this::flush);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${paicoding.read-foot.flush-interval:3000}")
+    public void autoFlush() {
+        flush();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        log.info("read foot buffer flushed on shutdown");
+    }
+
+    /**
+     * 写回缓冲中的阅读记录，同一时刻只有一个线程执行
+     */
+    public void flush() {
+        if (!flushing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            flushTimer.record(this::doFlush);
+        } finally {
+            flushing.set(false);
+        }
+    }
+
+    private void doFlush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        // 只移除读到的记录，并发写入的新记录留到下一轮
+        List<UserFootDO> foots = BufferUtil.drainValues(pending);
+
+        for (List<UserFootDO> batch : Iterables.partition(foots, BATCH_SIZE)) {
+            try {
+                userFootDao.batchSaveReadFoots(batch);
+            } catch (Exception e) {
+                // 写回失败，放回缓冲等待下一轮；期间有更新的阅读记录时以新的为准
+                log.error("failed to flush read foots, will retry next round! size={}", batch.size(), e);
+                batch.forEach(foot -> pending.putIfAbsent(foot.getUserId() + "_" + foot.getDocumentId(), foot));
+            }
+        }
+    }
+}
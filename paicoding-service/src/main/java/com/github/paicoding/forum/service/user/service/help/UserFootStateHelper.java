@@ -0,0 +1,298 @@
+package com.github.paicoding.forum.service.user.service.help;
+
+import com.github.paicoding.forum.api.model.enums.CollectionStatEnum;
+import com.github.paicoding.forum.api.model.enums.CommentStatEnum;
+import com.github.paicoding.forum.api.model.enums.PraiseStatEnum;
+import com.github.paicoding.forum.core.cache.RedisClient;
+import com.github.paicoding.forum.core.util.TransactionUtil;
+import com.github.paicoding.forum.service.user.repository.dao.UserFootDao;
+import com.github.paicoding.forum.service.user.repository.entity.UserFootDO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * 用户的点赞、收藏、评论状态，用于批量判断用户是否点赞/收藏/评论过某些文章、评论
+ * <p>
+ * 1. 每个用户一个 redis set，成员为 状态前缀_文档类型_文档id，如 p_1_123 表示点赞过文章123；另有一个占位成员，表示已经从db加载过
+ * 2. 首次查询时从db加载该用户最近的点赞、收藏、评论足迹，之后的查询不再访问db；一页数据的状态一次 lua 脚本调用返回。
+ * 足迹超过加载上限时占位成员标记为不完整，set 中没有状态的文档再回db确认
+ * 3. 点赞、收藏、评论变更后，在事务提交之后同步更新，回滚时不更新；set 不存在(未加载或已过期)时不更新，只递增版本号，
+ * 加载时若版本号与读db之前不一致则放弃写入，避免把读db期间的变更覆盖为旧的状态
+ * 4. redis 不可用时回退到db查询
+ *
+ * @author YiHui
+ * @date 2026/10/17
+ */
+@Slf4j
+@Component
+public class UserFootStateHelper {
+    private static final String STATE_KEY = "user_foot_state_";
+    /**
+     * set 不存在期间的变更版本号
+     */
+    private static final String VERSION_KEY = "user_foot_state_ver_";
+    /**
+     * 占位成员，保证没有任何足迹的用户也能缓存下来
+     */
+    private static final String LOADED = "-";
+    /**
+     * 足迹超过加载上限时的占位成员
+     */
+    private static final String PARTIAL = "+";
+    private static final String PRAISE = "p_";
+    private static final String COLLECTION = "c_";
+    private static final String COMMENT = "m_";
+    /**
+     * 有效期，单位s
+     */
+    private static final long EXPIRE = 60 * 60L;
+    /**
+     * 版本号的有效期，需要长于一次加载的耗时，单位s
+     */
+    private static final long VERSION_EXPIRE = 10 * 60L;
+    /**
+     * 每个用户最多加载的足迹数
+     */
+    private static final int LOAD_LIMIT = 5000;
+
+    /**
+     * 批量查询状态
+     * KEYS: 用户的状态set
+     * ARGV: [文档类型_文档id]...
+     * 返回: 每个文档一个状态位，1-点赞, 2-收藏, 4-评论，最后追加一位，1 表示 set 不完整；set不存在时返回 {-1}
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> QUERY_SCRIPT = RedisScript.of(
+            "if redis.call('exists', KEYS[1]) == 0 then return {-1} end "
+                    + "local ans = {} "
+                    + "for i = 1, #ARGV do "
+                    + "  local s = 0 "
+                    + "  if redis.call('sismember', KEYS[1], '" + PRAISE + "' .. ARGV[i]) == 1 then s = s + 1 end "
+                    + "  if redis.call('sismember', KEYS[1], '" + COLLECTION + "' .. ARGV[i]) == 1 then s = s + 2 end "
+                    + "  if redis.call('sismember', KEYS[1], '" + COMMENT + "' .. ARGV[i]) == 1 then s = s + 4 end "
+                    + "  ans[i] = s "
+                    + "end "
+                    + "ans[#ARGV + 1] = redis.call('sismember', KEYS[1], '" + PARTIAL + "') "
+                    + "return ans", List.class);
+
+    /**
+     * 更新单个文档的状态，set 不存在时只递增版本号
+     * KEYS: 用户的状态set, 版本号
+     * ARGV: 文档类型_文档id, 是否点赞, 是否收藏, 是否评论, 版本号的有效期(s)
+     */
+    private static final RedisScript<Long> UPDATE_SCRIPT = RedisScript.of(
+            "if redis.call('exists', KEYS[1]) == 0 then "
+                    + "  redis.call('incr', KEYS[2]) "
+                    + "  redis.call('expire', KEYS[2], ARGV[5]) "
+                    + "  return 0 "
+                    + "end "
+                    + "local prefix = {'" + PRAISE + "', '" + COLLECTION + "', '" + COMMENT + "'} "
+                    + "for i = 1, 3 do "
+                    + "  if ARGV[i + 1] == '1' then "
+                    + "    redis.call('sadd', KEYS[1], prefix[i] .. ARGV[1]) "
+                    + "  else "
+                    + "    redis.call('srem', KEYS[1], prefix[i] .. ARGV[1]) "
+                    + "  end "
+                    + "end "
+                    + "return 1", Long.class);
+
+    /**
+     * 写入从db加载的状态：set 已存在(其他请求已加载)、或者读db期间有变更时不写入
+     * KEYS: 用户的状态set, 版本号
+     * ARGV: 读db之前的版本号, 有效期(s), [成员]...
+     * 返回: 1-写入, 0-已存在, -1-有变更
+     */
+    private static final RedisScript<Long> LOAD_SCRIPT = RedisScript.of(
+            "if redis.call('exists', KEYS[1]) == 1 then return 0 end "
+                    + "if (redis.call('get', KEYS[2]) or '0') ~= ARGV[1] then return -1 end "
+                    + "for i = 3, #ARGV, 1000 do "
+                    + "  redis.call('sadd', KEYS[1], unpack(ARGV, i, math.min(i + 999, #ARGV))) "
+                    + "end "
+                    + "redis.call('expire', KEYS[1], ARGV[2]) "
+                    + "return 1", Long.class);
+
+    private final UserFootDao userFootDao;
+
+    private final Counter hit;
+    private final Counter miss;
+
+    public UserFootStateHelper(UserFootDao userFootDao, MeterRegistry meterRegistry) {
+        this.userFootDao = userFootDao;
+        this.hit = Counter.builder("paicoding.user.foot.state").tag("result", "hit").register(meterRegistry);
+        this.miss = Counter.builder("paicoding.user.foot.state").tag("result", "miss").register(meterRegistry);
+    }
+
+    /**
+     * 查询用户在文档上的足迹
+     *
+     * @param documentId
+     * @param type
+     * @param userId
+     * @return 不会返回null，只包含点赞、收藏、评论状态
+     */
+    public UserFootDO get(Long documentId, Integer type, Long userId) {
+        return query(Collections.singletonList(documentId), type, userId).get(documentId);
+    }
+
+    /**
+     * 批量查询用户在多个文档上的足迹
+     *
+     * @param documentIds
+     * @param type
+     * @param userId
+     * @return key: 文档id，每个文档都有对应的足迹，只包含点赞、收藏、评论状态
+     */
+    public Map<Long, UserFootDO> query(Collection<Long> documentIds, Integer type, Long userId) {
+        if (CollectionUtils.isEmpty(documentIds)) {
+            return Collections.emptyMap();
+        }
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(documentIds));
+        try {
+            List<?> states = queryStates(ids, type, userId);
+            if (states == null) {
+                miss.increment();
+                load(userId);
+                states = queryStates(ids, type, userId);
+            } else {
+                hit.increment();
+            }
+            if (states != null) {
+                Map<Long, UserFootDO> result = new HashMap<>(ids.size() * 2);
+                List<Long> unknown = new ArrayList<>();
+                boolean partial = ((Number) states.get(ids.size())).intValue() == 1;
+                for (int i = 0; i < ids.size(); i++) {
+                    int state = ((Number) states.get(i)).intValue();
+                    if (state == 0 && partial) {
+                        // 可能是超过加载上限的旧足迹
+                        unknown.add(ids.get(i));
+                    } else {
+                        result.put(ids.get(i), toFoot(ids.get(i), type, userId, state));
+                    }
+                }
+                if (!unknown.isEmpty()) {
+                    result.putAll(queryFromDb(unknown, type, userId));
+                }
+                return result;
+            }
+        } catch (Exception e) {
+            log.warn("failed to query user foot state from redis, fallback to db! userId={}", userId, e);
+        }
+
+        return queryFromDb(ids, type, userId);
+    }
+
+    private Map<Long, UserFootDO> queryFromDb(List<Long> ids, Integer type, Long userId) {
+        Map<Long, UserFootDO> result = userFootDao.listByDocumentsAndUserId(ids, type, userId).stream()
+                .collect(Collectors.toMap(UserFootDO::getDocumentId, s -> s, (a, b) -> a));
+        ids.forEach(id -> result.computeIfAbsent(id, k -> toFoot(k, type, userId, 0)));
+        return result;
+    }
+
+    /**
+     * 足迹的点赞、收藏、评论状态变更之后调用，事务中时在事务提交之后再更新
+     *
+     * @param foot
+     */
+    public void update(UserFootDO foot) {
+        String member = member(foot.getDocumentType(), foot.getDocumentId());
+        String praised = flag(Objects.equals(foot.getPraiseStat(), PraiseStatEnum.PRAISE.getCode()));
+        String collected = flag(Objects.equals(foot.getCollectionStat(), CollectionStatEnum.COLLECTION.getCode()));
+        String commented = flag(Objects.equals(foot.getCommentStat(), CommentStatEnum.COMMENT.getCode()));
+        TransactionUtil.registryAfterCommitOrImmediatelyRun(() -> {
+            try {
+                RedisClient.evalSha(UPDATE_SCRIPT, Arrays.asList(STATE_KEY + foot.getUserId(), VERSION_KEY + foot.getUserId()),
+                        member, praised, collected, commented, VERSION_EXPIRE);
+            } catch (Exception e) {
+                // 更新失败时直接删除，下次查询重新加载
+                log.warn("failed to update user foot state! userId={}, member={}", foot.getUserId(), member, e);
+                evict(foot.getUserId());
+            }
+        });
+    }
+
+    private void evict(Long userId) {
+        try {
+            RedisClient.del(STATE_KEY + userId);
+        } catch (Exception e) {
+            log.error("failed to evict user foot state! userId={}", userId, e);
+        }
+    }
+
+    /**
+     * @return set不存在时返回null
+     */
+    private List<?> queryStates(List<Long> ids, Integer type, Long userId) {
+        Object[] args = ids.stream().map(id -> member(type, id)).toArray();
+        List<?> states = RedisClient.evalSha(QUERY_SCRIPT, Collections.singletonList(STATE_KEY + userId), args);
+        if (states == null || (states.size() == 1 && ((Number) states.get(0)).intValue() < 0)) {
+            return null;
+        }
+        return states;
+    }
+
+    /**
+     * 从db加载用户最近的点赞、收藏、评论状态
+     */
+    private void load(Long userId) {
+        String version = RedisClient.getStr(VERSION_KEY + userId);
+        List<UserFootDO> foots = userFootDao.listStatedFootsByUserId(userId, LOAD_LIMIT);
+        List<Object> args = new ArrayList<>(foots.size() + 3);
+        args.add(version == null ? "0" : version);
+        args.add(EXPIRE);
+        args.add(LOADED);
+        if (foots.size() >= LOAD_LIMIT) {
+            args.add(PARTIAL);
+        }
+        for (UserFootDO foot : foots) {
+            String member = member(foot.getDocumentType(), foot.getDocumentId());
+            if (Objects.equals(foot.getPraiseStat(), PraiseStatEnum.PRAISE.getCode())) {
+                args.add(PRAISE + member);
+            }
+            if (Objects.equals(foot.getCollectionStat(), CollectionStatEnum.COLLECTION.getCode())) {
+                args.add(COLLECTION + member);
+            }
+            if (Objects.equals(foot.getCommentStat(), CommentStatEnum.COMMENT.getCode())) {
+                args.add(COMMENT + member);
+            }
+        }
+        Long ans = RedisClient.evalSha(LOAD_SCRIPT, Arrays.asList(STATE_KEY + userId, VERSION_KEY + userId), args.toArray());
+        if (ans != null && ans < 0) {
+            // 本次回db查询，下次查询时重新加载
+            log.info("user foot state changed while loading, skip! userId={}", userId);
+        }
+    }
+
+    private static UserFootDO toFoot(Long documentId, Integer type, Long userId, int state) {
+        UserFootDO foot = new UserFootDO();
+        foot.setUserId(userId);
+        foot.setDocumentId(documentId);
+        foot.setDocumentType(type);
+        foot.setPraiseStat((state & 1) != 0 ? PraiseStatEnum.PRAISE.getCode() : PraiseStatEnum.NOT_PRAISE.getCode());
+        foot.setCollectionStat((state & 2) != 0 ? CollectionStatEnum.COLLECTION.getCode() : CollectionStatEnum.NOT_COLLECTION.getCode());
+        foot.setCommentStat((state & 4) != 0 ? CommentStatEnum.COMMENT.getCode() : CommentStatEnum.NOT_COMMENT.getCode());
+        return foot;
+    }
+
+    private static String member(Integer type, Long documentId) {
+        return type + "_" + documentId;
+    }
+
+    private static String flag(boolean b) {
+        return b ? "1" : "0";
+    }
+}
@@ -0,0 +1,173 @@
+package com.github.paicoding.forum.service.user.service.help;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.paicoding.forum.api.model.vo.user.dto.BaseUserInfoDTO;
+import com.github.paicoding.forum.core.cache.RedisClient;
+import com.github.paicoding.forum.core.util.TransactionUtil;
+import com.github.paicoding.forum.service.user.converter.UserConverter;
+import com.github.paicoding.forum.service.user.repository.dao.UserDao;
+import com.github.paicoding.forum.service.user.repository.entity.UserInfoDO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 用户基本信息的两级缓存
+ * <p>
+ * - L1: 本地 caffeine，容量有限，短有效期
+ * - L2: redis，所有节点共享
+ * - 用户信息变更时，删除 L2 并通过 redis 发布订阅通知所有节点失效 L1
+ *
+ * @author YiHui
+ * @date 2026/10/16
+ */
+@Slf4j
+@Component
+public class UserInfoCacheHelper {
+    private static final String CACHE_KEY = "user_info_";
+    private static final String EVICT_CHANNEL = "user_info_evict";
+    /**
+     * L2 缓存有效期，单位s
+     */
+    private static final long REDIS_EXPIRE = 10 * 60L;
+
+    private final Cache<Long, BaseUserInfoDTO> localCache = Caffeine.newBuilder()
+            .maximumSize(2000)
+            .expireAfterWrite(1, TimeUnit.MINUTES)
+            .recordStats()
+            .build();
+
+    private final UserDao userDao;
+
+    private final RedisMessageListenerContainer listenerContainer;
+
+    private final Counter redisHit;
+    private final Counter redisMiss;
+    private final Timer dbLoad;
+
+    public UserInfoCacheHelper(UserDao userDao, RedisMessageListenerContainer listenerContainer, MeterRegistry meterRegistry) {
+        this.userDao = userDao;
+        this.listenerContainer = listenerContainer;
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, "user.info.l1");
+        this.redisHit = Counter.builder("paicoding.user.info.l2").tag("result", "hit").register(meterRegistry);
+        this.redisMiss = Counter.builder("paicoding.user.info.l2").tag("result", "miss").register(meterRegistry);
+        this.dbLoad = Timer.builder("paicoding.user.info.load").description("用户信息回源db耗时").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        // 订阅其他节点（包括自己）发出的失效通知
+        listenerContainer.addMessageListener((message, pattern) -> {
+            String body = new String(message.getBody(), StandardCharsets.UTF_8);
+            try {
+                localCache.invalidate(Long.valueOf(body));
+            } catch (NumberFormatException e) {
+                log.warn("illegal user info evict msg: {}", body);
+            }
+        }, RedisClient.topic(EVICT_CHANNEL));
+    }
+
+    /**
+     * 查询用户基本信息
+     *
+     * @param userId
+     * @return 用户不存在时返回null
+     */
+    public BaseUserInfoDTO get(Long userId) {
+        return getAll(Collections.singletonList(userId)).get(userId);
+    }
+
+    /**
+     * 批量查询用户基本信息，依次走 L1 -> L2 -> db，每一层都只访问一次
+     *
+     * @param userIds
+     * @return key: userId, 不存在的用户不会出现在结果中；返回的对象为副本，可以随意修改
+     */
+    public Map<Long, BaseUserInfoDTO> getAll(Collection<Long> userIds) {
+        if (CollectionUtils.isEmpty(userIds)) {
+            return Collections.emptyMap();
+        }
+
+        Set<Long> ids = new LinkedHashSet<>(userIds);
+        Map<Long, BaseUserInfoDTO> result = new HashMap<>(localCache.getAllPresent(ids));
+        ids.removeAll(result.keySet());
+
+        if (!ids.isEmpty()) {
+            // L2
+            List<Long> missIds = new ArrayList<>(ids);
+            List<BaseUserInfoDTO> list = RedisClient.mGet(missIds.stream().map(s -> CACHE_KEY + s).collect(Collectors.toList()), BaseUserInfoDTO.class);
+            for (int i = 0; i < missIds.size(); i++) {
+                BaseUserInfoDTO user = list.get(i);
+                if (user != null) {
+                    localCache.put(missIds.get(i), user);
+                    result.put(missIds.get(i), user);
+                    ids.remove(missIds.get(i));
+                }
+            }
+            redisHit.increment(missIds.size() - ids.size());
+            redisMiss.increment(ids.size());
+        }
+
+        if (!ids.isEmpty()) {
+            // 回源db
+            List<UserInfoDO> users = dbLoad.record(() -> userDao.getByUserIds(ids));
+            if (!CollectionUtils.isEmpty(users)) {
+                RedisClient.PipelineAction action = RedisClient.pipelineAction();
+                for (UserInfoDO info : users) {
+                    BaseUserInfoDTO user = UserConverter.toDTO(info);
+                    localCache.put(user.getUserId(), user);
+                    result.put(user.getUserId(), user);
+                    action.add(CACHE_KEY + user.getUserId(), (connection, key) -> connection.setEx(key, REDIS_EXPIRE, RedisClient.valBytes(user)));
+                }
+                action.execute();
+            }
+        }
+
+        // 缓存中的对象不允许外部修改，这里返回副本
+        Map<Long, BaseUserInfoDTO> copies = new HashMap<>(result.size());
+        result.forEach((k, v) -> copies.put(k, copy(v)));
+        return copies;
+    }
+
+    /**
+     * 用户信息变更后调用，事务中时在事务结束之后再失效，避免并发读取将旧数据回写到缓存
+     *
+     * @param userId
+     */
+    public void evict(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        TransactionUtil.registryAfterCompletionOrImmediatelyRun(() -> {
+            localCache.invalidate(userId);
+            RedisClient.del(CACHE_KEY + userId);
+            RedisClient.publish(EVICT_CHANNEL, String.valueOf(userId));
+        });
+    }
+
+    private BaseUserInfoDTO copy(BaseUserInfoDTO user) {
+        BaseUserInfoDTO ans = new BaseUserInfoDTO();
+        BeanUtils.copyProperties(user, ans);
+        return ans;
+    }
+}
@@ -29,6 +29,7 @@ import com.github.paicoding.forum.service.user.repository.entity.UserRelationDO;
 import com.github.paicoding.forum.service.user.service.UserAiService;
 import com.github.paicoding.forum.service.user.service.UserService;
 import com.github.paicoding.forum.service.user.service.conf.AiConfig;
+import com.github.paicoding.forum.service.user.service.help.UserInfoCacheHelper;
 import com.github.paicoding.forum.service.user.service.help.UserPwdEncoder;
 import com.github.paicoding.forum.service.user.service.help.UserSessionHelper;
 import org.apache.commons.lang3.StringUtils;
@@ -38,10 +39,12 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.CollectionUtils;
 
 import javax.annotation.Resource;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
@@ -84,6 +87,9 @@ public class UserServiceImpl implements UserService {
     @Resource
     private AiConfig aiConfig;
 
+    @Resource
+    private UserInfoCacheHelper userInfoCacheHelper;
+
     @Override
     public UserDO getWxUser(String wxuuid) {
         return userDao.getByThirdAccountId(wxuuid);
@@ -108,6 +114,7 @@ public class UserServiceImpl implements UserService {
     public void saveUserInfo(UserInfoSaveReq req) {
         UserInfoDO userInfoDO = UserConverter.toDO(req);
         userDao.updateUserInfo(userInfoDO);
+        userInfoCacheHelper.evict(userInfoDO.getUserId());
     }
 
     @Override
@@ -121,16 +128,33 @@ public class UserServiceImpl implements UserService {
             return null;
         }
 
-        // 查询用户信息，并更新最后一次使用的ip
-        UserInfoDO user = userDao.getByUserId(userId);
+        // 查询用户信息，并更新最后一次使用的ip；无需更新ip时直接走缓存
+        BaseUserInfoDTO user = clientIp == null ? userInfoCacheHelper.get(userId) : updateUserIpInfo(userId, clientIp);
         if (user == null) {
             // 常见于：session中记录的用户被删除了，直接移除缓存中的session，走重新登录流程
             userSessionHelper.removeSession(session);
             return null;
         }
 
+        // 查询 user_ai信息，标注用户是否为星球专属用户
+        UserAiDO userAiDO = userAiDao.getByUserId(userId);
+        this.autoUpdateUserStarState(userAiDO);
+        if (userAiDO != null) {
+            user.setStarStatus(UserAIStatEnum.fromCode(userAiDO.getState()));
+            user.setStarNumber(userAiDO.getStarNumber());
+            user.setExpireTime(userAiDO.getStarExpireTime());
+        }
+        return user;
+    }
+
+    private BaseUserInfoDTO updateUserIpInfo(Long userId, String clientIp) {
+        UserInfoDO user = userDao.getByUserId(userId);
+        if (user == null) {
+            return null;
+        }
+
         IpInfo ip = user.getIp();
-        if (clientIp != null && !Objects.equals(ip.getLatestIp(), clientIp)) {
+        if (!Objects.equals(ip.getLatestIp(), clientIp)) {
             // ip不同，需要更新
             ip.setLatestIp(clientIp);
             ip.setLatestRegion(IpUtil.getLocationByIp(clientIp).toRegionStr());
@@ -140,12 +164,9 @@ public class UserServiceImpl implements UserService {
                 ip.setFirstRegion(ip.getLatestRegion());
             }
             userDao.updateById(user);
+            userInfoCacheHelper.evict(userId);
         }
-
-        // 查询 user_ai信息，标注用户是否为星球专属用户
-        UserAiDO userAiDO = userAiDao.getByUserId(userId);
-        this.autoUpdateUserStarState(userAiDO);
-        return UserConverter.toDTO(user, userAiDO);
+        return UserConverter.toDTO(user);
     }
 
     private void autoUpdateUserStarState(UserAiDO userAiDO) {
@@ -172,38 +193,39 @@ public class UserServiceImpl implements UserService {
 
     @Override
     public SimpleUserInfoDTO querySimpleUserInfo(Long userId) {
-        UserInfoDO user = userDao.getByUserId(userId);
-        if (user == null) {
-            throw ExceptionUtil.of(StatusEnum.USER_NOT_EXISTS, "userId=" + userId);
-        }
-        return UserConverter.toSimpleInfo(user);
+        return UserConverter.toSimpleInfo(queryBasicUserInfo(userId));
     }
 
     @Override
     public BaseUserInfoDTO queryBasicUserInfo(Long userId) {
-        UserInfoDO user = userDao.getByUserId(userId);
+        BaseUserInfoDTO user = userInfoCacheHelper.get(userId);
         if (user == null) {
             throw ExceptionUtil.of(StatusEnum.USER_NOT_EXISTS, "userId=" + userId);
         }
-        return UserConverter.toDTO(user);
+        return user;
     }
 
     @Override
     public List<SimpleUserInfoDTO> batchQuerySimpleUserInfo(Collection<Long> userIds) {
-        List<UserInfoDO> users = userDao.getByUserIds(userIds);
+        Map<Long, BaseUserInfoDTO> users = userInfoCacheHelper.getAll(userIds);
         if (CollectionUtils.isEmpty(users)) {
             return Collections.emptyList();
         }
-        return users.stream().map(UserConverter::toSimpleInfo).collect(Collectors.toList());
+        return users.values().stream().map(UserConverter::toSimpleInfo).collect(Collectors.toList());
     }
 
     @Override
     public List<BaseUserInfoDTO> batchQueryBasicUserInfo(Collection<Long> userIds) {
-        List<UserInfoDO> users = userDao.getByUserIds(userIds);
+        Map<Long, BaseUserInfoDTO> users = userInfoCacheHelper.getAll(userIds);
         if (CollectionUtils.isEmpty(users)) {
             throw ExceptionUtil.of(StatusEnum.USER_NOT_EXISTS, "userId=" + userIds);
         }
-        return users.stream().map(UserConverter::toDTO).collect(Collectors.toList());
+        return new ArrayList<>(users.values());
+    }
+
+    @Override
+    public Map<Long, BaseUserInfoDTO> batchQueryBasicUserInfoMap(Collection<Long> userIds) {
+        return userInfoCacheHelper.getAll(userIds);
     }
 
     @Override
@@ -275,6 +297,7 @@ public class UserServiceImpl implements UserService {
         user.setUserName(loginReq.getUsername());
         user.setPassword(userPwdEncoder.encPwd(loginReq.getPassword()));
         userDao.saveUser(user);
+        userInfoCacheHelper.evict(user.getId());
 
         // 2. 更新ai相关信息
         userAiService.initOrUpdateAiInfo(loginReq);
@@ -322,6 +345,7 @@ public class UserServiceImpl implements UserService {
             // 只有当有实际更新内容时才调用更新方法
             if (hasUpdates) {
                 userDao.updateUserInfo(user);
+                userInfoCacheHelper.evict(userId);
             }
         }
 
@@ -17,12 +17,16 @@ import com.github.paicoding.forum.service.notify.service.RabbitmqService;
 import com.github.paicoding.forum.service.user.repository.dao.UserFootDao;
 import com.github.paicoding.forum.service.user.repository.entity.UserFootDO;
 import com.github.paicoding.forum.service.user.service.UserFootService;
+import com.github.paicoding.forum.service.user.service.help.ReadFootBuffer;
+import com.github.paicoding.forum.service.user.service.help.UserFootStateHelper;
 import com.rabbitmq.client.BuiltinExchangeType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
@@ -46,6 +50,12 @@ public class UserFootServiceImpl implements UserFootService {
     @Autowired
     private RabbitmqService rabbitmqService;
 
+    @Autowired
+    private ReadFootBuffer readFootBuffer;
+
+    @Autowired
+    private UserFootStateHelper userFootStateHelper;
+
     public UserFootServiceImpl(UserFootDao userFootDao) {
         this.userFootDao = userFootDao;
     }
@@ -71,13 +81,21 @@ public class UserFootServiceImpl implements UserFootService {
             readUserFootDO.setDocumentUserId(authorId);
             setUserFootStat(readUserFootDO, operateTypeEnum);
             userFootDao.save(readUserFootDO);
+            userFootStateHelper.update(readUserFootDO);
         } else if (setUserFootStat(readUserFootDO, operateTypeEnum)) {
             readUserFootDO.setUpdateTime(new Date());
             userFootDao.updateById(readUserFootDO);
+            userFootStateHelper.update(readUserFootDO);
         }
         return readUserFootDO;
     }
 
+    @Override
+    public UserFootDO readArticle(Long articleId, Long authorId, Long userId) {
+        readFootBuffer.read(articleId, authorId, userId);
+        return userFootStateHelper.get(articleId, DocumentTypeEnum.ARTICLE.getCode(), userId);
+    }
+
     /**
      * 文章/评论点赞、取消点赞、收藏、取消收藏
      *
@@ -115,6 +133,7 @@ public class UserFootServiceImpl implements UserFootService {
             // 幂等，直接返回
             return;
         }
+        userFootStateHelper.update(readUserFootDO);
 
 
         // 点赞、收藏两种操作时，需要发送异步消息，用于生成消息通知、更新文章/评论的相关计数统计、更新用户的活跃积分
@@ -201,6 +220,11 @@ public class UserFootServiceImpl implements UserFootService {
         return userFootDao.listReadArticleByUserId(userId, pageParam);
     }
 
+    @Override
+    public List<UserFootDO> queryUserReadFoots(Long userId, PageParam pageParam) {
+        return userFootDao.listReadFootsByUserId(userId, pageParam);
+    }
+
     @Override
     public List<Long> queryUserCollectionArticleList(Long userId, PageParam pageParam) {
         return userFootDao.listCollectedArticlesByUserId(userId, pageParam);
@@ -216,6 +240,11 @@ public class UserFootServiceImpl implements UserFootService {
         return userFootDao.getByDocumentAndUserId(documentId, type, userId);
     }
 
+    @Override
+    public Map<Long, UserFootDO> batchQueryUserFoot(Collection<Long> documentIds, Integer type, Long userId) {
+        return userFootStateHelper.query(documentIds, type, userId);
+    }
+
     @Override
     public UserFootStatisticDTO getFootCount() {
         return userFootDao.getFootCount();
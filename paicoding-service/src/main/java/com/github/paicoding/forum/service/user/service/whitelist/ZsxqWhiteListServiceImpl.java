@@ -20,6 +20,7 @@ import com.github.paicoding.forum.service.user.repository.entity.UserInfoDO;
 import com.github.paicoding.forum.service.user.repository.params.SearchZsxqWhiteParams;
 import com.github.paicoding.forum.service.user.service.ZsxqWhiteListService;
 import com.github.paicoding.forum.service.user.service.conf.AiConfig;
+import com.github.paicoding.forum.service.user.service.help.UserInfoCacheHelper;
 import com.github.paicoding.forum.service.user.service.help.UserPwdEncoder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -47,6 +48,8 @@ public class ZsxqWhiteListServiceImpl implements ZsxqWhiteListService {
     private UserPwdEncoder userPwdEncoder;
     @Resource
     private AiConfig aiConfig;
+    @Resource
+    private UserInfoCacheHelper userInfoCacheHelper;
 
     @Override
     public PageVo<ZsxqUserInfoDTO> getList(SearchZsxqUserReq req) {
@@ -112,6 +115,7 @@ public class ZsxqWhiteListServiceImpl implements ZsxqWhiteListService {
         userInfoDO.setId(userAiDO.getUserId());
         userInfoDO.setUserName(req.getName());
         userDao.updateById(userInfoDO);
+        userInfoCacheHelper.evict(userAiDO.getUserId());
 
         // 更新星球编号
         userAiDO.setStarNumber(req.getStarNumber());
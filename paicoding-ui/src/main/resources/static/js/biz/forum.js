@@ -94,6 +94,10 @@ const doGetNextPage = function (url, params, listId, btnId, callback) {
     console.log("response: ", data)
     const result = data.result
     $(`#${listId}`).append(result.html)
+    if (result.nextCursor) {
+      // 支持游标分页的列表，下一页直接带上游标，避免深分页
+      params["cursor"] = result.nextCursor
+    }
     if (!result.hasMore) {
       $(`#${btnId}`).hide()
     } else {
@@ -116,6 +120,10 @@ const doGetNextPageText = function (
     console.log("response: ", data)
     const result = data.result
     $(`#${listId}`).append(result.html)
+    if (result.nextCursor) {
+      // 支持游标分页的列表，下一页直接带上游标，避免深分页
+      params["cursor"] = result.nextCursor
+    }
     if (!result.hasMore) {
       callback(false)
     }
@@ -0,0 +1,176 @@
+package com.github.paicoding.forum.web.front.article.extra;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.paicoding.forum.api.model.context.ReqInfoContext;
+import com.github.paicoding.forum.api.model.enums.ArticleReadTypeEnum;
+import com.github.paicoding.forum.api.model.enums.DocumentTypeEnum;
+import com.github.paicoding.forum.api.model.event.ArticleMsgEvent;
+import com.github.paicoding.forum.api.model.vo.article.dto.ArticleDTO;
+import com.github.paicoding.forum.api.model.vo.notify.NotifyMsgEvent;
+import com.github.paicoding.forum.api.model.vo.seo.Seo;
+import com.github.paicoding.forum.service.article.helper.ArticleEventHelper;
+import com.github.paicoding.forum.service.comment.repository.entity.CommentDO;
+import com.github.paicoding.forum.service.comment.service.CommentReadService;
+import com.github.paicoding.forum.service.statistics.service.CountService;
+import com.github.paicoding.forum.service.user.repository.entity.UserFootDO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.ui.Model;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 未登录用户的文章详情页、专栏文章页的页面缓存
+ * <p>
+ * - 未登录用户看到的页面内容完全一致，这里缓存组装好的页面数据(vo + seo)，命中时跳过文章、评论、作者、侧边栏等全部查询
+ * - 全局的在线人数、站点访问计数等每次请求都不同的信息，依然由 GlobalViewInterceptor 在渲染前实时注入
+ * - 登录用户、付费阅读的文章不走缓存
+ * - 评论、点赞、收藏、文章变更时失效对应文章的缓存；其他节点上的缓存依赖较短的有效期过期
+ *
+ * @author YiHui
+ * @date 2026/10/16
+ */
+@Slf4j
+@Component
+public class AnonymousPageCache {
+    private final Cache<String, Page> cache;
+
+    @Autowired
+    private CountService countService;
+
+    @Autowired
+    private CommentReadService commentReadService;
+
+    public AnonymousPageCache(@Value("${paicoding.page-cache.expire:30}") long expireSeconds,
+                              @Value("${paicoding.page-cache.max-size:1000}") long maxSize,
+                              MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "page.anonymous");
+    }
+
+    public static String articleKey(Long articleId) {
+        return "article_" + articleId;
+    }
+
+    public static String columnKey(Long columnId, Integer section) {
+        return "column_" + columnId + "_" + section;
+    }
+
+    /**
+     * 当前请求是否可以使用缓存：只针对未登录用户
+     */
+    public boolean cacheable() {
+        return ReqInfoContext.getReqInfo() == null || ReqInfoContext.getReqInfo().getUserId() == null;
+    }
+
+    /**
+     * 从缓存中恢复页面数据
+     *
+     * @param key
+     * @param model
+     * @return true 表示命中缓存，model中已填充好页面数据
+     */
+    public boolean replay(String key, Model model) {
+        if (!cacheable()) {
+            return false;
+        }
+        Page page = cache.getIfPresent(key);
+        if (page == null) {
+            return false;
+        }
+
+        model.addAttribute("vo", page.getVo());
+        if (ReqInfoContext.getReqInfo() != null) {
+            ReqInfoContext.getReqInfo().setSeo(page.getSeo());
+        }
+        // 命中缓存时，依然需要累加文章的阅读计数
+        countService.incrArticleReadCount(page.getAuthorId(), page.getArticleId());
+        return true;
+    }
+
+    /**
+     * 缓存页面数据，需要在seo信息注入之后调用
+     *
+     * @param key
+     * @param article 页面中的文章
+     * @param vo      页面数据，缓存之后不允许再修改
+     */
+    public void save(String key, ArticleDTO article, Object vo) {
+        if (!cacheable() || Objects.equals(article.getReadType(), ArticleReadTypeEnum.PAY_READ.getType())) {
+            return;
+        }
+        Seo seo = ReqInfoContext.getReqInfo() == null ? null : ReqInfoContext.getReqInfo().getSeo();
+        cache.put(key, new Page(article.getArticleId(), article.getAuthor(), vo, seo));
+    }
+
+    public void evict(Long articleId) {
+        if (articleId == null) {
+            return;
+        }
+        cache.asMap().values().removeIf(page -> articleId.equals(page.getArticleId()));
+    }
+
+    /**
+     * 评论、点赞、收藏都会改变页面上的内容
+     *
+     * @param msgEvent
+     */
+    @Async
+    @EventListener(classes = NotifyMsgEvent.class)
+    public void notifyMsgListener(NotifyMsgEvent<?> msgEvent) {
+        switch (msgEvent.getNotifyType()) {
+            case COMMENT:
+            case REPLY:
+            case DELETE_COMMENT:
+            case DELETE_REPLY:
+                evict(((CommentDO) msgEvent.getContent()).getArticleId());
+                break;
+            case PRAISE:
+            case CANCEL_PRAISE:
+            case COLLECT:
+            case CANCEL_COLLECT:
+                UserFootDO foot = (UserFootDO) msgEvent.getContent();
+                if (DocumentTypeEnum.COMMENT.getCode().equals(foot.getDocumentType())) {
+                    CommentDO comment = commentReadService.queryComment(foot.getDocumentId());
+                    if (comment != null) {
+                        evict(comment.getArticleId());
+                    }
+                } else {
+                    evict(foot.getDocumentId());
+                }
+                break;
+            default:
+        }
+    }
+
+    @EventListener(ArticleMsgEvent.class)
+    public void articleChangeListener(ArticleMsgEvent<?> event) {
+        Long articleId = ArticleEventHelper.articleId(event);
+        if (articleId != null) {
+            evict(articleId);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class Page {
+        private final Long articleId;
+        private final Long authorId;
+        private final Object vo;
+        private final Seo seo;
+    }
+}
@@ -35,13 +35,15 @@ public class ArticleListRestController extends BaseViewController {
      * @param categoryId 类目id
      * @param page 请求页
      * @param size 分页数
+     * @param cursor 上一页返回的游标，传了游标时忽略页码
      * @return 文章列表
      */
     @GetMapping(path = "data/category/{category}")
     public ResVo<PageListVo<ArticleDTO>> categoryDataList(@PathVariable("category") Long categoryId,
                                                           @RequestParam(name = "page") Long page,
-                                                          @RequestParam(name = "size", required = false) Long size) {
-        PageParam pageParam = buildPageParam(page, size);
+                                                          @RequestParam(name = "size", required = false) Long size,
+                                                          @RequestParam(name = "cursor", required = false) String cursor) {
+        PageParam pageParam = buildPageParam(page, size, cursor);
         PageListVo<ArticleDTO> list = articleService.queryArticlesByCategory(categoryId, pageParam);
         return ResVo.ok(list);
     }
@@ -56,11 +58,12 @@ public class ArticleListRestController extends BaseViewController {
     @GetMapping(path = "category/{category}")
     public ResVo<NextPageHtmlVo> categoryList(@PathVariable("category") Long categoryId,
                                               @RequestParam(name = "page") Long page,
-                                              @RequestParam(name = "size", required = false) Long size) {
-        PageParam pageParam = buildPageParam(page, size);
+                                              @RequestParam(name = "size", required = false) Long size,
+                                              @RequestParam(name = "cursor", required = false) String cursor) {
+        PageParam pageParam = buildPageParam(page, size, cursor);
         PageListVo<ArticleDTO> list = articleService.queryArticlesByCategory(categoryId, pageParam);
         String html = templateEngineHelper.renderToVo("views/article-category-list/article/list", "articles", list);
-        return ResVo.ok(new NextPageHtmlVo(html, list.getHasMore()));
+        return ResVo.ok(new NextPageHtmlVo(html, list.getHasMore(), list.getNextCursor()));
     }
 
     /**
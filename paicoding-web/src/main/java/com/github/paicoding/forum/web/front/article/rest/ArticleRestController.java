@@ -18,7 +18,7 @@ import com.github.paicoding.forum.api.model.vo.user.dto.BaseUserInfoDTO;
 import com.github.paicoding.forum.core.mdc.MdcDot;
 import com.github.paicoding.forum.core.permission.Permission;
 import com.github.paicoding.forum.core.permission.UserRole;
-import com.github.paicoding.forum.core.util.MarkdownConverter;
+import com.github.paicoding.forum.service.article.helper.ArticleHtmlRenderHelper;
 import com.github.paicoding.forum.service.article.repository.entity.ArticleDO;
 import com.github.paicoding.forum.service.article.service.ArticleReadService;
 import com.github.paicoding.forum.service.article.service.ArticleRecommendService;
@@ -79,6 +79,9 @@ public class ArticleRestController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private ArticleHtmlRenderHelper articleHtmlRenderHelper;
+
     /**
      * 文章详情页
      * - 参数解析知识点
@@ -93,7 +96,7 @@ public class ArticleRestController {
         // 文章相关信息
         ArticleDTO articleDTO = articleService.queryFullArticleInfo(articleId, ReqInfoContext.getReqInfo().getUserId());
         // 返回给前端页面时，转换为html格式
-        articleDTO.setContent(MarkdownConverter.markdownToHtml(articleDTO.getContent()));
+        articleDTO.setContent(articleHtmlRenderHelper.render(articleDTO, articleDTO.getContent()));
         vo.setArticle(articleDTO);
 
         // 作者信息
@@ -12,9 +12,9 @@ import com.github.paicoding.forum.api.model.vo.recommend.SideBarDTO;
 import com.github.paicoding.forum.api.model.vo.user.dto.UserStatisticInfoDTO;
 import com.github.paicoding.forum.core.permission.Permission;
 import com.github.paicoding.forum.core.permission.UserRole;
-import com.github.paicoding.forum.core.util.MarkdownConverter;
 import com.github.paicoding.forum.core.util.SpringUtil;
 import com.github.paicoding.forum.service.article.conveter.PayConverter;
+import com.github.paicoding.forum.service.article.helper.ArticleHtmlRenderHelper;
 import com.github.paicoding.forum.service.article.repository.entity.ColumnArticleDO;
 import com.github.paicoding.forum.service.article.service.ArticlePayService;
 import com.github.paicoding.forum.service.article.service.ArticleReadService;
@@ -24,6 +24,7 @@ import com.github.paicoding.forum.service.article.service.TagService;
 import com.github.paicoding.forum.service.comment.service.CommentReadService;
 import com.github.paicoding.forum.service.sidebar.service.SidebarService;
 import com.github.paicoding.forum.service.user.service.UserService;
+import com.github.paicoding.forum.web.front.article.extra.AnonymousPageCache;
 import com.github.paicoding.forum.web.front.article.extra.ArticleReadViewServiceExtend;
 import com.github.paicoding.forum.web.front.article.vo.ArticleDetailVo;
 import com.github.paicoding.forum.web.front.article.vo.ArticleEditVo;
@@ -84,6 +85,12 @@ public class ArticleViewController extends BaseViewController {
     @Autowired
     private ArticlePayService articlePayService;
 
+    @Autowired
+    private ArticleHtmlRenderHelper articleHtmlRenderHelper;
+
+    @Autowired
+    private AnonymousPageCache anonymousPageCache;
+
     /**
      * 文章编辑页
      *
@@ -135,13 +142,19 @@ public class ArticleViewController extends BaseViewController {
             return String.format("redirect:/column/%d/%d", columnArticle.getColumnId(), columnArticle.getSection());
         }
 
+        // 未登录用户，优先走页面缓存
+        String cacheKey = AnonymousPageCache.articleKey(articleId);
+        if (anonymousPageCache.replay(cacheKey, model)) {
+            return "views/article-detail/index";
+        }
+
         ArticleDetailVo vo = new ArticleDetailVo();
         // 文章相关信息
         ArticleDTO articleDTO = articleService.queryFullArticleInfo(articleId, ReqInfoContext.getReqInfo().getUserId());
         // 根据文章类型，来自动处理文章类容
         String content = articleReadViewServiceExtend.formatArticleReadType(articleDTO);
         // 返回给前端页面时，转换为html格式
-        articleDTO.setContent(MarkdownConverter.markdownToHtml(content));
+        articleDTO.setContent(articleHtmlRenderHelper.render(articleDTO, content));
         vo.setArticle(articleDTO);
 
         // 评论信息
@@ -181,6 +194,7 @@ public class ArticleViewController extends BaseViewController {
         model.addAttribute("vo", vo);
 
         SpringUtil.getBean(SeoInjectService.class).initColumnSeo(vo);
+        anonymousPageCache.save(cacheKey, articleDTO, vo);
         return "views/article-detail/index";
     }
 
@@ -10,8 +10,8 @@ import com.github.paicoding.forum.api.model.vo.PageParam;
 import com.github.paicoding.forum.api.model.vo.article.dto.*;
 import com.github.paicoding.forum.api.model.vo.comment.dto.TopCommentDTO;
 import com.github.paicoding.forum.api.model.vo.recommend.SideBarDTO;
-import com.github.paicoding.forum.core.util.MarkdownConverter;
 import com.github.paicoding.forum.core.util.SpringUtil;
+import com.github.paicoding.forum.service.article.helper.ArticleHtmlRenderHelper;
 import com.github.paicoding.forum.service.article.repository.entity.ColumnArticleDO;
 import com.github.paicoding.forum.service.article.service.ArticlePayService;
 import com.github.paicoding.forum.service.article.service.ArticleReadService;
@@ -19,6 +19,7 @@ import com.github.paicoding.forum.service.article.service.ColumnService;
 import com.github.paicoding.forum.service.comment.service.CommentReadService;
 import com.github.paicoding.forum.service.sidebar.service.SidebarService;
 import com.github.paicoding.forum.web.config.GlobalViewConfig;
+import com.github.paicoding.forum.web.front.article.extra.AnonymousPageCache;
 import com.github.paicoding.forum.web.front.article.vo.ColumnVo;
 import com.github.paicoding.forum.web.global.SeoInjectService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -58,6 +59,12 @@ public class ColumnViewController {
     @Autowired
     private ArticlePayService articlePayService;
 
+    @Autowired
+    private ArticleHtmlRenderHelper articleHtmlRenderHelper;
+
+    @Autowired
+    private AnonymousPageCache anonymousPageCache;
+
     /**
      * 专栏主页，展示专栏列表
      *
@@ -100,6 +107,12 @@ public class ColumnViewController {
     @GetMapping(path = "{columnId}/{section}")
     public String articles(@PathVariable("columnId") Long columnId, @PathVariable("section") Integer section, Model model) {
         if (section <= 0) section = 1;
+        // 未登录用户，优先走页面缓存
+        String cacheKey = AnonymousPageCache.columnKey(columnId, section);
+        if (anonymousPageCache.replay(cacheKey, model)) {
+            return "views/column-detail/index";
+        }
+
         // 查询专栏
         ColumnDTO column = columnService.queryBasicColumnInfo(columnId);
 
@@ -108,7 +121,7 @@ public class ColumnViewController {
         // 文章信息
         ArticleDTO articleDTO = articleReadService.queryFullArticleInfo(articleId, ReqInfoContext.getReqInfo().getUserId());
         // 返回html格式的文档内容
-        articleDTO.setContent(MarkdownConverter.markdownToHtml(articleDTO.getContent()));
+        articleDTO.setContent(articleHtmlRenderHelper.render(articleDTO, articleDTO.getContent()));
         // 评论信息
         List<TopCommentDTO> comments = commentReadService.getArticleComments(articleId, PageParam.newPageInstance());
 
@@ -154,6 +167,7 @@ public class ColumnViewController {
         model.addAttribute("vo", vo);
 
         SpringUtil.getBean(SeoInjectService.class).initColumnSeo(vo, column);
+        anonymousPageCache.save(cacheKey, articleDTO, vo);
         return "views/column-detail/index";
     }
 
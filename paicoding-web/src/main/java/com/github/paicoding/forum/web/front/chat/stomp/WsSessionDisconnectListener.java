@@ -0,0 +1,35 @@
+package com.github.paicoding.forum.web.front.chat.stomp;
+
+import com.github.paicoding.forum.api.model.context.ReqInfoContext;
+import com.github.paicoding.forum.service.notify.service.NotifyService;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+/**
+ * websocket 连接断开(主动 DISCONNECT、关闭页面、网络中断)时，释放用户的消息通知长连接
+ * <p>
+ * DISCONNECT 帧没有 destination，不会进入 AuthInChannelInterceptor 中的消息通知分支，这里统一处理
+ *
+ * @author YiHui
+ * @date 2026/10/17
+ */
+@Component
+public class WsSessionDisconnectListener {
+    private final NotifyService notifyService;
+
+    public WsSessionDisconnectListener(NotifyService notifyService) {
+        this.notifyService = notifyService;
+    }
+
+    @EventListener(SessionDisconnectEvent.class)
+    public void onDisconnect(SessionDisconnectEvent event) {
+        if (!(event.getUser() instanceof ReqInfoContext.ReqInfo)) {
+            return;
+        }
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        accessor.setUser(event.getUser());
+        notifyService.notifyChannelMaintain(accessor);
+    }
+}
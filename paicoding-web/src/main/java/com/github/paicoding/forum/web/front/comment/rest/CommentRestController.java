@@ -3,6 +3,7 @@ package com.github.paicoding.forum.web.front.comment.rest;
 import com.github.paicoding.forum.api.model.context.ReqInfoContext;
 import com.github.paicoding.forum.api.model.enums.DocumentTypeEnum;
 import com.github.paicoding.forum.api.model.enums.OperateTypeEnum;
+import com.github.paicoding.forum.api.model.vo.PageListVo;
 import com.github.paicoding.forum.api.model.vo.PageParam;
 import com.github.paicoding.forum.api.model.vo.ResVo;
 import com.github.paicoding.forum.api.model.vo.comment.CommentSaveReq;
@@ -21,6 +22,7 @@ import com.github.paicoding.forum.service.user.service.UserFootService;
 import com.github.paicoding.forum.web.component.TemplateEngineHelper;
 import com.github.paicoding.forum.web.front.article.vo.ArticleDetailVo;
 import org.apache.commons.lang3.StringEscapeUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -75,6 +77,27 @@ public class CommentRestController {
         return ResVo.ok(result);
     }
 
+    /**
+     * 评论列表，返回下一页的游标，用于滚动加载
+     *
+     * @param articleId
+     * @param pageNum
+     * @param pageSize
+     * @param cursor    上一页返回的游标，传了游标时忽略页码
+     * @return
+     */
+    @ResponseBody
+    @RequestMapping(path = "page")
+    public ResVo<PageListVo<TopCommentDTO>> page(Long articleId, Long pageNum, Long pageSize, String cursor) {
+        if (NumUtil.nullOrZero(articleId)) {
+            return ResVo.fail(StatusEnum.ILLEGAL_ARGUMENTS_MIXED, "文章id为空");
+        }
+        pageNum = Optional.ofNullable(pageNum).orElse(PageParam.DEFAULT_PAGE_NUM);
+        pageSize = Optional.ofNullable(pageSize).orElse(PageParam.DEFAULT_PAGE_SIZE);
+        PageParam pageParam = StringUtils.isBlank(cursor) ? PageParam.newPageInstance(pageNum, pageSize) : PageParam.newCursorInstance(cursor, pageSize);
+        return ResVo.ok(commentReadService.queryArticleComments(articleId, pageParam));
+    }
+
     /**
      * 保存评论
      *
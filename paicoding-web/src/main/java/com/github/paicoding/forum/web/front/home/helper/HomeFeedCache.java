@@ -0,0 +1,214 @@
+package com.github.paicoding.forum.web.front.home.helper;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.paicoding.forum.api.model.enums.ConfigTypeEnum;
+import com.github.paicoding.forum.api.model.event.ArticleMsgEvent;
+import com.github.paicoding.forum.api.model.event.BannerChangeEvent;
+import com.github.paicoding.forum.api.model.vo.PageListVo;
+import com.github.paicoding.forum.api.model.vo.PageParam;
+import com.github.paicoding.forum.api.model.vo.article.dto.ArticleDTO;
+import com.github.paicoding.forum.api.model.vo.article.dto.CategoryDTO;
+import com.github.paicoding.forum.api.model.vo.banner.dto.ConfigDTO;
+import com.github.paicoding.forum.api.model.vo.recommend.CarouseDTO;
+import com.github.paicoding.forum.core.common.CommonConstants;
+import com.github.paicoding.forum.service.article.service.ArticleReadService;
+import com.github.paicoding.forum.service.article.service.CategoryService;
+import com.github.paicoding.forum.service.config.service.ConfigService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 首页各分类tab的数据快照：分类列表、第一页文章、置顶文章、轮播图
+ * <p>
+ * - 这些数据与访问的用户无关，每个tab组装一次之后以不可变快照的形式共享，请求命中时不再访问数据库
+ * - 快照超过有效期之后，下一次访问依然返回旧快照，同时在后台异步重建
+ * - 文章变更、运营配置变更时标记失效，由定时任务合并之后在后台统一重建，重建完成之前继续使用旧快照
+ *
+ * @author YiHui
+ * @date 2026/10/17
+ */
+@Slf4j
+@Component
+public class HomeFeedCache {
+    /**
+     * 全部分类对应的tab
+     */
+    private static final String ALL_TAB = "";
+
+    private final CategoryService categoryService;
+
+    private final ArticleReadService articleService;
+
+    private final ConfigService configService;
+
+    private final LoadingCache<String, HomeFeed> feeds;
+
+    /**
+     * 有文章、配置变更，待重建快照
+     */
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+
+    public HomeFeedCache(CategoryService categoryService,
+                         ArticleReadService articleService,
+                         ConfigService configService,
+                         @Value("${paicoding.home-feed.refresh:60}") long refreshSeconds,
+                         @Value("${paicoding.home-feed.max-size:64}") long maxSize,
+                         MeterRegistry meterRegistry) {
+        this.categoryService = categoryService;
+        this.articleService = articleService;
+        this.configService = configService;
+        this.feeds = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .refreshAfterWrite(refreshSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build(this::load);
+        CaffeineCacheMetrics.monitor(meterRegistry, feeds, "home.feed");
+    }
+
+    /**
+     * 获取分类tab对应的快照，不存在的分类统一使用全部分类的快照
+     *
+     * @param activeTab 选中的分类名
+     * @return
+     */
+    public HomeFeed get(String activeTab) {
+        return feeds.get(tabKey(activeTab));
+    }
+
+    private String tabKey(String activeTab) {
+        if (StringUtils.isBlank(activeTab)) {
+            return ALL_TAB;
+        }
+        for (CategoryDTO category : categoryService.loadAllCategories()) {
+            if (category.getCategory().equalsIgnoreCase(activeTab)) {
+                return category.getCategory();
+            }
+        }
+        return ALL_TAB;
+    }
+
+    @EventListener(ArticleMsgEvent.class)
+    public void articleChangeListener(ArticleMsgEvent<?> event) {
+        dirty.set(true);
+    }
+
+    @EventListener(BannerChangeEvent.class)
+    public void bannerChangeListener(BannerChangeEvent event) {
+        if (event.getType() == ConfigTypeEnum.HOME_PAGE || event.getType() == ConfigTypeEnum.EMPTY) {
+            dirty.set(true);
+        }
+    }
+
+    /**
+     * 合并一段时间内的变更，后台重建已缓存的快照
+     */
+    @Scheduled(fixedDelayString = "${paicoding.home-feed.rebuild-interval:3000}")
+    public void rebuild() {
+        if (dirty.compareAndSet(true, false)) {
+            feeds.asMap().keySet().forEach(feeds::refresh);
+        }
+    }
+
+    private HomeFeed load(String tab) {
+        long start = System.currentTimeMillis();
+        List<CategoryDTO> categories = categories(tab);
+        CategoryDTO selected = categories.stream().filter(CategoryDTO::getSelected).findFirst().orElse(categories.get(0));
+        HomeFeed feed = new HomeFeed(Collections.unmodifiableList(categories),
+                selected,
+                articleService.queryArticlesByCategory(selected.getCategoryId(), PageParam.newPageInstance()),
+                Collections.unmodifiableList(topArticleList(selected)),
+                Collections.unmodifiableList(homeCarouselList()));
+        log.info("home feed of tab [{}] rebuilt, cost={}ms", tab, System.currentTimeMillis() - start);
+        return feed;
+    }
+
+    /**
+     * 分类列表，过滤掉没有文章的分类，并在最前面加上全部分类
+     * <p>
+     * 分类服务返回的是其本地缓存中的对象，这里复制一份再设置选中状态，避免不同tab的快照相互影响
+     */
+    private List<CategoryDTO> categories(String tab) {
+        Map<Long, Long> articleCnt = articleService.queryArticleCountsByCategory();
+        List<CategoryDTO> list = new ArrayList<>();
+        CategoryDTO all = new CategoryDTO(0L, CategoryDTO.DEFAULT_TOTAL_CATEGORY);
+        all.setSelected(ALL_TAB.equals(tab));
+        list.add(all);
+        for (CategoryDTO category : categoryService.loadAllCategories()) {
+            if (articleCnt.getOrDefault(category.getCategoryId(), 0L) <= 0L) {
+                continue;
+            }
+            CategoryDTO copy = new CategoryDTO(category.getCategoryId(), category.getCategory(), category.getRank(),
+                    category.getStatus(), category.getCategory().equals(tab));
+            list.add(copy);
+        }
+        if (list.stream().noneMatch(CategoryDTO::getSelected)) {
+            // 选中的分类下没有文章时，默认选中全部分类
+            all.setSelected(true);
+        }
+        return list;
+    }
+
+    /**
+     * 置顶top 文章列表
+     */
+    private List<ArticleDTO> topArticleList(CategoryDTO category) {
+        List<ArticleDTO> topArticles = articleService.queryTopArticlesByCategory(category.getCategoryId() == 0 ? null : category.getCategoryId());
+        if (topArticles.size() < PageParam.TOP_PAGE_SIZE) {
+            // 当分类下文章数小于置顶数时，为了避免显示问题，直接不展示
+            return Collections.emptyList();
+        }
+
+        // 查询分类对应的头图列表
+        List<String> topPicList = CommonConstants.HOMEPAGE_TOP_PIC_MAP.getOrDefault(category.getCategory(),
+                CommonConstants.HOMEPAGE_TOP_PIC_MAP.get(CommonConstants.CATEGORY_ALL));
+
+        // 替换头图，下面做了一个数组越界的保护，避免当topPageSize数量变大，但是默认的cover图没有相应增大导致数组越界异常
+        AtomicInteger index = new AtomicInteger(0);
+        topArticles.forEach(s -> s.setCover(topPicList.get(index.getAndIncrement() % topPicList.size())));
+        return topArticles;
+    }
+
+    /**
+     * 轮播图
+     */
+    private List<CarouseDTO> homeCarouselList() {
+        List<ConfigDTO> configList = configService.getConfigList(ConfigTypeEnum.HOME_PAGE);
+        return configList.stream()
+                .map(configDTO -> new CarouseDTO()
+                        .setName(configDTO.getName())
+                        .setImgUrl(configDTO.getBannerUrl())
+                        .setActionUrl(configDTO.getJumpUrl()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 首页tab的快照，构建完成之后不再修改
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class HomeFeed {
+        private final List<CategoryDTO> categories;
+        private final CategoryDTO currentCategory;
+        private final PageListVo<ArticleDTO> articles;
+        private final List<ArticleDTO> topArticles;
+        private final List<CarouseDTO> homeCarouselList;
+    }
+}
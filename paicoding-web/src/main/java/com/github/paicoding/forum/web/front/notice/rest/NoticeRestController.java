@@ -16,6 +16,7 @@ import com.github.paicoding.forum.core.ws.WebSocketResponseUtil;
 import com.github.paicoding.forum.service.notify.service.NotifyService;
 import com.github.paicoding.forum.web.component.TemplateEngineHelper;
 import com.github.paicoding.forum.web.front.notice.vo.NoticeResVo;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
@@ -43,7 +44,7 @@ public class NoticeRestController {
         this.notifyService = notifyService;
     }
 
-    private PageListVo<NotifyMsgDTO> listItems(String type, Long page, Long pageSize) {
+    private PageListVo<NotifyMsgDTO> listItems(String type, Long page, Long pageSize, String cursor) {
         NotifyTypeEnum typeEnum = NotifyTypeEnum.typeOf(type);
         if (typeEnum == null) {
             throw ExceptionUtil.of(StatusEnum.ILLEGAL_ARGUMENTS_MIXED, "type" + type + "非法");
@@ -51,8 +52,8 @@ public class NoticeRestController {
         if (pageSize == null) {
             pageSize = PageParam.DEFAULT_PAGE_SIZE;
         }
-        return notifyService.queryUserNotices(ReqInfoContext.getReqInfo().getUserId(),
-                typeEnum, PageParam.newPageInstance(page, pageSize));
+        PageParam pageParam = StringUtils.isBlank(cursor) ? PageParam.newPageInstance(page, pageSize) : PageParam.newCursorInstance(cursor, pageSize);
+        return notifyService.queryUserNotices(ReqInfoContext.getReqInfo().getUserId(), typeEnum, pageParam);
 
     }
 
@@ -62,13 +63,15 @@ public class NoticeRestController {
      * @param type     @link NotifyTypeEnum
      * @param page
      * @param pageSize
+     * @param cursor   上一页返回的游标，传了游标时忽略页码
      * @return
      */
     @RequestMapping(path = "list")
     public ResVo<PageListVo<NotifyMsgDTO>> list(@RequestParam(name = "type") String type,
                                                 @RequestParam("page") Long page,
-                                                @RequestParam(name = "pageSize", required = false) Long pageSize) {
-        return ResVo.ok(listItems(type, page, pageSize));
+                                                @RequestParam(name = "pageSize", required = false) Long pageSize,
+                                                @RequestParam(name = "cursor", required = false) String cursor) {
+        return ResVo.ok(listItems(type, page, pageSize, cursor));
     }
 
     /**
@@ -82,14 +85,15 @@ public class NoticeRestController {
     @RequestMapping(path = "items")
     public ResVo<NextPageHtmlVo> listForView(@RequestParam(name = "type") String type,
                                              @RequestParam("page") Long page,
-                                             @RequestParam(name = "pageSize", required = false) Long pageSize) {
+                                             @RequestParam(name = "pageSize", required = false) Long pageSize,
+                                             @RequestParam(name = "cursor", required = false) String cursor) {
         type = type.toLowerCase().trim();
-        PageListVo<NotifyMsgDTO> list = listItems(type, page, pageSize);
+        PageListVo<NotifyMsgDTO> list = listItems(type, page, pageSize, cursor);
         NoticeResVo vo = new NoticeResVo();
         vo.setList(list);
         vo.setSelectType(type);
         String html = templateEngineHelper.render("views/notice/tab/notify-" + type, vo);
-        return ResVo.ok(new NextPageHtmlVo(html, list.getHasMore()));
+        return ResVo.ok(new NextPageHtmlVo(html, list.getHasMore(), list.getNextCursor()));
     }
 
 
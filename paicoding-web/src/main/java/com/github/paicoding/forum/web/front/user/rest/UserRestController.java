@@ -18,6 +18,7 @@ import com.github.paicoding.forum.service.article.service.ArticleReadService;
 import com.github.paicoding.forum.service.user.service.relation.UserRelationServiceImpl;
 import com.github.paicoding.forum.service.user.service.user.UserServiceImpl;
 import com.github.paicoding.forum.web.component.TemplateEngineHelper;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
@@ -90,17 +91,18 @@ public class UserRestController {
     public ResVo<NextPageHtmlVo> articleList(@RequestParam(name = "userId") Long userId,
                                              @RequestParam(name = "homeSelectType") String homeSelectType,
                                              @RequestParam("page") Long page,
-                                             @RequestParam(name = "pageSize", required = false) Long pageSize) {
+                                             @RequestParam(name = "pageSize", required = false) Long pageSize,
+                                             @RequestParam(name = "cursor", required = false) String cursor) {
         HomeSelectEnum select = HomeSelectEnum.fromCode(homeSelectType);
         if (select == null) {
             return ResVo.fail(StatusEnum.ILLEGAL_ARGUMENTS);
         }
 
         if (pageSize == null) pageSize = PageParam.DEFAULT_PAGE_SIZE;
-        PageParam pageParam = PageParam.newPageInstance(page, pageSize);
+        PageParam pageParam = StringUtils.isBlank(cursor) ? PageParam.newPageInstance(page, pageSize) : PageParam.newCursorInstance(cursor, pageSize);
         PageListVo<ArticleDTO> dto = articleReadService.queryArticlesByUserAndType(userId, pageParam, select);
         String html = templateEngineHelper.renderToVo("views/user/articles/index", "homeSelectList", dto);
-        return ResVo.ok(new NextPageHtmlVo(html, dto.getHasMore()));
+        return ResVo.ok(new NextPageHtmlVo(html, dto.getHasMore(), dto.getNextCursor()));
     }
 
     @GetMapping(path = "followList")
@@ -1,6 +1,7 @@
 package com.github.paicoding.forum.web.global;
 
 import com.github.paicoding.forum.api.model.vo.PageParam;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 
 /**
@@ -23,6 +24,22 @@ public class BaseViewController {
         return PageParam.newPageInstance(page, size);
     }
 
+    /**
+     * 有游标时使用游标分页，否则按页码分页
+     *
+     * @param page
+     * @param size
+     * @param cursor 上一页返回的 nextCursor
+     * @return
+     */
+    public PageParam buildPageParam(Long page, Long size, String cursor) {
+        PageParam pageParam = buildPageParam(page, size);
+        if (StringUtils.isNotBlank(cursor)) {
+            pageParam = PageParam.newCursorInstance(cursor, pageParam.getPageSize());
+        }
+        return pageParam;
+    }
+
 //
 //  推荐使用它替代 GlobalViewInterceptor 中的全局属性设置
 //    /**
@@ -0,0 +1,215 @@
+package com.github.paicoding.forum.web.hook.filter;
+
+import com.github.paicoding.forum.api.model.context.ReqInfoContext;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.InsufficientCapacityException;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.TimeoutBlockingWaitStrategy;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 请求日志的异步写入
+ * <p>
+ * 1. 请求线程使用线程内复用的 StringBuilder 将请求信息编码为一行json，再拷贝到环形队列预分配的槽位中，不会阻塞
+ * 2. 环形队列写满时直接丢弃，并记录丢弃数
+ * 3. 单个后台线程消费，一批日志合并之后只调用一次 logger 输出
+ *
+ * @author YiHui
+ * @date 2026/10/17
+ */
+@Slf4j
+@Component
+public class AccessLogWriter {
+    private static final Logger REQ_LOG = LoggerFactory.getLogger("req");
+
+    /**
+     * 编码缓冲的初始大小
+     */
+    private static final int ENCODER_SIZE = 1024;
+    /**
+     * 编码缓冲超过这个大小之后不再复用，避免偶发的大请求让线程一直持有大块内存
+     */
+    private static final int ENCODER_MAX_RETAIN = 16 * 1024;
+    /**
+     * 后台线程合并一批日志的上限
+     */
+    private static final int BATCH_FLUSH_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<StringBuilder> ENCODER = ThreadLocal.withInitial(() -> new StringBuilder(ENCODER_SIZE));
+
+    private final Disruptor<LogEvent> disruptor;
+
+    private final RingBuffer<LogEvent> ringBuffer;
+
+    private final Counter dropped;
+
+    private final int maxPayload;
+
+    public AccessLogWriter(@Value("${paicoding.access-log.buffer-size:8192}") int bufferSize,
+                           @Value("${paicoding.access-log.max-payload:2048}") int maxPayload,
+                           MeterRegistry meterRegistry) {
+        this.maxPayload = maxPayload;
+        this.disruptor = new Disruptor<>(LogEvent::new, bufferSize, r -> {
+            Thread thread = new Thread(r, "access-log-writer");
+            thread.setDaemon(true);
+            return thread;
+        }, ProducerType.MULTI, new TimeoutBlockingWaitStrategy(100, TimeUnit.MILLISECONDS));
+        this.disruptor.handleEventsWith(new BatchWriter());
+        this.ringBuffer = disruptor.start();
+
+        this.dropped = Counter.builder("paicoding.access.log.dropped").description("队列已满被丢弃的请求日志数").register(meterRegistry);
+        Gauge.builder("paicoding.access.log.pending", ringBuffer, s -> s.getBufferSize() - s.remainingCapacity())
+                .description("待写入的请求日志数").register(meterRegistry);
+    }
+
+    /**
+     * 请求体最多记录的字符数
+     */
+    public int getMaxPayload() {
+        return maxPayload;
+    }
+
+    /**
+     * 记录一条请求日志
+     *
+     * @param req     请求上下文
+     * @param traceId 链路id
+     * @param method  请求方法
+     * @param uri     请求路径
+     * @param query   请求参数
+     * @param status  返回状态码
+     * @param cost    耗时，ms
+     * @param db      db往返次数
+     * @param redis   redis往返次数
+     */
+    public void write(ReqInfoContext.ReqInfo req, String traceId, String method, String uri, String query,
+                      int status, long cost, int db, int redis) {
+        StringBuilder out = ENCODER.get();
+        out.setLength(0);
+        out.append("{\"ts\":").append(System.currentTimeMillis());
+        field(out, "traceId", traceId);
+        field(out, "method", method);
+        field(out, "uri", uri);
+        field(out, "query", query);
+        field(out, "referer", req.getReferer());
+        field(out, "ip", req.getClientIp());
+        field(out, "agent", req.getUserAgent());
+        if (req.getUserId() != null) {
+            out.append(",\"user\":").append(req.getUserId());
+        }
+        field(out, "payload", req.getPayload());
+        out.append(",\"status\":").append(status)
+                .append(",\"cost\":").append(cost)
+                .append(",\"db\":").append(db)
+                .append(",\"redis\":").append(redis)
+                .append('}');
+
+        publish(out);
+        if (out.capacity() > ENCODER_MAX_RETAIN) {
+            ENCODER.remove();
+        }
+    }
+
+    private void publish(StringBuilder record) {
+        long seq;
+        try {
+            seq = ringBuffer.tryNext();
+        } catch (InsufficientCapacityException e) {
+            // 写入跟不上时直接丢弃，不阻塞请求线程
+            dropped.increment();
+            return;
+        }
+        try {
+            StringBuilder slot = ringBuffer.get(seq).line;
+            slot.setLength(0);
+            slot.append(record);
+        } finally {
+            ringBuffer.publish(seq);
+        }
+    }
+
+    private static void field(StringBuilder out, String name, String value) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        out.append(",\"").append(name).append("\":\"");
+        for (int i = 0, len = value.length(); i < len; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        try {
+            disruptor.shutdown(3, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("access log writer shutdown timeout!", e);
+        }
+    }
+
+    private static class LogEvent {
+        private final StringBuilder line = new StringBuilder(ENCODER_SIZE);
+    }
+
+    /**
+     * 单线程消费，按批合并之后输出
+     */
+    private static class BatchWriter implements EventHandler<LogEvent> {
+        private final StringBuilder batch = new StringBuilder(BATCH_FLUSH_SIZE);
+
+        @Override
+        public void onEvent(LogEvent event, long sequence, boolean endOfBatch) {
+            if (batch.length() > 0) {
+                batch.append('\n');
+            }
+            batch.append(event.line);
+            if (event.line.capacity() > ENCODER_MAX_RETAIN) {
+                event.line.setLength(0);
+                event.line.trimToSize();
+            }
+            if (endOfBatch || batch.length() >= BATCH_FLUSH_SIZE) {
+                REQ_LOG.info(batch.toString());
+                batch.setLength(0);
+                if (batch.capacity() > BATCH_FLUSH_SIZE * 4) {
+                    batch.trimToSize();
+                }
+            }
+        }
+    }
+}
@@ -1,12 +1,10 @@
 package com.github.paicoding.forum.web.hook.filter;
 
-import cn.hutool.core.date.StopWatch;
 import com.github.paicoding.forum.api.model.context.ReqInfoContext;
-import com.github.paicoding.forum.core.async.AsyncUtil;
 import com.github.paicoding.forum.core.mdc.MdcUtil;
 import com.github.paicoding.forum.core.util.CrossUtil;
-import com.github.paicoding.forum.core.util.EnvUtil;
 import com.github.paicoding.forum.core.util.IpUtil;
+import com.github.paicoding.forum.core.util.RoundTripCounter;
 import com.github.paicoding.forum.core.util.SessionUtil;
 import com.github.paicoding.forum.core.util.SpringUtil;
 import com.github.paicoding.forum.service.sitemap.service.impl.SitemapServiceImpl;
@@ -15,8 +13,6 @@ import com.github.paicoding.forum.service.user.service.LoginService;
 import com.github.paicoding.forum.web.global.GlobalInitService;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpMethod;
 
@@ -32,10 +28,8 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.net.URL;
-import java.net.URLDecoder;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.TimeUnit;
 
 /**
  * 1. 请求参数日志输出过滤器
@@ -52,7 +46,6 @@ import java.util.concurrent.TimeUnit;
 @Slf4j
 @WebFilter(urlPatterns = "/*", filterName = "reqRecordFilter", asyncSupported = true) // urlPatterns表示对所有请求进行过滤
 public class ReqRecordFilter implements Filter { // Filter过滤器主要用于拦截http请求
-    private static Logger REQ_LOG = LoggerFactory.getLogger("req");
     /**
      * 返回给前端的traceId，用于日志追踪
      */
@@ -64,6 +57,9 @@ public class ReqRecordFilter implements Filter { // Filter过滤器主要用于
     @Autowired
     private StatisticsSettingService statisticsSettingService;
 
+    @Autowired
+    private AccessLogWriter accessLogWriter;
+
     @Override
     public void init(FilterConfig filterConfig) {
     }
@@ -73,31 +69,19 @@ public class ReqRecordFilter implements Filter { // Filter过滤器主要用于
     public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain) throws IOException, ServletException {
         long start = System.currentTimeMillis();
         HttpServletRequest request = null;
-        StopWatch stopWatch = new StopWatch("请求耗时");
+        // 重置本次请求的 db/redis 往返计数
+        RoundTripCounter.reset();
         try {
-            stopWatch.start("请求参数构建");
             request = this.initReqInfo((HttpServletRequest) servletRequest, (HttpServletResponse) servletResponse);
-            stopWatch.stop();
-            stopWatch.start("cors");
             CrossUtil.buildCors(request, (HttpServletResponse) servletResponse);
-            stopWatch.stop();
-            stopWatch.start("业务执行");
             filterChain.doFilter(request, servletResponse);
         } finally {
-            if (stopWatch.isRunning()) {
-                // 避免doFitler执行异常，导致上面的 stopWatch无法结束，这里先首当结束一下上次的计数
-                stopWatch.stop();
-            }
-            stopWatch.start("输出请求日志");
-            buildRequestLog(ReqInfoContext.getReqInfo(), request, System.currentTimeMillis() - start);
+            // 请求日志中已经包含了整体耗时与 db/redis 往返次数，不再逐段计时
+            buildRequestLog(ReqInfoContext.getReqInfo(), request, (HttpServletResponse) servletResponse, System.currentTimeMillis() - start);
             // 一个链路请求完毕，清空MDC相关的变量(如GlobalTraceId，用户信息)
             MdcUtil.clear();
             ReqInfoContext.clear();
-            stopWatch.stop();
-
-            if (!isStaticURI(request) && !EnvUtil.isPro()) {
-                log.info("{} - cost:\n{}", request.getRequestURI(), stopWatch.prettyPrint(TimeUnit.MILLISECONDS));
-            }
+            RoundTripCounter.clear();
         }
     }
 
@@ -113,14 +97,10 @@ public class ReqRecordFilter implements Filter { // Filter过滤器主要用于
             return request;
         }
 
-        StopWatch stopWatch = new StopWatch("请求参数构建");
         try {
-            stopWatch.start("traceId");
             // 添加全链路的traceId
             MdcUtil.addTraceId();
-            stopWatch.stop();
 
-            stopWatch.start("请求基本信息");
             // 手动写入一个session，借助 OnlineUserCountListener 实现在线人数实时统计
             /**
              * request.getSession()的作用是:
@@ -173,66 +153,36 @@ public class ReqRecordFilter implements Filter { // Filter过滤器主要用于
 
             // 这里通过post包装类, 将请求体字符串存储到了request的session中
             request = this.wrapperRequest(request, reqInfo);
-            stopWatch.stop();
 
-            stopWatch.start("登录用户信息");
             // 初始化登录信息
             globalInitService.initLoginUser(reqInfo);
-            stopWatch.stop();
 
             ReqInfoContext.addReqInfo(reqInfo);
-            stopWatch.start("pv/uv站点统计");
             // 更新uv/pv计数
-            // 1. 异步工具类将任务提交到异步线程池执行，避免该操作阻塞当前请求的处理流程
+            // 1. 只在本地内存中聚合，由 SiteVisitBuffer 定时批量写回redis，不会阻塞当前请求，无需再提交到异步线程池
             // 2. 从 Spring 容器中获取负责处理统计逻辑的服务类实例
             // 3. 传入客户端ip和访问路径, 这里不是用用户标识而使用客户端标识是因为对于一些可以匿名访问的文章方便记录
-            // 这里使用异步线程的原因是防止阻塞, 主方法中的业务流程, 这里是请求信息初始化流程
-            AsyncUtil.execute(() -> SpringUtil.getBean(SitemapServiceImpl.class).saveVisitInfo(reqInfo.getClientIp(), reqInfo.getPath()));
-            stopWatch.stop();
+            SpringUtil.getBean(SitemapServiceImpl.class).saveVisitInfo(reqInfo.getClientIp(), reqInfo.getPath());
 
-            stopWatch.start("回写traceId");
             // 返回头中记录traceId
             response.setHeader(GLOBAL_TRACE_ID_HEADER, Optional.ofNullable(MdcUtil.getTraceId()).orElse(""));
-            stopWatch.stop();
         } catch (Exception e) {
             log.error("init reqInfo error!", e);
-        } finally {
-            if (!EnvUtil.isPro()) {
-                log.info("{} -> 请求构建耗时: \n{}", request.getRequestURI(), stopWatch.prettyPrint(TimeUnit.MILLISECONDS));
-            }
         }
 
         return request;
     }
 
-    private void buildRequestLog(ReqInfoContext.ReqInfo req, HttpServletRequest request, long costTime) {
+    private void buildRequestLog(ReqInfoContext.ReqInfo req, HttpServletRequest request, HttpServletResponse response, long costTime) {
         if (req == null || isStaticURI(request)) {
             return;
         }
 
-        StringBuilder msg = new StringBuilder();
-        msg.append("method=").append(request.getMethod()).append("; ");
-        if (StringUtils.isNotBlank(req.getReferer())) {
-            msg.append("referer=").append(URLDecoder.decode(req.getReferer())).append("; ");
-        }
-        msg.append("remoteIp=").append(req.getClientIp());
-        msg.append("; agent=").append(req.getUserAgent());
-
-        if (req.getUserId() != null) {
-            // 打印用户信息
-            msg.append("; user=").append(req.getUserId());
-        }
+        // 编码为一行json投递到环形队列，由后台线程批量写入 req 日志；referer、query 保留原始编码，不在请求线程中解码
+        accessLogWriter.write(req, MdcUtil.getTraceId(), request.getMethod(), request.getRequestURI(), request.getQueryString(),
+                response.getStatus(), costTime, RoundTripCounter.db(), RoundTripCounter.redis());
 
-        msg.append("; uri=").append(request.getRequestURI());
-        if (StringUtils.isNotBlank(request.getQueryString())) {
-            msg.append('?').append(URLDecoder.decode(request.getQueryString()));
-        }
-
-        msg.append("; payload=").append(req.getPayload());
-        msg.append("; cost=").append(costTime);
-        REQ_LOG.info("{}", msg);
-
-        // 保存请求计数
+        // 保存请求计数，只在内存中累加，定时批量写回db
         statisticsSettingService.saveRequestCount(req.getClientIp());
     }
 
@@ -245,8 +195,12 @@ public class ReqRecordFilter implements Filter { // Filter过滤器主要用于
         // 创建自定义的请求包装器，包装原始request
         // post 流数据包装，避免因为打印日志导致请求参数被提前消费
         BodyReaderHttpServletRequestWrapper requestWrapper = new BodyReaderHttpServletRequestWrapper(request);
-        // 从包装器中获取请求体字符串，存入reqInfo（记录请求内容）
-        reqInfo.setPayload(requestWrapper.getBodyString());
+        // 从包装器中获取请求体字符串，存入reqInfo（记录请求内容）；只保留前 max-payload 个字符，避免大请求体撑大日志
+        String payload = requestWrapper.getBodyString();
+        if (payload != null && payload.length() > accessLogWriter.getMaxPayload()) {
+            payload = payload.substring(0, accessLogWriter.getMaxPayload()) + "...";
+        }
+        reqInfo.setPayload(payload);
         // 返回包装后的request，供后续处理（如控制器）使用
         return requestWrapper;
     }
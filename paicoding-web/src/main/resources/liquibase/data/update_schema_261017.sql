@@ -0,0 +1,7 @@
+-- 游标分页：排序字段的联合索引，按 (排序字段, id) 定位到上一页末尾，无需扫描 offset 之前的数据
+ALTER TABLE `article` ADD INDEX `idx_category_topping_create_time` (`category_id`, `topping_stat`, `create_time`);
+ALTER TABLE `article` ADD INDEX `idx_topping_create_time` (`topping_stat`, `create_time`);
+ALTER TABLE `article` ADD INDEX `idx_user_id` (`user_id`);
+ALTER TABLE `comment` ADD INDEX `idx_article_top_comment` (`article_id`, `top_comment_id`);
+ALTER TABLE `notify_msg` ADD INDEX `idx_notify_user_type_create_time` (`notify_user_id`, `type`, `create_time`);
+ALTER TABLE `user_foot` ADD INDEX `idx_user_read_update_time` (`user_id`, `document_type`, `read_stat`, `update_time`);
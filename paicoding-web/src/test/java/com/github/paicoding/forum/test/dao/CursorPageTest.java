@@ -0,0 +1,130 @@
+package com.github.paicoding.forum.test.dao;
+
+import com.github.paicoding.forum.api.model.enums.NotifyStatEnum;
+import com.github.paicoding.forum.api.model.enums.NotifyTypeEnum;
+import com.github.paicoding.forum.api.model.enums.YesOrNoEnum;
+import com.github.paicoding.forum.api.model.vo.PageCursor;
+import com.github.paicoding.forum.api.model.vo.PageParam;
+import com.github.paicoding.forum.api.model.vo.notify.dto.NotifyMsgDTO;
+import com.github.paicoding.forum.service.comment.repository.dao.CommentDao;
+import com.github.paicoding.forum.service.comment.repository.entity.CommentDO;
+import com.github.paicoding.forum.service.notify.repository.dao.NotifyMsgDao;
+import com.github.paicoding.forum.service.notify.repository.entity.NotifyMsgDO;
+import com.github.paicoding.forum.test.BasicTest;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 游标分页的正确性：逐页翻完之后与一次性查询的结果一致，没有遗漏也没有重复；排序字段相同时按id区分
+ * <p>
+ * 每个用例在事务中执行，结束后回滚
+ *
+ * @author YiHui
+ * @date 2026/10/17
+ */
+@Transactional
+public class CursorPageTest extends BasicTest {
+    private static final long ARTICLE_ID = -20261017L;
+    private static final long USER_ID = -20261017L;
+    private static final int PAGE_SIZE = 10;
+
+    @Autowired
+    private CommentDao commentDao;
+
+    @Autowired
+    private NotifyMsgDao notifyMsgDao;
+
+    @Test
+    public void testCursorCodec() {
+        PageCursor cursor = PageCursor.of(1, 1760659200000L, 123);
+        PageCursor decode = PageCursor.decode(cursor.encode());
+        Assert.assertEquals(3, decode.size());
+        Assert.assertEquals(1760659200000L, decode.getTime().getTime());
+        Assert.assertEquals(123, decode.getId());
+        Assert.assertNull(PageCursor.decode("not a cursor"));
+        Assert.assertNull(PageCursor.decode(""));
+    }
+
+    @Test
+    public void testCommentPages() {
+        // 不是页大小的整数倍，最后一页不满
+        int total = PAGE_SIZE * 3 + 5;
+        List<CommentDO> list = new ArrayList<>(total);
+        for (int i = 0; i < total; i++) {
+            CommentDO comment = new CommentDO();
+            comment.setArticleId(ARTICLE_ID);
+            comment.setUserId(1L);
+            comment.setContent("cursor-" + i);
+            comment.setParentCommentId(0L);
+            comment.setTopCommentId(0L);
+            comment.setDeleted(YesOrNoEnum.NO.getCode());
+            list.add(comment);
+        }
+        commentDao.saveBatch(list);
+
+        List<Long> expect = commentDao.listTopCommentList(ARTICLE_ID, PageParam.newPageInstance(1L, (long) total + 1)).stream()
+                .map(CommentDO::getId).collect(Collectors.toList());
+        Assert.assertEquals(total, expect.size());
+
+        List<Long> paged = pageAll(cursor -> commentDao.listTopCommentListAfter(ARTICLE_ID, cursor, PAGE_SIZE),
+                c -> PageCursor.of(c.getId()), CommentDO::getId);
+        assertSamePages(expect, paged);
+    }
+
+    @Test
+    public void testEqualCreateTime() {
+        int total = PAGE_SIZE * 2 + 3;
+        List<NotifyMsgDO> list = new ArrayList<>(total);
+        for (int i = 0; i < total; i++) {
+            NotifyMsgDO msg = new NotifyMsgDO();
+            msg.setRelatedId((long) i);
+            msg.setMsg("cursor-" + i);
+            msg.setNotifyUserId(USER_ID);
+            msg.setOperateUserId(0L);
+            msg.setType(NotifyTypeEnum.SYSTEM.getType());
+            msg.setState(NotifyStatEnum.UNREAD.getStat());
+            list.add(msg);
+        }
+        notifyMsgDao.saveBatch(list);
+        // 所有消息的创建时间相同，每一页的边界都落在相同的时间上，只能依靠id区分
+        Date same = new Date(System.currentTimeMillis() / 1000 * 1000);
+        notifyMsgDao.lambdaUpdate().eq(NotifyMsgDO::getNotifyUserId, USER_ID).set(NotifyMsgDO::getCreateTime, same).update();
+
+        List<Long> expect = list.stream().map(NotifyMsgDO::getId).sorted((a, b) -> Long.compare(b, a)).collect(Collectors.toList());
+        List<Long> paged = pageAll(cursor -> notifyMsgDao.listNotifyMsgByUserIdAndTypeAfter(USER_ID, NotifyTypeEnum.SYSTEM, cursor, PAGE_SIZE),
+                NotifyMsgDao::noticeCursor, NotifyMsgDTO::getMsgId);
+        assertSamePages(expect, paged);
+    }
+
+    /**
+     * 从第一页开始，以上一页的最后一条作为游标翻到最后
+     */
+    private static <T> List<Long> pageAll(Function<PageCursor, List<T>> query, Function<T, PageCursor> cursorOf, Function<T, Long> idOf) {
+        List<Long> result = new ArrayList<>();
+        PageCursor cursor = null;
+        while (true) {
+            List<T> page = query.apply(cursor);
+            Assert.assertTrue(page.size() <= PAGE_SIZE);
+            page.forEach(t -> result.add(idOf.apply(t)));
+            if (page.size() < PAGE_SIZE) {
+                return result;
+            }
+            // 游标经过编码、解码，与前端回传的一致
+            cursor = PageCursor.decode(cursorOf.apply(page.get(page.size() - 1)).encode());
+        }
+    }
+
+    private static void assertSamePages(List<Long> expect, List<Long> paged) {
+        Assert.assertEquals("duplicated", paged.size(), new HashSet<>(paged).size());
+        Assert.assertEquals(expect, paged);
+    }
+}
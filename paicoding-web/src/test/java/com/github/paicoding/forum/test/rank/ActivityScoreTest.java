@@ -0,0 +1,83 @@
+package com.github.paicoding.forum.test.rank;
+
+import com.github.paicoding.forum.core.cache.RedisClient;
+import com.github.paicoding.forum.core.util.DateUtil;
+import com.github.paicoding.forum.service.rank.service.impl.UserActivityRankServiceImpl;
+import com.github.paicoding.forum.test.BasicTest;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 活跃分lua脚本的幂等：同一操作重复加分只生效一次，减分只抵消之前加过的分；
+ * 使用一个不存在的用户，结束后从各个榜单中移除，并删除操作记录
+ *
+ * @author YiHui
+ * @date 2026/10/17
+ */
+public class ActivityScoreTest extends BasicTest {
+    private static final String KEY = "activity_rank_";
+
+    @Autowired
+    private UserActivityRankServiceImpl userActivityRankService;
+
+    private final Long userId = 9_000_000_000L + ThreadLocalRandom.current().nextInt(1_000_000);
+
+    @Test
+    public void testAddScoreIdempotent() {
+        String field = "path_/test/activity";
+        Assert.assertTrue(userActivityRankService.scoreNow(userId, field, 1));
+        Assert.assertFalse(userActivityRankService.scoreNow(userId, field, 1));
+        for (String rankKey : rankKeys()) {
+            Assert.assertEquals(rankKey, Double.valueOf(1), RedisClient.zScore(rankKey, String.valueOf(userId)));
+        }
+    }
+
+    @Test
+    public void testCancelScore() {
+        String field = "1_praise";
+        // 没有加过分时，减分不生效
+        Assert.assertFalse(userActivityRankService.scoreNow(userId, field, -2));
+        Assert.assertNull(RedisClient.zScore(todayRankKey(), String.valueOf(userId)));
+
+        Assert.assertTrue(userActivityRankService.scoreNow(userId, field, 2));
+        Assert.assertTrue(userActivityRankService.scoreNow(userId, field, -2));
+        Assert.assertFalse(userActivityRankService.scoreNow(userId, field, -2));
+        for (String rankKey : rankKeys()) {
+            Assert.assertEquals(rankKey, Double.valueOf(0), RedisClient.zScore(rankKey, String.valueOf(userId)));
+        }
+
+        // 取消之后可以再次加分
+        Assert.assertTrue(userActivityRankService.scoreNow(userId, field, 2));
+        Assert.assertEquals(Double.valueOf(2), RedisClient.zScore(todayRankKey(), String.valueOf(userId)));
+    }
+
+    @After
+    public void cleanUp() {
+        RedisClient.PipelineAction action = RedisClient.pipelineAction();
+        for (String rankKey : rankKeys()) {
+            action.add(rankKey, String.valueOf(userId), (connection, key, field) -> connection.zRem(key, field));
+        }
+        action.add(KEY + userId + day(), (connection, key) -> connection.del(key));
+        action.execute();
+    }
+
+    private List<String> rankKeys() {
+        String month = DateUtil.format(DateTimeFormatter.ofPattern("yyyyMM"), System.currentTimeMillis());
+        return Arrays.asList(todayRankKey(), KEY + month, KEY + "all", KEY + "7d", KEY + "30d");
+    }
+
+    private String todayRankKey() {
+        return KEY + day();
+    }
+
+    private static String day() {
+        return DateUtil.format(DateTimeFormatter.ofPattern("yyyyMMdd"), System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,122 @@
+package com.github.paicoding.forum.test.search;
+
+import com.github.paicoding.forum.api.model.vo.PageParam;
+import com.github.paicoding.forum.service.article.search.ArticleSearchClient;
+import com.github.paicoding.forum.service.article.search.ArticleSearchHit;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 使用本地的http服务模拟es，验证搜索结果解析、超时与熔断降级
+ *
+ * @author YiHui
+ * @date 2026/10/17
+ */
+public class ArticleSearchClientTest {
+    private static final String HIT_RESPONSE = "{\"took\":1,\"timed_out\":false,"
+            + "\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0},"
+            + "\"hits\":{\"total\":1,\"max_score\":1.0,\"hits\":[{\"_index\":\"article\",\"_type\":\"_doc\",\"_id\":\"12\",\"_score\":1.0,"
+            + "\"highlight\":{\"title\":[\"<em>Java</em> 入门\"],\"content\":[\"学习 <em>Java</em> 的第一天\"]}}]}}";
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private RestHighLevelClient restClient;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile int status = 200;
+    /**
+     * 模拟es节点挂起，响应前等待的时间
+     */
+    private volatile long delay = 0;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            byte[] body = (status == 200 ? HIT_RESPONSE : "{\"error\":\"stand-in failure\",\"status\":500}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        // 响应挂起时不阻塞其他请求
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.start();
+        restClient = new RestHighLevelClient(RestClient.builder(new HttpHost("127.0.0.1", server.getAddress().getPort())));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        restClient.close();
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testSearchHighlight() {
+        ArticleSearchClient client = new ArticleSearchClient(restClient, 5, 30000, 500, 1000);
+        List<ArticleSearchHit> hits = client.search("java", PageParam.newPageInstance());
+        Assert.assertNotNull(hits);
+        Assert.assertEquals(1, hits.size());
+        Assert.assertEquals(Long.valueOf(12), hits.get(0).getArticleId());
+        Assert.assertEquals("<em>Java</em> 入门", hits.get(0).getTitle());
+        // 摘要没有命中时，使用正文片段
+        Assert.assertEquals("学习 <em>Java</em> 的第一天", hits.get(0).getSummary());
+    }
+
+    @Test
+    public void testBreakerFallback() {
+        status = 500;
+        ArticleSearchClient client = new ArticleSearchClient(restClient, 3, 30000, 500, 1000);
+        for (int i = 0; i < 3; i++) {
+            Assert.assertNull(client.search("java", PageParam.newPageInstance()));
+        }
+        int before = requests.get();
+
+        // 熔断之后直接降级，不再访问es
+        status = 200;
+        Assert.assertNull(client.search("java", PageParam.newPageInstance()));
+        Assert.assertEquals(before, requests.get());
+    }
+
+    @Test
+    public void testRequestTimeout() {
+        delay = 3000;
+        ArticleSearchClient client = new ArticleSearchClient(restClient, 1, 30000, 500, 200);
+        long start = System.currentTimeMillis();
+        Assert.assertNull(client.search("java", PageParam.newPageInstance()));
+        long cost = System.currentTimeMillis() - start;
+        // 按客户端的超时返回，而不是等到es响应
+        Assert.assertTrue("cost " + cost + "ms", cost < 2000);
+
+        // 超时计入熔断失败，之后直接降级
+        delay = 0;
+        int before = requests.get();
+        Assert.assertNull(client.search("java", PageParam.newPageInstance()));
+        Assert.assertEquals(before, requests.get());
+    }
+}
@@ -0,0 +1,92 @@
+package com.github.paicoding.forum.test.search;
+
+import com.github.paicoding.forum.core.util.MapUtils;
+import com.github.paicoding.forum.service.article.search.ArticleTokenizer;
+import com.github.paicoding.forum.service.article.search.LocalArticleIndex;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 本地倒排索引的分词、匹配与排序
+ *
+ * @author YiHui
+ * @date 2026/10/17
+ */
+public class LocalArticleIndexTest {
+
+    private final LocalArticleIndex index = LocalArticleIndex.build(Arrays.asList(
+            new LocalArticleIndex.Doc(1L, "Java并发编程实战", "", "线程池的使用", Collections.singletonList("Java"), 0),
+            new LocalArticleIndex.Doc(2L, "Redis入门", "", "学习java客户端的使用", Collections.singletonList("Redis"), 0),
+            new LocalArticleIndex.Doc(3L, "并发容器", "", "ConcurrentHashMap源码", Collections.emptyList(), 0)
+    ));
+
+    @Test
+    public void testTokenize() {
+        Assert.assertEquals(Arrays.asList("java", "并发", "发编", "编程"), ArticleTokenizer.tokenize("Java 并发编程"));
+        Assert.assertEquals(Arrays.asList("redis", "入"), ArticleTokenizer.tokenize("Redis入"));
+        Assert.assertEquals(Arrays.asList("并发", "发编", "编程", "并", "发", "编", "程"), ArticleTokenizer.tokenizeForIndex("并发编程"));
+    }
+
+    @Test
+    public void testSearch() {
+        // 标题命中的权重高于摘要命中
+        Assert.assertEquals(Arrays.asList(1L, 2L), index.search("java", false, 0, 10));
+        // 所有的词都需要命中
+        Assert.assertEquals(Collections.singletonList(1L), index.search("java 并发", false, 0, 10));
+        // 得分相同时新文章在前
+        Assert.assertEquals(Arrays.asList(3L, 1L), index.search("并发", false, 0, 10));
+        Assert.assertTrue(index.search("kafka", false, 0, 10).isEmpty());
+    }
+
+    @Test
+    public void testSingleCjkChar() {
+        // 单个汉字的查询，命中词首、词中、词尾的字
+        Assert.assertEquals(Collections.singletonList(2L), index.search("入", false, 0, 10));
+        Assert.assertEquals(Collections.singletonList(1L), index.search("程", false, 0, 10));
+        Assert.assertEquals(Arrays.asList(3L, 1L), index.search("发", false, 0, 10));
+        // 中英文混合，汉字部分只有一个字
+        Assert.assertEquals(Collections.singletonList(2L), index.search("Redis入", false, 0, 10));
+        Assert.assertTrue(index.search("Redis程", false, 0, 10).isEmpty());
+    }
+
+    @Test
+    public void testUpdate() {
+        LocalArticleIndex.Doc old = new LocalArticleIndex.Doc(2L, "Redis入门", "", "学习java客户端的使用", Collections.singletonList("Redis"), 0);
+        Map<Long, LocalArticleIndex.Doc> before = MapUtils.create(2L, old, 3L,
+                new LocalArticleIndex.Doc(3L, "并发容器", "", "ConcurrentHashMap源码", Collections.emptyList(), 0));
+        Map<Long, LocalArticleIndex.Doc> after = MapUtils.create(
+                2L, new LocalArticleIndex.Doc(2L, "Kafka入门", "", "消息队列", Collections.singletonList("Kafka"), 1),
+                4L, new LocalArticleIndex.Doc(4L, "Java并发", "", "", Collections.emptyList(), 1));
+        LocalArticleIndex updated = index.update(before, after);
+
+        Assert.assertEquals(3, updated.size());
+        Assert.assertEquals(4, updated.capacity());
+        // 修改：旧的词不再命中，新的词可以命中
+        Assert.assertTrue(updated.search("redis", false, 0, 10).isEmpty());
+        Assert.assertEquals(Collections.singletonList(2L), updated.search("kafka", false, 0, 10));
+        // 删除与新增；新文章的编号在最后，得分相同时仍按id倒序
+        Assert.assertTrue(updated.search("concur", true, 0, 10).isEmpty());
+        Assert.assertEquals(Arrays.asList(1L, 4L), updated.search("java 并发", false, 0, 10));
+        Assert.assertEquals(Arrays.asList(4L, 1L), updated.search("并发", false, 0, 10));
+
+        // 原索引不受影响
+        Assert.assertEquals(Arrays.asList(1L, 2L), index.search("java", false, 0, 10));
+        Assert.assertEquals(Arrays.asList(3L, 1L), index.search("并发", false, 0, 10));
+        // 没有变化时复用原索引
+        Assert.assertSame(index, index.update(MapUtils.create(2L, old), MapUtils.create(2L, old)));
+    }
+
+    @Test
+    public void testPrefixAndPage() {
+        Assert.assertTrue(index.search("concur", false, 0, 10).isEmpty());
+        Assert.assertEquals(Collections.singletonList(3L), index.search("concur", true, 0, 10));
+
+        List<Long> second = index.search("java", false, 1, 10);
+        Assert.assertEquals(Collections.singletonList(2L), second);
+    }
+}
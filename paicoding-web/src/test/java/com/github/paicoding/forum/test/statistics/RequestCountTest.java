@@ -0,0 +1,108 @@
+package com.github.paicoding.forum.test.statistics;
+
+import com.github.paicoding.forum.core.util.MapUtils;
+import com.github.paicoding.forum.service.statistics.help.RequestCountBuffer;
+import com.github.paicoding.forum.service.statistics.repository.dao.RequestCountDao;
+import com.github.paicoding.forum.service.statistics.repository.entity.RequestCountDO;
+import com.github.paicoding.forum.test.BasicTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 请求计数批量写回：
+ * - 批量 upsert 在已有记录上累加
+ * - 并发累加的计数合并之后一次写回，不丢失
+ * - 写回失败时放回缓冲，下一轮一并写回
+ * <p>
+ * 每个用例在事务中执行，结束后回滚；缓冲使用独立的实例，不会被定时任务写回到事务之外
+ *
+ * @author YiHui
+ * @date 2026/10/17
+ */
+@Transactional
+public class RequestCountTest extends BasicTest {
+    @Autowired
+    private RequestCountDao requestCountDao;
+
+    @Test
+    public void testBatchIncrCount() {
+        Date today = Date.valueOf(LocalDate.now());
+        String a = host(), b = host();
+        requestCountDao.batchIncrCount(today, MapUtils.create(a, 3L, b, 1L));
+        requestCountDao.batchIncrCount(today, MapUtils.create(a, 2L));
+
+        Assert.assertEquals(Integer.valueOf(5), count(a));
+        Assert.assertEquals(Integer.valueOf(1), count(b));
+    }
+
+    @Test
+    public void testConcurrentIncr() throws InterruptedException {
+        RequestCountBuffer buffer = new RequestCountBuffer(requestCountDao, new SimpleMeterRegistry());
+        String a = host(), b = host();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 4; i++) {
+            pool.execute(() -> {
+                for (int j = 0; j < 250; j++) {
+                    buffer.incr(a);
+                    buffer.incr(b);
+                }
+            });
+        }
+        pool.shutdown();
+        Assert.assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        buffer.flush();
+        Assert.assertEquals(Integer.valueOf(1000), count(a));
+        Assert.assertEquals(Integer.valueOf(1000), count(b));
+
+        // 同一天再次写回，累加到同一条记录上
+        buffer.incr(a);
+        buffer.flush();
+        Assert.assertEquals(Integer.valueOf(1001), count(a));
+    }
+
+    @Test
+    public void testRestoreOnFailure() {
+        AtomicBoolean fail = new AtomicBoolean(true);
+        RequestCountDao dao = new RequestCountDao() {
+            @Override
+            public void batchIncrCount(Date date, Map<String, Long> counts) {
+                if (fail.getAndSet(false)) {
+                    throw new IllegalStateException("stand-in failure");
+                }
+                requestCountDao.batchIncrCount(date, counts);
+            }
+        };
+        RequestCountBuffer buffer = new RequestCountBuffer(dao, new SimpleMeterRegistry());
+        String a = host();
+        for (int i = 0; i < 3; i++) {
+            buffer.incr(a);
+        }
+        buffer.flush();
+        Assert.assertNull(count(a));
+
+        buffer.incr(a);
+        buffer.flush();
+        Assert.assertEquals(Integer.valueOf(4), count(a));
+    }
+
+    private Integer count(String host) {
+        RequestCountDO record = requestCountDao.getRequestCount(host, Date.valueOf(LocalDate.now()));
+        return record == null ? null : record.getCnt();
+    }
+
+    private static String host() {
+        return "test-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}